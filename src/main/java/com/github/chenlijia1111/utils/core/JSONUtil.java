@@ -7,6 +7,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.chenlijia1111.utils.common.AssertUtil;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -139,4 +141,142 @@ public class JSONUtil {
     }
 
 
+    /**
+     * 输入流 转 对象
+     * 边读边解析，不需要先把整个输入流读成字符串
+     * 输入流需要调用者自己关闭
+     *
+     * @param inputStream json 输入流 编码为 UTF-8/UTF-16/UTF-32 自动识别
+     * @param objClass    对象class
+     * @return 输入流为空或者格式不正确时返回 null
+     */
+    public static <T> T inputStreamToObj(InputStream inputStream, Class<T> objClass) {
+
+        AssertUtil.isTrue(Objects.nonNull(inputStream), "输入流为空");
+        AssertUtil.isTrue(Objects.nonNull(objClass), "对象class为空");
+
+        try {
+            T t = objectMapper.readValue(inputStream, objClass);
+            return t;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * 字符流 转 对象
+     * 输入流不是 UTF 编码时（如 GBK）用指定编码的字符流解析
+     * 字符流需要调用者自己关闭
+     *
+     * @param reader   json 字符流
+     * @param objClass 对象class
+     * @return 字符流为空或者格式不正确时返回 null
+     */
+    public static <T> T readerToObj(Reader reader, Class<T> objClass) {
+
+        AssertUtil.isTrue(Objects.nonNull(reader), "字符流为空");
+        AssertUtil.isTrue(Objects.nonNull(objClass), "对象class为空");
+
+        try {
+            T t = objectMapper.readValue(reader, objClass);
+            return t;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * 输入流 转 jsonNode对象
+     * 输入流需要调用者自己关闭
+     *
+     * @param inputStream json 输入流
+     * @return 输入流为空或者格式不正确时返回 null
+     */
+    public static JsonNode inputStreamToJsonNode(InputStream inputStream) {
+
+        AssertUtil.isTrue(Objects.nonNull(inputStream), "输入流为空");
+
+        try {
+            JsonNode jsonNode = objectMapper.readTree(inputStream);
+            //空的输入流 jackson 会返回 MissingNode
+            return Objects.nonNull(jsonNode) && !jsonNode.isMissingNode() ? jsonNode : null;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * 字符流 转 jsonNode对象
+     * 字符流需要调用者自己关闭
+     *
+     * @param reader json 字符流
+     * @return 字符流为空或者格式不正确时返回 null
+     */
+    public static JsonNode readerToJsonNode(Reader reader) {
+
+        AssertUtil.isTrue(Objects.nonNull(reader), "字符流为空");
+
+        try {
+            JsonNode jsonNode = objectMapper.readTree(reader);
+            return Objects.nonNull(jsonNode) && !jsonNode.isMissingNode() ? jsonNode : null;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * 输入流 转集合
+     * 输入流需要调用者自己关闭
+     *
+     * @param inputStream json 输入流
+     * @param listClass   集合class
+     * @param objClass    对象class
+     * @return 输入流为空或者格式不正确时返回 null
+     */
+    public static <T> List<T> inputStreamToList(InputStream inputStream, Class<? extends List> listClass, Class<T> objClass) {
+
+        AssertUtil.isTrue(Objects.nonNull(inputStream), "输入流为空");
+        AssertUtil.isTrue(Objects.nonNull(listClass), "集合class为空");
+        AssertUtil.isTrue(Objects.nonNull(objClass), "对象class为空");
+
+        JavaType javaType = objectMapper.getTypeFactory().constructParametricType(listClass, objClass);
+        try {
+            List<T> list = objectMapper.readValue(inputStream, javaType);
+            return list;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * 字符流 转集合
+     * 字符流需要调用者自己关闭
+     *
+     * @param reader    json 字符流
+     * @param listClass 集合class
+     * @param objClass  对象class
+     * @return 字符流为空或者格式不正确时返回 null
+     */
+    public static <T> List<T> readerToList(Reader reader, Class<? extends List> listClass, Class<T> objClass) {
+
+        AssertUtil.isTrue(Objects.nonNull(reader), "字符流为空");
+        AssertUtil.isTrue(Objects.nonNull(listClass), "集合class为空");
+        AssertUtil.isTrue(Objects.nonNull(objClass), "对象class为空");
+
+        JavaType javaType = objectMapper.getTypeFactory().constructParametricType(listClass, objClass);
+        try {
+            List<T> list = objectMapper.readValue(reader, javaType);
+            return list;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+
 }
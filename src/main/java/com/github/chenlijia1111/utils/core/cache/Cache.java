@@ -0,0 +1,107 @@
+package com.github.chenlijia1111.utils.core.cache;
+
+import com.github.chenlijia1111.utils.core.cache.offheap.OffHeapStats;
+
+import java.util.function.Function;
+
+/**
+ * 缓存
+ *
+ * 通过 {@link CacheBuilder} 创建，每个缓存实例有自己独立的容量、过期、统计策略，互不影响
+ * 所有实例共用一个后台维护线程清理过期数据
+ * 开启了堆外缓存的实例，数量或者数据包含堆内与堆外两部分
+ *
+ * @param <K> key 类型
+ * @param <V> value 类型
+ * @author Chen LiJia
+ * @since 2020/7/2
+ */
+public interface Cache<K, V> {
+
+    /**
+     * 获取缓存
+     *
+     * @param key
+     * @return 不存在或者已经过期返回 null
+     */
+    V getIfPresent(K key);
+
+    /**
+     * 获取缓存，不存在时调用加载方法并存入缓存
+     * 同一个 key 同时只会有一个线程执行加载，其他线程等待并共享这次加载的结果
+     *
+     * @param key
+     * @param loader 加载方法 返回 null 表示没有数据，不会存入缓存
+     * @return
+     */
+    V get(K key, Function<? super K, ? extends V> loader);
+
+    /**
+     * 存入缓存
+     *
+     * @param key
+     * @param value
+     */
+    void put(K key, V value);
+
+    /**
+     * 缓存不存在或者已过期时才存入
+     * 判断与存入是一个原子操作
+     *
+     * @param key
+     * @param value
+     * @return 存入成功返回 null，否则返回当前还有效的值
+     */
+    V putIfAbsent(K key, V value);
+
+    /**
+     * 判断是否包含没有过期的缓存
+     * 不算一次访问，不会延续过期时间
+     *
+     * @param key
+     * @return
+     */
+    boolean containsKey(K key);
+
+    /**
+     * 删除缓存
+     *
+     * @param key
+     * @return 是否删除了数据
+     */
+    boolean remove(K key);
+
+    /**
+     * 删除所有缓存
+     */
+    void removeAll();
+
+    /**
+     * 当前缓存数量
+     * 包含已经过期但是还没有被清理的数据
+     *
+     * @return
+     */
+    long estimatedSize();
+
+    /**
+     * 统计数据快照
+     * 没有开启统计时所有数据都是 0
+     *
+     * @return
+     */
+    CacheStats stats();
+
+    /**
+     * 堆外缓存统计数据快照
+     *
+     * @return 没有开启堆外缓存时返回 null
+     */
+    OffHeapStats offHeapStats();
+
+    /**
+     * 立即执行维护 清理过期数据，淘汰超出容量的数据
+     */
+    void cleanUp();
+
+}
@@ -0,0 +1,339 @@
+package com.github.chenlijia1111.utils.core.cache;
+
+import com.github.chenlijia1111.utils.common.AssertUtil;
+import com.github.chenlijia1111.utils.core.cache.offheap.JdkSerializer;
+import com.github.chenlijia1111.utils.core.cache.offheap.Serializer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缓存构建器
+ *
+ * 每次 {@link #build()} 都会创建一个独立的缓存，有自己的容量、过期、统计策略，
+ * 不同用途的数据放在不同的缓存里，不会互相覆盖，也不会互相淘汰
+ * 所有缓存共用一个后台维护线程，不会每个缓存启动一个线程
+ *
+ * {@code
+ *     Cache<String, String> tokenCache = CacheBuilder.<String, String>newBuilder()
+ *             .maximumSize(1000)
+ *             .expireAfterWrite(2, TimeUnit.HOURS)
+ *             .recordStats()
+ *             .build();
+ *
+ *     //堆内最多 64M，超出的部分放到 2G 的堆外缓存
+ *     Cache<String, byte[]> fileCache = CacheBuilder.<String, byte[]>newBuilder()
+ *             .maximumWeight(64 * 1024 * 1024, (key, value) -> value.length)
+ *             .offHeap(2L * 1024 * 1024 * 1024, byteArraySerializer)
+ *             .build();
+ * }
+ *
+ * @param <K> key 类型
+ * @param <V> value 类型
+ * @author Chen LiJia
+ * @since 2020/7/2
+ */
+public class CacheBuilder<K, V> {
+
+    /**
+     * 不限制容量
+     */
+    public static final long UNBOUNDED = -1L;
+
+    /**
+     * 默认在堆外命中 2 次之后提升到堆内
+     * 只访问一次的数据不会挤占堆内的空间
+     */
+    public static final int DEFAULT_PROMOTION_THRESHOLD = 2;
+
+    /**
+     * 最大权重
+     */
+    private long maximumWeight = UNBOUNDED;
+
+    /**
+     * 权重计算
+     */
+    private Weigher<? super K, ? super V> weigher = (key, value) -> 1;
+
+    /**
+     * 淘汰策略
+     */
+    private EvictionPolicyTypeEnum evictionPolicyType = EvictionPolicyTypeEnum.W_TINY_LFU;
+
+    /**
+     * 过期时间计算
+     */
+    private Expiry<? super K, ? super V> expiry;
+
+    /**
+     * 是否记录统计数据
+     */
+    private boolean recordStats;
+
+    /**
+     * 删除监听
+     */
+    private final List<RemovalListener<? super K, ? super V>> removalListeners = new ArrayList<>();
+
+    /**
+     * 执行删除监听与后台刷新的线程池
+     */
+    private Executor executor = ForkJoinPool.commonPool();
+
+    /**
+     * 提前刷新的比例
+     */
+    private double refreshAheadRatio;
+
+    /**
+     * 堆外最大容量 字节
+     */
+    private long offHeapCapacityBytes = UNBOUNDED;
+
+    /**
+     * 堆外缓存的序列化
+     */
+    private Serializer<V> serializer;
+
+    /**
+     * 在堆外命中多少次之后提升到堆内
+     */
+    private int promotionThreshold = DEFAULT_PROMOTION_THRESHOLD;
+
+    private CacheBuilder() {
+    }
+
+    /**
+     * 创建构建器
+     *
+     * @param <K>
+     * @param <V>
+     * @return
+     */
+    public static <K, V> CacheBuilder<K, V> newBuilder() {
+        return new CacheBuilder<>();
+    }
+
+    /**
+     * 最大缓存数量
+     *
+     * @param maximumSize
+     * @return
+     */
+    public CacheBuilder<K, V> maximumSize(long maximumSize) {
+        AssertUtil.isTrue(maximumSize >= 0, "最大数量不能小于0");
+        this.maximumWeight = maximumSize;
+        this.weigher = (key, value) -> 1;
+        return this;
+    }
+
+    /**
+     * 最大缓存权重
+     *
+     * @param maximumWeight
+     * @param weigher       权重计算
+     * @return
+     */
+    public CacheBuilder<K, V> maximumWeight(long maximumWeight, Weigher<? super K, ? super V> weigher) {
+        AssertUtil.isTrue(maximumWeight >= 0, "最大权重不能小于0");
+        AssertUtil.notNull(weigher, "权重计算不能为空");
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+        return this;
+    }
+
+    /**
+     * 淘汰策略
+     * 默认 {@link EvictionPolicyTypeEnum#W_TINY_LFU}
+     *
+     * @param evictionPolicyType
+     * @return
+     */
+    public CacheBuilder<K, V> evictionPolicy(EvictionPolicyTypeEnum evictionPolicyType) {
+        AssertUtil.notNull(evictionPolicyType, "淘汰策略不能为空");
+        this.evictionPolicyType = evictionPolicyType;
+        return this;
+    }
+
+    /**
+     * 存入之后固定时间过期
+     * 对应 {@link TimeOutTypeEnum#FIXED_TIME_OUT}
+     *
+     * @param duration
+     * @param unit
+     * @return
+     */
+    public CacheBuilder<K, V> expireAfterWrite(long duration, TimeUnit unit) {
+        AssertUtil.isTrue(duration >= 0, "存活时间不能小于0");
+        long survivalTime = unit.toMillis(duration);
+        this.expiry = (key, value, currentTimeMillis) -> survivalTime;
+        return this;
+    }
+
+    /**
+     * 最后一次访问之后固定时间过期
+     * 对应 {@link TimeOutTypeEnum#DELAY_TIME_OUT}
+     *
+     * @param duration
+     * @param unit
+     * @return
+     */
+    public CacheBuilder<K, V> expireAfterAccess(long duration, TimeUnit unit) {
+        AssertUtil.isTrue(duration >= 0, "存活时间不能小于0");
+        long survivalTime = unit.toMillis(duration);
+        this.expiry = new Expiry<K, V>() {
+            @Override
+            public long expireAfterCreate(K key, V value, long currentTimeMillis) {
+                return survivalTime;
+            }
+
+            @Override
+            public long expireAfterRead(K key, V value, long currentTimeMillis, long currentDuration) {
+                return survivalTime;
+            }
+        };
+        return this;
+    }
+
+    /**
+     * 自定义过期时间计算 每条数据可以有不同的过期时间
+     *
+     * @param expiry
+     * @return
+     */
+    public CacheBuilder<K, V> expiry(Expiry<? super K, ? super V> expiry) {
+        AssertUtil.notNull(expiry, "过期时间计算不能为空");
+        this.expiry = expiry;
+        return this;
+    }
+
+    /**
+     * 提前刷新
+     * 从存入到过期的时间过去指定比例之后，通过 {@link Cache#get(Object, java.util.function.Function)} 访问时在后台重新加载
+     *
+     * @param refreshAheadRatio 0 ~ 1 之间，0 表示不提前刷新
+     * @return
+     */
+    public CacheBuilder<K, V> refreshAheadRatio(double refreshAheadRatio) {
+        AssertUtil.isTrue(refreshAheadRatio >= 0 && refreshAheadRatio < 1, "提前刷新比例必须在0到1之间");
+        this.refreshAheadRatio = refreshAheadRatio;
+        return this;
+    }
+
+    /**
+     * 记录统计数据
+     *
+     * @return
+     */
+    public CacheBuilder<K, V> recordStats() {
+        this.recordStats = true;
+        return this;
+    }
+
+    /**
+     * 删除监听
+     *
+     * @param removalListener
+     * @return
+     */
+    public CacheBuilder<K, V> removalListener(RemovalListener<? super K, ? super V> removalListener) {
+        AssertUtil.notNull(removalListener, "删除监听不能为空");
+        this.removalListeners.add(removalListener);
+        return this;
+    }
+
+    /**
+     * 执行删除监听与后台刷新的线程池
+     * 默认 {@link ForkJoinPool#commonPool()}
+     *
+     * @param executor
+     * @return
+     */
+    public CacheBuilder<K, V> executor(Executor executor) {
+        AssertUtil.notNull(executor, "线程池不能为空");
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * 开启堆外缓存
+     * 超出堆内容量被淘汰的数据序列化之后存到堆外，需要同时设置堆内的最大数量或者最大权重
+     * 堆外的内存直到缓存被回收才会释放，注意 jvm 参数 -XX:MaxDirectMemorySize 要比这个容量大
+     *
+     * @param capacityBytes 堆外最大容量 字节
+     * @param serializer    序列化
+     * @return
+     */
+    public CacheBuilder<K, V> offHeap(long capacityBytes, Serializer<V> serializer) {
+        AssertUtil.isTrue(capacityBytes > 0, "堆外缓存容量必须大于0");
+        AssertUtil.notNull(serializer, "序列化不能为空");
+        this.offHeapCapacityBytes = capacityBytes;
+        this.serializer = serializer;
+        return this;
+    }
+
+    /**
+     * 开启堆外缓存 使用 jdk 序列化
+     * 缓存值需要实现 {@link java.io.Serializable}
+     *
+     * @param capacityBytes 堆外最大容量 字节
+     * @return
+     */
+    public CacheBuilder<K, V> offHeap(long capacityBytes) {
+        return offHeap(capacityBytes, new JdkSerializer<>());
+    }
+
+    /**
+     * 在堆外命中多少次之后提升到堆内
+     * 默认 {@link #DEFAULT_PROMOTION_THRESHOLD}
+     *
+     * @param promotionThreshold
+     * @return
+     */
+    public CacheBuilder<K, V> promotionThreshold(int promotionThreshold) {
+        AssertUtil.isTrue(promotionThreshold > 0, "提升阈值必须大于0");
+        this.promotionThreshold = promotionThreshold;
+        return this;
+    }
+
+    /**
+     * 构建缓存
+     *
+     * @return
+     */
+    public Cache<K, V> build() {
+        return buildLocalCache();
+    }
+
+    /**
+     * 构建缓存
+     *
+     * @return
+     */
+    LocalCache<K, V> buildLocalCache() {
+        AssertUtil.isTrue(offHeapCapacityBytes == UNBOUNDED || maximumWeight != UNBOUNDED, "开启堆外缓存需要设置堆内的最大容量");
+
+        LocalCache<K, V> cache = new LocalCache<>(expiry, recordStats);
+        cache.setEvictionPolicyType(evictionPolicyType);
+        if (maximumWeight != UNBOUNDED) {
+            cache.setMaximumWeight(maximumWeight, weigher);
+        }
+        for (RemovalListener<? super K, ? super V> removalListener : removalListeners) {
+            cache.addRemovalListener(removalListener);
+        }
+        cache.setListenerExecutor(executor);
+        cache.setRefreshExecutor(executor);
+        if (refreshAheadRatio > 0) {
+            cache.setRefreshAheadRatio(refreshAheadRatio);
+        }
+        if (offHeapCapacityBytes != UNBOUNDED) {
+            cache.setOffHeap(offHeapCapacityBytes, serializer, promotionThreshold);
+        }
+        return cache;
+    }
+
+}
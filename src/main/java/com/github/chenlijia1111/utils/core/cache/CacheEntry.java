@@ -0,0 +1,89 @@
+package com.github.chenlijia1111.utils.core.cache;
+
+/**
+ * 缓存节点
+ *
+ * @param <K> key 类型
+ * @param <V> value 类型
+ * @author Chen LiJia
+ * @since 2020/7/2
+ */
+final class CacheEntry<K, V> {
+
+    final K key;
+
+    final V value;
+
+    /**
+     * 存入时间
+     */
+    final long writeTime;
+
+    /**
+     * 过期时间 {@link Long#MAX_VALUE} 表示永不过期
+     * 访问之后可能会被延后
+     */
+    volatile long expireTime;
+
+    /**
+     * 过期时间是否被访问延后过
+     * 按访问延时过期的数据一直被访问就不会过期，不需要提前刷新
+     */
+    volatile boolean expireExtended;
+
+    /**
+     * 过期清理的定时节点
+     * 只能在持有时间轮锁的时候操作
+     */
+    TimerWheel.Node<CacheEntry<K, V>> timerNode;
+
+    CacheEntry(K key, V value, long writeTime, long expireTime) {
+        this.key = key;
+        this.value = value;
+        this.writeTime = writeTime;
+        this.expireTime = expireTime;
+    }
+
+    /**
+     * 判断在指定时间是否过期
+     *
+     * @param currentTimeMillis
+     * @return
+     */
+    boolean isExpired(long currentTimeMillis) {
+        return currentTimeMillis >= expireTime;
+    }
+
+    /**
+     * 判断是否需要提前刷新
+     * 从存入到过期的时间过去了指定比例
+     * 只对固定时间过期的数据提前刷新，过期时间被访问延后过的不刷新
+     *
+     * @param currentTimeMillis 当前时间
+     * @param refreshAheadRatio 比例
+     * @return
+     */
+    boolean shouldRefresh(long currentTimeMillis, double refreshAheadRatio) {
+        long expireTime = this.expireTime;
+        if (expireTime == Long.MAX_VALUE || expireExtended) {
+            return false;
+        }
+        return currentTimeMillis - writeTime >= (long) ((expireTime - writeTime) * refreshAheadRatio);
+    }
+
+    /**
+     * 相加 溢出时返回 {@link Long#MAX_VALUE}
+     *
+     * @param time
+     * @param duration
+     * @return
+     */
+    static long saturatedAdd(long time, long duration) {
+        if (duration == Long.MAX_VALUE) {
+            return Long.MAX_VALUE;
+        }
+        long result = time + duration;
+        return ((time ^ result) & (duration ^ result)) < 0 ? (duration > 0 ? Long.MAX_VALUE : Long.MIN_VALUE) : result;
+    }
+
+}
@@ -2,15 +2,18 @@ package com.github.chenlijia1111.utils.core.cache;
 
 import com.github.chenlijia1111.utils.common.AssertUtil;
 
-import java.util.Objects;
+import java.io.Serializable;
 
 /**
  * 缓存对象
+ * 开启了堆外缓存时会被序列化，缓存值需要实现 {@link Serializable}
  *
  * @author Chen LiJia
  * @since 2020/7/2
  */
-public class CacheObject {
+public class CacheObject implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     /**
      * key
@@ -30,13 +33,6 @@ public class CacheObject {
      */
     private TimeOutTypeEnum timeOutTypeEnum;
 
-    /**
-     * 上次访问时间
-     * 初始值为创建时间
-     * 以后每请求一次，更新时间
-     */
-    private long lastAccessTime;
-
     /**
      * 存活时间
      * 单位 毫秒
@@ -68,45 +64,19 @@ public class CacheObject {
         this.survivalTime = survivalTime;
         this.timeOutTypeEnum = timeOutTypeEnum;
 
-        long currentTimeMillis = System.currentTimeMillis();
-        lastAccessTime = currentTimeMillis;
-        createTime = currentTimeMillis;
+        createTime = System.currentTimeMillis();
 
     }
 
     /**
-     * 判断数据是否过期
+     * 获取超时类型
      *
      * @return
      */
-    boolean isExpired() {
-
-        if (Objects.equals(TimeOutTypeEnum.NOT_TIME_OUT, timeOutTypeEnum)) {
-            //永不超时
-            return false;
-        }
-
-        if (Objects.equals(TimeOutTypeEnum.FIXED_TIME_OUT, timeOutTypeEnum)) {
-            //固定时间超时
-            if (System.currentTimeMillis() < createTime + survivalTime) {
-                return false;
-            }
-        }
-
-        if (Objects.equals(TimeOutTypeEnum.DELAY_TIME_OUT, timeOutTypeEnum)) {
-            //延时超时类型
-            //判断上次访问时间
-            if (System.currentTimeMillis() < lastAccessTime + survivalTime) {
-                return false;
-            }
-        }
-
-        //超时了
-
-        return true;
+    public TimeOutTypeEnum getTimeOutTypeEnum() {
+        return timeOutTypeEnum;
     }
 
-
     /**
      * 获取key
      *
@@ -118,14 +88,11 @@ public class CacheObject {
 
     /**
      * 获取值
+     * 过期时间由 {@link CacheUtil} 按超时类型计算，访问时间由缓存记录
      *
      * @return
      */
     public Object getValue() {
-        //更新上次请求的时间
-        long currentTimeMillis = System.currentTimeMillis();
-        lastAccessTime = currentTimeMillis;
-        //返回对象
         return obj;
     }
 
@@ -135,7 +102,6 @@ public class CacheObject {
                 "key='" + key + '\'' +
                 ", obj=" + obj +
                 ", timeOutTypeEnum=" + timeOutTypeEnum +
-                ", lastAccessTime=" + lastAccessTime +
                 ", survivalTime=" + survivalTime +
                 ", createTime=" + createTime +
                 '}';
@@ -0,0 +1,111 @@
+package com.github.chenlijia1111.utils.core.cache;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 缓存后台维护调度
+ *
+ * 所有缓存实例共用一个守护线程，每个 tick 转一次各个缓存的时间轮，并处理积压的访问记录
+ * 没有任何缓存有定时中的数据时线程挂起，直到有缓存存入了会过期的数据
+ *
+ * 只保存缓存的弱引用，缓存不再使用之后会被回收，不需要手动注销
+ *
+ * @author Chen LiJia
+ * @since 2020/7/2
+ */
+final class CacheScheduler {
+
+    /**
+     * 时间轮一个 tick 的毫秒数
+     * 也就是过期清理的精度，读取的时候还会再判断一次是否过期，所以不影响过期判断的准确性
+     */
+    static final long TICK_MILLIS = 10L;
+
+    /**
+     * 注册的缓存
+     */
+    private static final List<WeakReference<LocalCache<?, ?>>> CACHE_LIST = new CopyOnWriteArrayList<>();
+
+    private static final ReentrantLock LOCK = new ReentrantLock();
+
+    private static final Condition CONDITION = LOCK.newCondition();
+
+    /**
+     * 挂起期间是否有新的定时
+     */
+    private static boolean signaled;
+
+    static {
+        Thread thread = new Thread(CacheScheduler::run, "cache-maintenance");
+        //守护线程，不阻止 jvm 退出
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private CacheScheduler() {
+    }
+
+    /**
+     * 注册缓存
+     *
+     * @param cache
+     */
+    static void register(LocalCache<?, ?> cache) {
+        CACHE_LIST.add(new WeakReference<>(cache));
+    }
+
+    /**
+     * 唤醒维护线程
+     * 缓存的时间轮从空变成非空的时候调用
+     */
+    static void wakeUp() {
+        LOCK.lock();
+        try {
+            signaled = true;
+            CONDITION.signal();
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    private static void run() {
+        while (true) {
+            boolean hasPending = false;
+            long currentTimeMillis = System.currentTimeMillis();
+            for (WeakReference<LocalCache<?, ?>> reference : CACHE_LIST) {
+                LocalCache<?, ?> cache = reference.get();
+                if (null == cache) {
+                    //缓存已经被回收了
+                    CACHE_LIST.remove(reference);
+                    continue;
+                }
+                try {
+                    hasPending |= cache.scheduledMaintenance(currentTimeMillis);
+                } catch (Throwable e) {
+                    //一个缓存出错不影响其他缓存
+                    e.printStackTrace();
+                }
+            }
+
+            LOCK.lock();
+            try {
+                if (!hasPending && !signaled) {
+                    CONDITION.await();
+                } else if (!signaled) {
+                    CONDITION.awaitNanos(TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS));
+                }
+                signaled = false;
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            } finally {
+                LOCK.unlock();
+            }
+        }
+    }
+
+}
@@ -1,11 +1,13 @@
 package com.github.chenlijia1111.utils.core.cache;
 
-import java.util.HashMap;
-import java.util.Map;
+import com.github.chenlijia1111.utils.common.AssertUtil;
+import com.github.chenlijia1111.utils.core.cache.offheap.JdkSerializer;
+import com.github.chenlijia1111.utils.core.cache.offheap.OffHeapStats;
+
 import java.util.Objects;
-import java.util.concurrent.DelayQueue;
-import java.util.concurrent.Delayed;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
 
 /**
  * 缓存工具类
@@ -14,19 +16,68 @@ import java.util.concurrent.TimeUnit;
  *
  * 适用于所以需要按时间范围保存数据的场景，统一管理，节省资源
  *
+ * 这是全局共用的默认缓存，每条数据通过 {@link CacheObject} 自己指定超时类型与存活时间
+ * 不同用途的数据如果不想互相影响（容量、淘汰、统计），可以通过 {@link CacheBuilder} 创建独立的 {@link Cache}，
+ * 所有缓存共用一个后台维护线程
+ *
+ * 线程安全、淘汰、过期清理的实现见 {@link LocalCache}
+ *
+ * 容量限制：默认不限制容量，可以通过 {@link #setMaximumSize(long)} 或者
+ * {@link #setMaximumWeight(long, Weigher)} 设置上限，超出后按 {@link EvictionPolicyTypeEnum} 淘汰数据，
+ * 与超时清理同时生效
+ *
+ * 过期清理：延时超时类型的数据每次通过 {@link #get(String)} 访问都会延续存活时间，
+ * {@link #containsKey(String)} 不算访问
+ *
+ * 堆外缓存：{@link #setOffHeap(long)} 开启之后，超出堆内容量被淘汰的数据序列化到堆外内存，
+ * 大量缓存数据不再占用老年代，被多次访问的数据会重新放回堆内
+ *
+ * 统计与监听：{@link #stats()} 获取命中、未命中、存入、过期、淘汰等统计数据，
+ * {@link #addRemovalListener(RemovalListener)} 添加删除监听，监听在 {@link #setListenerExecutor(Executor)} 中异步回调
+ *
+ * 加载：{@link #get(String, Function)} 缓存不存在时调用加载方法，同一个 key 同时只会有一个线程在加载，
+ * 其他线程等待这次加载的结果，防止热点数据过期的瞬间大量请求同时去查询数据库或者第三方接口
+ * 设置了 {@link #setRefreshAheadRatio(double)} 之后，快要过期的数据会在后台提前加载，加载完成之前继续返回旧值
+ *
  * @author Chen LiJia
  * @since 2020/7/2
  */
 public class CacheUtil {
 
-    //存储缓存数据的集合
-    private Map<String, CacheObject> cacheMap;
-
+    /**
+     * 不限制容量
+     */
+    public static final long UNBOUNDED = CacheBuilder.UNBOUNDED;
 
     /**
-     * 延时队列，用于清理数据
+     * 按缓存对象自己的超时类型计算存活时间
      */
-    private DelayQueue<DelayCacheItem> delayCacheItemDelayQueue;
+    private static final Expiry<String, CacheObject> CACHE_OBJECT_EXPIRY = new Expiry<String, CacheObject>() {
+        @Override
+        public long expireAfterCreate(String key, CacheObject cacheObject, long currentTimeMillis) {
+            TimeOutTypeEnum timeOutTypeEnum = cacheObject.getTimeOutTypeEnum();
+            if (Objects.equals(TimeOutTypeEnum.FIXED_TIME_OUT, timeOutTypeEnum)) {
+                //固定超时从缓存对象创建的时候开始算
+                return CacheEntry.saturatedAdd(cacheObject.createTime, cacheObject.survivalTime) - currentTimeMillis;
+            }
+            if (Objects.equals(TimeOutTypeEnum.DELAY_TIME_OUT, timeOutTypeEnum)) {
+                return cacheObject.survivalTime;
+            }
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public long expireAfterRead(String key, CacheObject cacheObject, long currentTimeMillis, long currentDuration) {
+            if (Objects.equals(TimeOutTypeEnum.DELAY_TIME_OUT, cacheObject.getTimeOutTypeEnum())) {
+                //延时超时每次访问都重新计算存活时间
+                return cacheObject.survivalTime;
+            }
+            return currentDuration;
+        }
+    };
+
+    //存储缓存数据
+    private final LocalCache<String, CacheObject> cache;
 
     //单例
     private static volatile CacheUtil cacheUtil;
@@ -36,12 +87,10 @@ public class CacheUtil {
      * 私有构造函数
      */
     private CacheUtil() {
-        //初始化
-        cacheMap = new HashMap<>();
-        delayCacheItemDelayQueue = new DelayQueue<>();
-        //清理缓存的线程
-        new ClearCacheThread().start();
-
+        cache = CacheBuilder.<String, CacheObject>newBuilder()
+                .expiry(CACHE_OBJECT_EXPIRY)
+                .recordStats()
+                .buildLocalCache();
     }
 
     /**
@@ -61,148 +110,223 @@ public class CacheUtil {
     }
 
     /**
-     * 存入缓存对象
+     * 设置最大缓存数量
      *
-     * @param cacheObject
+     * @param maximumSize 最大数量 {@link #UNBOUNDED} 表示不限制
+     * @return
      */
-    public void put(CacheObject cacheObject) {
-        if (Objects.nonNull(cacheObject)) {
-            cacheMap.put(cacheObject.key, cacheObject);
-
-            //存一份到队列里面去，定时删除
-            DelayCacheItem delayCacheItem = new DelayCacheItem();
-            delayCacheItem.cacheKey = cacheObject.key;
-            delayCacheItem.limitTime = cacheObject.createTime + cacheObject.survivalTime;
-            delayCacheItemDelayQueue.put(delayCacheItem);
-        }
+    public CacheUtil setMaximumSize(long maximumSize) {
+        return setMaximumWeight(maximumSize, (key, value) -> 1);
     }
 
     /**
-     * 获取缓存对象
+     * 设置最大缓存权重
+     * 已经存在的数据会按新的权重重新计算，超出的部分会被立即淘汰
      *
-     * @param key
+     * @param maximumWeight 最大权重 {@link #UNBOUNDED} 表示不限制
+     * @param weigher       权重计算 参数是缓存的 key 与缓存对象里的值
      * @return
      */
-    public CacheObject get(String key) {
-
-        //判断是否存在
-        CacheObject cacheObject = cacheMap.get(key);
-        if (Objects.nonNull(cacheObject)) {
-            //判断是否过期
-            if (!cacheObject.isExpired()) {
-                //没有过期
-                return cacheObject;
-            }
-
-            //过期了，删除这个对象
-            cacheMap.remove(key);
-        }
-        return null;
+    public CacheUtil setMaximumWeight(long maximumWeight, Weigher<String, Object> weigher) {
+        AssertUtil.notNull(weigher, "权重计算不能为空");
+        cache.setMaximumWeight(maximumWeight, (key, cacheObject) -> weigher.weigh(key, cacheObject.obj));
+        return this;
     }
 
-
     /**
-     * 判断是否包含缓存
+     * 设置淘汰策略
+     * 默认 {@link EvictionPolicyTypeEnum#W_TINY_LFU}
      *
-     * @param key
+     * @param evictionPolicyType
      * @return
      */
-    public boolean containsKey(String key) {
-        //判断是否存在
-        CacheObject cacheObject = cacheMap.get(key);
-        if (Objects.nonNull(cacheObject)) {
-            //判断是否过期
-            if (!cacheObject.isExpired()) {
-                //没有过期
-                return true;
-            }
-
-            //过期了，删除这个对象
-            cacheMap.remove(key);
-        }
+    public CacheUtil setEvictionPolicy(EvictionPolicyTypeEnum evictionPolicyType) {
+        cache.setEvictionPolicyType(evictionPolicyType);
+        return this;
+    }
 
-        return false;
+    /**
+     * 添加删除监听
+     *
+     * @param removalListener
+     * @return
+     */
+    public CacheUtil addRemovalListener(RemovalListener<String, CacheObject> removalListener) {
+        cache.addRemovalListener(removalListener);
+        return this;
     }
 
     /**
-     * 删除缓存
+     * 移除删除监听
      *
-     * @param key
+     * @param removalListener
      * @return
      */
-    public boolean remove(String key) {
-        return Objects.nonNull(cacheMap.remove(key));
+    public CacheUtil removeRemovalListener(RemovalListener<String, CacheObject> removalListener) {
+        cache.removeRemovalListener(removalListener);
+        return this;
     }
 
     /**
-     * 当前缓存数量
+     * 设置执行删除监听的线程池
+     * 默认 {@link ForkJoinPool#commonPool()}
+     *
+     * @param listenerExecutor
      * @return
      */
-    public int currentCacheCount(){
-        return cacheMap.size();
+    public CacheUtil setListenerExecutor(Executor listenerExecutor) {
+        cache.setListenerExecutor(listenerExecutor);
+        return this;
     }
 
+    /**
+     * 设置提前刷新的比例
+     * 如 0.8 表示数据从存入到过期的时间过去 80% 之后，再次访问时在后台重新加载
+     *
+     * @param refreshAheadRatio 0 ~ 1 之间，0 表示不提前刷新
+     * @return
+     */
+    public CacheUtil setRefreshAheadRatio(double refreshAheadRatio) {
+        cache.setRefreshAheadRatio(refreshAheadRatio);
+        return this;
+    }
 
     /**
-     * 缓存延时队列对象
-     * 每个缓存数据都会丢一份到延时队列里面去，到时间了就把他们删掉
+     * 设置执行后台刷新的线程池
+     * 默认 {@link ForkJoinPool#commonPool()}
+     *
+     * @param refreshExecutor
+     * @return
      */
-    private class DelayCacheItem implements Delayed {
+    public CacheUtil setRefreshExecutor(Executor refreshExecutor) {
+        cache.setRefreshExecutor(refreshExecutor);
+        return this;
+    }
 
-        /**
-         * key
-         */
-        private String cacheKey;
+    /**
+     * 开启堆外缓存
+     * 需要先设置堆内的最大数量或者最大权重，超出的数据才会放到堆外
+     * 缓存值需要实现 {@link java.io.Serializable}，不能序列化的数据超出容量之后直接淘汰
+     * 只能开启一次，注意 jvm 参数 -XX:MaxDirectMemorySize 要比这个容量大
+     *
+     * @param capacityBytes 堆外最大容量 字节
+     * @return
+     */
+    public CacheUtil setOffHeap(long capacityBytes) {
+        return setOffHeap(capacityBytes, CacheBuilder.DEFAULT_PROMOTION_THRESHOLD);
+    }
 
+    /**
+     * 开启堆外缓存
+     *
+     * @param capacityBytes      堆外最大容量 字节
+     * @param promotionThreshold 在堆外命中多少次之后提升到堆内
+     * @return
+     */
+    public CacheUtil setOffHeap(long capacityBytes, int promotionThreshold) {
+        cache.setOffHeap(capacityBytes, new JdkSerializer<>(), promotionThreshold);
+        return this;
+    }
 
-        /**
-         * 存活到期时间
-         * 计算方式：创建时间 + 存活时间
-         */
-        private long limitTime;
+    /**
+     * 统计数据快照
+     *
+     * @return
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
 
+    /**
+     * 堆外缓存统计数据快照
+     *
+     * @return 没有开启堆外缓存时返回 null
+     */
+    public OffHeapStats offHeapStats() {
+        return cache.offHeapStats();
+    }
 
-        @Override
-        public long getDelay(TimeUnit unit) {
-            return limitTime - System.currentTimeMillis();
+    /**
+     * 存入缓存对象
+     *
+     * @param cacheObject
+     */
+    public void put(CacheObject cacheObject) {
+        if (Objects.nonNull(cacheObject)) {
+            cache.put(cacheObject.key, cacheObject);
         }
+    }
 
-        @Override
-        public int compareTo(Delayed o) {
-            DelayCacheItem that = (DelayCacheItem) o;
-            return Long.compare(this.limitTime, that.limitTime);
+    /**
+     * 缓存不存在或者已过期时才存入缓存对象
+     * 判断与存入是一个原子操作，适用于防重复提交这类需要抢占 key 的场景
+     *
+     * @param cacheObject
+     * @return 存入成功返回 null，否则返回当前还有效的缓存对象
+     */
+    public CacheObject putIfAbsent(CacheObject cacheObject) {
+        if (Objects.isNull(cacheObject)) {
+            return null;
         }
+        return cache.putIfAbsent(cacheObject.key, cacheObject);
+    }
+
+    /**
+     * 获取缓存对象
+     *
+     * @param key
+     * @return
+     */
+    public CacheObject get(String key) {
+        return cache.getIfPresent(key);
     }
 
     /**
-     * 清理缓存线程
+     * 获取缓存对象，不存在时调用加载方法并存入缓存
+     *
+     * 同一个 key 同时只会有一个线程执行加载，其他线程等待并共享这次加载的结果
+     * 加载方法抛出的异常会抛给所有等待的线程
+     *
+     * @param key
+     * @param loader 加载方法 返回的缓存对象 key 必须与参数一致，返回 null 表示没有数据，不会存入缓存
+     * @return
      */
-    private class ClearCacheThread extends Thread {
+    public CacheObject get(String key, Function<String, CacheObject> loader) {
+        AssertUtil.notNull(loader, "加载方法不能为空");
+        return cache.get(key, k -> {
+            CacheObject cacheObject = loader.apply(k);
+            AssertUtil.isTrue(Objects.isNull(cacheObject) || Objects.equals(k, cacheObject.key), "加载的缓存对象key不一致");
+            return cacheObject;
+        });
+    }
 
-        @Override
-        public void run() {
-            while (true) {
-
-                try {
-                    DelayCacheItem cacheItem = delayCacheItemDelayQueue.take();
-                    String cacheKey = cacheItem.cacheKey;
-
-                    CacheObject cacheObject = cacheMap.get(cacheKey);
-                    //判断是否存在
-                    if (Objects.nonNull(cacheObject)) {
-                        //判断是否失效
-                        if (cacheObject.isExpired()) {
-                            //失效了，删除数据
-                            cacheMap.remove(cacheKey);
-                        }
-                    }
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
 
-            }
-        }
+    /**
+     * 判断是否包含缓存
+     *
+     * @param key
+     * @return
+     */
+    public boolean containsKey(String key) {
+        return cache.containsKey(key);
     }
 
+    /**
+     * 删除缓存
+     *
+     * @param key
+     * @return
+     */
+    public boolean remove(String key) {
+        return cache.remove(key);
+    }
+
+    /**
+     * 当前缓存数量
+     * @return
+     */
+    public int currentCacheCount(){
+        return (int) cache.estimatedSize();
+    }
 
 }
@@ -0,0 +1,59 @@
+package com.github.chenlijia1111.utils.core.cache;
+
+import com.github.chenlijia1111.utils.core.cache.eviction.EvictionPolicy;
+import com.github.chenlijia1111.utils.core.cache.eviction.LfuEvictionPolicy;
+import com.github.chenlijia1111.utils.core.cache.eviction.LruEvictionPolicy;
+import com.github.chenlijia1111.utils.core.cache.eviction.WTinyLfuEvictionPolicy;
+
+/**
+ * 缓存淘汰策略枚举
+ * 缓存超出容量时，按照策略选出需要淘汰的数据
+ * 与 {@link TimeOutTypeEnum} 的超时清理同时生效
+ *
+ * @author Chen LiJia
+ * @since 2020/7/2
+ */
+public enum EvictionPolicyTypeEnum {
+
+    /**
+     * 最近最少使用，淘汰最久没有被访问的数据
+     */
+    LRU {
+        @Override
+        public <K> EvictionPolicy<K> create(long maximumWeight) {
+            return new LruEvictionPolicy<>();
+        }
+    },
+    /**
+     * 最不经常使用，淘汰访问次数最少的数据
+     * 访问次数相同时淘汰最久没有被访问的数据
+     */
+    LFU {
+        @Override
+        public <K> EvictionPolicy<K> create(long maximumWeight) {
+            return new LfuEvictionPolicy<>();
+        }
+    },
+    /**
+     * W-TinyLFU
+     * 新数据先进入一个小的 LRU 窗口，从窗口淘汰出来的数据要和主区域中的淘汰者比较访问频率，
+     * 频率高的才能留下，可以抵抗偶发的批量扫描把热点数据挤出去
+     */
+    W_TINY_LFU {
+        @Override
+        public <K> EvictionPolicy<K> create(long maximumWeight) {
+            return new WTinyLfuEvictionPolicy<>(maximumWeight);
+        }
+    },
+    ;
+
+    /**
+     * 创建淘汰策略
+     *
+     * @param maximumWeight 缓存最大权重
+     * @param <K>
+     * @return
+     */
+    public abstract <K> EvictionPolicy<K> create(long maximumWeight);
+
+}
@@ -0,0 +1,40 @@
+package com.github.chenlijia1111.utils.core.cache;
+
+/**
+ * 缓存过期时间计算
+ *
+ * 返回的都是剩余存活时间，单位毫秒，{@link Long#MAX_VALUE} 表示永不过期
+ *
+ * @param <K> key 类型
+ * @param <V> value 类型
+ * @author Chen LiJia
+ * @since 2020/7/2
+ */
+@FunctionalInterface
+public interface Expiry<K, V> {
+
+    /**
+     * 存入之后的存活时间
+     *
+     * @param key
+     * @param value
+     * @param currentTimeMillis 当前时间
+     * @return
+     */
+    long expireAfterCreate(K key, V value, long currentTimeMillis);
+
+    /**
+     * 访问之后的存活时间
+     * 默认不改变过期时间
+     *
+     * @param key
+     * @param value
+     * @param currentTimeMillis 当前时间
+     * @param currentDuration   当前剩余存活时间
+     * @return
+     */
+    default long expireAfterRead(K key, V value, long currentTimeMillis, long currentDuration) {
+        return currentDuration;
+    }
+
+}
@@ -0,0 +1,1084 @@
+package com.github.chenlijia1111.utils.core.cache;
+
+import com.github.chenlijia1111.utils.common.AssertUtil;
+import com.github.chenlijia1111.utils.core.cache.eviction.EvictionPolicy;
+import com.github.chenlijia1111.utils.core.cache.offheap.OffHeapEntry;
+import com.github.chenlijia1111.utils.core.cache.offheap.OffHeapStats;
+import com.github.chenlijia1111.utils.core.cache.offheap.OffHeapStore;
+import com.github.chenlijia1111.utils.core.cache.offheap.Serializer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 本地缓存实现
+ *
+ * 线程安全：数据存放在 {@link ConcurrentHashMap} 中，
+ * 过期删除通过 {@link ConcurrentMap#remove(Object, Object)} 完成，
+ * 只会删除判断时的那个节点，不会误删其他线程刚刚存入的新值
+ *
+ * 容量限制：超出容量后按 {@link EvictionPolicyTypeEnum} 淘汰数据，与超时清理同时生效
+ * 读缓存只把访问记录丢进无锁的缓冲区，淘汰策略的维护由写缓存的线程在淘汰锁内批量完成，
+ * 所以淘汰不会阻塞读缓存的线程
+ *
+ * 过期清理：由 {@link TimerWheel} 分层时间轮驱动，存入时 O(1) 定时，
+ * 覆盖或删除时取消旧的定时，访问后延续了过期时间的数据到期时按新的过期时间重新定时
+ * 时间轮由 {@link CacheScheduler} 的共用线程驱动
+ *
+ * 加载：同一个 key 同时只会有一个线程在加载，其他线程等待这次加载的结果，
+ * 设置了提前刷新比例之后，快要过期的数据会在后台提前加载，加载完成之前继续返回旧值
+ *
+ * 堆外缓存：开启之后超出堆内容量被淘汰的数据序列化到 {@link OffHeapStore}，而不是直接丢弃，
+ * 堆内未命中时再查堆外，在堆外命中次数达到提升阈值的数据反序列化之后放回堆内
+ * 堆外的数据超出堆外容量之后才真正被淘汰
+ *
+ * @param <K> key 类型
+ * @param <V> value 类型
+ * @author Chen LiJia
+ * @since 2020/7/2
+ */
+class LocalCache<K, V> implements Cache<K, V> {
+
+    /**
+     * 存储缓存数据的集合
+     */
+    private final ConcurrentMap<K, CacheEntry<K, V>> cacheMap = new ConcurrentHashMap<>();
+
+    /**
+     * 过期时间计算 为 null 表示永不过期
+     */
+    private final Expiry<? super K, ? super V> expiry;
+
+    /**
+     * 是否记录统计数据
+     */
+    private final boolean recordStats;
+
+    /**
+     * 统计计数器
+     */
+    private final StatsCounter statsCounter = new StatsCounter();
+
+    /**
+     * 时间轮，用于清理数据
+     * 只能在持有 timerLock 时操作
+     */
+    private final TimerWheel<CacheEntry<K, V>> timerWheel;
+
+    /**
+     * 时间轮锁
+     */
+    private final ReentrantLock timerLock = new ReentrantLock();
+
+    /**
+     * 最大权重
+     * 只设置了最大数量时，每条数据的权重都是 1
+     */
+    private volatile long maximumWeight = CacheBuilder.UNBOUNDED;
+
+    /**
+     * 权重计算
+     */
+    private volatile Weigher<? super K, ? super V> weigher = (key, value) -> 1;
+
+    /**
+     * 淘汰策略类型
+     */
+    private volatile EvictionPolicyTypeEnum evictionPolicyType = EvictionPolicyTypeEnum.W_TINY_LFU;
+
+    /**
+     * 淘汰策略 不限制容量时为 null
+     * 只能在持有 evictionLock 时操作
+     */
+    private volatile EvictionPolicy<K> evictionPolicy;
+
+    /**
+     * 淘汰锁
+     */
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    /**
+     * 访问记录缓冲区
+     */
+    private final ReadBuffer<K> readBuffer = new ReadBuffer<>();
+
+    /**
+     * 写操作缓冲区
+     * 存入删除的时候丢一个任务进来，由拿到淘汰锁的线程同步到淘汰策略
+     */
+    private final Queue<Runnable> writeBuffer = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 删除监听
+     */
+    private final List<RemovalListener<? super K, ? super V>> removalListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 执行删除监听的线程池
+     */
+    private volatile Executor listenerExecutor = ForkJoinPool.commonPool();
+
+    /**
+     * 正在加载中的数据
+     * 同一个 key 同时只有一个加载，其他线程等待这个结果
+     */
+    private final ConcurrentMap<K, CompletableFuture<V>> loadingMap = new ConcurrentHashMap<>();
+
+    /**
+     * 提前刷新的比例
+     * 从存入到过期的时间过去这个比例之后，通过 {@link #get(Object, Function)} 访问时会在后台重新加载
+     * 0 表示不提前刷新
+     */
+    private volatile double refreshAheadRatio = 0;
+
+    /**
+     * 执行后台刷新的线程池
+     */
+    private volatile Executor refreshExecutor = ForkJoinPool.commonPool();
+
+    /**
+     * 堆外缓存 没有开启时为 null
+     */
+    private volatile OffHeapStore<K> offHeapStore;
+
+    /**
+     * 堆外缓存的序列化
+     */
+    private volatile Serializer<V> serializer;
+
+    /**
+     * 在堆外命中多少次之后提升到堆内
+     */
+    private volatile int promotionThreshold;
+
+    /**
+     * 构造方法
+     *
+     * @param expiry      过期时间计算 为 null 表示永不过期
+     * @param recordStats 是否记录统计数据
+     */
+    LocalCache(Expiry<? super K, ? super V> expiry, boolean recordStats) {
+        this.expiry = expiry;
+        this.recordStats = recordStats;
+        this.timerWheel = new TimerWheel<>(CacheScheduler.TICK_MILLIS, System.currentTimeMillis());
+        CacheScheduler.register(this);
+    }
+
+    /**
+     * 设置最大缓存权重
+     * 已经存在的数据会按新的权重重新计算，超出的部分会被立即淘汰
+     *
+     * @param maximumWeight 最大权重 {@link CacheBuilder#UNBOUNDED} 表示不限制
+     * @param weigher       权重计算
+     */
+    void setMaximumWeight(long maximumWeight, Weigher<? super K, ? super V> weigher) {
+        AssertUtil.isTrue(maximumWeight >= 0 || maximumWeight == CacheBuilder.UNBOUNDED, "最大容量不能小于0");
+        AssertUtil.notNull(weigher, "权重计算不能为空");
+
+        evictionLock.lock();
+        try {
+            this.maximumWeight = maximumWeight;
+            this.weigher = weigher;
+            rebuildEvictionPolicy();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * 设置淘汰策略
+     *
+     * @param evictionPolicyType
+     */
+    void setEvictionPolicyType(EvictionPolicyTypeEnum evictionPolicyType) {
+        AssertUtil.notNull(evictionPolicyType, "淘汰策略不能为空");
+
+        evictionLock.lock();
+        try {
+            this.evictionPolicyType = evictionPolicyType;
+            rebuildEvictionPolicy();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    void addRemovalListener(RemovalListener<? super K, ? super V> removalListener) {
+        AssertUtil.notNull(removalListener, "删除监听不能为空");
+        removalListeners.add(removalListener);
+    }
+
+    void removeRemovalListener(RemovalListener<? super K, ? super V> removalListener) {
+        removalListeners.remove(removalListener);
+    }
+
+    void setListenerExecutor(Executor listenerExecutor) {
+        AssertUtil.notNull(listenerExecutor, "监听线程池不能为空");
+        this.listenerExecutor = listenerExecutor;
+    }
+
+    void setRefreshAheadRatio(double refreshAheadRatio) {
+        AssertUtil.isTrue(refreshAheadRatio >= 0 && refreshAheadRatio < 1, "提前刷新比例必须在0到1之间");
+        this.refreshAheadRatio = refreshAheadRatio;
+    }
+
+    void setRefreshExecutor(Executor refreshExecutor) {
+        AssertUtil.notNull(refreshExecutor, "刷新线程池不能为空");
+        this.refreshExecutor = refreshExecutor;
+    }
+
+    /**
+     * 开启堆外缓存
+     * 只能开启一次
+     *
+     * @param capacityBytes      堆外最大容量 字节
+     * @param serializer         序列化
+     * @param promotionThreshold 在堆外命中多少次之后提升到堆内
+     */
+    synchronized void setOffHeap(long capacityBytes, Serializer<V> serializer, int promotionThreshold) {
+        AssertUtil.isTrue(Objects.isNull(offHeapStore), "堆外缓存已经开启了");
+        AssertUtil.notNull(serializer, "序列化不能为空");
+        AssertUtil.isTrue(promotionThreshold > 0, "提升阈值必须大于0");
+
+        this.serializer = serializer;
+        this.promotionThreshold = promotionThreshold;
+        this.offHeapStore = new OffHeapStore<>(capacityBytes, new OffHeapStore.EvictionListener<K>() {
+            @Override
+            public void onEviction(K key, Supplier<byte[]> bytes, boolean expired) {
+                onOffHeapEviction(key, bytes, expired);
+            }
+
+            @Override
+            public boolean isBytesRequired() {
+                //没有删除监听时不需要复制被淘汰的数据
+                return !removalListeners.isEmpty();
+            }
+        });
+    }
+
+    @Override
+    public V getIfPresent(K key) {
+        CacheEntry<K, V> entry = getEntryIfPresent(key, true);
+        if (Objects.nonNull(entry)) {
+            recordHit();
+            return entry.value;
+        }
+        recordMiss();
+        return null;
+    }
+
+    @Override
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        AssertUtil.notNull(loader, "加载方法不能为空");
+
+        CacheEntry<K, V> entry = getEntryIfPresent(key, true);
+        if (Objects.nonNull(entry)) {
+            recordHit();
+            //快要过期了，后台提前加载
+            double refreshAheadRatio = this.refreshAheadRatio;
+            if (refreshAheadRatio > 0 && entry.shouldRefresh(System.currentTimeMillis(), refreshAheadRatio)) {
+                refreshAsync(key, loader);
+            }
+            return entry.value;
+        }
+
+        recordMiss();
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> loadingFuture = loadingMap.putIfAbsent(key, future);
+        if (Objects.nonNull(loadingFuture)) {
+            //其他线程正在加载，等待结果
+            return waitLoading(loadingFuture);
+        }
+
+        //可能在判断之后其他线程刚好加载完成
+        entry = getEntryIfPresent(key, false);
+        if (Objects.nonNull(entry)) {
+            loadingMap.remove(key, future);
+            future.complete(entry.value);
+            return entry.value;
+        }
+        return load(key, loader, future);
+    }
+
+    @Override
+    public void put(K key, V value) {
+        AssertUtil.notNull(key, "缓存key不能为空");
+        AssertUtil.notNull(value, "缓存值不能为空");
+
+        long currentTimeMillis = System.currentTimeMillis();
+        CacheEntry<K, V> entry = newEntry(key, value, currentTimeMillis);
+        CacheEntry<K, V> oldEntry = cacheMap.put(key, entry);
+        //堆外的旧值作废，要在淘汰维护之前，否则可能删掉刚刚降级到堆外的新值
+        removeOffHeap(key, RemovalCauseEnum.REPLACED);
+        recordPut();
+        scheduleExpire(entry, oldEntry);
+        afterWrite(entry);
+        if (Objects.nonNull(oldEntry)) {
+            notifyRemoval(oldEntry, oldEntry.isExpired(currentTimeMillis) ? RemovalCauseEnum.EXPIRED : RemovalCauseEnum.REPLACED);
+        }
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        AssertUtil.notNull(key, "缓存key不能为空");
+        AssertUtil.notNull(value, "缓存值不能为空");
+
+        long currentTimeMillis = System.currentTimeMillis();
+        CacheEntry<K, V> entry = newEntry(key, value, currentTimeMillis);
+        while (true) {
+            CacheEntry<K, V> existEntry = cacheMap.get(key);
+            if (Objects.isNull(existEntry)) {
+                //堆外有效的数据也算已经存在
+                CacheEntry<K, V> offHeapEntry = getOffHeapEntry(key, currentTimeMillis, false);
+                if (Objects.nonNull(offHeapEntry)) {
+                    return offHeapEntry.value;
+                }
+                existEntry = cacheMap.putIfAbsent(key, entry);
+            }
+            if (Objects.isNull(existEntry)) {
+                //存入成功 堆外如果还有过期的旧值一起作废
+                removeOffHeap(key, RemovalCauseEnum.EXPIRED);
+                recordPut();
+                scheduleExpire(entry, null);
+                afterWrite(entry);
+                return null;
+            }
+            if (!existEntry.isExpired(System.currentTimeMillis())) {
+                //已经存在有效的缓存
+                return existEntry.value;
+            }
+            //已经过期了，用新值替换掉过期的值，替换失败说明被其他线程抢先了，重新判断
+            if (cacheMap.replace(key, existEntry, entry)) {
+                recordPut();
+                scheduleExpire(entry, existEntry);
+                afterWrite(entry);
+                notifyRemoval(existEntry, RemovalCauseEnum.EXPIRED);
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        if (Objects.nonNull(getEntryIfPresent(key, false))) {
+            return true;
+        }
+        OffHeapStore<K> offHeapStore = this.offHeapStore;
+        return Objects.nonNull(offHeapStore) && offHeapStore.containsKey(key, System.currentTimeMillis());
+    }
+
+    @Override
+    public boolean remove(K key) {
+        boolean removed = removeOffHeap(key, RemovalCauseEnum.EXPLICIT);
+        CacheEntry<K, V> removedEntry = cacheMap.remove(key);
+        if (Objects.isNull(removedEntry)) {
+            return removed;
+        }
+        cancelExpire(removedEntry);
+        afterRemove(key);
+        notifyRemoval(removedEntry, RemovalCauseEnum.EXPLICIT);
+        return true;
+    }
+
+    @Override
+    public void removeAll() {
+        for (K key : cacheMap.keySet()) {
+            remove(key);
+        }
+        OffHeapStore<K> offHeapStore = this.offHeapStore;
+        if (Objects.nonNull(offHeapStore)) {
+            for (K key : offHeapStore.keySet()) {
+                removeOffHeap(key, RemovalCauseEnum.EXPLICIT);
+            }
+        }
+    }
+
+    @Override
+    public long estimatedSize() {
+        OffHeapStore<K> offHeapStore = this.offHeapStore;
+        return cacheMap.size() + (Objects.isNull(offHeapStore) ? 0 : offHeapStore.size());
+    }
+
+    @Override
+    public CacheStats stats() {
+        return statsCounter.snapshot();
+    }
+
+    @Override
+    public OffHeapStats offHeapStats() {
+        OffHeapStore<K> offHeapStore = this.offHeapStore;
+        return Objects.isNull(offHeapStore) ? null : offHeapStore.stats();
+    }
+
+    @Override
+    public void cleanUp() {
+        expireEntries(System.currentTimeMillis());
+        evictionLock.lock();
+        try {
+            maintenance();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * 后台维护
+     * 由 {@link CacheScheduler} 每个 tick 调用一次
+     *
+     * @param currentTimeMillis 当前时间
+     * @return 是否还有定时中的数据
+     */
+    boolean scheduledMaintenance(long currentTimeMillis) {
+        boolean hasTimer = expireEntries(currentTimeMillis);
+        //顺便处理积压的访问记录
+        if (Objects.nonNull(evictionPolicy) && evictionLock.tryLock()) {
+            try {
+                maintenance();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+        return hasTimer;
+    }
+
+    /**
+     * 创建缓存节点 计算过期时间
+     *
+     * @param key
+     * @param value
+     * @param currentTimeMillis
+     * @return
+     */
+    private CacheEntry<K, V> newEntry(K key, V value, long currentTimeMillis) {
+        long expireTime = Long.MAX_VALUE;
+        if (Objects.nonNull(expiry)) {
+            expireTime = CacheEntry.saturatedAdd(currentTimeMillis, expiry.expireAfterCreate(key, value, currentTimeMillis));
+        }
+        return new CacheEntry<>(key, value, currentTimeMillis, expireTime);
+    }
+
+    /**
+     * 获取没有过期的缓存节点 不记录命中统计
+     *
+     * @param key
+     * @param recordAccess 是否算作一次访问
+     * @return
+     */
+    private CacheEntry<K, V> getEntryIfPresent(K key, boolean recordAccess) {
+
+        //判断是否存在
+        CacheEntry<K, V> entry = cacheMap.get(key);
+        long currentTimeMillis = System.currentTimeMillis();
+        if (Objects.isNull(entry)) {
+            //堆内没有再查堆外
+            return getOffHeapEntry(key, currentTimeMillis, recordAccess);
+        }
+
+        //判断是否过期
+        if (entry.isExpired(currentTimeMillis)) {
+            //过期了，删除这个节点
+            removeIfSame(key, entry, RemovalCauseEnum.EXPIRED);
+            return null;
+        }
+
+        if (recordAccess) {
+            afterRead(entry, currentTimeMillis);
+        }
+        return entry;
+    }
+
+    /**
+     * 执行加载 完成之后存入缓存，并把结果通知给等待的线程
+     *
+     * @param key
+     * @param loader
+     * @param future 当前加载对应的结果
+     * @return
+     */
+    private V load(K key, Function<? super K, ? extends V> loader, CompletableFuture<V> future) {
+        long startTime = System.nanoTime();
+        try {
+            V value = loader.apply(key);
+            long loadTime = System.nanoTime() - startTime;
+            if (Objects.isNull(value)) {
+                recordLoadFailure(loadTime);
+            } else {
+                recordLoadSuccess(loadTime);
+                put(key, value);
+            }
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            recordLoadFailure(System.nanoTime() - startTime);
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loadingMap.remove(key, future);
+        }
+    }
+
+    /**
+     * 后台重新加载
+     * 已经在加载中就不再重复加载，加载完成之前继续返回旧值
+     *
+     * @param key
+     * @param loader
+     */
+    private void refreshAsync(K key, Function<? super K, ? extends V> loader) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        if (Objects.nonNull(loadingMap.putIfAbsent(key, future))) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    load(key, loader, future);
+                } catch (RuntimeException | Error e) {
+                    //刷新失败继续使用旧值，等过期之后再重新加载
+                    e.printStackTrace();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            loadingMap.remove(key, future);
+            future.complete(null);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 等待其他线程的加载结果
+     *
+     * @param loadingFuture
+     * @return
+     */
+    private V waitLoading(CompletableFuture<V> loadingFuture) {
+        try {
+            return loadingFuture.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 删除指定的缓存节点
+     * 如果这个 key 已经被其他线程存入了新值，不会删除
+     *
+     * @param key
+     * @param entry
+     * @param cause 删除原因
+     * @return
+     */
+    private boolean removeIfSame(K key, CacheEntry<K, V> entry, RemovalCauseEnum cause) {
+        boolean removed = cacheMap.remove(key, entry);
+        if (removed) {
+            cancelExpire(entry);
+            afterRemove(key);
+            notifyRemoval(entry, cause);
+        }
+        return removed;
+    }
+
+    /**
+     * 记录删除统计，异步通知删除监听
+     *
+     * @param entry
+     * @param cause
+     */
+    private void notifyRemoval(CacheEntry<K, V> entry, RemovalCauseEnum cause) {
+        notifyRemoval(entry.key, entry.value, cause);
+    }
+
+    /**
+     * 记录删除统计，异步通知删除监听
+     *
+     * @param key
+     * @param value
+     * @param cause
+     */
+    private void notifyRemoval(K key, V value, RemovalCauseEnum cause) {
+        if (recordStats) {
+            statsCounter.recordRemoval(cause);
+        }
+        if (removalListeners.isEmpty()) {
+            return;
+        }
+        try {
+            listenerExecutor.execute(() -> {
+                for (RemovalListener<? super K, ? super V> removalListener : removalListeners) {
+                    try {
+                        removalListener.onRemoval(key, value, cause);
+                    } catch (Throwable e) {
+                        //监听出错不影响其他监听
+                        e.printStackTrace();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 读取之后延续过期时间，记录访问
+     *
+     * @param entry
+     * @param currentTimeMillis
+     */
+    private void afterRead(CacheEntry<K, V> entry, long currentTimeMillis) {
+        if (Objects.nonNull(expiry)) {
+            long expireTime = entry.expireTime;
+            long currentDuration = expireTime == Long.MAX_VALUE ? Long.MAX_VALUE : expireTime - currentTimeMillis;
+            long duration = expiry.expireAfterRead(entry.key, entry.value, currentTimeMillis, currentDuration);
+            if (duration != currentDuration) {
+                //只修改过期时间，到期的时候清理线程会按新的过期时间重新定时
+                entry.expireTime = CacheEntry.saturatedAdd(currentTimeMillis, duration);
+                entry.expireExtended = true;
+                if (expireTime == Long.MAX_VALUE) {
+                    scheduleExpire(entry, null);
+                }
+            }
+        }
+
+        if (Objects.isNull(evictionPolicy)) {
+            return;
+        }
+        boolean shouldDrain = readBuffer.offer(entry.key);
+        if (shouldDrain && evictionLock.tryLock()) {
+            //拿不到锁就算了，读线程不等待
+            try {
+                maintenance();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 存入之后同步到淘汰策略
+     *
+     * @param entry
+     */
+    private void afterWrite(CacheEntry<K, V> entry) {
+        if (Objects.isNull(evictionPolicy)) {
+            return;
+        }
+        K key = entry.key;
+        writeBuffer.add(() -> {
+            //已经被覆盖或者删除了就不用记录了
+            if (cacheMap.get(key) == entry) {
+                evictionPolicy.onWrite(key, weigh(entry));
+            }
+        });
+        scheduleMaintenance();
+    }
+
+    /**
+     * 删除之后同步到淘汰策略
+     *
+     * @param key
+     */
+    private void afterRemove(K key) {
+        if (Objects.isNull(evictionPolicy)) {
+            return;
+        }
+        writeBuffer.add(() -> {
+            //删除之后又被存入了就不用删除了
+            if (!cacheMap.containsKey(key)) {
+                evictionPolicy.onRemove(key);
+            }
+        });
+        scheduleMaintenance();
+    }
+
+    /**
+     * 尝试执行淘汰维护
+     * 拿不到锁说明有其他线程正在维护，持有锁的线程释放锁之后会检查写缓冲区，不会漏掉任务
+     */
+    private void scheduleMaintenance() {
+        while (evictionLock.tryLock()) {
+            try {
+                maintenance();
+            } finally {
+                evictionLock.unlock();
+            }
+            if (writeBuffer.isEmpty()) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 淘汰维护
+     * 同步缓冲区中的读写记录，然后淘汰超出容量的数据
+     * 调用方需要持有淘汰锁
+     */
+    private void maintenance() {
+        EvictionPolicy<K> policy = this.evictionPolicy;
+        if (Objects.isNull(policy)) {
+            readBuffer.drainTo(key -> {
+            });
+            writeBuffer.clear();
+            return;
+        }
+
+        readBuffer.drainTo(policy::onAccess);
+        Runnable task;
+        while (Objects.nonNull(task = writeBuffer.poll())) {
+            task.run();
+        }
+
+        while (policy.weightedSize() > maximumWeight) {
+            K victim = policy.evict();
+            if (Objects.isNull(victim)) {
+                break;
+            }
+            CacheEntry<K, V> victimEntry = cacheMap.get(victim);
+            if (Objects.nonNull(victimEntry) && cacheMap.remove(victim, victimEntry)) {
+                cancelExpire(victimEntry);
+                if (victimEntry.isExpired(System.currentTimeMillis())) {
+                    notifyRemoval(victimEntry, RemovalCauseEnum.EXPIRED);
+                } else if (!demote(victimEntry)) {
+                    notifyRemoval(victimEntry, RemovalCauseEnum.SIZE);
+                }
+            }
+        }
+    }
+
+    /**
+     * 重建淘汰策略，把已有的数据重新放进去
+     * 调用方需要持有淘汰锁
+     */
+    private void rebuildEvictionPolicy() {
+        if (maximumWeight == CacheBuilder.UNBOUNDED) {
+            evictionPolicy = null;
+            maintenance();
+            return;
+        }
+
+        EvictionPolicy<K> policy = evictionPolicyType.create(maximumWeight);
+        cacheMap.forEach((key, entry) -> policy.onWrite(key, weigh(entry)));
+        evictionPolicy = policy;
+        maintenance();
+    }
+
+    /**
+     * 计算权重
+     *
+     * @param entry
+     * @return
+     */
+    private long weigh(CacheEntry<K, V> entry) {
+        int weight = weigher.weigh(entry.key, entry.value);
+        AssertUtil.isTrue(weight >= 0, "缓存权重不能小于0");
+        return weight;
+    }
+
+    /**
+     * 放到时间轮里定时删除，同时取消被覆盖的节点的定时
+     *
+     * @param entry
+     * @param replacedEntry 被覆盖的节点
+     */
+    private void scheduleExpire(CacheEntry<K, V> entry, CacheEntry<K, V> replacedEntry) {
+        long expireTime = entry.expireTime;
+        if (Objects.isNull(replacedEntry) && expireTime == Long.MAX_VALUE) {
+            //永不超时，不需要定时
+            return;
+        }
+
+        boolean wasEmpty = false;
+        timerLock.lock();
+        try {
+            if (Objects.nonNull(replacedEntry)) {
+                timerWheel.cancel(replacedEntry.timerNode);
+                replacedEntry.timerNode = null;
+            }
+            if (expireTime != Long.MAX_VALUE && Objects.isNull(entry.timerNode)) {
+                wasEmpty = timerWheel.size() == 0;
+                entry.timerNode = timerWheel.schedule(entry, expireTime);
+            }
+        } finally {
+            timerLock.unlock();
+        }
+        if (wasEmpty) {
+            CacheScheduler.wakeUp();
+        }
+    }
+
+    /**
+     * 取消定时删除
+     *
+     * @param entry
+     */
+    private void cancelExpire(CacheEntry<K, V> entry) {
+        if (Objects.isNull(entry.timerNode)) {
+            return;
+        }
+        timerLock.lock();
+        try {
+            timerWheel.cancel(entry.timerNode);
+            entry.timerNode = null;
+        } finally {
+            timerLock.unlock();
+        }
+    }
+
+    /**
+     * 转动时间轮，到期的数据如果确实过期了就删除，
+     * 期间延续了过期时间的数据按新的过期时间重新定时
+     *
+     * @param currentTimeMillis 当前时间
+     * @return 是否还有定时中的数据
+     */
+    private boolean expireEntries(long currentTimeMillis) {
+        List<CacheEntry<K, V>> dueList = new ArrayList<>();
+        timerLock.lock();
+        try {
+            timerWheel.advance(currentTimeMillis, node -> dueList.add(node.element));
+        } finally {
+            timerLock.unlock();
+        }
+
+        for (CacheEntry<K, V> entry : dueList) {
+            K key = entry.key;
+            //已经被覆盖或者删除了，丢弃这个定时
+            if (cacheMap.get(key) != entry) {
+                continue;
+            }
+            if (entry.isExpired(currentTimeMillis)) {
+                //失效了，删除数据，只删除判断过的这个节点
+                removeIfSame(key, entry, RemovalCauseEnum.EXPIRED);
+            } else {
+                //期间被访问过，重新定时
+                rescheduleExpire(entry);
+            }
+        }
+
+        timerLock.lock();
+        try {
+            return timerWheel.size() > 0;
+        } finally {
+            timerLock.unlock();
+        }
+    }
+
+    /**
+     * 按新的过期时间重新定时
+     *
+     * @param entry
+     */
+    private void rescheduleExpire(CacheEntry<K, V> entry) {
+        timerLock.lock();
+        try {
+            //取消定时之后就不要再加回去了
+            if (Objects.nonNull(entry.timerNode) && !entry.timerNode.isLinked()) {
+                timerWheel.reschedule(entry.timerNode, entry.expireTime);
+            }
+        } finally {
+            timerLock.unlock();
+        }
+    }
+
+    /**
+     * 从堆外获取没有过期的数据
+     * 命中次数达到提升阈值的数据放回堆内
+     *
+     * @param key
+     * @param currentTimeMillis 当前时间
+     * @param recordAccess      是否算作一次访问 不算访问的不会提升到堆内
+     * @return 提升到堆内的节点，或者只是临时包装的节点
+     */
+    private CacheEntry<K, V> getOffHeapEntry(K key, long currentTimeMillis, boolean recordAccess) {
+        OffHeapStore<K> offHeapStore = this.offHeapStore;
+        if (Objects.isNull(offHeapStore)) {
+            return null;
+        }
+        OffHeapEntry<K> offHeapEntry = offHeapStore.get(key, currentTimeMillis);
+        if (Objects.isNull(offHeapEntry)) {
+            return null;
+        }
+        byte[] bytes = offHeapStore.read(offHeapEntry);
+        if (Objects.isNull(bytes)) {
+            //刚刚被覆盖或者淘汰了
+            return null;
+        }
+        V value;
+        try {
+            value = serializer.deserialize(bytes);
+        } catch (RuntimeException e) {
+            //数据不能用了，当作不存在
+            e.printStackTrace();
+            offHeapStore.remove(key, offHeapEntry);
+            return null;
+        }
+
+        CacheEntry<K, V> entry = new CacheEntry<>(key, value, offHeapEntry.getWriteTime(), offHeapEntry.getExpireTime());
+        if (!recordAccess) {
+            return entry;
+        }
+        if (offHeapEntry.getHitCount() < promotionThreshold) {
+            //还不够热，留在堆外，只延续堆外的过期时间
+            if (Objects.nonNull(expiry)) {
+                long expireTime = offHeapEntry.getExpireTime();
+                long currentDuration = expireTime == Long.MAX_VALUE ? Long.MAX_VALUE : expireTime - currentTimeMillis;
+                long duration = expiry.expireAfterRead(key, value, currentTimeMillis, currentDuration);
+                if (duration != currentDuration) {
+                    offHeapEntry.setExpireTime(CacheEntry.saturatedAdd(currentTimeMillis, duration));
+                    entry.expireExtended = true;
+                }
+            }
+            return entry;
+        }
+
+        //提升到堆内，堆内已经有新值了就以堆内的为准
+        CacheEntry<K, V> existEntry = cacheMap.putIfAbsent(key, entry);
+        offHeapStore.promote(key, offHeapEntry);
+        if (Objects.nonNull(existEntry)) {
+            return existEntry.isExpired(currentTimeMillis) ? null : existEntry;
+        }
+        scheduleExpire(entry, null);
+        afterWrite(entry);
+        afterRead(entry, currentTimeMillis);
+        return entry;
+    }
+
+    /**
+     * 被淘汰的数据降级到堆外
+     * 调用方需要持有淘汰锁
+     *
+     * @param entry
+     * @return 是否存入了堆外 没有开启堆外缓存、序列化失败、数据太大时返回 false
+     */
+    private boolean demote(CacheEntry<K, V> entry) {
+        OffHeapStore<K> offHeapStore = this.offHeapStore;
+        if (Objects.isNull(offHeapStore)) {
+            return false;
+        }
+        byte[] bytes;
+        try {
+            bytes = serializer.serialize(entry.value);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            return false;
+        }
+        OffHeapEntry<K> offHeapEntry = offHeapStore.put(entry.key, bytes, entry.writeTime, entry.expireTime);
+        if (Objects.isNull(offHeapEntry)) {
+            return false;
+        }
+        //降级的过程中堆内又存入了新值，堆外这份作废
+        //存入新值的线程存入之后也会删除堆外的数据，两边都在操作之后检查，不会留下旧值
+        if (cacheMap.containsKey(entry.key)) {
+            offHeapStore.remove(entry.key, offHeapEntry);
+        }
+        return true;
+    }
+
+    /**
+     * 删除堆外的数据
+     *
+     * @param key
+     * @param cause 删除原因
+     * @return 是否删除了数据
+     */
+    private boolean removeOffHeap(K key, RemovalCauseEnum cause) {
+        OffHeapStore<K> offHeapStore = this.offHeapStore;
+        if (Objects.isNull(offHeapStore)) {
+            return false;
+        }
+        byte[] bytes = offHeapStore.remove(key);
+        if (Objects.isNull(bytes)) {
+            return false;
+        }
+        notifyOffHeapRemoval(key, () -> bytes, cause);
+        return true;
+    }
+
+    /**
+     * 堆外数据被淘汰或者过期
+     *
+     * @param key
+     * @param bytes
+     * @param expired
+     */
+    private void onOffHeapEviction(K key, Supplier<byte[]> bytes, boolean expired) {
+        notifyOffHeapRemoval(key, bytes, expired ? RemovalCauseEnum.EXPIRED : RemovalCauseEnum.SIZE);
+    }
+
+    /**
+     * 堆外数据删除的通知
+     * 有删除监听的时候才反序列化
+     *
+     * @param key
+     * @param bytes
+     * @param cause
+     */
+    private void notifyOffHeapRemoval(K key, Supplier<byte[]> bytes, RemovalCauseEnum cause) {
+        byte[] data = removalListeners.isEmpty() ? null : bytes.get();
+        //没有删除监听，或者淘汰之后才添加的监听
+        if (Objects.isNull(data)) {
+            if (recordStats) {
+                statsCounter.recordRemoval(cause);
+            }
+            return;
+        }
+        V value;
+        try {
+            value = serializer.deserialize(data);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            return;
+        }
+        notifyRemoval(key, value, cause);
+    }
+
+    private void recordHit() {
+        if (recordStats) {
+            statsCounter.recordHit();
+        }
+    }
+
+    private void recordMiss() {
+        if (recordStats) {
+            statsCounter.recordMiss();
+        }
+    }
+
+    private void recordPut() {
+        if (recordStats) {
+            statsCounter.recordPut();
+        }
+    }
+
+    private void recordLoadSuccess(long loadTime) {
+        if (recordStats) {
+            statsCounter.recordLoadSuccess(loadTime);
+        }
+    }
+
+    private void recordLoadFailure(long loadTime) {
+        if (recordStats) {
+            statsCounter.recordLoadFailure(loadTime);
+        }
+    }
+
+}
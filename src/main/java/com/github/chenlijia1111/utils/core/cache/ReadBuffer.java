@@ -0,0 +1,87 @@
+package com.github.chenlijia1111.utils.core.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * 访问记录缓冲区
+ *
+ * 读缓存的线程只把 key 丢进环形数组，不加锁，
+ * 由拿到淘汰锁的线程批量取出交给淘汰策略
+ *
+ * 缓冲区满了或者多个线程抢同一个位置时直接丢弃这次记录，
+ * 访问记录只用于淘汰排序，少记几次不影响正确性，但是读线程永远不会被阻塞
+ *
+ * @param <K> key 类型
+ * @author Chen LiJia
+ * @since 2020/7/2
+ */
+class ReadBuffer<K> {
+
+    /**
+     * 缓冲区大小 2 的幂
+     */
+    static final int BUFFER_SIZE = 128;
+
+    /**
+     * 达到这个数量就应该清空缓冲区了
+     */
+    static final int DRAIN_THRESHOLD = BUFFER_SIZE / 4;
+
+    private static final int MASK = BUFFER_SIZE - 1;
+
+    private final AtomicReferenceArray<K> buffer = new AtomicReferenceArray<>(BUFFER_SIZE);
+
+    /**
+     * 写入位置
+     */
+    private final AtomicLong writeCounter = new AtomicLong();
+
+    /**
+     * 读取位置 只有持有淘汰锁的线程会修改
+     */
+    private volatile long readCounter;
+
+    /**
+     * 记录一次访问
+     *
+     * @param key
+     * @return 缓冲区中待处理的数量是否达到了清空的阈值
+     */
+    boolean offer(K key) {
+        long writeCount = writeCounter.get();
+        long pending = writeCount - readCounter;
+        if (pending >= BUFFER_SIZE) {
+            //满了，丢弃
+            return true;
+        }
+        if (writeCounter.compareAndSet(writeCount, writeCount + 1)) {
+            buffer.lazySet((int) (writeCount & MASK), key);
+        }
+        return pending + 1 >= DRAIN_THRESHOLD;
+    }
+
+    /**
+     * 取出所有访问记录
+     * 调用方需要持有淘汰锁
+     *
+     * @param consumer
+     */
+    void drainTo(Consumer<K> consumer) {
+        long readCount = readCounter;
+        long writeCount = writeCounter.get();
+        for (; readCount < writeCount; readCount++) {
+            int index = (int) (readCount & MASK);
+            K key = buffer.get(index);
+            if (null == key) {
+                //位置已经抢到了，但是还没写入，下次再处理
+                break;
+            }
+            buffer.lazySet(index, null);
+            consumer.accept(key);
+        }
+        readCounter = readCount;
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.github.chenlijia1111.utils.core.cache;
+
+/**
+ * 缓存数据被删除的原因
+ *
+ * @author Chen LiJia
+ * @since 2020/7/2
+ */
+public enum RemovalCauseEnum {
+
+    /**
+     * 主动删除
+     */
+    EXPLICIT(false),
+    /**
+     * 被同一个 key 的新值覆盖
+     */
+    REPLACED(false),
+    /**
+     * 超时过期
+     */
+    EXPIRED(true),
+    /**
+     * 超出容量被淘汰
+     */
+    SIZE(true),
+    ;
+
+    /**
+     * 是否是缓存自动删除的
+     */
+    private final boolean evicted;
+
+    RemovalCauseEnum(boolean evicted) {
+        this.evicted = evicted;
+    }
+
+    /**
+     * 是否是缓存自动删除的 过期或者超出容量
+     *
+     * @return
+     */
+    public boolean wasEvicted() {
+        return evicted;
+    }
+}
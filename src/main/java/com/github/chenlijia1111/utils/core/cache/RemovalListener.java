@@ -0,0 +1,26 @@
+package com.github.chenlijia1111.utils.core.cache;
+
+/**
+ * 缓存删除监听
+ *
+ * 在监听线程池中异步回调，不会拖慢存取缓存的线程
+ * 可以用来导出监控数据、把数据异步写回数据库等
+ *
+ * @param <K> key 类型
+ * @param <V> value 类型
+ * @author Chen LiJia
+ * @since 2020/7/2
+ */
+@FunctionalInterface
+public interface RemovalListener<K, V> {
+
+    /**
+     * 数据被删除
+     *
+     * @param key
+     * @param value
+     * @param cause 删除原因
+     */
+    void onRemoval(K key, V value, RemovalCauseEnum cause);
+
+}
@@ -0,0 +1,85 @@
+package com.github.chenlijia1111.utils.core.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 缓存统计计数器
+ * 使用 {@link LongAdder}，多线程同时计数时分散到不同的单元格，不会互相竞争
+ *
+ * @author Chen LiJia
+ * @since 2020/7/2
+ */
+class StatsCounter {
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder putCount = new LongAdder();
+
+    private final LongAdder expirationCount = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    private final LongAdder loadSuccessCount = new LongAdder();
+
+    private final LongAdder loadFailureCount = new LongAdder();
+
+    private final LongAdder totalLoadTime = new LongAdder();
+
+    void recordHit() {
+        hitCount.increment();
+    }
+
+    void recordMiss() {
+        missCount.increment();
+    }
+
+    void recordPut() {
+        putCount.increment();
+    }
+
+    /**
+     * 记录删除
+     *
+     * @param cause 删除原因 只统计过期与淘汰
+     */
+    void recordRemoval(RemovalCauseEnum cause) {
+        if (RemovalCauseEnum.EXPIRED == cause) {
+            expirationCount.increment();
+        } else if (RemovalCauseEnum.SIZE == cause) {
+            evictionCount.increment();
+        }
+    }
+
+    /**
+     * 记录加载成功
+     *
+     * @param loadTime 耗时 纳秒
+     */
+    void recordLoadSuccess(long loadTime) {
+        loadSuccessCount.increment();
+        totalLoadTime.add(loadTime);
+    }
+
+    /**
+     * 记录加载失败
+     *
+     * @param loadTime 耗时 纳秒
+     */
+    void recordLoadFailure(long loadTime) {
+        loadFailureCount.increment();
+        totalLoadTime.add(loadTime);
+    }
+
+    /**
+     * 统计快照
+     *
+     * @return
+     */
+    CacheStats snapshot() {
+        return new CacheStats(hitCount.sum(), missCount.sum(), putCount.sum(), expirationCount.sum(),
+                evictionCount.sum(), loadSuccessCount.sum(), loadFailureCount.sum(), totalLoadTime.sum());
+    }
+
+}
@@ -0,0 +1,272 @@
+package com.github.chenlijia1111.utils.core.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * 分层时间轮
+ *
+ * 用于缓存的过期清理，代替每条数据一个 {@link java.util.concurrent.DelayQueue} 元素的方式
+ * 添加、取消都只是链表操作，O(1)，到期处理均摊也是 O(1)
+ *
+ * 一共 {@link #LEVELS} 层，每层 {@link #WHEEL_SIZE} 个格子，
+ * 第 0 层一格代表一个 tick，第 n 层一格代表 64^n 个 tick
+ * 数据按距离到期的时间放到对应层的格子里，高层的格子转到的时候把里面的数据重新分配到低层，
+ * 直到落在第 0 层的格子里被处理
+ * tick 为 10 毫秒时，5 层可以覆盖大约 124 天，更远的数据放在最高层，转到的时候会重新分配
+ *
+ * 不是线程安全的，由调用方加锁
+ *
+ * @param <E> 定时的数据类型
+ * @author Chen LiJia
+ * @since 2020/7/2
+ */
+class TimerWheel<E> {
+
+    /**
+     * 每层格子数量的位数
+     */
+    private static final int WHEEL_BITS = 6;
+
+    /**
+     * 每层格子数量
+     */
+    static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    /**
+     * 层数
+     */
+    static final int LEVELS = 5;
+
+    /**
+     * 格子 每个格子是一个带哨兵的双向循环链表
+     */
+    private final Node<E>[][] wheels;
+
+    /**
+     * 一个 tick 的毫秒数
+     */
+    private final long tickMillis;
+
+    /**
+     * 已经处理到的 tick
+     */
+    private long currentTick;
+
+    /**
+     * 定时中的数量
+     */
+    private int size;
+
+    /**
+     * 构造方法
+     *
+     * @param tickMillis        一个 tick 的毫秒数，也是过期清理的精度
+     * @param currentTimeMillis 当前时间
+     */
+    @SuppressWarnings("unchecked")
+    TimerWheel(long tickMillis, long currentTimeMillis) {
+        this.tickMillis = tickMillis;
+        this.currentTick = currentTimeMillis / tickMillis;
+        this.wheels = (Node<E>[][]) new Node<?>[LEVELS][WHEEL_SIZE];
+        for (int i = 0; i < LEVELS; i++) {
+            for (int j = 0; j < WHEEL_SIZE; j++) {
+                wheels[i][j] = Node.sentinel();
+            }
+        }
+    }
+
+    /**
+     * 添加定时
+     *
+     * @param element
+     * @param expireTimeMillis 到期时间
+     * @return 定时节点 用于取消或者重新定时
+     */
+    Node<E> schedule(E element, long expireTimeMillis) {
+        Node<E> node = new Node<>(element);
+        reschedule(node, expireTimeMillis);
+        return node;
+    }
+
+    /**
+     * 重新定时
+     * 节点已经在时间轮中时会先移出来
+     *
+     * @param node
+     * @param expireTimeMillis 新的到期时间
+     */
+    void reschedule(Node<E> node, long expireTimeMillis) {
+        cancel(node);
+        //向上取整，保证处理的时候一定已经到期了
+        node.expireTick = Math.max(ceilDiv(expireTimeMillis, tickMillis), currentTick + 1);
+        link(node);
+        size++;
+    }
+
+    /**
+     * 取消定时
+     *
+     * @param node
+     */
+    void cancel(Node<E> node) {
+        if (null != node && node.isLinked()) {
+            unlink(node);
+            size--;
+        }
+    }
+
+    /**
+     * 时间轮转到当前时间，处理所有到期的数据
+     *
+     * @param currentTimeMillis 当前时间
+     * @param consumer          到期数据的处理，节点已经移出时间轮，可以重新定时
+     */
+    void advance(long currentTimeMillis, Consumer<Node<E>> consumer) {
+        long targetTick = currentTimeMillis / tickMillis;
+        if (size == 0) {
+            //没有数据直接跳过去
+            currentTick = Math.max(currentTick, targetTick);
+            return;
+        }
+
+        while (currentTick < targetTick) {
+            currentTick++;
+            //低层转完一圈，把高层对应格子的数据重新分配下来
+            //从高层往低层分配，高层分配下来的数据才能在同一个 tick 里继续往下分配
+            int cascadeLevel = 0;
+            while (cascadeLevel + 1 < LEVELS
+                    && (currentTick & ((1L << (WHEEL_BITS * (cascadeLevel + 1))) - 1)) == 0) {
+                cascadeLevel++;
+            }
+            for (int level = cascadeLevel; level > 0; level--) {
+                cascade(level, (int) ((currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK));
+            }
+
+            //处理第 0 层当前格子
+            Node<E> sentinel = wheels[0][(int) (currentTick & WHEEL_MASK)];
+            while (sentinel.next != sentinel) {
+                Node<E> node = sentinel.next;
+                unlink(node);
+                size--;
+                consumer.accept(node);
+            }
+
+            if (size == 0) {
+                currentTick = targetTick;
+            }
+        }
+    }
+
+    /**
+     * 定时中的数量
+     *
+     * @return
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * 把格子里的数据重新分配到低层
+     *
+     * @param level
+     * @param index
+     */
+    private void cascade(int level, int index) {
+        Node<E> sentinel = wheels[level][index];
+        while (sentinel.next != sentinel) {
+            Node<E> node = sentinel.next;
+            unlink(node);
+            link(node);
+        }
+    }
+
+    /**
+     * 按到期时间放到对应的格子里
+     *
+     * @param node
+     */
+    private void link(Node<E> node) {
+        long delta = node.expireTick - currentTick;
+        Node<E> sentinel = null;
+        for (int level = 0; level < LEVELS; level++) {
+            if (delta < (1L << (WHEEL_BITS * (level + 1)))) {
+                sentinel = wheels[level][(int) ((node.expireTick >>> (WHEEL_BITS * level)) & WHEEL_MASK)];
+                break;
+            }
+        }
+        if (null == sentinel) {
+            //超出范围，放在最高层最远的格子，转到的时候重新分配
+            int level = LEVELS - 1;
+            long farthestTick = currentTick + (1L << (WHEEL_BITS * LEVELS)) - 1;
+            sentinel = wheels[level][(int) ((farthestTick >>> (WHEEL_BITS * level)) & WHEEL_MASK)];
+        }
+
+        node.prev = sentinel.prev;
+        node.next = sentinel;
+        sentinel.prev.next = node;
+        sentinel.prev = node;
+    }
+
+    private void unlink(Node<E> node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return -Math.floorDiv(-x, y);
+    }
+
+    /**
+     * 定时节点
+     *
+     * @param <E>
+     */
+    static class Node<E> {
+
+        /**
+         * 定时的数据
+         */
+        final E element;
+
+        /**
+         * 到期的 tick
+         */
+        private long expireTick;
+
+        private Node<E> prev;
+
+        private Node<E> next;
+
+        private Node(E element) {
+            this.element = element;
+        }
+
+        /**
+         * 创建哨兵节点 自己指向自己
+         *
+         * @param <E>
+         * @return
+         */
+        private static <E> Node<E> sentinel() {
+            Node<E> sentinel = new Node<>(null);
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            return sentinel;
+        }
+
+        /**
+         * 是否在时间轮中
+         *
+         * @return
+         */
+        boolean isLinked() {
+            return null != next;
+        }
+    }
+
+}
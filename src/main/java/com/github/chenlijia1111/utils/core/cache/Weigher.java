@@ -0,0 +1,27 @@
+package com.github.chenlijia1111.utils.core.cache;
+
+/**
+ * 缓存权重计算
+ * 配合 {@link CacheUtil#setMaximumWeight(long, Weigher)} 使用，
+ * 按权重而不是按条数限制缓存容量，比如按字节数限制大对象
+ *
+ * 权重在存入的时候计算一次，之后不会再变
+ *
+ * @param <K> key 类型
+ * @param <V> value 类型
+ * @author Chen LiJia
+ * @since 2020/7/2
+ */
+@FunctionalInterface
+public interface Weigher<K, V> {
+
+    /**
+     * 计算权重
+     *
+     * @param key
+     * @param value
+     * @return 权重 不能小于 0
+     */
+    int weigh(K key, V value);
+
+}
@@ -0,0 +1,53 @@
+package com.github.chenlijia1111.utils.core.cache.eviction;
+
+/**
+ * 缓存淘汰策略
+ *
+ * 只记录 key 的访问顺序以及权重，不保存缓存值
+ * 所有操作都是 O(1) 的
+ *
+ * 实现类不是线程安全的，由调用方加锁保证同一时刻只有一个线程操作
+ *
+ * @param <K> key 类型
+ * @author Chen LiJia
+ * @since 2020/7/2
+ */
+public interface EvictionPolicy<K> {
+
+    /**
+     * 数据被访问
+     *
+     * @param key
+     */
+    void onAccess(K key);
+
+    /**
+     * 数据被存入或者被覆盖
+     *
+     * @param key
+     * @param weight 权重
+     */
+    void onWrite(K key, long weight);
+
+    /**
+     * 数据被删除
+     *
+     * @param key
+     */
+    void onRemove(K key);
+
+    /**
+     * 选出一个需要淘汰的数据，并从策略中移除
+     *
+     * @return 需要淘汰的 key 没有数据时返回 null
+     */
+    K evict();
+
+    /**
+     * 当前记录的总权重
+     *
+     * @return
+     */
+    long weightedSize();
+
+}
@@ -0,0 +1,163 @@
+package com.github.chenlijia1111.utils.core.cache.eviction;
+
+/**
+ * 访问频率统计
+ *
+ * 4 bit 计数器的 Count-Min Sketch，用很小的内存估算每个 key 的访问频率，
+ * 统计次数达到样本数量之后所有计数减半，让旧的热点慢慢冷却下来
+ *
+ * 一个 long 存放 16 个计数器，每个 key 对应同一个 long 块里的 4 个计数器，取最小值作为估算频率
+ *
+ * 计数表按实际的数据条数通过 {@link #ensureCapacity(long)} 逐步扩大，最多 {@link #MAXIMUM_TABLE_SIZE} 个 long，
+ * 按权重限制容量的缓存不会因为最大权重很大而一开始就分配很大的计数表
+ *
+ * @author Chen LiJia
+ * @since 2020/7/2
+ */
+public class FrequencySketch {
+
+    /**
+     * 哈希种子
+     */
+    private static final long[] SEED = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+    /**
+     * 计数减半时每个 4 bit 计数器保留的位
+     */
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    /**
+     * 计数表最大长度 32M 内存
+     */
+    private static final int MAXIMUM_TABLE_SIZE = 1 << 22;
+
+    private long[] table;
+
+    private int tableMask;
+
+    /**
+     * 样本数量，计数次数达到这个值就减半
+     */
+    private int sampleSize;
+
+    /**
+     * 当前计数次数
+     */
+    private int size;
+
+    /**
+     * 构造方法
+     *
+     * @param initialSize 初始统计的 key 的数量，之后通过 {@link #ensureCapacity(long)} 扩大
+     */
+    public FrequencySketch(long initialSize) {
+        this.table = new long[0];
+        ensureCapacity(initialSize);
+    }
+
+    /**
+     * 扩大计数表
+     * 计数表变大时之前的计数清空，计数表已经足够大或者达到上限时不处理
+     *
+     * @param expectedSize 要统计的 key 的数量
+     */
+    public void ensureCapacity(long expectedSize) {
+        int maximum = (int) Math.min(Math.max(expectedSize, 16L), MAXIMUM_TABLE_SIZE);
+        int tableSize = Integer.highestOneBit(maximum - 1) << 1;
+        if (tableSize <= table.length) {
+            return;
+        }
+        this.table = new long[tableSize];
+        this.tableMask = tableSize - 1;
+        this.sampleSize = 10 * maximum;
+        this.size = 0;
+    }
+
+    /**
+     * 计数表长度
+     *
+     * @return
+     */
+    public int tableSize() {
+        return table.length;
+    }
+
+    /**
+     * 估算访问频率
+     *
+     * @param key
+     * @return 0 ~ 15
+     */
+    public int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * 访问频率 +1
+     *
+     * @param key
+     */
+    public void increment(Object key) {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int offset = (start + i) << 2;
+            long mask = 0xfL << offset;
+            //计数器满了就不再增加
+            if ((table[index] & mask) != mask) {
+                table[index] += 1L << offset;
+                added = true;
+            }
+        }
+
+        if (added && ++size >= sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * 所有计数减半
+     */
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size >>>= 1;
+    }
+
+    /**
+     * 第 i 个计数器所在的 long 下标
+     *
+     * @param hash
+     * @param i
+     * @return
+     */
+    private int indexOf(int hash, int i) {
+        long h = (hash + SEED[i]) * SEED[i];
+        h += h >>> 32;
+        return ((int) h) & tableMask;
+    }
+
+    /**
+     * 打散哈希值
+     *
+     * @param hashCode
+     * @return
+     */
+    private static int spread(int hashCode) {
+        int h = hashCode * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+
+}
@@ -0,0 +1,190 @@
+package com.github.chenlijia1111.utils.core.cache.eviction;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * LFU 淘汰策略
+ *
+ * 相同访问次数的数据放在同一个频率桶里面，桶按访问次数从小到大组成双向链表，
+ * 访问的时候把数据移到下一个桶，淘汰的时候取第一个桶里最早进入的数据，
+ * 所以访问与淘汰都是 O(1) 的
+ *
+ * @param <K> key 类型
+ * @author Chen LiJia
+ * @since 2020/7/2
+ */
+public class LfuEvictionPolicy<K> implements EvictionPolicy<K> {
+
+    /**
+     * key -> 节点
+     */
+    private final Map<K, Node<K>> nodeMap = new HashMap<>();
+
+    /**
+     * 访问次数最少的桶
+     */
+    private FrequencyBucket<K> head;
+
+    /**
+     * 总权重
+     */
+    private long weightedSize;
+
+    @Override
+    public void onAccess(K key) {
+        Node<K> node = nodeMap.get(key);
+        if (Objects.nonNull(node)) {
+            increment(node);
+        }
+    }
+
+    @Override
+    public void onWrite(K key, long weight) {
+        Node<K> node = nodeMap.get(key);
+        if (Objects.nonNull(node)) {
+            //覆盖数据算一次访问
+            weightedSize += weight - node.weight;
+            node.weight = weight;
+            increment(node);
+            return;
+        }
+
+        node = new Node<>(key, weight);
+        nodeMap.put(key, node);
+        weightedSize += weight;
+        //新数据访问次数为 1
+        if (Objects.isNull(head) || head.frequency != 1) {
+            FrequencyBucket<K> bucket = new FrequencyBucket<>(1);
+            bucket.next = head;
+            if (Objects.nonNull(head)) {
+                head.prev = bucket;
+            }
+            head = bucket;
+        }
+        head.nodes.add(node);
+        node.bucket = head;
+    }
+
+    @Override
+    public void onRemove(K key) {
+        Node<K> node = nodeMap.remove(key);
+        if (Objects.nonNull(node)) {
+            weightedSize -= node.weight;
+            removeFromBucket(node);
+        }
+    }
+
+    @Override
+    public K evict() {
+        if (Objects.isNull(head)) {
+            return null;
+        }
+        //访问次数最少的桶里最早进入的数据
+        Iterator<Node<K>> iterator = head.nodes.iterator();
+        Node<K> node = iterator.next();
+        nodeMap.remove(node.key);
+        weightedSize -= node.weight;
+        removeFromBucket(node);
+        return node.key;
+    }
+
+    @Override
+    public long weightedSize() {
+        return weightedSize;
+    }
+
+    /**
+     * 访问次数 +1，移动到下一个桶
+     *
+     * @param node
+     */
+    private void increment(Node<K> node) {
+        FrequencyBucket<K> bucket = node.bucket;
+        long frequency = bucket.frequency + 1;
+        FrequencyBucket<K> next = bucket.next;
+        if (Objects.isNull(next) || next.frequency != frequency) {
+            //没有下一个访问次数的桶，新建一个插在当前桶后面
+            next = new FrequencyBucket<>(frequency);
+            next.prev = bucket;
+            next.next = bucket.next;
+            if (Objects.nonNull(bucket.next)) {
+                bucket.next.prev = next;
+            }
+            bucket.next = next;
+        }
+        removeFromBucket(node);
+        next.nodes.add(node);
+        node.bucket = next;
+    }
+
+    /**
+     * 从桶中移除节点，桶空了就把桶也移除
+     *
+     * @param node
+     */
+    private void removeFromBucket(Node<K> node) {
+        FrequencyBucket<K> bucket = node.bucket;
+        bucket.nodes.remove(node);
+        if (bucket.nodes.isEmpty()) {
+            if (Objects.nonNull(bucket.prev)) {
+                bucket.prev.next = bucket.next;
+            } else {
+                head = bucket.next;
+            }
+            if (Objects.nonNull(bucket.next)) {
+                bucket.next.prev = bucket.prev;
+            }
+        }
+        node.bucket = null;
+    }
+
+    /**
+     * 数据节点
+     *
+     * @param <K>
+     */
+    private static class Node<K> {
+
+        private final K key;
+
+        private long weight;
+
+        /**
+         * 所在的桶
+         */
+        private FrequencyBucket<K> bucket;
+
+        private Node(K key, long weight) {
+            this.key = key;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * 频率桶
+     * 里面的数据按进入桶的顺序排列
+     *
+     * @param <K>
+     */
+    private static class FrequencyBucket<K> {
+
+        /**
+         * 访问次数
+         */
+        private final long frequency;
+
+        private final LinkedHashSet<Node<K>> nodes = new LinkedHashSet<>();
+
+        private FrequencyBucket<K> prev;
+
+        private FrequencyBucket<K> next;
+
+        private FrequencyBucket(long frequency) {
+            this.frequency = frequency;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.github.chenlijia1111.utils.core.cache.eviction;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * LRU 淘汰策略
+ * 利用按访问顺序排序的 {@link LinkedHashMap}，头部就是最久没有被访问的数据
+ *
+ * @param <K> key 类型
+ * @author Chen LiJia
+ * @since 2020/7/2
+ */
+public class LruEvictionPolicy<K> implements EvictionPolicy<K> {
+
+    /**
+     * key -> 权重
+     * 按访问顺序排序
+     */
+    private final LinkedHashMap<K, Long> accessOrderMap = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * 总权重
+     */
+    private long weightedSize;
+
+    @Override
+    public void onAccess(K key) {
+        //访问顺序的 LinkedHashMap get 的时候会把数据移到尾部
+        accessOrderMap.get(key);
+    }
+
+    @Override
+    public void onWrite(K key, long weight) {
+        Long oldWeight = accessOrderMap.put(key, weight);
+        weightedSize += weight - (Objects.nonNull(oldWeight) ? oldWeight : 0L);
+    }
+
+    @Override
+    public void onRemove(K key) {
+        Long oldWeight = accessOrderMap.remove(key);
+        if (Objects.nonNull(oldWeight)) {
+            weightedSize -= oldWeight;
+        }
+    }
+
+    @Override
+    public K evict() {
+        Iterator<Map.Entry<K, Long>> iterator = accessOrderMap.entrySet().iterator();
+        if (!iterator.hasNext()) {
+            return null;
+        }
+        Map.Entry<K, Long> eldest = iterator.next();
+        iterator.remove();
+        weightedSize -= eldest.getValue();
+        return eldest.getKey();
+    }
+
+    @Override
+    public long weightedSize() {
+        return weightedSize;
+    }
+}
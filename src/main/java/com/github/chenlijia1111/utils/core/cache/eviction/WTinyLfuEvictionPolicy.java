@@ -0,0 +1,225 @@
+package com.github.chenlijia1111.utils.core.cache.eviction;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * W-TinyLFU 淘汰策略
+ *
+ * 数据分为三个区域，都按 LRU 排序
+ * 窗口区：占总容量 1%，新数据先进入这里
+ * 试用区：从窗口区淘汰出来的数据进入这里，成为候选者
+ * 保护区：试用区中再次被访问的数据晋升到这里，占主区域 80%
+ *
+ * 需要淘汰时，用 {@link FrequencySketch} 比较候选者与试用区中最久未访问数据的访问频率，
+ * 频率低的被淘汰，这样只访问过一次的数据很难把热点数据挤出去
+ *
+ * @param <K> key 类型
+ * @author Chen LiJia
+ * @since 2020/7/2
+ */
+public class WTinyLfuEvictionPolicy<K> implements EvictionPolicy<K> {
+
+    /**
+     * 窗口区占总容量的比例
+     */
+    private static final double WINDOW_RATIO = 0.01;
+
+    /**
+     * 保护区占主区域的比例
+     */
+    private static final double PROTECTED_RATIO = 0.8;
+
+    /**
+     * 计数表初始统计的数据条数
+     */
+    private static final long INITIAL_SKETCH_SIZE = 1024;
+
+    /**
+     * 窗口区
+     */
+    private final Segment<K> window = new Segment<>();
+
+    /**
+     * 试用区
+     */
+    private final Segment<K> probation = new Segment<>();
+
+    /**
+     * 保护区
+     */
+    private final Segment<K> protectedSegment = new Segment<>();
+
+    /**
+     * 窗口区最大权重
+     */
+    private final long windowMaximum;
+
+    /**
+     * 保护区最大权重
+     */
+    private final long protectedMaximum;
+
+    /**
+     * 访问频率统计
+     * 按数据条数逐步扩大，不按最大权重分配
+     */
+    private final FrequencySketch sketch;
+
+    /**
+     * 构造方法
+     *
+     * @param maximumWeight 缓存最大权重
+     */
+    public WTinyLfuEvictionPolicy(long maximumWeight) {
+        this.windowMaximum = Math.max(1L, (long) (maximumWeight * WINDOW_RATIO));
+        this.protectedMaximum = (long) ((maximumWeight - windowMaximum) * PROTECTED_RATIO);
+        this.sketch = new FrequencySketch(Math.min(maximumWeight, INITIAL_SKETCH_SIZE));
+    }
+
+    @Override
+    public void onAccess(K key) {
+        sketch.increment(key);
+        if (window.contains(key)) {
+            window.touch(key);
+        } else if (protectedSegment.contains(key)) {
+            protectedSegment.touch(key);
+        } else if (probation.contains(key)) {
+            //试用区的数据再次被访问，晋升到保护区
+            protectedSegment.add(key, probation.remove(key));
+            //保护区满了，把最久未访问的降级回试用区
+            while (protectedSegment.weightedSize > protectedMaximum && protectedSegment.size() > 1) {
+                Map.Entry<K, Long> eldest = protectedSegment.pollEldest();
+                probation.add(eldest.getKey(), eldest.getValue());
+            }
+        }
+    }
+
+    @Override
+    public void onWrite(K key, long weight) {
+        sketch.increment(key);
+        if (window.contains(key)) {
+            window.add(key, weight);
+        } else if (protectedSegment.contains(key)) {
+            protectedSegment.add(key, weight);
+        } else if (probation.contains(key)) {
+            probation.add(key, weight);
+        } else {
+            //新数据进入窗口区
+            window.add(key, weight);
+            sketch.ensureCapacity(window.size() + probation.size() + protectedSegment.size());
+        }
+    }
+
+    @Override
+    public void onRemove(K key) {
+        if (window.contains(key)) {
+            window.remove(key);
+        } else if (protectedSegment.contains(key)) {
+            protectedSegment.remove(key);
+        } else if (probation.contains(key)) {
+            probation.remove(key);
+        }
+    }
+
+    @Override
+    public K evict() {
+        //窗口区超出容量，最久未访问的数据移到试用区成为候选者
+        K candidate = null;
+        while (window.weightedSize > windowMaximum && window.size() > 0) {
+            Map.Entry<K, Long> eldest = window.pollEldest();
+            probation.add(eldest.getKey(), eldest.getValue());
+            candidate = eldest.getKey();
+        }
+
+        Segment<K> victimSegment = probation.size() > 0 ? probation :
+                (protectedSegment.size() > 0 ? protectedSegment : window);
+        if (victimSegment.size() == 0) {
+            return null;
+        }
+        K victim = victimSegment.eldestKey();
+
+        if (Objects.nonNull(candidate) && !Objects.equals(candidate, victim)) {
+            //候选者与淘汰者比较访问频率，频率高的留下
+            if (sketch.frequency(candidate) > sketch.frequency(victim)) {
+                victimSegment.remove(victim);
+                return victim;
+            }
+            probation.remove(candidate);
+            return candidate;
+        }
+
+        victimSegment.remove(victim);
+        return victim;
+    }
+
+    /**
+     * 访问频率统计的计数表长度
+     *
+     * @return
+     */
+    public int sketchTableSize() {
+        return sketch.tableSize();
+    }
+
+    @Override
+    public long weightedSize() {
+        return window.weightedSize + probation.weightedSize + protectedSegment.weightedSize;
+    }
+
+    /**
+     * LRU 区域
+     *
+     * @param <K>
+     */
+    private static class Segment<K> {
+
+        /**
+         * key -> 权重
+         * 按访问顺序排序
+         */
+        private final LinkedHashMap<K, Long> accessOrderMap = new LinkedHashMap<>(16, 0.75f, true);
+
+        private long weightedSize;
+
+        private boolean contains(K key) {
+            return accessOrderMap.containsKey(key);
+        }
+
+        private int size() {
+            return accessOrderMap.size();
+        }
+
+        private void touch(K key) {
+            accessOrderMap.get(key);
+        }
+
+        private void add(K key, long weight) {
+            Long oldWeight = accessOrderMap.put(key, weight);
+            weightedSize += weight - (Objects.nonNull(oldWeight) ? oldWeight : 0L);
+        }
+
+        private long remove(K key) {
+            Long weight = accessOrderMap.remove(key);
+            if (Objects.isNull(weight)) {
+                return 0L;
+            }
+            weightedSize -= weight;
+            return weight;
+        }
+
+        private K eldestKey() {
+            return accessOrderMap.keySet().iterator().next();
+        }
+
+        private Map.Entry<K, Long> pollEldest() {
+            Iterator<Map.Entry<K, Long>> iterator = accessOrderMap.entrySet().iterator();
+            Map.Entry<K, Long> eldest = iterator.next();
+            iterator.remove();
+            weightedSize -= eldest.getValue();
+            return eldest;
+        }
+    }
+}
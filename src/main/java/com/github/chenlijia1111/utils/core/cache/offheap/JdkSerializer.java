@@ -0,0 +1,43 @@
+package com.github.chenlijia1111.utils.core.cache.offheap;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * jdk 自带的序列化
+ * 缓存值需要实现 {@link java.io.Serializable}
+ *
+ * 比较慢，序列化之后的数据也比较大，
+ * 大数据量的场景建议自己实现 {@link Serializer}，比如直接缓存字节数组或者使用 json
+ *
+ * @param <V> value 类型
+ * @author Chen LiJia
+ * @since 2020/7/2
+ */
+public class JdkSerializer<V> implements Serializer<V> {
+
+    @Override
+    public byte[] serialize(V value) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream)) {
+            objectOutputStream.writeObject(value);
+        } catch (IOException e) {
+            throw new IllegalStateException("序列化失败", e);
+        }
+        return outputStream.toByteArray();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V deserialize(byte[] bytes) {
+        try (ObjectInputStream objectInputStream = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (V) objectInputStream.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("反序列化失败", e);
+        }
+    }
+
+}
@@ -0,0 +1,108 @@
+package com.github.chenlijia1111.utils.core.cache.offheap;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * 堆外缓存的数据位置
+ *
+ * 数据本身在堆外，这里只记录在哪个 slab 的哪个位置，以及过期时间与命中次数
+ *
+ * @param <K> key 类型
+ * @author Chen LiJia
+ * @since 2020/7/2
+ */
+public final class OffHeapEntry<K> {
+
+    final K key;
+
+    /**
+     * 所在 slab 的下标
+     */
+    final int slabIndex;
+
+    /**
+     * 在 slab 中的起始位置
+     */
+    final int offset;
+
+    /**
+     * 数据长度
+     */
+    final int length;
+
+    /**
+     * 存入时间
+     */
+    private final long writeTime;
+
+    /**
+     * 过期时间 {@link Long#MAX_VALUE} 表示永不过期
+     */
+    private volatile long expireTime;
+
+    /**
+     * 命中次数
+     * 用来判断是否是热点数据，并发读取时通过 {@link #HIT_COUNT_UPDATER} 原子递增，不会少算
+     */
+    private volatile int hitCount;
+
+    private static final AtomicIntegerFieldUpdater<OffHeapEntry> HIT_COUNT_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(OffHeapEntry.class, "hitCount");
+
+    OffHeapEntry(K key, int slabIndex, int offset, int length, long writeTime, long expireTime) {
+        this.key = key;
+        this.slabIndex = slabIndex;
+        this.offset = offset;
+        this.length = length;
+        this.writeTime = writeTime;
+        this.expireTime = expireTime;
+    }
+
+    /**
+     * 判断在指定时间是否过期
+     *
+     * @param currentTimeMillis
+     * @return
+     */
+    public boolean isExpired(long currentTimeMillis) {
+        return currentTimeMillis >= expireTime;
+    }
+
+    public K getKey() {
+        return key;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public long getWriteTime() {
+        return writeTime;
+    }
+
+    public long getExpireTime() {
+        return expireTime;
+    }
+
+    /**
+     * 修改过期时间
+     * 访问之后延续过期时间时使用
+     *
+     * @param expireTime
+     */
+    public void setExpireTime(long expireTime) {
+        this.expireTime = expireTime;
+    }
+
+    public int getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * 记录一次命中
+     */
+    void recordHit() {
+        HIT_COUNT_UPDATER.incrementAndGet(this);
+    }
+
+}
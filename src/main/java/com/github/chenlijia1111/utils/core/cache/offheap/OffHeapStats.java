@@ -0,0 +1,118 @@
+package com.github.chenlijia1111.utils.core.cache.offheap;
+
+/**
+ * 堆外缓存统计数据快照
+ *
+ * @author Chen LiJia
+ * @since 2020/7/2
+ */
+public class OffHeapStats {
+
+    /**
+     * 最大容量 字节
+     */
+    private final long capacityBytes;
+
+    /**
+     * 已经申请的堆外内存 字节
+     */
+    private final long allocatedBytes;
+
+    /**
+     * 有效数据占用 字节
+     * 与已申请内存的差值是被覆盖、删除、提升到堆内之后留下的空洞，回收 slab 的时候才会释放
+     */
+    private final long usedBytes;
+
+    /**
+     * 数据数量
+     */
+    private final long entryCount;
+
+    /**
+     * 命中次数
+     */
+    private final long hitCount;
+
+    /**
+     * 提升到堆内的次数
+     */
+    private final long promotionCount;
+
+    /**
+     * 超出容量淘汰数量
+     */
+    private final long evictionCount;
+
+    /**
+     * 过期删除数量
+     */
+    private final long expirationCount;
+
+    public OffHeapStats(long capacityBytes, long allocatedBytes, long usedBytes, long entryCount, long hitCount,
+                        long promotionCount, long evictionCount, long expirationCount) {
+        this.capacityBytes = capacityBytes;
+        this.allocatedBytes = allocatedBytes;
+        this.usedBytes = usedBytes;
+        this.entryCount = entryCount;
+        this.hitCount = hitCount;
+        this.promotionCount = promotionCount;
+        this.evictionCount = evictionCount;
+        this.expirationCount = expirationCount;
+    }
+
+    /**
+     * 碎片率 已申请的内存中没有被有效数据占用的比例
+     *
+     * @return
+     */
+    public double fragmentationRate() {
+        return allocatedBytes == 0 ? 0.0 : (double) (allocatedBytes - usedBytes) / allocatedBytes;
+    }
+
+    public long getCapacityBytes() {
+        return capacityBytes;
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public long getEntryCount() {
+        return entryCount;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getPromotionCount() {
+        return promotionCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public long getExpirationCount() {
+        return expirationCount;
+    }
+
+    @Override
+    public String toString() {
+        return "OffHeapStats{" +
+                "capacityBytes=" + capacityBytes +
+                ", allocatedBytes=" + allocatedBytes +
+                ", usedBytes=" + usedBytes +
+                ", entryCount=" + entryCount +
+                ", hitCount=" + hitCount +
+                ", promotionCount=" + promotionCount +
+                ", evictionCount=" + evictionCount +
+                ", expirationCount=" + expirationCount +
+                '}';
+    }
+}
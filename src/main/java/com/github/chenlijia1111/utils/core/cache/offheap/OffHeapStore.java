@@ -0,0 +1,523 @@
+package com.github.chenlijia1111.utils.core.cache.offheap;
+
+import com.github.chenlijia1111.utils.common.AssertUtil;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * 堆外缓存存储
+ *
+ * 数据序列化之后存放在 {@link ByteBuffer#allocateDirect(int)} 申请的 slab 中，不占用堆内存，
+ * 缓存了大量数据的时候不会增加老年代的 gc 压力，堆内只保留 key 与数据位置
+ *
+ * 按日志的方式追加写入：数据依次写在当前 slab 的末尾，写满了换下一个 slab，
+ * slab 数量达到容量上限之后回收最早写满的那个 slab，其中还有效的数据全部淘汰
+ * 覆盖、删除、提升到堆内的数据只标记失效，留下的空间在 slab 回收的时候一起释放
+ * 热点数据会被提升回堆内，所以留在堆外的基本都是冷数据，按写入顺序淘汰就足够了
+ *
+ * 过期数据不主动清理，读取的时候发现过期了删除，或者随所在的 slab 一起回收
+ *
+ * 读操作持有读锁，可以并发执行，写入删除回收持有写锁
+ * 淘汰监听在释放锁之后回调，监听里反序列化等操作不会阻塞其他读写
+ *
+ * @param <K> key 类型
+ * @author Chen LiJia
+ * @since 2020/7/2
+ */
+public class OffHeapStore<K> {
+
+    /**
+     * 默认 slab 大小 4M
+     * 单条数据不能超过 slab 大小
+     */
+    public static final int DEFAULT_SLAB_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * slab 大小
+     */
+    private final int slabSize;
+
+    /**
+     * 最大 slab 数量
+     */
+    private final int maxSlabCount;
+
+    /**
+     * 已经申请的 slab
+     * 只能在持有写锁时修改
+     */
+    private final List<Slab<K>> slabList = new ArrayList<>();
+
+    /**
+     * 已经写满的 slab 按写满的顺序排列，最早写满的先回收
+     */
+    private final Queue<Slab<K>> fullSlabQueue = new ArrayDeque<>();
+
+    /**
+     * 当前写入的 slab
+     */
+    private Slab<K> currentSlab;
+
+    /**
+     * 数据位置
+     */
+    private final ConcurrentMap<K, OffHeapEntry<K>> entryMap = new ConcurrentHashMap<>();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 淘汰监听
+     */
+    private final EvictionListener<K> evictionListener;
+
+    /**
+     * 有效数据占用的字节数
+     */
+    private volatile long usedBytes;
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private volatile long promotionCount;
+
+    private volatile long evictionCount;
+
+    private volatile long expirationCount;
+
+    /**
+     * 构造方法
+     *
+     * @param capacityBytes    最大容量 字节 按 slab 大小向下取整
+     * @param slabSize         slab 大小 字节
+     * @param evictionListener 淘汰监听 超出容量或者过期被删除的时候回调
+     */
+    public OffHeapStore(long capacityBytes, int slabSize, EvictionListener<K> evictionListener) {
+        AssertUtil.isTrue(slabSize > 0, "slab大小必须大于0");
+        AssertUtil.isTrue(capacityBytes >= slabSize, "堆外缓存容量不能小于slab大小");
+        AssertUtil.notNull(evictionListener, "淘汰监听不能为空");
+
+        this.slabSize = slabSize;
+        this.maxSlabCount = (int) Math.min(Integer.MAX_VALUE, capacityBytes / slabSize);
+        this.evictionListener = evictionListener;
+    }
+
+    /**
+     * 构造方法 使用默认的 slab 大小
+     * 容量比默认 slab 小的时候整个容量就是一个 slab
+     *
+     * @param capacityBytes    最大容量 字节
+     * @param evictionListener 淘汰监听
+     */
+    public OffHeapStore(long capacityBytes, EvictionListener<K> evictionListener) {
+        this(capacityBytes, (int) Math.min(capacityBytes, DEFAULT_SLAB_SIZE), evictionListener);
+    }
+
+    /**
+     * 存入数据 覆盖旧的数据
+     * 空间不够时回收最早写满的 slab
+     *
+     * @param key
+     * @param bytes      序列化之后的数据
+     * @param writeTime  存入时间
+     * @param expireTime 过期时间 {@link Long#MAX_VALUE} 表示永不过期
+     * @return 数据位置，数据超过 slab 大小存不下时返回 null
+     */
+    public OffHeapEntry<K> put(K key, byte[] bytes, long writeTime, long expireTime) {
+        AssertUtil.notNull(key, "缓存key不能为空");
+        AssertUtil.notNull(bytes, "缓存数据不能为空");
+        if (bytes.length > slabSize) {
+            return null;
+        }
+
+        List<Eviction<K>> evictionList = new ArrayList<>();
+        OffHeapEntry<K> entry;
+        lock.writeLock().lock();
+        try {
+            OffHeapEntry<K> oldEntry = entryMap.remove(key);
+            if (Objects.nonNull(oldEntry)) {
+                usedBytes -= oldEntry.length;
+            }
+
+            Slab<K> slab = slabFor(bytes.length, evictionList);
+            entry = new OffHeapEntry<>(key, slab.index, slab.position, bytes.length, writeTime, expireTime);
+            ByteBuffer buffer = slab.buffer.duplicate();
+            buffer.position(slab.position);
+            buffer.put(bytes);
+            slab.position += bytes.length;
+            slab.entryList.add(entry);
+
+            entryMap.put(key, entry);
+            usedBytes += bytes.length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        notifyEviction(evictionList);
+        return entry;
+    }
+
+    /**
+     * 获取没有过期的数据位置 并记录一次命中
+     * 过期的数据会被删除
+     *
+     * @param key
+     * @param currentTimeMillis 当前时间
+     * @return
+     */
+    public OffHeapEntry<K> get(K key, long currentTimeMillis) {
+        OffHeapEntry<K> entry = entryMap.get(key);
+        if (Objects.isNull(entry)) {
+            return null;
+        }
+        if (entry.isExpired(currentTimeMillis)) {
+            Eviction<K> eviction = null;
+            lock.writeLock().lock();
+            try {
+                if (entryMap.remove(key, entry)) {
+                    usedBytes -= entry.length;
+                    expirationCount++;
+                    eviction = toEviction(entry, true);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (Objects.nonNull(eviction)) {
+                notifyEviction(Collections.singletonList(eviction));
+            }
+            return null;
+        }
+        entry.recordHit();
+        hitCount.increment();
+        return entry;
+    }
+
+    /**
+     * 读取数据
+     *
+     * @param entry {@link #get(Object, long)} 返回的数据位置
+     * @return 数据已经被覆盖、删除或者随 slab 回收了返回 null
+     */
+    public byte[] read(OffHeapEntry<K> entry) {
+        lock.readLock().lock();
+        try {
+            //在读锁内 slab 不会被回收，只要还在集合中数据就是完整的
+            if (entryMap.get(entry.key) != entry) {
+                return null;
+            }
+            return readBytes(entry);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 判断是否包含没有过期的数据 不记录命中
+     *
+     * @param key
+     * @param currentTimeMillis
+     * @return
+     */
+    public boolean containsKey(K key, long currentTimeMillis) {
+        OffHeapEntry<K> entry = entryMap.get(key);
+        return Objects.nonNull(entry) && !entry.isExpired(currentTimeMillis);
+    }
+
+    /**
+     * 删除数据
+     *
+     * @param key
+     * @return 被删除的数据，不存在返回 null
+     */
+    public byte[] remove(K key) {
+        if (!entryMap.containsKey(key)) {
+            return null;
+        }
+        lock.writeLock().lock();
+        try {
+            OffHeapEntry<K> entry = entryMap.remove(key);
+            if (Objects.isNull(entry)) {
+                return null;
+            }
+            usedBytes -= entry.length;
+            return readBytes(entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除指定位置的数据
+     * 如果这个 key 已经存入了新的数据，不会删除
+     *
+     * @param key
+     * @param entry
+     * @return
+     */
+    public boolean remove(K key, OffHeapEntry<K> entry) {
+        lock.writeLock().lock();
+        try {
+            return removeIfSame(key, entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 数据提升到堆内之后删除堆外的这份
+     *
+     * @param key
+     * @param entry
+     * @return
+     */
+    public boolean promote(K key, OffHeapEntry<K> entry) {
+        lock.writeLock().lock();
+        try {
+            boolean removed = removeIfSame(key, entry);
+            if (removed) {
+                promotionCount++;
+            }
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 当前所有 key 的快照
+     *
+     * @return
+     */
+    public Set<K> keySet() {
+        return new HashSet<>(entryMap.keySet());
+    }
+
+    /**
+     * 数据数量
+     *
+     * @return
+     */
+    public long size() {
+        return entryMap.size();
+    }
+
+    /**
+     * 统计数据快照
+     *
+     * @return
+     */
+    public OffHeapStats stats() {
+        lock.readLock().lock();
+        try {
+            return new OffHeapStats((long) maxSlabCount * slabSize, (long) slabList.size() * slabSize, usedBytes,
+                    entryMap.size(), hitCount.sum(), promotionCount, evictionCount, expirationCount);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 找到能写下指定长度的 slab
+     * 当前 slab 写不下时换一个，没有空闲的就回收最早写满的
+     * 调用方需要持有写锁
+     *
+     * @param length
+     * @param evictionList 回收时被淘汰的数据
+     * @return
+     */
+    private Slab<K> slabFor(int length, List<Eviction<K>> evictionList) {
+        if (Objects.nonNull(currentSlab) && currentSlab.position + length <= slabSize) {
+            return currentSlab;
+        }
+
+        if (Objects.nonNull(currentSlab)) {
+            fullSlabQueue.add(currentSlab);
+        }
+        if (slabList.size() < maxSlabCount) {
+            //还没有达到容量上限，申请新的 slab
+            currentSlab = new Slab<>(slabList.size(), ByteBuffer.allocateDirect(slabSize));
+            slabList.add(currentSlab);
+        } else {
+            currentSlab = fullSlabQueue.poll();
+            recycle(currentSlab, evictionList);
+        }
+        return currentSlab;
+    }
+
+    /**
+     * 删除指定位置的数据
+     * 调用方需要持有写锁
+     *
+     * @param key
+     * @param entry
+     * @return
+     */
+    private boolean removeIfSame(K key, OffHeapEntry<K> entry) {
+        boolean removed = entryMap.remove(key, entry);
+        if (removed) {
+            usedBytes -= entry.length;
+        }
+        return removed;
+    }
+
+    /**
+     * 回收 slab 淘汰其中还有效的数据
+     * 调用方需要持有写锁
+     *
+     * @param slab
+     * @param evictionList 被淘汰的数据 释放锁之后再回调监听
+     */
+    private void recycle(Slab<K> slab, List<Eviction<K>> evictionList) {
+        long currentTimeMillis = System.currentTimeMillis();
+        for (OffHeapEntry<K> entry : slab.entryList) {
+            //已经被覆盖或者删除了
+            if (!entryMap.remove(entry.key, entry)) {
+                continue;
+            }
+            usedBytes -= entry.length;
+            boolean expired = entry.isExpired(currentTimeMillis);
+            if (expired) {
+                expirationCount++;
+            } else {
+                evictionCount++;
+            }
+            evictionList.add(toEviction(entry, expired));
+        }
+        slab.entryList.clear();
+        slab.position = 0;
+    }
+
+    /**
+     * 记录被淘汰的数据
+     * slab 释放锁之后就会被新数据覆盖，监听需要数据的话在这里复制出来
+     * 调用方需要持有写锁
+     *
+     * @param entry
+     * @param expired
+     * @return
+     */
+    private Eviction<K> toEviction(OffHeapEntry<K> entry, boolean expired) {
+        byte[] bytes = evictionListener.isBytesRequired() ? readBytes(entry) : null;
+        return new Eviction<>(entry.key, bytes, expired);
+    }
+
+    /**
+     * 回调淘汰监听
+     * 调用方不能持有锁
+     *
+     * @param evictionList
+     */
+    private void notifyEviction(List<Eviction<K>> evictionList) {
+        for (Eviction<K> eviction : evictionList) {
+            try {
+                evictionListener.onEviction(eviction.key, () -> eviction.bytes, eviction.expired);
+            } catch (Throwable e) {
+                //监听出错不影响存储
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * 从 slab 中复制数据
+     * 调用方需要持有读锁或者写锁
+     *
+     * @param entry
+     * @return
+     */
+    private byte[] readBytes(OffHeapEntry<K> entry) {
+        byte[] bytes = new byte[entry.length];
+        ByteBuffer buffer = slabList.get(entry.slabIndex).buffer.duplicate();
+        buffer.position(entry.offset);
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * 淘汰监听
+     *
+     * @param <K> key 类型
+     */
+    @FunctionalInterface
+    public interface EvictionListener<K> {
+
+        /**
+         * 数据被淘汰
+         * 在写入或者读取的线程中释放锁之后同步回调
+         *
+         * @param key
+         * @param bytes   被淘汰的数据，{@link #isBytesRequired()} 返回 false 时为 null
+         * @param expired 是否是过期删除
+         */
+        void onEviction(K key, Supplier<byte[]> bytes, boolean expired);
+
+        /**
+         * 是否需要被淘汰的数据
+         * 需要的话淘汰时在锁内复制一份，不需要的时候返回 false 省掉复制
+         *
+         * @return
+         */
+        default boolean isBytesRequired() {
+            return true;
+        }
+
+    }
+
+    /**
+     * 被淘汰的数据
+     *
+     * @param <K> key 类型
+     */
+    private static class Eviction<K> {
+
+        private final K key;
+
+        private final byte[] bytes;
+
+        private final boolean expired;
+
+        private Eviction(K key, byte[] bytes, boolean expired) {
+            this.key = key;
+            this.bytes = bytes;
+            this.expired = expired;
+        }
+    }
+
+    /**
+     * 一块连续的堆外内存
+     *
+     * @param <K> key 类型
+     */
+    private static class Slab<K> {
+
+        private final int index;
+
+        private final ByteBuffer buffer;
+
+        /**
+         * 下一次写入的位置
+         */
+        private int position;
+
+        /**
+         * 写在这个 slab 中的数据，回收的时候用
+         */
+        private final List<OffHeapEntry<K>> entryList = new ArrayList<>();
+
+        private Slab(int index, ByteBuffer buffer) {
+            this.index = index;
+            this.buffer = buffer;
+        }
+    }
+
+}
@@ -0,0 +1,29 @@
+package com.github.chenlijia1111.utils.core.cache.offheap;
+
+/**
+ * 缓存值序列化
+ * 存入堆外缓存的数据需要先序列化成字节数组
+ *
+ * @param <V> value 类型
+ * @author Chen LiJia
+ * @since 2020/7/2
+ */
+public interface Serializer<V> {
+
+    /**
+     * 序列化
+     *
+     * @param value
+     * @return
+     */
+    byte[] serialize(V value);
+
+    /**
+     * 反序列化
+     *
+     * @param bytes
+     * @return
+     */
+    V deserialize(byte[] bytes);
+
+}
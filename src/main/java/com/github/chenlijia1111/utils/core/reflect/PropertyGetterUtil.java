@@ -0,0 +1,194 @@
+package com.github.chenlijia1111.utils.core.reflect;
+
+import com.github.chenlijia1111.utils.core.StringUtils;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 属性读取方法缓存
+ *
+ * {@link PropertyUtil#getFieldValue(Object, Class, String)} 每次调用都要查找属性、设置访问权限，
+ * 找不到属性时还要靠异常逐级查找父类，批量读取大量对象时很慢
+ * 这里每个类的每个属性只解析一次，生成的读取方法缓存起来重复使用
+ *
+ * 有 public 的 get 方法时通过 {@link LambdaMetafactory} 生成直接调用 get 方法的 {@link Function}，
+ * 与直接调用 get 方法的速度差不多；
+ * 没有 get 方法、或者类对当前类加载器不可见时，退回到设置了访问权限的 {@link Field}
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class PropertyGetterUtil {
+
+    /**
+     * 读取方法缓存
+     * 不存在的属性也缓存下来，避免重复查找
+     */
+    private static final ClassValue<ConcurrentHashMap<String, Optional<Function<Object, Object>>>> GETTER_CACHE =
+            new ClassValue<ConcurrentHashMap<String, Optional<Function<Object, Object>>>>() {
+                @Override
+                protected ConcurrentHashMap<String, Optional<Function<Object, Object>>> computeValue(Class<?> type) {
+                    return new ConcurrentHashMap<>();
+                }
+            };
+
+
+    /**
+     * 获取属性的读取方法
+     * 包括父类的属性
+     *
+     * @param objectClass  对象类型
+     * @param propertyName 属性名称
+     * @return 属性不存在返回 null
+     */
+    public static Function<Object, Object> getGetter(Class<?> objectClass, String propertyName) {
+        if (Objects.isNull(objectClass) || StringUtils.isEmpty(propertyName)) {
+            return null;
+        }
+        return GETTER_CACHE.get(objectClass)
+                .computeIfAbsent(propertyName, name -> Optional.ofNullable(createGetter(objectClass, name)))
+                .orElse(null);
+    }
+
+    /**
+     * 判断是否有这个属性
+     * 包括父类的属性
+     *
+     * @param objectClass
+     * @param propertyName
+     * @return
+     */
+    public static boolean hasProperty(Class<?> objectClass, String propertyName) {
+        return Objects.nonNull(getGetter(objectClass, propertyName));
+    }
+
+    /**
+     * 查找属性 包括父类
+     *
+     * @param objectClass
+     * @param propertyName
+     * @return 找不到返回 null
+     */
+    public static Field findField(Class<?> objectClass, String propertyName) {
+        Class<?> currentClass = objectClass;
+        while (Objects.nonNull(currentClass)) {
+            for (Field field : currentClass.getDeclaredFields()) {
+                if (Objects.equals(field.getName(), propertyName)) {
+                    return field;
+                }
+            }
+            currentClass = currentClass.getSuperclass();
+        }
+        return null;
+    }
+
+    /**
+     * 创建读取方法
+     *
+     * @param objectClass
+     * @param propertyName
+     * @return
+     */
+    private static Function<Object, Object> createGetter(Class<?> objectClass, String propertyName) {
+        Field field = findField(objectClass, propertyName);
+        if (Objects.isNull(field)) {
+            return null;
+        }
+
+        Method readMethod = findReadMethod(objectClass, field);
+        if (Objects.nonNull(readMethod)) {
+            Function<Object, Object> getter = createLambdaGetter(readMethod);
+            if (Objects.nonNull(getter)) {
+                return getter;
+            }
+        }
+
+        field.setAccessible(true);
+        return o -> {
+            try {
+                return field.get(o);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    /**
+     * 查找 public 的 get 方法
+     * 返回类型与属性类型一致才算
+     *
+     * @param objectClass
+     * @param field
+     * @return
+     */
+    private static Method findReadMethod(Class<?> objectClass, Field field) {
+        String fieldName = field.getName();
+        String suffix = fieldName.substring(0, 1).toUpperCase() + fieldName.substring(1);
+        String[] methodNames = Objects.equals(boolean.class, field.getType()) ?
+                new String[]{"is" + suffix, "get" + suffix} : new String[]{"get" + suffix};
+        for (String methodName : methodNames) {
+            try {
+                Method method = objectClass.getMethod(methodName);
+                if (Objects.equals(field.getType(), method.getReturnType()) && !Modifier.isStatic(method.getModifiers())) {
+                    return method;
+                }
+            } catch (NoSuchMethodException e) {
+                //没有这个方法
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 通过 {@link LambdaMetafactory} 生成调用 get 方法的 {@link Function}
+     *
+     * @param readMethod
+     * @return 不能生成时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> createLambdaGetter(Method readMethod) {
+        Class<?> declaringClass = readMethod.getDeclaringClass();
+        //生成的类由当前类加载器加载，必须能直接访问到属性所在的类
+        if (!Modifier.isPublic(declaringClass.getModifiers()) || !isVisible(declaringClass)) {
+            return null;
+        }
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle methodHandle = lookup.unreflect(readMethod);
+            CallSite callSite = LambdaMetafactory.metafactory(lookup, "apply",
+                    MethodType.methodType(Function.class),
+                    MethodType.methodType(Object.class, Object.class),
+                    methodHandle,
+                    methodHandle.type().wrap());
+            return (Function<Object, Object>) callSite.getTarget().invokeExact();
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    /**
+     * 判断类对当前类加载器是否可见
+     *
+     * @param targetClass
+     * @return
+     */
+    private static boolean isVisible(Class<?> targetClass) {
+        try {
+            return Class.forName(targetClass.getName(), false, PropertyGetterUtil.class.getClassLoader()) == targetClass;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+}
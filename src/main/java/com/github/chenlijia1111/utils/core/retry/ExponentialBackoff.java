@@ -0,0 +1,80 @@
+package com.github.chenlijia1111.utils.core.retry;
+
+import com.github.chenlijia1111.utils.common.AssertUtil;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 指数退避
+ *
+ * 第 n 次重试的等待时间在 0 ~ min(maxDelay, baseDelay * 2^n) 之间随机（full jitter），
+ * 固定间隔重试时所有失败的调用会在同一时刻一起重试，下游刚恢复就又被打垮，加上随机之后重试被打散
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class ExponentialBackoff {
+
+    /**
+     * 基础等待时间 毫秒
+     */
+    private final long baseDelayMillis;
+
+    /**
+     * 最长等待时间 毫秒
+     */
+    private final long maxDelayMillis;
+
+    /**
+     * 构造函数
+     *
+     * @param baseDelayMillis 基础等待时间 毫秒
+     * @param maxDelayMillis  最长等待时间 毫秒
+     */
+    public ExponentialBackoff(long baseDelayMillis, long maxDelayMillis) {
+        AssertUtil.isTrue(baseDelayMillis > 0, "基础等待时间必须大于0");
+        AssertUtil.isTrue(maxDelayMillis >= baseDelayMillis, "最长等待时间不能小于基础等待时间");
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    /**
+     * 第几次重试的等待时间
+     *
+     * @param retryCount 重试次数 从 0 开始
+     * @return 毫秒
+     */
+    public long delayMillis(int retryCount) {
+        //防止移位溢出
+        int shift = Math.min(Math.max(retryCount, 0), 30);
+        long ceiling = Math.min(maxDelayMillis, baseDelayMillis << shift);
+        if (ceiling <= 0) {
+            ceiling = maxDelayMillis;
+        }
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    /**
+     * 等待第几次重试
+     *
+     * @param retryCount 重试次数 从 0 开始
+     * @return 被中断返回 false
+     */
+    public boolean sleep(int retryCount) {
+        try {
+            Thread.sleep(delayMillis(retryCount));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public long getBaseDelayMillis() {
+        return baseDelayMillis;
+    }
+
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+}
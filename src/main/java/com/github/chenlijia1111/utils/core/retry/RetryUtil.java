@@ -18,6 +18,9 @@ import java.util.Objects;
  * 使用场景1：发送邮件，发送完之后，判断是否发送成功，如果发送失败，返回状态码 {@link RetryUtil#RETRY_RESULT_CODE} 或者根据异常进行捕获 然后就会进行重试发送
  * 使用场景2: 12306 抢票，开始执行之后，判断票量是否充足，如果不足，返回状态码 {@link RetryUtil#RETRY_RESULT_CODE} 然后就会进行重试抢票
  *
+ * 默认失败之后立即重试，调用第三方接口时建议通过 {@link #setBackoff(ExponentialBackoff)} 设置随机的指数退避，
+ * http 请求可以直接使用 {@link com.github.chenlijia1111.utils.http.interceptor.RetryInterceptor}
+ *
  * @author Chen LiJia
  * @since 2020/7/29
  */
@@ -57,6 +60,12 @@ public class RetryUtil {
      */
     private IRetryProcess process;
 
+    /**
+     * 重试之前的等待
+     * 默认为空 即立即重试
+     */
+    private ExponentialBackoff backoff;
+
     public RetryUtil setRepeatCount(Integer repeatCount) {
         if (Objects.isNull(repeatCount)) {
             repeatCount = 0;
@@ -79,6 +88,11 @@ public class RetryUtil {
         return this;
     }
 
+    public RetryUtil setBackoff(ExponentialBackoff backoff) {
+        this.backoff = backoff;
+        return this;
+    }
+
     /**
      * 开始执行内容
      *
@@ -88,6 +102,10 @@ public class RetryUtil {
         AssertUtil.isTrue(Objects.nonNull(this.process), "执行内容不能为空");
         Result result = null;
         while (true) {
+            //重试之前等待
+            if (currentRepeatCount >= 0 && Objects.nonNull(backoff) && !backoff.sleep(currentRepeatCount)) {
+                break;
+            }
             try {
                 //当前重试次数
                 currentRepeatCount++;
@@ -33,4 +33,15 @@ public interface IRedisConnect {
      */
     String get(String key);
 
+    /**
+     * 删除
+     * 二级缓存 {@link NearCache} 失效数据时使用，默认不支持
+     * 没有实现时 {@link NearCache#invalidate(String)} 会抛出异常，不会只删除本地缓存
+     *
+     * @param key
+     */
+    default void remove(String key) {
+        throw new UnsupportedOperationException("当前redis连接不支持删除");
+    }
+
 }
@@ -0,0 +1,36 @@
+package com.github.chenlijia1111.utils.database.redis;
+
+/**
+ * 二级缓存失效广播
+ *
+ * {@link NearCache} 修改或删除数据之后，通过这里通知其他节点删除本地缓存
+ * 一般用 redis 的发布订阅实现，其他节点收到消息之后调用 {@link NearCache#onRemoteInvalidation(String, String)}
+ *
+ * {@code
+ *     //发送
+ *     NearCache nearCache = NearCacheBuilder.newBuilder(redisConnect)
+ *             .invalidationBroadcaster((sourceId, key) -> redisTemplate.convertAndSend("near-cache", sourceId + ":" + key))
+ *             .build();
+ *
+ *     //接收
+ *     public void onMessage(String message) {
+ *         int index = message.indexOf(':');
+ *         nearCache.onRemoteInvalidation(message.substring(0, index), message.substring(index + 1));
+ *     }
+ * }
+ *
+ * @author Chen LiJia
+ * @since 2020/7/2
+ */
+@FunctionalInterface
+public interface InvalidationBroadcaster {
+
+    /**
+     * 广播失效消息
+     *
+     * @param sourceId 发出消息的缓存实例 id，收到自己发出的消息时忽略
+     * @param key      失效的 key
+     */
+    void broadcast(String sourceId, String key);
+
+}
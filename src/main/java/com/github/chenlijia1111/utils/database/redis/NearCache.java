@@ -0,0 +1,328 @@
+package com.github.chenlijia1111.utils.database.redis;
+
+import com.github.chenlijia1111.utils.common.AssertUtil;
+import com.github.chenlijia1111.utils.core.JSONUtil;
+import com.github.chenlijia1111.utils.core.StringUtils;
+import com.github.chenlijia1111.utils.core.cache.Cache;
+import com.github.chenlijia1111.utils.core.cache.CacheStats;
+
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * 二级缓存
+ * 本地缓存在前，{@link IRedisConnect} 在后
+ *
+ * 读：先查本地缓存，命中了就是一次 map 查询，不需要访问 redis
+ * 本地没有再查 redis，redis 也没有再调用加载方法，加载到的数据写回 redis 与本地缓存，
+ * 同一个 key 同时只会有一个线程去查 redis
+ *
+ * 写：先写 redis 再写本地缓存，然后广播失效消息，其他节点删除自己的本地缓存
+ *
+ * 本地缓存有自己的过期时间，没有配置失效广播或者广播丢失时，其他节点最多在这段时间内读到旧数据
+ *
+ * 读取期间同一个 key 被写入或删除时，读到的旧值不写回 redis，也不留在本地缓存，
+ * 按 key 分段记录版本号，写入、删除时版本号加一，加载前后版本号不一致就丢弃加载结果
+ *
+ * 数据统一以字符串保存，不是字符串的值转成 json，读取时可以指定类型转换回来
+ *
+ * 通过 {@link NearCacheBuilder} 创建
+ *
+ * @author Chen LiJia
+ * @since 2020/7/2
+ */
+public class NearCache {
+
+    /**
+     * 版本号分段数量
+     */
+    private static final int STRIPES = 64;
+
+    /**
+     * 实例 id 用于忽略自己发出的失效消息
+     */
+    private final String id = UUID.randomUUID().toString();
+
+    /**
+     * 远程缓存
+     */
+    private final IRedisConnect redisConnect;
+
+    /**
+     * 本地缓存
+     */
+    private final Cache<String, String> localCache;
+
+    /**
+     * redis 过期时间 毫秒 为 null 表示不过期
+     */
+    private final Long remoteExpireTime;
+
+    /**
+     * 失效广播
+     */
+    private final InvalidationBroadcaster invalidationBroadcaster;
+
+    /**
+     * 每个分段的版本号 分段内的 key 被写入、删除时加一
+     */
+    private final AtomicLongArray versions = new AtomicLongArray(STRIPES);
+
+    /**
+     * 分段锁 加载结果写回 redis 与写入、删除互斥，避免旧值覆盖新值
+     */
+    private final Object[] locks = new Object[STRIPES];
+
+    NearCache(IRedisConnect redisConnect, Cache<String, String> localCache, Long remoteExpireTime,
+              InvalidationBroadcaster invalidationBroadcaster) {
+        this.redisConnect = redisConnect;
+        this.localCache = localCache;
+        this.remoteExpireTime = remoteExpireTime;
+        this.invalidationBroadcaster = invalidationBroadcaster;
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * 获取数据
+     * 本地没有时从 redis 读取
+     *
+     * @param key
+     * @return
+     */
+    public String get(String key) {
+        AssertUtil.hasText(key, "缓存key不能为空");
+        long version = versions.get(stripe(key));
+        boolean[] loaded = new boolean[1];
+        String value = localCache.get(key, k -> {
+            loaded[0] = true;
+            return getRemote(k);
+        });
+        if (loaded[0]) {
+            discardIfChanged(key, version);
+        }
+        return value;
+    }
+
+    /**
+     * 获取数据并转换成指定类型
+     *
+     * @param key
+     * @param objClass
+     * @param <T>
+     * @return
+     */
+    public <T> T get(String key, Class<T> objClass) {
+        return toObj(get(key), objClass);
+    }
+
+    /**
+     * 获取数据
+     * 本地与 redis 都没有时调用加载方法，比如查询数据库，加载到的数据写回 redis 与本地缓存
+     *
+     * @param key
+     * @param loader 加载方法 返回 null 表示没有数据
+     * @return
+     */
+    public String get(String key, Function<String, Object> loader) {
+        AssertUtil.hasText(key, "缓存key不能为空");
+        AssertUtil.notNull(loader, "加载方法不能为空");
+        long version = versions.get(stripe(key));
+        boolean[] loaded = new boolean[1];
+        String result = localCache.get(key, k -> {
+            loaded[0] = true;
+            String value = getRemote(k);
+            if (Objects.nonNull(value)) {
+                return value;
+            }
+            value = toStr(loader.apply(k));
+            if (Objects.nonNull(value)) {
+                synchronized (locks[stripe(k)]) {
+                    //加载期间被写入或删除过，不能用旧值覆盖 redis
+                    if (versions.get(stripe(k)) == version) {
+                        putRemote(k, value);
+                    }
+                }
+            }
+            return value;
+        });
+        if (loaded[0]) {
+            discardIfChanged(key, version);
+        }
+        return result;
+    }
+
+    /**
+     * 获取数据并转换成指定类型
+     *
+     * @param key
+     * @param objClass
+     * @param loader   加载方法 返回 null 表示没有数据
+     * @param <T>
+     * @return
+     */
+    public <T> T get(String key, Class<T> objClass, Function<String, T> loader) {
+        AssertUtil.notNull(loader, "加载方法不能为空");
+        return toObj(get(key, loader::apply), objClass);
+    }
+
+    /**
+     * 存入数据
+     * 写 redis 与本地缓存，并通知其他节点删除本地缓存
+     *
+     * @param key
+     * @param value
+     */
+    public void put(String key, Object value) {
+        AssertUtil.hasText(key, "缓存key不能为空");
+        String str = toStr(value);
+        AssertUtil.notNull(str, "缓存值不能为空");
+
+        int stripe = stripe(key);
+        synchronized (locks[stripe]) {
+            versions.incrementAndGet(stripe);
+            putRemote(key, str);
+        }
+        localCache.put(key, str);
+        broadcast(key);
+    }
+
+    /**
+     * 删除数据
+     * 删除 redis 与本地缓存，并通知其他节点删除本地缓存
+     * redis 连接没有实现 {@link IRedisConnect#remove(String)} 时抛出异常，本地缓存与 redis 都不删除，
+     * 否则下次读取又会从 redis 加载回旧数据
+     *
+     * @param key
+     * @throws UnsupportedOperationException redis 连接不支持删除
+     */
+    public void invalidate(String key) {
+        AssertUtil.hasText(key, "缓存key不能为空");
+        int stripe = stripe(key);
+        synchronized (locks[stripe]) {
+            try {
+                redisConnect.remove(key);
+            } catch (UnsupportedOperationException e) {
+                throw new UnsupportedOperationException("redis连接没有实现 IRedisConnect#remove，不能删除缓存 " + key, e);
+            }
+            versions.incrementAndGet(stripe);
+        }
+        localCache.remove(key);
+        broadcast(key);
+    }
+
+    /**
+     * 只删除本地缓存
+     * 下次读取时从 redis 重新加载
+     *
+     * @param key
+     */
+    public void invalidateLocal(String key) {
+        //正在加载的旧值也要作废
+        versions.incrementAndGet(stripe(key));
+        localCache.remove(key);
+    }
+
+    /**
+     * 收到其他节点的失效消息
+     * 自己发出的消息忽略
+     *
+     * @param sourceId 发出消息的实例 id
+     * @param key
+     */
+    public void onRemoteInvalidation(String sourceId, String key) {
+        if (Objects.equals(id, sourceId)) {
+            return;
+        }
+        invalidateLocal(key);
+    }
+
+    /**
+     * 实例 id
+     *
+     * @return
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * 本地缓存统计
+     * 未命中次数就是访问 redis 的次数
+     *
+     * @return
+     */
+    public CacheStats stats() {
+        return localCache.stats();
+    }
+
+    /**
+     * 加载期间版本号变了，本地缓存中可能是旧值，删掉下次重新读取
+     *
+     * @param key
+     * @param version 加载前的版本号
+     */
+    private void discardIfChanged(String key, long version) {
+        if (versions.get(stripe(key)) != version) {
+            localCache.remove(key);
+        }
+    }
+
+    private int stripe(String key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+
+    private String getRemote(String key) {
+        String value = redisConnect.get(key);
+        return StringUtils.isEmpty(value) ? null : value;
+    }
+
+    private void putRemote(String key, String value) {
+        if (Objects.isNull(remoteExpireTime)) {
+            redisConnect.put(key, value);
+        } else {
+            redisConnect.putExpire(key, value, remoteExpireTime);
+        }
+    }
+
+    /**
+     * 广播失效消息
+     * 广播失败不影响本地的写入，其他节点的本地缓存等过期之后读到新值
+     *
+     * @param key
+     */
+    private void broadcast(String key) {
+        if (Objects.isNull(invalidationBroadcaster)) {
+            return;
+        }
+        try {
+            invalidationBroadcaster.broadcast(id, key);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private String toStr(Object value) {
+        if (Objects.isNull(value) || value instanceof String) {
+            return (String) value;
+        }
+        return JSONUtil.objToStr(value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T toObj(String value, Class<T> objClass) {
+        AssertUtil.notNull(objClass, "对象class为空");
+        if (Objects.isNull(value)) {
+            return null;
+        }
+        if (String.class == objClass) {
+            return (T) value;
+        }
+        return JSONUtil.strToObj(value, objClass);
+    }
+
+}
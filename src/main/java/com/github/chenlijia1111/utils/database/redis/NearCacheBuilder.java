@@ -0,0 +1,133 @@
+package com.github.chenlijia1111.utils.database.redis;
+
+import com.github.chenlijia1111.utils.common.AssertUtil;
+import com.github.chenlijia1111.utils.core.cache.Cache;
+import com.github.chenlijia1111.utils.core.cache.CacheBuilder;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 二级缓存构建器
+ *
+ * {@code
+ *     NearCache nearCache = NearCacheBuilder.newBuilder(redisConnect)
+ *             .localMaximumSize(10000)
+ *             .localExpireAfterWrite(30, TimeUnit.SECONDS)
+ *             .remoteExpireAfterWrite(2, TimeUnit.HOURS)
+ *             .invalidationBroadcaster(broadcaster)
+ *             .build();
+ * }
+ *
+ * @author Chen LiJia
+ * @since 2020/7/2
+ */
+public class NearCacheBuilder {
+
+    /**
+     * redis 连接
+     */
+    private final IRedisConnect redisConnect;
+
+    /**
+     * 本地最大缓存数量
+     */
+    private long localMaximumSize = 10000;
+
+    /**
+     * 本地缓存过期时间 毫秒
+     */
+    private long localExpireTime = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * redis 过期时间 毫秒 为 null 表示不过期
+     */
+    private Long remoteExpireTime;
+
+    /**
+     * 失效广播
+     */
+    private InvalidationBroadcaster invalidationBroadcaster;
+
+    private NearCacheBuilder(IRedisConnect redisConnect) {
+        this.redisConnect = redisConnect;
+    }
+
+    /**
+     * 创建构建器
+     *
+     * @param redisConnect
+     * @return
+     */
+    public static NearCacheBuilder newBuilder(IRedisConnect redisConnect) {
+        AssertUtil.isTrue(Objects.nonNull(redisConnect), "redis连接为空");
+        return new NearCacheBuilder(redisConnect);
+    }
+
+    /**
+     * 本地最大缓存数量 默认 10000
+     *
+     * @param localMaximumSize
+     * @return
+     */
+    public NearCacheBuilder localMaximumSize(long localMaximumSize) {
+        AssertUtil.isTrue(localMaximumSize > 0, "本地最大缓存数量必须大于0");
+        this.localMaximumSize = localMaximumSize;
+        return this;
+    }
+
+    /**
+     * 本地缓存存入之后多久过期 默认 1 分钟
+     * 也是没有失效广播时其他节点能读到旧数据的最长时间
+     *
+     * @param duration
+     * @param unit
+     * @return
+     */
+    public NearCacheBuilder localExpireAfterWrite(long duration, TimeUnit unit) {
+        AssertUtil.isTrue(duration > 0, "过期时间必须大于0");
+        AssertUtil.notNull(unit, "时间单位不能为空");
+        this.localExpireTime = unit.toMillis(duration);
+        return this;
+    }
+
+    /**
+     * redis 存入之后多久过期 默认不过期
+     *
+     * @param duration
+     * @param unit
+     * @return
+     */
+    public NearCacheBuilder remoteExpireAfterWrite(long duration, TimeUnit unit) {
+        AssertUtil.isTrue(duration > 0, "过期时间必须大于0");
+        AssertUtil.notNull(unit, "时间单位不能为空");
+        this.remoteExpireTime = unit.toMillis(duration);
+        return this;
+    }
+
+    /**
+     * 失效广播 默认不广播
+     *
+     * @param invalidationBroadcaster
+     * @return
+     */
+    public NearCacheBuilder invalidationBroadcaster(InvalidationBroadcaster invalidationBroadcaster) {
+        this.invalidationBroadcaster = invalidationBroadcaster;
+        return this;
+    }
+
+    /**
+     * 构建二级缓存
+     *
+     * @return
+     */
+    public NearCache build() {
+        Cache<String, String> localCache = CacheBuilder.<String, String>newBuilder()
+                .maximumSize(localMaximumSize)
+                .expireAfterWrite(localExpireTime, TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+        return new NearCache(redisConnect, localCache, remoteExpireTime, invalidationBroadcaster);
+    }
+
+}
@@ -0,0 +1,79 @@
+package com.github.chenlijia1111.utils.email;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * 一封邮件
+ * 用于批量发送与异步发送，参数含义与 {@link EmailUtil#sendMassage(List, String, String, List)} 一致
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class EmailMessage {
+
+    /**
+     * 收邮件地址 必传
+     */
+    private List<String> receiveEmails;
+
+    /**
+     * 邮件标题
+     */
+    private String subject;
+
+    /**
+     * 邮件内容 html
+     */
+    private String content;
+
+    /**
+     * 邮件附件集合
+     */
+    private List<File> fileList;
+
+    public EmailMessage() {
+    }
+
+    public EmailMessage(List<String> receiveEmails, String subject, String content) {
+        this.receiveEmails = receiveEmails;
+        this.subject = subject;
+        this.content = content;
+    }
+
+    public List<String> getReceiveEmails() {
+        return receiveEmails;
+    }
+
+    public EmailMessage setReceiveEmails(List<String> receiveEmails) {
+        this.receiveEmails = receiveEmails;
+        return this;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public EmailMessage setSubject(String subject) {
+        this.subject = subject;
+        return this;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public EmailMessage setContent(String content) {
+        this.content = content;
+        return this;
+    }
+
+    public List<File> getFileList() {
+        return fileList;
+    }
+
+    public EmailMessage setFileList(List<File> fileList) {
+        this.fileList = fileList;
+        return this;
+    }
+}
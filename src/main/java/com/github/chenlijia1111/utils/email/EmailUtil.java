@@ -9,12 +9,18 @@ import javax.activation.DataHandler;
 import javax.activation.FileDataSource;
 import javax.mail.Address;
 import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
 import javax.mail.Session;
-import javax.mail.Transport;
 import javax.mail.internet.*;
 import java.io.File;
 import java.io.UnsupportedEncodingException;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 邮件工具类
@@ -25,6 +31,12 @@ import java.util.*;
  * <p>
  * 这里主要是使用 SMTP 发送邮件
  * 默认全部采用 465端口加密 发送邮件
+ * <p>
+ * Session 只创建一次，{@link #sendBatch(List)} 在同一个 SMTP 连接上依次发送，
+ * 省去每封邮件的 TCP、TLS 握手与登录认证，每封邮件单独返回发送结果
+ * 默认每次发送完关闭连接，不调用 {@link #close()} 也不会留下连接
+ * 通过 {@link #setPooled(boolean)} 开启连接池之后，连接放在 {@link SmtpTransportPool} 里给之后的发送继续使用，
+ * 长期使用的实例（如单例）、异步发送 {@link #sendAsync(EmailMessage)} 建议开启，不再使用时必须调用 {@link #close()} 关闭连接
  *
  * @author chenlijia
  * @version 1.0
@@ -32,6 +44,11 @@ import java.util.*;
  **/
 public class EmailUtil {
 
+    /**
+     * 线程编号
+     */
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
     /**
      * 发送邮件账号
      **/
@@ -52,6 +69,52 @@ public class EmailUtil {
      **/
     private EmailHostType emailHostType;
 
+    /**
+     * 邮件会话 只创建一次
+     **/
+    private final Session session;
+
+    /**
+     * 发送完之后是否把连接留在连接池里
+     * 默认不保留，每次发送完关闭连接
+     **/
+    private boolean pooled;
+
+    /**
+     * 最大连接数 同时也是异步发送的线程数
+     **/
+    private int maxConnections = 4;
+
+    /**
+     * 一个连接最多发送的邮件数
+     **/
+    private int maxMessagesPerConnection = 100;
+
+    /**
+     * 连接最长空闲时间 毫秒
+     **/
+    private long maxIdleMillis = 30000;
+
+    /**
+     * 借连接的最长等待时间 毫秒
+     **/
+    private long borrowTimeoutMillis = 60000;
+
+    /**
+     * 异步发送最大排队数量
+     **/
+    private int asyncQueueCapacity = 1000;
+
+    /**
+     * 连接池 第一次发送时创建
+     **/
+    private volatile SmtpTransportPool transportPool;
+
+    /**
+     * 异步发送的线程池 第一次异步发送时创建
+     **/
+    private volatile ThreadPoolExecutor sendExecutor;
+
     /**
      * @param account       发送邮件账号
      * @param password      发送邮件密码
@@ -60,15 +123,125 @@ public class EmailUtil {
      * @since 上午 10:47 2019/9/12 0012
      **/
     public EmailUtil(String account, String password, EmailHostType emailHostType, String sendUserName) {
+        this(account, password, Objects.nonNull(emailHostType) ? emailHostType.getHost() : null,
+                Objects.nonNull(emailHostType) ? emailHostType.getPort() : null, true, sendUserName);
+        this.emailHostType = emailHostType;
+    }
+
+    /**
+     * 指定服务器地址
+     * 用于企业自建的邮件服务器，或者测试时连接本地的 SMTP 服务
+     *
+     * @param account      发送邮件账号
+     * @param password     发送邮件密码
+     * @param host         服务器地址
+     * @param port         端口
+     * @param ssl          是否使用 ssl 加密
+     * @param sendUserName 发送邮件用户名称 如果不设置,默认为 {@link #account} 发送账户
+     * @since 2020/8/17
+     **/
+    public EmailUtil(String account, String password, String host, String port, boolean ssl, String sendUserName) {
 
         AssertUtil.isTrue(StringUtils.isNotEmpty(account), "邮箱账户不能为空");
         AssertUtil.isTrue(StringUtils.isNotEmpty(password), "邮箱密码不能为空");
-        AssertUtil.isTrue(Objects.nonNull(emailHostType), "邮箱服务类型不能为空");
+        AssertUtil.isTrue(StringUtils.isNotEmpty(host), "邮箱服务类型不能为空");
 
         this.account = account;
         this.password = password;
-        this.emailHostType = emailHostType;
         this.sendUserName = StringUtils.isEmpty(sendUserName) ? account : sendUserName;
+
+        Properties props = new Properties();
+        props.setProperty("mail.transport.protocol", "smtp");
+        props.setProperty("mail.smtp.host", host);
+        props.setProperty("mail.smtp.auth", "true");
+        props.setProperty("mail.smtp.port", port);
+        if (ssl) {
+            props.setProperty("mail.smtp.socketFactory.class", "javax.net.ssl.SSLSocketFactory");
+            props.setProperty("mail.smtp.socketFactory.fallback", "false");
+            props.setProperty("mail.smtp.socketFactory.port", port);
+            props.setProperty("mail.smtp.ssl.enable", "true");
+        }
+        //连接与读写超时，默认是无限等待，服务器没有响应时会一直占着连接
+        props.setProperty("mail.smtp.connectiontimeout", "10000");
+        props.setProperty("mail.smtp.timeout", "30000");
+        props.setProperty("mail.smtp.writetimeout", "30000");
+        this.session = Session.getInstance(props);
+    }
+
+    /**
+     * 设置是否开启连接池
+     * 开启之后发送完的连接留给之后的发送继续使用，空闲超过 {@link #setMaxIdleMillis(long)} 的连接在下次借出时关闭，
+     * 不再使用时必须调用 {@link #close()}，否则已经登录的连接会一直保留到服务器断开
+     *
+     * @param pooled
+     * @return
+     */
+    public EmailUtil setPooled(boolean pooled) {
+        this.pooled = pooled;
+        return this;
+    }
+
+    /**
+     * 设置最大连接数 同时也是异步发送的线程数
+     * 需要在第一次发送之前设置
+     * 邮箱服务器一般会限制同一个账号的并发连接数，不宜太大
+     *
+     * @param maxConnections
+     * @return
+     */
+    public EmailUtil setMaxConnections(int maxConnections) {
+        AssertUtil.isTrue(maxConnections > 0, "最大连接数必须大于0");
+        this.maxConnections = maxConnections;
+        return this;
+    }
+
+    /**
+     * 设置一个连接最多发送的邮件数
+     * 需要在第一次发送之前设置
+     *
+     * @param maxMessagesPerConnection
+     * @return
+     */
+    public EmailUtil setMaxMessagesPerConnection(int maxMessagesPerConnection) {
+        AssertUtil.isTrue(maxMessagesPerConnection > 0, "每个连接发送数量必须大于0");
+        this.maxMessagesPerConnection = maxMessagesPerConnection;
+        return this;
+    }
+
+    /**
+     * 设置连接最长空闲时间
+     * 需要在第一次发送之前设置
+     *
+     * @param maxIdleMillis 毫秒
+     * @return
+     */
+    public EmailUtil setMaxIdleMillis(long maxIdleMillis) {
+        this.maxIdleMillis = maxIdleMillis;
+        return this;
+    }
+
+    /**
+     * 设置借连接的最长等待时间
+     *
+     * @param borrowTimeoutMillis 毫秒
+     * @return
+     */
+    public EmailUtil setBorrowTimeoutMillis(long borrowTimeoutMillis) {
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        return this;
+    }
+
+    /**
+     * 设置异步发送最大排队数量
+     * 需要在第一次异步发送之前设置
+     *
+     * @param asyncQueueCapacity
+     * @return
+     */
+    public EmailUtil setAsyncQueueCapacity(int asyncQueueCapacity) {
+        AssertUtil.isTrue(asyncQueueCapacity > 0, "排队数量必须大于0");
+        this.asyncQueueCapacity = asyncQueueCapacity;
+        return this;
     }
 
     /**
@@ -84,71 +257,223 @@ public class EmailUtil {
      * @since 上午 10:48 2019/9/12 0012
      **/
     public Result sendMassage(List<String> receiveEmails, String subject, String content, List<File> fileList) {
+        return sendBatch(Lists.asList(new EmailMessage(receiveEmails, subject, content).setFileList(fileList))).get(0);
+    }
+
+    /**
+     * 批量发送邮件
+     * 在同一个连接上依次发送，连接断开或者达到单个连接的发送上限时换一个连接继续发送
+     * 一封邮件发送失败不影响后面的邮件
+     * 没有开启连接池时，发送完关闭连接
+     *
+     * @param messageList 邮件集合
+     * @return 每封邮件的发送结果 顺序与参数一致
+     * @since 2020/8/17
+     **/
+    public List<Result> sendBatch(List<EmailMessage> messageList) {
+        List<Result> resultList = new ArrayList<>();
+        if (Lists.isEmpty(messageList)) {
+            return resultList;
+        }
+
+        SmtpTransportPool pool = getTransportPool();
+        SmtpTransportPool.PooledTransport pooledTransport = null;
+        try {
+            for (EmailMessage emailMessage : messageList) {
+                if (Objects.isNull(emailMessage) || Lists.isEmpty(emailMessage.getReceiveEmails())) {
+                    resultList.add(Result.failure("接收邮件地址集合不能为空"));
+                    continue;
+                }
+
+                MimeMessage message;
+                try {
+                    message = createMessage(emailMessage);
+                } catch (UnsupportedEncodingException | MessagingException e) {
+                    e.printStackTrace();
+                    resultList.add(Result.failure("发送失败"));
+                    continue;
+                }
 
-        if (Lists.isEmpty(receiveEmails)) {
-            return Result.failure("接收邮件地址集合不能为空");
+                try {
+                    if (Objects.isNull(pooledTransport)) {
+                        pooledTransport = pool.borrow(borrowTimeoutMillis);
+                    }
+                    pooledTransport.getTransport().sendMessage(message, message.getAllRecipients());
+                    pooledTransport.increaseSentCount();
+                    resultList.add(Result.success("发送成功"));
+                    //达到单个连接的发送上限，还回去由连接池关闭，下一封换新的连接
+                    if (pooledTransport.getSentCount() >= maxMessagesPerConnection) {
+                        pool.release(pooledTransport, false);
+                        pooledTransport = null;
+                    }
+                } catch (SendFailedException e) {
+                    //收件地址被拒绝，连接还可以继续使用
+                    e.printStackTrace();
+                    resultList.add(Result.failure("发送失败"));
+                } catch (MessagingException e) {
+                    e.printStackTrace();
+                    resultList.add(Result.failure("发送失败"));
+                    //连接可能已经断开，下一封换新的连接
+                    if (Objects.nonNull(pooledTransport)) {
+                        pool.release(pooledTransport, true);
+                        pooledTransport = null;
+                    }
+                }
+            }
+        } finally {
+            if (Objects.nonNull(pooledTransport)) {
+                //没有开启连接池 直接关闭
+                pool.release(pooledTransport, !pooled);
+            }
         }
+        return resultList;
+    }
+
+    /**
+     * 异步发送邮件
+     * 由后台线程发送，同时发送的数量不超过最大连接数，多出来的排队，
+     * 排队满了之后直接返回失败，不会因为邮件服务器变慢导致任务无限堆积
+     * 没有开启连接池时每封邮件都要重新建立连接，建议通过 {@link #setPooled(boolean)} 开启
+     *
+     * @param emailMessage 邮件
+     * @return 发送结果 排队满了返回 发送失败
+     * @since 2020/8/17
+     **/
+    public CompletableFuture<Result> sendAsync(EmailMessage emailMessage) {
+        CompletableFuture<Result> future = new CompletableFuture<>();
+        try {
+            getSendExecutor().execute(() -> {
+                try {
+                    future.complete(sendBatch(Lists.asList(emailMessage)).get(0));
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.complete(Result.failure("发送队列已满"));
+        }
+        return future;
+    }
+
+    /**
+     * 创建邮件
+     *
+     * @param emailMessage
+     * @return
+     * @throws UnsupportedEncodingException
+     * @throws MessagingException
+     */
+    private MimeMessage createMessage(EmailMessage emailMessage) throws UnsupportedEncodingException, MessagingException {
 
         //防止为空
-        subject = StringUtils.isEmpty(subject) ? "" : subject;
-        content = StringUtils.isEmpty(content) ? "" : content;
+        String subject = StringUtils.isEmpty(emailMessage.getSubject()) ? "" : emailMessage.getSubject();
+        String content = StringUtils.isEmpty(emailMessage.getContent()) ? "" : emailMessage.getContent();
 
-        Properties props = new Properties();
-        props.setProperty("mail.transport.protocol", "smtp");
-        props.setProperty("mail.smtp.socketFactory.class", "javax.net.ssl.SSLSocketFactory");
-        props.setProperty("mail.smtp.host", this.emailHostType.getHost());
-        props.setProperty("mail.smtp.auth", "true");
-        props.setProperty("mail.smtp.port", this.emailHostType.getPort());
-        props.setProperty("mail.smtp.socketFactory.fallback", "false");
-        props.setProperty("mail.smtp.socketFactory.port", this.emailHostType.getPort());
-        props.setProperty("mail.smtp.ssl.enable", "true");
-        Session session = Session.getInstance(props);
         MimeMessage message = new MimeMessage(session);
-        try {
-            message.setFrom(new InternetAddress(this.account, this.sendUserName, "utf-8"));
-            //批量发送
-            ArrayList<Address> addressList = new ArrayList<>();
-            for (String receiveEmail : receiveEmails) {
-                addressList.add(new InternetAddress(receiveEmail, receiveEmail, "utf-8"));
+        message.setFrom(new InternetAddress(this.account, this.sendUserName, "utf-8"));
+        //批量发送
+        ArrayList<Address> addressList = new ArrayList<>();
+        for (String receiveEmail : emailMessage.getReceiveEmails()) {
+            addressList.add(new InternetAddress(receiveEmail, receiveEmail, "utf-8"));
+        }
+        //设置批量收件地址
+        message.setRecipients(MimeMessage.RecipientType.TO, addressList.toArray(new Address[addressList.size()]));
+        message.setSubject(subject);
+        //body内容
+        MimeBodyPart text = new MimeBodyPart();
+        text.setContent(content, "text/html; charset=utf-8");
+
+        //混合内容发送
+        MimeMultipart mm = new MimeMultipart();
+        //body内容 content
+        mm.addBodyPart(text);
+        //判断是否有需要发送附件
+        List<File> fileList = emailMessage.getFileList();
+        if (Lists.isNotEmpty(fileList)) {
+            for (File file : fileList) {
+                //附件
+                MimeBodyPart attachment = new MimeBodyPart();
+                DataHandler dh2 = new DataHandler(new FileDataSource((file)));
+                attachment.setDataHandler(dh2);
+                attachment.setFileName(MimeUtility.encodeText(dh2.getName()));
+                mm.addBodyPart(attachment);
+            }
+        }
+        mm.setSubType("mixed");
+
+        message.setContent(mm);
+        message.setSentDate(new Date());
+        message.saveChanges();
+        return message;
+    }
+
+    /**
+     * 获取连接池
+     *
+     * @return
+     */
+    public SmtpTransportPool getTransportPool() {
+        if (Objects.isNull(transportPool)) {
+            synchronized (this) {
+                if (Objects.isNull(transportPool)) {
+                    transportPool = new SmtpTransportPool(session, account, password, maxConnections,
+                            maxMessagesPerConnection, maxIdleMillis);
+                }
             }
-            //设置批量收件地址
-            message.setRecipients(MimeMessage.RecipientType.TO, addressList.toArray(new Address[addressList.size()]));
-            message.setSubject(subject);
-            //body内容
-            MimeBodyPart text = new MimeBodyPart();
-            text.setContent(content, "text/html; charset=utf-8");
-
-            //混合内容发送
-            MimeMultipart mm = new MimeMultipart();
-            //body内容 content
-            mm.addBodyPart(text);
-            //判断是否有需要发送附件
-            if (Lists.isNotEmpty(fileList)) {
-                for (File file : fileList) {
-                    //附件
-                    MimeBodyPart attachment = new MimeBodyPart();
-                    DataHandler dh2 = new DataHandler(new FileDataSource((file)));
-                    attachment.setDataHandler(dh2);
-                    attachment.setFileName(MimeUtility.encodeText(dh2.getName()));
-                    mm.addBodyPart(attachment);
+        }
+        return transportPool;
+    }
+
+    /**
+     * 获取异步发送的线程池
+     *
+     * @return
+     */
+    private ThreadPoolExecutor getSendExecutor() {
+        if (Objects.isNull(sendExecutor)) {
+            synchronized (this) {
+                if (Objects.isNull(sendExecutor)) {
+                    ThreadPoolExecutor executor = new ThreadPoolExecutor(maxConnections, maxConnections, 60L, TimeUnit.SECONDS,
+                            new ArrayBlockingQueue<>(asyncQueueCapacity), r -> {
+                        Thread thread = new Thread(r, "email-send-" + THREAD_NUMBER.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }, new ThreadPoolExecutor.AbortPolicy());
+                    //空闲的线程也会被回收
+                    executor.allowCoreThreadTimeOut(true);
+                    sendExecutor = executor;
                 }
             }
-            mm.setSubType("mixed");
-
-            message.setContent(mm);
-            message.setSentDate(new Date());
-            message.saveChanges();
-
-            Transport transport = session.getTransport();
-            transport.connect(account, password);
-            transport.sendMessage(message, message.getAllRecipients());
-            transport.close();
-            return Result.success("发送成功");
-        } catch (UnsupportedEncodingException e) {
-            e.printStackTrace();
-        } catch (MessagingException e) {
-            e.printStackTrace();
         }
-        return Result.success("发送失败");
+        return sendExecutor;
+    }
+
+    /**
+     * 关闭
+     * 已经提交的异步发送会继续执行完，之后关闭所有连接
+     *
+     * @param timeoutMillis 等待异步发送完成的时间 毫秒
+     */
+    public void close(long timeoutMillis) {
+        ThreadPoolExecutor executor = sendExecutor;
+        if (Objects.nonNull(executor)) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        SmtpTransportPool pool = transportPool;
+        if (Objects.nonNull(pool)) {
+            pool.close();
+        }
+    }
+
+    /**
+     * 关闭
+     */
+    public void close() {
+        close(30000);
     }
 }
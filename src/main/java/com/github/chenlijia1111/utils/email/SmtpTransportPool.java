@@ -0,0 +1,251 @@
+package com.github.chenlijia1111.utils.email;
+
+import com.github.chenlijia1111.utils.common.AssertUtil;
+
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SMTP 连接池
+ *
+ * 建立 SMTP 连接要经过 TCP、TLS 握手与登录认证，比发送一封邮件本身慢得多，
+ * 连接用完之后放回池里给下一封邮件继续使用
+ *
+ * 1. 同时使用的连接数不超过 maxTotal，借不到时等待
+ * 2. 空闲超过 maxIdleMillis 的连接直接关闭，服务器一般也会断开长时间空闲的连接
+ * 3. 空闲超过 {@link #VALIDATE_AFTER_IDLE_MILLIS} 的连接借出之前先检查是否还连着
+ * 4. 一个连接发送 maxMessagesPerConnection 封之后关闭，有些邮箱服务器限制一个连接发送的数量
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class SmtpTransportPool {
+
+    /**
+     * 空闲超过这个时间的连接借出之前先检查 毫秒
+     */
+    private static final long VALIDATE_AFTER_IDLE_MILLIS = 2000;
+
+    private final Session session;
+
+    private final String account;
+
+    private final String password;
+
+    /**
+     * 最大连接数
+     */
+    private final int maxTotal;
+
+    /**
+     * 一个连接最多发送的邮件数
+     */
+    private final int maxMessagesPerConnection;
+
+    /**
+     * 最长空闲时间 毫秒
+     */
+    private final long maxIdleMillis;
+
+    /**
+     * 空闲的连接 后进先出，最近用过的连接最可能还连着
+     */
+    private final Deque<PooledTransport> idleDeque = new ArrayDeque<>();
+
+    /**
+     * 限制连接数
+     */
+    private final Semaphore permits;
+
+    /**
+     * 建立连接的次数
+     */
+    private final AtomicLong connectCount = new AtomicLong();
+
+    private volatile boolean closed;
+
+
+    public SmtpTransportPool(Session session, String account, String password, int maxTotal,
+                             int maxMessagesPerConnection, long maxIdleMillis) {
+        AssertUtil.notNull(session, "session不能为空");
+        AssertUtil.isTrue(maxTotal > 0, "最大连接数必须大于0");
+        AssertUtil.isTrue(maxMessagesPerConnection > 0, "每个连接发送数量必须大于0");
+        this.session = session;
+        this.account = account;
+        this.password = password;
+        this.maxTotal = maxTotal;
+        this.maxMessagesPerConnection = maxMessagesPerConnection;
+        this.maxIdleMillis = maxIdleMillis;
+        this.permits = new Semaphore(maxTotal, true);
+    }
+
+    /**
+     * 借出连接
+     * 用完之后必须调用 {@link #release(PooledTransport, boolean)}
+     *
+     * @param timeoutMillis 等待时间 毫秒
+     * @return
+     * @throws MessagingException 连接失败或者等待超时
+     */
+    public PooledTransport borrow(long timeoutMillis) throws MessagingException {
+        AssertUtil.isTrue(!closed, "连接池已关闭");
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new MessagingException("等待邮件连接超时");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("等待邮件连接时被中断", e);
+        }
+        try {
+            PooledTransport pooledTransport;
+            while (Objects.nonNull(pooledTransport = pollIdle())) {
+                long idleMillis = System.currentTimeMillis() - pooledTransport.lastUsedTime;
+                if (idleMillis > maxIdleMillis) {
+                    closeQuietly(pooledTransport);
+                    continue;
+                }
+                //isConnected 会发送 NOOP 检查，刚用过的连接不检查
+                if (idleMillis > VALIDATE_AFTER_IDLE_MILLIS && !pooledTransport.transport.isConnected()) {
+                    closeQuietly(pooledTransport);
+                    continue;
+                }
+                return pooledTransport;
+            }
+            Transport transport = session.getTransport();
+            transport.connect(account, password);
+            connectCount.incrementAndGet();
+            return new PooledTransport(transport);
+        } catch (MessagingException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 归还连接
+     *
+     * @param pooledTransport
+     * @param broken          连接是否已经不可用
+     */
+    public void release(PooledTransport pooledTransport, boolean broken) {
+        try {
+            pooledTransport.lastUsedTime = System.currentTimeMillis();
+            if (broken || closed || pooledTransport.sentCount >= maxMessagesPerConnection) {
+                closeQuietly(pooledTransport);
+                return;
+            }
+            synchronized (idleDeque) {
+                idleDeque.offerFirst(pooledTransport);
+            }
+            //关闭与归还同时发生时，保证连接被关掉
+            if (closed) {
+                closeIdle();
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private PooledTransport pollIdle() {
+        synchronized (idleDeque) {
+            return idleDeque.pollFirst();
+        }
+    }
+
+    /**
+     * 关闭空闲的连接
+     */
+    private void closeIdle() {
+        PooledTransport pooledTransport;
+        while (Objects.nonNull(pooledTransport = pollIdle())) {
+            closeQuietly(pooledTransport);
+        }
+    }
+
+    private void closeQuietly(PooledTransport pooledTransport) {
+        try {
+            pooledTransport.transport.close();
+        } catch (MessagingException e) {
+            //连接已经断开
+        }
+    }
+
+    /**
+     * 关闭
+     * 借出的连接归还时关闭
+     */
+    public void close() {
+        closed = true;
+        closeIdle();
+    }
+
+    /**
+     * 建立连接的次数
+     *
+     * @return
+     */
+    public long getConnectCount() {
+        return connectCount.get();
+    }
+
+    /**
+     * 空闲的连接数
+     *
+     * @return
+     */
+    public int getIdleCount() {
+        synchronized (idleDeque) {
+            return idleDeque.size();
+        }
+    }
+
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    /**
+     * 池里的连接
+     */
+    public static class PooledTransport {
+
+        private final Transport transport;
+
+        /**
+         * 已发送的邮件数
+         */
+        private int sentCount;
+
+        /**
+         * 最后使用的时间
+         */
+        private long lastUsedTime = System.currentTimeMillis();
+
+        private PooledTransport(Transport transport) {
+            this.transport = transport;
+        }
+
+        public Transport getTransport() {
+            return transport;
+        }
+
+        public int getSentCount() {
+            return sentCount;
+        }
+
+        /**
+         * 记录发送了一封
+         */
+        public void increaseSentCount() {
+            sentCount++;
+        }
+    }
+
+}
@@ -5,6 +5,10 @@ import com.github.chenlijia1111.utils.core.StringUtils;
 import com.github.chenlijia1111.utils.core.enums.CharSetType;
 import com.github.chenlijia1111.utils.encrypt.enums.EncryptType;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -69,5 +73,29 @@ public class SHA256EncryptUtil {
         return null;
     }
 
+    /**
+     * SHA256 加密文件  生成16进制字符串
+     * 分块读取文件计算，不会把文件整个读到内存
+     *
+     * @param file
+     * @return
+     */
+    public static String SHA256FileToHexString(File file) {
+        try (InputStream inputStream = new FileInputStream(file)) {
+            MessageDigest digest = MessageDigest.getInstance(EncryptType.SHA256.getType());
+            byte[] buffer = new byte[8192];
+            int len;
+            while ((len = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, len);
+            }
+            return NumberUtil.byteToHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            e.printStackTrace();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
 
 }
@@ -1,43 +1,61 @@
 package com.github.chenlijia1111.utils.http;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.chenlijia1111.utils.common.AssertUtil;
 import com.github.chenlijia1111.utils.core.JSONUtil;
 import com.github.chenlijia1111.utils.core.StringUtils;
 import com.github.chenlijia1111.utils.core.enums.CharSetType;
+import com.github.chenlijia1111.utils.http.entity.FileChannelBody;
+import com.github.chenlijia1111.utils.http.entity.ProgressHttpEntity;
+import com.github.chenlijia1111.utils.http.entity.UploadProgressListener;
+import com.github.chenlijia1111.utils.http.interceptor.CircuitBreakerOpenException;
+import com.github.chenlijia1111.utils.http.interceptor.HttpInterceptor;
+import com.github.chenlijia1111.utils.http.interceptor.HttpInterceptorRegistry;
+import com.github.chenlijia1111.utils.http.interceptor.RateLimitException;
 import com.github.chenlijia1111.utils.http.po.FileUploadPo;
+import com.github.chenlijia1111.utils.http.po.FileUploadWithChannelPo;
 import com.github.chenlijia1111.utils.http.po.FileUploadWithBytePo;
 import com.github.chenlijia1111.utils.http.po.FileUploadWithInputStreamPo;
+import com.github.chenlijia1111.utils.http.pool.HttpClientPool;
+import com.github.chenlijia1111.utils.http.pool.HttpClientPoolConfig;
+import com.github.chenlijia1111.utils.http.pool.SSLHttpClientPoolRegistry;
 import com.github.chenlijia1111.utils.xml.XmlUtil;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.NameValuePair;
+import org.apache.http.client.entity.GzipCompressingEntity;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.*;
 import org.apache.http.conn.ssl.NoopHostnameVerifier;
-import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
 import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.pool.PoolStats;
 import org.apache.http.protocol.HTTP;
 import org.apache.http.ssl.SSLContexts;
 import org.apache.http.util.EntityUtils;
 
-import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLContext;
 import java.io.*;
 import java.net.URLEncoder;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.security.*;
-import java.security.cert.CertificateException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
 /**
  * 网络请求
  * 请求结束之后，主动调用 {@link #close()} 方法关闭连接
  *
+ * 所有请求共用一个连接池 {@link HttpClientPool}，{@link #close()} 只是把连接放回连接池，
+ * 连接池大小、超时时间等可以通过 {@link #configurePool(HttpClientPoolConfig)} 调整
+ *
  * @author chenlijia
  * @version 1.0
  * @since 2019/8/20 10:19
@@ -71,6 +89,28 @@ public class HttpClientUtils {
      */
     private Map<String, FileUploadWithInputStreamPo> fileInputStreamParams;
 
+    /**
+     * 文件通道参数
+     * 只有post接口才支持
+     */
+    private Map<String, FileUploadWithChannelPo> fileChannelParams;
+
+    /**
+     * 上传进度监听
+     */
+    private UploadProgressListener uploadProgressListener;
+
+    /**
+     * 是否强制分块传输请求体
+     */
+    private boolean chunked;
+
+    /**
+     * 请求体超过这个大小时使用 gzip 压缩
+     * 小于 0 表示不压缩
+     */
+    private long gzipRequestMinSize = -1;
+
     /**
      * 上传文件接口
      * 其他的参数可以设置 contentType
@@ -92,6 +132,12 @@ public class HttpClientUtils {
      */
     private CloseableHttpClient httpClient;
 
+    /**
+     * 请求使用的连接池 异步请求也从这里取
+     * 证书加载失败时为空
+     */
+    private HttpClientPool pool;
+
     /**
      * 请求体
      * 调用者可直接赋值请求体
@@ -106,26 +152,129 @@ public class HttpClientUtils {
      **/
     private CloseableHttpResponse response;
 
+    /**
+     * 请求失败的异常
+     * 请求失败时 response 为空
+     */
+    private IOException exception;
+
+    /**
+     * 默认超过 1K 的请求体才压缩
+     */
+    public static final long DEFAULT_GZIP_REQUEST_MIN_SIZE = 1024;
+
+    /**
+     * 连接池配置
+     */
+    private static volatile HttpClientPoolConfig poolConfig = new HttpClientPoolConfig();
+
+    /**
+     * 默认的连接池
+     */
+    private static volatile HttpClientPool defaultPool;
+
+    /**
+     * 信任所有网站的连接池
+     */
+    private static volatile HttpClientPool truestAllPool;
+
+    /**
+     * 带证书的连接池 同一个证书共用一个连接池
+     */
+    private static final SSLHttpClientPoolRegistry sslRegistry = new SSLHttpClientPoolRegistry(poolConfig);
+
+    /**
+     * 请求拦截器 如熔断、限流
+     */
+    private static final HttpInterceptorRegistry interceptorRegistry = new HttpInterceptorRegistry();
+
     private HttpClientUtils() {
     }
 
     /**
-     * 创建一个信任所有网站的HttpClient
+     * 设置连接池配置
+     * 已经创建的连接池会被替换，旧连接池里的连接在正在执行的请求结束之后关闭
      *
+     * @param config
+     */
+    public static void configurePool(HttpClientPoolConfig config) {
+        AssertUtil.notNull(config, "连接池配置不能为空");
+        HttpClientPool oldDefaultPool;
+        HttpClientPool oldTruestAllPool;
+        synchronized (HttpClientUtils.class) {
+            poolConfig = config;
+            oldDefaultPool = defaultPool;
+            oldTruestAllPool = truestAllPool;
+            defaultPool = null;
+            truestAllPool = null;
+        }
+        if (Objects.nonNull(oldDefaultPool)) {
+            oldDefaultPool.closeLater();
+        }
+        if (Objects.nonNull(oldTruestAllPool)) {
+            oldTruestAllPool.closeLater();
+        }
+        sslRegistry.setConfig(config);
+    }
+
+    /**
+     * 获取连接池
+     *
+     * @param truestAll 是否信任所有网站
      * @return
      */
-    private static CloseableHttpClient createTruestAllHttpClient() {
+    private static HttpClientPool getPool(boolean truestAll) {
+        HttpClientPool pool = truestAll ? truestAllPool : defaultPool;
+        if (null == pool) {
+            synchronized (HttpClientUtils.class) {
+                pool = truestAll ? truestAllPool : defaultPool;
+                if (null == pool) {
+                    if (truestAll) {
+                        pool = new HttpClientPool(poolConfig, createTruestAllSSLContext(), null, NoopHostnameVerifier.INSTANCE);
+                        truestAllPool = pool;
+                    } else {
+                        pool = new HttpClientPool(poolConfig);
+                        defaultPool = pool;
+                    }
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * 默认连接池的统计
+     * leased 正在使用的连接数 available 空闲可复用的连接数 pending 等待获取连接的请求数
+     *
+     * @return
+     */
+    public static PoolStats getPoolStats() {
+        return getPool(false).getTotalStats();
+    }
+
+    /**
+     * 默认连接池每个地址的连接统计
+     *
+     * @return key 为 scheme://host:port
+     */
+    public static Map<String, PoolStats> getRouteStats() {
+        return getPool(false).getRouteStats();
+    }
+
+    /**
+     * 创建一个信任所有网站的证书
+     * 配合 {@link NoopHostnameVerifier} 使用，它作为主机名验证工具，实质上关闭了主机名验证，
+     * 接受任何有效的SSL会话并匹配到目标主机
+     *
+     * @return
+     */
+    private static SSLContext createTruestAllSSLContext() {
         try {
             //使用 loadTrustMaterial() 方法实现一个信任策略，信任所有证书
-            SSLContext sslcontext = SSLContexts.custom()
+            return SSLContexts.custom()
                     //忽略掉对服务器端证书的校验
                     .loadTrustMaterial((chain, authType) -> true)
                     .build();
-            //NoopHostnameVerifier类:  作为主机名验证工具，实质上关闭了主机名验证，它接受任何
-            //有效的SSL会话并匹配到目标主机。
-            HostnameVerifier hostnameVerifier = NoopHostnameVerifier.INSTANCE;
-            SSLConnectionSocketFactory socketFactory = new SSLConnectionSocketFactory(sslcontext, hostnameVerifier);
-            return HttpClients.custom().setSSLSocketFactory(socketFactory).build();
         } catch (KeyManagementException e) {
             e.printStackTrace();
         } catch (NoSuchAlgorithmException e) {
@@ -133,7 +282,7 @@ public class HttpClientUtils {
         } catch (KeyStoreException e) {
             e.printStackTrace();
         }
-        return HttpClients.createDefault();
+        return null;
 
     }
 
@@ -162,88 +311,67 @@ public class HttpClientUtils {
         httpClientUtils.fileParams = new HashMap<>();
         httpClientUtils.fileByteParams = new HashMap<>();
         httpClientUtils.fileInputStreamParams = new HashMap<>();
+        httpClientUtils.fileChannelParams = new HashMap<>();
         httpClientUtils.headers = new HashMap<>();
         httpClientUtils.fileParamsContentType = new HashMap<>();
-        if (truestAll) {
-            httpClientUtils.httpClient = createTruestAllHttpClient();
-        } else {
-            httpClientUtils.httpClient = HttpClients.createDefault();
-        }
+        httpClientUtils.pool = getPool(truestAll);
+        httpClientUtils.httpClient = httpClientUtils.pool.getHttpClient();
         return httpClientUtils;
     }
 
 
     /**
      * 初始化 SSL httpClient
+     * 证书加载失败时不会发出请求，通过 {@link #getException()} 获取加载失败的异常
      *
      * @param sslFile  证书文件 如 apiclient_cert.p12
      * @param password 证书密码
      * @since 10:21 2019/8/20
      **/
     public static HttpClientUtils getInstanceWithSSL(File sslFile, String password) {
-
-        try (FileInputStream inputStream = new FileInputStream(sslFile)) {
-            return getInstanceWithSSL(inputStream, password);
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
+        HttpClientUtils httpClientUtils = getInstance();
+        try {
+            httpClientUtils.pool = sslRegistry.getPool(sslFile, password);
+            httpClientUtils.httpClient = httpClientUtils.pool.getHttpClient();
         } catch (IOException e) {
-            e.printStackTrace();
+            httpClientUtils.sslFailure(e);
         }
-        return null;
+        return httpClientUtils;
     }
 
 
     /**
      * 初始化 SSL httpClient
+     * 证书加载失败时不会发出请求，通过 {@link #getException()} 获取加载失败的异常
      *
      * @param sslFileInputStream 证书文件输入流 如 apiclient_cert.p12
      * @param password           证书密码
      * @since 10:21 2019/8/20
      **/
     public static HttpClientUtils getInstanceWithSSL(InputStream sslFileInputStream, String password) {
-        HttpClientUtils httpClientUtils = new HttpClientUtils();
-        //通过 treeMap 可以很方便的进行构建签名操作
-        //一般都需要把参数通过字典排序进行签名
-        httpClientUtils.params = new TreeMap<>();
-        httpClientUtils.fileParams = new HashMap<>();
-        httpClientUtils.fileByteParams = new HashMap<>();
-        httpClientUtils.fileInputStreamParams = new HashMap<>();
-        httpClientUtils.headers = new HashMap<>();
-        httpClientUtils.fileParamsContentType = new HashMap<>();
-        httpClientUtils.httpClient = HttpClients.createDefault();
-
-        //构建带证书的SSL请求
+        HttpClientUtils httpClientUtils = getInstance();
         try {
-            KeyStore keyStore = KeyStore.getInstance("PKCS12");
-            keyStore.load(sslFileInputStream, password.toCharArray());
-            SSLContext sslcontext = SSLContexts.custom()
-                    //忽略掉对服务器端证书的校验
-                    .loadTrustMaterial((chain, authType) -> true)
-                    .loadKeyMaterial(keyStore, password.toCharArray())
-                    .build();
-            SSLConnectionSocketFactory sslConnectionSocketFactory = new SSLConnectionSocketFactory(
-                    sslcontext,
-                    new String[]{"TLSv1"},
-                    null,
-                    SSLConnectionSocketFactory.getDefaultHostnameVerifier());
-
-            httpClientUtils.httpClient = HttpClients.custom().setSSLSocketFactory(sslConnectionSocketFactory).build();
-        } catch (KeyStoreException e) {
-            e.printStackTrace();
+            httpClientUtils.pool = sslRegistry.getPool(sslFileInputStream, password);
+            httpClientUtils.httpClient = httpClientUtils.pool.getHttpClient();
         } catch (IOException e) {
-            e.printStackTrace();
-        } catch (CertificateException e) {
-            e.printStackTrace();
-        } catch (NoSuchAlgorithmException e) {
-            e.printStackTrace();
-        } catch (UnrecoverableKeyException e) {
-            e.printStackTrace();
-        } catch (KeyManagementException e) {
-            e.printStackTrace();
+            httpClientUtils.sslFailure(e);
         }
         return httpClientUtils;
     }
 
+    /**
+     * 证书加载失败
+     * 不能退回到不带证书的连接池，否则请求会发出去然后被服务端拒绝，看不出是证书的问题
+     *
+     * @param e 加载失败的异常
+     */
+    private void sslFailure(IOException e) {
+        e.printStackTrace();
+        this.pool = null;
+        this.httpClient = null;
+        this.exception = e;
+    }
+
 
     public Map<String, Object> getParams() {
         return params;
@@ -367,6 +495,108 @@ public class HttpClientUtils {
         return this;
     }
 
+    /**
+     * 添加请求参数--文件通道参数
+     * 上传时按位置分块读取，不会把文件整个读到内存，大文件上传使用
+     * 通道需要调用者自己关闭
+     *
+     * @param key         参数名称
+     * @param value       文件通道
+     * @param fileName    文件名称
+     * @param contentType contentType 可以为空
+     * @return
+     */
+    public HttpClientUtils putFileChannelParams(String key, FileChannel value, String fileName, ContentType contentType) {
+        FileUploadWithChannelPo fileUploadPo = new FileUploadWithChannelPo(fileName, key, value);
+        fileUploadPo.setContentType(contentType);
+        this.fileChannelParams.put(key, fileUploadPo);
+        return this;
+    }
+
+    /**
+     * 设置上传进度监听
+     * post put 请求体发送过程中回调
+     *
+     * @param uploadProgressListener
+     * @return
+     */
+    public HttpClientUtils setUploadProgressListener(UploadProgressListener uploadProgressListener) {
+        this.uploadProgressListener = uploadProgressListener;
+        return this;
+    }
+
+    /**
+     * 设置是否强制分块传输请求体
+     * 使用 Transfer-Encoding: chunked 发送，不需要提前计算请求体长度
+     * 请求体长度未知时（如输入流参数）本身就是分块传输的
+     *
+     * @param chunked
+     * @return
+     */
+    public HttpClientUtils setChunked(boolean chunked) {
+        this.chunked = chunked;
+        return this;
+    }
+
+    /**
+     * 设置是否使用 gzip 压缩请求体
+     * 请求体超过 {@link #DEFAULT_GZIP_REQUEST_MIN_SIZE} 时才压缩，太小的请求压缩之后反而更大
+     * 需要服务端支持 Content-Encoding: gzip 的请求
+     *
+     * @param gzipRequest
+     * @return
+     */
+    public HttpClientUtils setGzipRequest(boolean gzipRequest) {
+        return setGzipRequestMinSize(gzipRequest ? DEFAULT_GZIP_REQUEST_MIN_SIZE : -1);
+    }
+
+    /**
+     * 设置请求体超过多大时使用 gzip 压缩
+     * 不知道长度的请求体（如输入流）总是压缩，已经压缩过的请求体不会再压缩
+     *
+     * @param gzipRequestMinSize 字节数 小于 0 表示不压缩
+     * @return
+     */
+    public HttpClientUtils setGzipRequestMinSize(long gzipRequestMinSize) {
+        this.gzipRequestMinSize = gzipRequestMinSize;
+        return this;
+    }
+
+    /**
+     * 请求体是否已经压缩过
+     * 注意 json xml 请求体的 Content-Encoding 是 UTF-8，不算压缩
+     *
+     * @param entity
+     * @return
+     */
+    private static boolean isCompressed(HttpEntity entity) {
+        if (Objects.isNull(entity.getContentEncoding())) {
+            return false;
+        }
+        String contentEncoding = entity.getContentEncoding().getValue();
+        return "gzip".equalsIgnoreCase(contentEncoding) || "deflate".equalsIgnoreCase(contentEncoding) || "br".equalsIgnoreCase(contentEncoding);
+    }
+
+    /**
+     * 包装请求体 压缩、监听上传进度、分块传输
+     * 上传进度统计的是压缩之后实际发送的字节数
+     *
+     * @param entity
+     * @return
+     */
+    private HttpEntity wrapEntity(HttpEntity entity) {
+        if (Objects.nonNull(entity) && gzipRequestMinSize >= 0 && !isCompressed(entity)) {
+            long contentLength = entity.getContentLength();
+            if (contentLength < 0 || contentLength >= gzipRequestMinSize) {
+                entity = new GzipCompressingEntity(entity);
+            }
+        }
+        if (Objects.nonNull(entity) && (Objects.nonNull(uploadProgressListener) || chunked)) {
+            return new ProgressHttpEntity(entity, uploadProgressListener, chunked);
+        }
+        return entity;
+    }
+
     /**
      * 添加请求头
      *
@@ -438,6 +668,21 @@ public class HttpClientUtils {
      * @since 10:25 2019/8/20
      **/
     public HttpClientUtils doGet(String url) {
+        try {
+            this.response = execute(buildGet(url));
+        } catch (IOException e) {
+            requestFailure(e);
+        }
+        return this;
+    }
+
+    /**
+     * 构建 get 请求
+     *
+     * @param url
+     * @return
+     */
+    private HttpGet buildGet(String url) {
         //判断有没有请求参数,如果有请求参数,拼接请求参数
         if (params.size() != 0) {
             Set<Map.Entry<String, Object>> entries = params.entrySet();
@@ -467,13 +712,7 @@ public class HttpClientUtils {
                 httpGet.addHeader(key, value);
             }
         }
-
-        try {
-            this.response = httpClient.execute(httpGet);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        return this;
+        return httpGet;
     }
 
 
@@ -485,7 +724,22 @@ public class HttpClientUtils {
      * @since 10:25 2019/8/20
      **/
     public HttpClientUtils doPost(String url) {
+        try {
+            this.response = execute(buildPost(url));
+        } catch (IOException e) {
+            requestFailure(e);
+        }
+        return this;
+    }
 
+    /**
+     * 构建 post 请求
+     *
+     * @param url
+     * @return
+     * @throws IOException 请求体构建失败
+     */
+    private HttpPost buildPost(String url) throws IOException {
         HttpPost httpPost = new HttpPost(url);
         if (headers != null) {
             Set<Map.Entry<String, String>> entries = headers.entrySet();
@@ -496,95 +750,102 @@ public class HttpClientUtils {
             }
         }
 
-
-        try {
-            //判断请求类型,首先看是否是上传文件的,然后看是不是要放在body里面进行请求的,默认为表单的形式发送
-            if (fileParams.size() > 0 || fileByteParams.size() > 0 || fileInputStreamParams.size() > 0) {
-                //上传文件
-                MultipartEntityBuilder entityBuilder = MultipartEntityBuilder.create();
-                entityBuilder.setCharset(Charset.forName("UTF-8"));
-                if (fileParams.size() > 0) {
-                    for (Map.Entry<String, FileUploadPo> fileEntry : fileParams.entrySet()) {
-                        String paramsName = fileEntry.getKey();
-                        FileUploadPo fileUploadPo = fileEntry.getValue();
-                        //查询这个参数有没有设置 contentType
-                        ContentType contentType = fileUploadPo.getContentType();
-                        if (Objects.isNull(contentType)) {
-                            contentType = ContentType.DEFAULT_BINARY;
-                        }
-                        entityBuilder.addBinaryBody(paramsName, fileUploadPo.getFile(), contentType, fileUploadPo.getFileName());
+        //判断请求类型,首先看是否是上传文件的,然后看是不是要放在body里面进行请求的,默认为表单的形式发送
+        if (fileParams.size() > 0 || fileByteParams.size() > 0 || fileInputStreamParams.size() > 0 || fileChannelParams.size() > 0) {
+            //上传文件
+            MultipartEntityBuilder entityBuilder = MultipartEntityBuilder.create();
+            entityBuilder.setCharset(Charset.forName("UTF-8"));
+            if (fileParams.size() > 0) {
+                for (Map.Entry<String, FileUploadPo> fileEntry : fileParams.entrySet()) {
+                    String paramsName = fileEntry.getKey();
+                    FileUploadPo fileUploadPo = fileEntry.getValue();
+                    //查询这个参数有没有设置 contentType
+                    ContentType contentType = fileUploadPo.getContentType();
+                    if (Objects.isNull(contentType)) {
+                        contentType = ContentType.DEFAULT_BINARY;
                     }
+                    entityBuilder.addBinaryBody(paramsName, fileUploadPo.getFile(), contentType, fileUploadPo.getFileName());
                 }
-                if (fileByteParams.size() > 0) {
-                    for (Map.Entry<String, FileUploadWithBytePo> fileByteEntry : fileByteParams.entrySet()) {
-                        String paramsName = fileByteEntry.getKey();
-                        FileUploadWithBytePo fileUploadPo = fileByteEntry.getValue();
-                        //查询这个参数有没有设置 contentType
-                        ContentType contentType = fileUploadPo.getContentType();
-                        if (Objects.isNull(contentType)) {
-                            contentType = ContentType.DEFAULT_BINARY;
-                        }
-                        entityBuilder.addBinaryBody(paramsName, fileUploadPo.getBytes(),contentType,fileUploadPo.getFileName());
+            }
+            if (fileByteParams.size() > 0) {
+                for (Map.Entry<String, FileUploadWithBytePo> fileByteEntry : fileByteParams.entrySet()) {
+                    String paramsName = fileByteEntry.getKey();
+                    FileUploadWithBytePo fileUploadPo = fileByteEntry.getValue();
+                    //查询这个参数有没有设置 contentType
+                    ContentType contentType = fileUploadPo.getContentType();
+                    if (Objects.isNull(contentType)) {
+                        contentType = ContentType.DEFAULT_BINARY;
                     }
+                    entityBuilder.addBinaryBody(paramsName, fileUploadPo.getBytes(),contentType,fileUploadPo.getFileName());
                 }
-                if (fileInputStreamParams.size() > 0) {
-                    for (Map.Entry<String, FileUploadWithInputStreamPo> fileInputStreamEntry : fileInputStreamParams.entrySet()) {
-                        String paramsName = fileInputStreamEntry.getKey();
-                        FileUploadWithInputStreamPo fileUploadPo = fileInputStreamEntry.getValue();
-                        //查询这个参数有没有设置 contentType
-                        ContentType contentType = fileUploadPo.getContentType();
-                        if (Objects.isNull(contentType)) {
-                            contentType = ContentType.DEFAULT_BINARY;
-                        }
-                        entityBuilder.addBinaryBody(paramsName, fileUploadPo.getInputStream(),contentType,fileUploadPo.getFileName());
+            }
+            if (fileInputStreamParams.size() > 0) {
+                for (Map.Entry<String, FileUploadWithInputStreamPo> fileInputStreamEntry : fileInputStreamParams.entrySet()) {
+                    String paramsName = fileInputStreamEntry.getKey();
+                    FileUploadWithInputStreamPo fileUploadPo = fileInputStreamEntry.getValue();
+                    //查询这个参数有没有设置 contentType
+                    ContentType contentType = fileUploadPo.getContentType();
+                    if (Objects.isNull(contentType)) {
+                        contentType = ContentType.DEFAULT_BINARY;
                     }
+                    entityBuilder.addBinaryBody(paramsName, fileUploadPo.getInputStream(),contentType,fileUploadPo.getFileName());
                 }
-                //添加参数
-                if (params.size() > 0) {
-                    for (Map.Entry<String, Object> entry : params.entrySet()) {
-                        String paramsName = entry.getKey();
-                        //查询这个参数有没有设置 contentType
-                        ContentType contentType = this.fileParamsContentType.get(paramsName);
-                        if (Objects.isNull(contentType)) {
-                            contentType = ContentType.DEFAULT_TEXT;
-                        }
-                        entityBuilder.addTextBody(entry.getKey(), entry.getValue().toString(), contentType);
+            }
+            if (fileChannelParams.size() > 0) {
+                for (Map.Entry<String, FileUploadWithChannelPo> fileChannelEntry : fileChannelParams.entrySet()) {
+                    String paramsName = fileChannelEntry.getKey();
+                    FileUploadWithChannelPo fileUploadPo = fileChannelEntry.getValue();
+                    //查询这个参数有没有设置 contentType
+                    ContentType contentType = fileUploadPo.getContentType();
+                    if (Objects.isNull(contentType)) {
+                        contentType = ContentType.DEFAULT_BINARY;
                     }
+                    entityBuilder.addPart(paramsName, new FileChannelBody(fileUploadPo.getFileChannel(), contentType, fileUploadPo.getFileName()));
                 }
-
-                HttpEntity httpEntity = entityBuilder.build();
-                httpPost.setEntity(httpEntity);
-            } else if (params.size() > 0 && headers.get(HTTP.CONTENT_TYPE) != null && headers.get(HTTP.CONTENT_TYPE).toLowerCase().contains("text/xml")) {
-                //以xml的形式发送
-                String s = XmlUtil.parseMapToXml(params);
-                StringEntity stringEntity = new StringEntity(s, CharSetType.UTF8.getType());
-                stringEntity.setContentEncoding(CharSetType.UTF8.getType());
-                httpPost.setEntity(stringEntity);
-            } else if (params.size() > 0 && headers.get(HTTP.CONTENT_TYPE) != null && headers.get(HTTP.CONTENT_TYPE).toLowerCase().contains("application/json")) {
-                //以json的形式发送
-                String s = JSONUtil.objToStr(params);
-                StringEntity stringEntity = new StringEntity(s, CharSetType.UTF8.getType());
-                stringEntity.setContentEncoding(CharSetType.UTF8.getType());
-                httpPost.setEntity(stringEntity);
-            } else if (params.size() > 0) {
-                //以表单的形式请求
-                ArrayList<NameValuePair> nameValuePairs = new ArrayList<>();
+            }
+            //添加参数
+            if (params.size() > 0) {
                 for (Map.Entry<String, Object> entry : params.entrySet()) {
-                    nameValuePairs.add(new BasicNameValuePair(entry.getKey(), Objects.nonNull(entry.getValue()) ? entry.getValue().toString() : null));
+                    String paramsName = entry.getKey();
+                    //查询这个参数有没有设置 contentType
+                    ContentType contentType = this.fileParamsContentType.get(paramsName);
+                    if (Objects.isNull(contentType)) {
+                        contentType = ContentType.DEFAULT_TEXT;
+                    }
+                    entityBuilder.addTextBody(entry.getKey(), entry.getValue().toString(), contentType);
                 }
-                UrlEncodedFormEntity formEntity = new UrlEncodedFormEntity(nameValuePairs, CharSetType.UTF8.getType());
-                httpPost.setEntity(formEntity);
             }
 
-            //如果调用者直接设置了请求体，那么直接赋值，之前的参数直接失效
-            if (Objects.nonNull(httpEntity)) {
-                httpPost.setEntity(httpEntity);
+            HttpEntity httpEntity = entityBuilder.build();
+            httpPost.setEntity(httpEntity);
+        } else if (params.size() > 0 && headers.get(HTTP.CONTENT_TYPE) != null && headers.get(HTTP.CONTENT_TYPE).toLowerCase().contains("text/xml")) {
+            //以xml的形式发送
+            String s = XmlUtil.parseMapToXml(params);
+            StringEntity stringEntity = new StringEntity(s, CharSetType.UTF8.getType());
+            stringEntity.setContentEncoding(CharSetType.UTF8.getType());
+            httpPost.setEntity(stringEntity);
+        } else if (params.size() > 0 && headers.get(HTTP.CONTENT_TYPE) != null && headers.get(HTTP.CONTENT_TYPE).toLowerCase().contains("application/json")) {
+            //以json的形式发送
+            String s = JSONUtil.objToStr(params);
+            StringEntity stringEntity = new StringEntity(s, CharSetType.UTF8.getType());
+            stringEntity.setContentEncoding(CharSetType.UTF8.getType());
+            httpPost.setEntity(stringEntity);
+        } else if (params.size() > 0) {
+            //以表单的形式请求
+            ArrayList<NameValuePair> nameValuePairs = new ArrayList<>();
+            for (Map.Entry<String, Object> entry : params.entrySet()) {
+                nameValuePairs.add(new BasicNameValuePair(entry.getKey(), Objects.nonNull(entry.getValue()) ? entry.getValue().toString() : null));
             }
-            this.response = httpClient.execute(httpPost);
-        } catch (IOException e) {
-            e.printStackTrace();
+            UrlEncodedFormEntity formEntity = new UrlEncodedFormEntity(nameValuePairs, CharSetType.UTF8.getType());
+            httpPost.setEntity(formEntity);
         }
-        return this;
+
+        //如果调用者直接设置了请求体，那么直接赋值，之前的参数直接失效
+        if (Objects.nonNull(httpEntity)) {
+            httpPost.setEntity(httpEntity);
+        }
+        httpPost.setEntity(wrapEntity(httpPost.getEntity()));
+        return httpPost;
     }
 
 
@@ -597,6 +858,22 @@ public class HttpClientUtils {
      * @since 10:25 2019/8/20
      **/
     public HttpClientUtils doPut(String url) {
+        try {
+            this.response = execute(buildPut(url));
+        } catch (IOException e) {
+            requestFailure(e);
+        }
+        return this;
+    }
+
+    /**
+     * 构建 put 请求
+     *
+     * @param url
+     * @return
+     * @throws IOException 请求体构建失败
+     */
+    private HttpPut buildPut(String url) throws IOException {
         HttpPut httpPut = new HttpPut(url);
         if (headers != null) {
             Set<Map.Entry<String, String>> entries = headers.entrySet();
@@ -607,42 +884,38 @@ public class HttpClientUtils {
             }
         }
 
-        try {
-            //判断有没有请求参数,如果有请求参数,拼接请求参数
-            if (params.size() != 0) {
-                //判断请求类型,看是不是要放在body里面进行请求的,默认为表单的形式发送
-                if (headers.get(HTTP.CONTENT_TYPE) != null && headers.get(HTTP.CONTENT_TYPE).toLowerCase().contains("text/xml")) {
-                    //以xml的形式发送
-                    String s = XmlUtil.parseMapToXml(params);
-                    StringEntity stringEntity = new StringEntity(s, CharSetType.UTF8.getType());
-                    stringEntity.setContentEncoding(CharSetType.UTF8.getType());
-                    httpPut.setEntity(stringEntity);
-                } else if (headers.get(HTTP.CONTENT_TYPE) != null && headers.get(HTTP.CONTENT_TYPE).toLowerCase().contains("application/json")) {
-                    //以json的形式发送
-                    String s = JSONUtil.objToStr(params);
-                    StringEntity stringEntity = new StringEntity(s, CharSetType.UTF8.getType());
-                    stringEntity.setContentEncoding(CharSetType.UTF8.getType());
-                    httpPut.setEntity(stringEntity);
-                } else {
-                    ArrayList<NameValuePair> nameValuePairs = new ArrayList<>();
-                    for (Map.Entry<String, Object> entry : params.entrySet()) {
-                        nameValuePairs.add(new BasicNameValuePair(entry.getKey(), entry.getValue().toString()));
-                    }
-                    UrlEncodedFormEntity formEntity = new UrlEncodedFormEntity(nameValuePairs, CharSetType.UTF8.getType());
-                    httpPut.setEntity(formEntity);
+        //判断有没有请求参数,如果有请求参数,拼接请求参数
+        if (params.size() != 0) {
+            //判断请求类型,看是不是要放在body里面进行请求的,默认为表单的形式发送
+            if (headers.get(HTTP.CONTENT_TYPE) != null && headers.get(HTTP.CONTENT_TYPE).toLowerCase().contains("text/xml")) {
+                //以xml的形式发送
+                String s = XmlUtil.parseMapToXml(params);
+                StringEntity stringEntity = new StringEntity(s, CharSetType.UTF8.getType());
+                stringEntity.setContentEncoding(CharSetType.UTF8.getType());
+                httpPut.setEntity(stringEntity);
+            } else if (headers.get(HTTP.CONTENT_TYPE) != null && headers.get(HTTP.CONTENT_TYPE).toLowerCase().contains("application/json")) {
+                //以json的形式发送
+                String s = JSONUtil.objToStr(params);
+                StringEntity stringEntity = new StringEntity(s, CharSetType.UTF8.getType());
+                stringEntity.setContentEncoding(CharSetType.UTF8.getType());
+                httpPut.setEntity(stringEntity);
+            } else {
+                ArrayList<NameValuePair> nameValuePairs = new ArrayList<>();
+                for (Map.Entry<String, Object> entry : params.entrySet()) {
+                    nameValuePairs.add(new BasicNameValuePair(entry.getKey(), entry.getValue().toString()));
                 }
-
+                UrlEncodedFormEntity formEntity = new UrlEncodedFormEntity(nameValuePairs, CharSetType.UTF8.getType());
+                httpPut.setEntity(formEntity);
             }
 
-            //如果调用者直接设置了请求体，那么直接赋值，之前的参数直接失效
-            if (Objects.nonNull(httpEntity)) {
-                httpPut.setEntity(httpEntity);
-            }
-            this.response = httpClient.execute(httpPut);
-        } catch (IOException e) {
-            e.printStackTrace();
         }
-        return this;
+
+        //如果调用者直接设置了请求体，那么直接赋值，之前的参数直接失效
+        if (Objects.nonNull(httpEntity)) {
+            httpPut.setEntity(httpEntity);
+        }
+        httpPut.setEntity(wrapEntity(httpPut.getEntity()));
+        return httpPut;
     }
 
 
@@ -655,6 +928,21 @@ public class HttpClientUtils {
      * @since 10:25 2019/8/20
      **/
     public HttpClientUtils doDelete(String url) {
+        try {
+            this.response = execute(buildDelete(url));
+        } catch (IOException e) {
+            requestFailure(e);
+        }
+        return this;
+    }
+
+    /**
+     * 构建 delete 请求
+     *
+     * @param url
+     * @return
+     */
+    private HttpDelete buildDelete(String url) {
         HttpDelete httpDelete = new HttpDelete(url);
         if (headers != null) {
             Set<Map.Entry<String, String>> entries = headers.entrySet();
@@ -664,12 +952,190 @@ public class HttpClientUtils {
                 httpDelete.addHeader(key, value);
             }
         }
+        return httpDelete;
+    }
+
+    /**
+     * 请求失败
+     * 熔断、限流这类直接拒绝的请求是预期内的，高峰时会非常多，只记录异常不打印
+     *
+     * @param e 请求的异常
+     */
+    private void requestFailure(IOException e) {
+        this.exception = e;
+        if (!(e instanceof CircuitBreakerOpenException) && !(e instanceof RateLimitException)) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 异步发送 get 请求
+     * 基于 NIO 的 {@link org.apache.http.nio.client.HttpAsyncClient}，请求立即返回，等待响应期间不占用任何线程，
+     * 同时使用的连接不超过 {@link HttpClientPoolConfig#getAsyncMaxConcurrency()}，
+     * 等待连接的请求不超过 {@link HttpClientPoolConfig#getAsyncQueueCapacity()}
+     *
+     * {@code
+     *     HttpClientUtils.getInstance().putParams("openid", openId).doGetAsync(url)
+     *             .thenApply(HttpClientUtils::toMap)
+     * }
+     *
+     * 响应体读完之后 future 才结束，适合普通的接口调用，大文件下载与上传请使用阻塞的请求
+     * 异步请求不经过 {@link #addInterceptor(String, HttpInterceptor)} 注册的拦截器
+     * future 的回调在 IO 线程中执行，回调里不要再做阻塞的操作
+     *
+     * @param url
+     * @return 请求失败时 future 以请求的异常结束，排队满了以 {@link RejectedExecutionException} 结束
+     */
+    public CompletableFuture<HttpClientUtils> doGetAsync(String url) {
+        return executeAsync(buildGet(url));
+    }
+
+    /**
+     * 异步发送 post 请求
+     *
+     * @param url
+     * @return
+     * @see #doGetAsync(String)
+     */
+    public CompletableFuture<HttpClientUtils> doPostAsync(String url) {
         try {
-            this.response = httpClient.execute(httpDelete);
+            return executeAsync(buildPost(url));
         } catch (IOException e) {
-            e.printStackTrace();
+            return failAsync(e);
         }
-        return this;
+    }
+
+    /**
+     * 异步发送 put 请求
+     *
+     * @param url
+     * @return
+     * @see #doGetAsync(String)
+     */
+    public CompletableFuture<HttpClientUtils> doPutAsync(String url) {
+        try {
+            return executeAsync(buildPut(url));
+        } catch (IOException e) {
+            return failAsync(e);
+        }
+    }
+
+    /**
+     * 异步发送 delete 请求
+     *
+     * @param url
+     * @return
+     * @see #doGetAsync(String)
+     */
+    public CompletableFuture<HttpClientUtils> doDeleteAsync(String url) {
+        return executeAsync(buildDelete(url));
+    }
+
+    /**
+     * 通过连接池的异步请求工具发出请求
+     *
+     * @param request
+     * @return
+     */
+    private CompletableFuture<HttpClientUtils> executeAsync(HttpUriRequest request) {
+        //证书加载失败 不发出请求
+        if (Objects.isNull(pool)) {
+            return failAsync(exception);
+        }
+        CompletableFuture<HttpClientUtils> future = new CompletableFuture<>();
+        pool.getAsyncPool().execute(request).whenComplete((response, e) -> {
+            if (Objects.isNull(e)) {
+                this.response = response;
+                future.complete(this);
+                return;
+            }
+            if (e instanceof IOException) {
+                this.exception = (IOException) e;
+            }
+            future.completeExceptionally(e);
+        });
+        return future;
+    }
+
+    /**
+     * 请求构建失败
+     *
+     * @param e
+     * @return
+     */
+    private CompletableFuture<HttpClientUtils> failAsync(IOException e) {
+        this.exception = e;
+        CompletableFuture<HttpClientUtils> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+
+    /**
+     * 异步请求正在使用的连接数
+     *
+     * @return
+     */
+    public static int getAsyncActiveCount() {
+        return getPool(false).getAsyncPool().getTotalStats().getLeased();
+    }
+
+    /**
+     * 异步请求等待连接的数量
+     *
+     * @return
+     */
+    public static int getAsyncQueueSize() {
+        return getPool(false).getAsyncPool().getTotalStats().getPending();
+    }
+
+    /**
+     * 添加请求拦截器
+     * 地址以 urlPrefix 开头的请求按添加顺序经过拦截器
+     *
+     * {@code
+     *     HttpClientUtils.addInterceptor("https://api.jpush.cn", new RateLimiterInterceptor(100, 20, 0));
+     *     HttpClientUtils.addInterceptor("", new CircuitBreakerInterceptor());
+     * }
+     *
+     * @param urlPrefix   地址前缀 空字符串表示所有请求
+     * @param interceptor 拦截器
+     */
+    public static void addInterceptor(String urlPrefix, HttpInterceptor interceptor) {
+        interceptorRegistry.add(urlPrefix, interceptor);
+    }
+
+    /**
+     * 移除请求拦截器
+     *
+     * @param interceptor
+     */
+    public static void removeInterceptor(HttpInterceptor interceptor) {
+        interceptorRegistry.remove(interceptor);
+    }
+
+    /**
+     * 经过拦截器执行请求
+     *
+     * @param request
+     * @return
+     * @throws IOException
+     */
+    private CloseableHttpResponse execute(HttpUriRequest request) throws IOException {
+        //证书加载失败 不发出请求
+        if (Objects.isNull(httpClient)) {
+            throw exception;
+        }
+        return interceptorRegistry.execute(request, httpClient::execute);
+    }
+
+    /**
+     * 请求失败的异常
+     * 带证书初始化时证书加载失败，还没有请求也不为空
+     *
+     * @return 请求成功或者还没有请求时为空
+     */
+    public IOException getException() {
+        return exception;
     }
 
     /**
@@ -703,20 +1169,54 @@ public class HttpClientUtils {
         return null;
     }
 
+    /**
+     * 返回结果为字节数组
+     * 读完之后连接放回连接池，适合图片等不大的二进制响应
+     *
+     * @return 没有响应时返回 null
+     */
+    public byte[] toBytes() {
+        try {
+            if (null != response && null != response.getEntity()) {
+                return EntityUtils.toByteArray(response.getEntity());
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            close();
+        }
+        return null;
+    }
+
 
     /**
-     * 返回结果为字符串
+     * 返回结果为 map
+     * 直接从响应流解析，按响应头 Content-Type 中的编码读取
      *
-     * @return java.lang.String
+     * @return 没有响应或者格式不正确时返回 null
      * @since 下午 2:12 2019/10/18 0018
      **/
     public Map toMap() {
+        return toObject(HashMap.class);
+    }
+
+    /**
+     * 返回结果为集合
+     * 直接从响应流解析，按响应头 Content-Type 中的编码读取
+     *
+     * @return
+     */
+    public List toList() {
         try {
-            if (null != response) {
-                HttpEntity entity = response.getEntity();
-                String s = EntityUtils.toString(entity, CharSetType.UTF8.getType());
-                Map map = JSONUtil.strToObj(s, HashMap.class);
-                return map;
+            if (null != response && null != response.getEntity()) {
+                Charset charset = responseCharset(response.getEntity());
+                try (InputStream inputStream = response.getEntity().getContent()) {
+                    if (Objects.nonNull(charset)) {
+                        return JSONUtil.readerToList(new InputStreamReader(inputStream, charset), ArrayList.class, Object.class);
+                    }
+                    List<Object> list = JSONUtil.inputStreamToList(inputStream, ArrayList.class, Object.class);
+                    return list;
+                }
             }
         } catch (IOException e) {
             e.printStackTrace();
@@ -724,13 +1224,47 @@ public class HttpClientUtils {
         return null;
     }
 
-    public List toList() {
+    /**
+     * 返回结果为 jsonNode
+     * 直接从响应流解析，不会先把整个响应读成字符串，大的响应内存只占一份
+     * 按响应头 Content-Type 中的编码读取
+     *
+     * @return 没有响应或者格式不正确时返回 null
+     */
+    public JsonNode toJsonNode() {
         try {
-            if (null != response) {
-                HttpEntity entity = response.getEntity();
-                String s = EntityUtils.toString(entity, CharSetType.UTF8.getType());
-                List<Object> list = JSONUtil.strToList(s, ArrayList.class, Object.class);
-                return list;
+            if (null != response && null != response.getEntity()) {
+                Charset charset = responseCharset(response.getEntity());
+                try (InputStream inputStream = response.getEntity().getContent()) {
+                    if (Objects.nonNull(charset)) {
+                        return JSONUtil.readerToJsonNode(new InputStreamReader(inputStream, charset));
+                    }
+                    return JSONUtil.inputStreamToJsonNode(inputStream);
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * 返回结果为对象
+     * 直接从响应流解析，按响应头 Content-Type 中的编码读取
+     *
+     * @param objClass 对象class
+     * @return 没有响应或者格式不正确时返回 null
+     */
+    public <T> T toObject(Class<T> objClass) {
+        try {
+            if (null != response && null != response.getEntity()) {
+                Charset charset = responseCharset(response.getEntity());
+                try (InputStream inputStream = response.getEntity().getContent()) {
+                    if (Objects.nonNull(charset)) {
+                        return JSONUtil.readerToObj(new InputStreamReader(inputStream, charset), objClass);
+                    }
+                    return JSONUtil.inputStreamToObj(inputStream, objClass);
+                }
             }
         } catch (IOException e) {
             e.printStackTrace();
@@ -738,6 +1272,52 @@ public class HttpClientUtils {
         return null;
     }
 
+    /**
+     * 响应头 Content-Type 中指定的编码
+     * 没有指定或者是 UTF-8 时返回 null，直接用字节流解析，jackson 可以自动识别 UTF 编码
+     *
+     * @param entity
+     * @return
+     */
+    private static Charset responseCharset(HttpEntity entity) {
+        try {
+            ContentType contentType = ContentType.get(entity);
+            Charset charset = Objects.nonNull(contentType) ? contentType.getCharset() : null;
+            return Objects.nonNull(charset) && !Objects.equals(StandardCharsets.UTF_8, charset) ? charset : null;
+        } catch (RuntimeException e) {
+            //编码不支持或者格式不正确 按 UTF-8 解析
+            return null;
+        }
+    }
+
+    /**
+     * 把响应内容写到输出流
+     * 边读边写，适合下载账单、文件等大的响应，不需要放在内存里
+     * 输出流需要调用者自己关闭
+     *
+     * @param outputStream
+     * @return 写入的字节数 没有响应时返回 0
+     */
+    public long writeTo(OutputStream outputStream) {
+        AssertUtil.notNull(outputStream, "输出流不能为空");
+        long count = 0;
+        try {
+            if (null != response && null != response.getEntity()) {
+                try (InputStream inputStream = response.getEntity().getContent()) {
+                    byte[] buffer = new byte[8192];
+                    int len;
+                    while ((len = inputStream.read(buffer)) != -1) {
+                        outputStream.write(buffer, 0, len);
+                        count += len;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return count;
+    }
+
 
     /**
      * 将参数转为 key=value&key=value的字符串形式
@@ -772,18 +1352,18 @@ public class HttpClientUtils {
 
     /**
      * 关闭连接
+     * 只关闭响应，连接放回连接池
      */
     public void close() {
         if (Objects.nonNull(response)) {
             try {
-                response.close();
+                //把没读完的响应读完，连接才能复用
+                EntityUtils.consume(response.getEntity());
             } catch (IOException e) {
                 e.printStackTrace();
             }
-        }
-        if (Objects.nonNull(httpClient)) {
             try {
-                httpClient.close();
+                response.close();
             } catch (IOException e) {
                 e.printStackTrace();
             }
@@ -120,6 +120,8 @@ import java.util.Objects;
  *                         push();
  * }
  *
+ * 一次推送一个请求，活动推送这类大量推送目标的场景使用 {@link com.github.chenlijia1111.utils.http.push.JiGuangPushDispatcher} 合并批量发送
+ *
  * @author Chen LiJia
  * @since 2020/3/28
  */
@@ -145,6 +147,19 @@ public class JiGuangPushUtil {
         this.masterSecret = masterSecret;
     }
 
+    /**
+     * 设置请求地址
+     * 默认 https://api.jpush.cn/v3/push
+     *
+     * @param baseUrl
+     * @return
+     */
+    public JiGuangPushUtil baseUrl(String baseUrl) {
+        AssertUtil.hasText(baseUrl, "请求地址不能为空");
+        this.baseUrl = baseUrl;
+        return this;
+    }
+
     /**
      * 设置推送平台
      * {@code { "platform" : "all" }}
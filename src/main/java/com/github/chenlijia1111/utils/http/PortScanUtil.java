@@ -1,12 +1,17 @@
 package com.github.chenlijia1111.utils.http;
 
+import com.github.chenlijia1111.utils.common.AssertUtil;
 import com.github.chenlijia1111.utils.core.StringUtils;
+import com.github.chenlijia1111.utils.http.scan.PortScanCallback;
+import com.github.chenlijia1111.utils.http.scan.PortScanner;
 import com.github.chenlijia1111.utils.list.Lists;
 
 import java.io.IOException;
-import java.net.Socket;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * 端口扫描工具
@@ -20,33 +25,67 @@ public class PortScanUtil {
 
     /**
      * 扫描端口
+     * 通过 {@link PortScanner} 同时发起多个非阻塞连接，同时进行中的连接数 256，单个连接超时 1000 毫秒，
+     * 扫描大量端口时耗时大约是 端口数 / 256 秒
      *
      * @param host         主机ip
      * @param scanPortList 要扫描的端口
-     * @return
+     * @return 开启的端口 按传入的顺序
+     * @throws UncheckedIOException 打开 Selector 失败
      */
     public static List<Integer> scanPort(String host, List<Integer> scanPortList) throws IllegalAccessException {
         //返回开启的端口
         List<Integer> resultPortList = new ArrayList<>();
         if (StringUtils.isNotEmpty(host) && Lists.isNotEmpty(scanPortList)) {
-            if(scanPortList.size() > 10){
-                throw new IllegalAccessException("一次性最多扫描10个端口,避免消耗时间过长");
+            Set<Integer> openPortSet;
+            try {
+                openPortSet = new HashSet<>(new PortScanner().scanOpenPorts(host, scanPortList));
+            } catch (IOException e) {
+                throw new UncheckedIOException("端口扫描失败", e);
             }
-            for (int i = 0; i < scanPortList.size(); i++) {
-                Integer port = scanPortList.get(i);
-                try {
-                    Socket socket = new Socket(host, port);
-                    //连接成功
-                    //说明开启了
-                    socket.close();
+            for (Integer port : scanPortList) {
+                if (openPortSet.contains(port)) {
                     resultPortList.add(port);
-                } catch (IOException e) {
-                    //说明没开启
-                    //略过
                 }
             }
         }
         return resultPortList;
     }
 
+    /**
+     * 扫描多个主机的端口
+     * 每个端口扫描完成之后立即回调结果
+     *
+     * @param hostList             主机集合
+     * @param scanPortList         要扫描的端口
+     * @param concurrency          同时进行中的连接数
+     * @param connectTimeoutMillis 单个连接超时时间 毫秒
+     * @param callback             扫描结果回调
+     * @throws IOException 打开 Selector 失败
+     * @since 2020/8/17
+     */
+    public static void scanPort(List<String> hostList, List<Integer> scanPortList, int concurrency,
+                                long connectTimeoutMillis, PortScanCallback callback) throws IOException {
+        new PortScanner().setConcurrency(concurrency)
+                .setConnectTimeoutMillis(connectTimeoutMillis)
+                .scan(hostList, scanPortList, callback);
+    }
+
+    /**
+     * 端口范围
+     *
+     * @param startPort 开始端口 包含
+     * @param endPort   结束端口 包含
+     * @return
+     * @since 2020/8/17
+     */
+    public static List<Integer> portRange(int startPort, int endPort) {
+        AssertUtil.isTrue(startPort > 0 && endPort <= 65535 && startPort <= endPort, "端口范围不合法");
+        List<Integer> portList = new ArrayList<>(endPort - startPort + 1);
+        for (int port = startPort; port <= endPort; port++) {
+            portList.add(port);
+        }
+        return portList;
+    }
+
 }
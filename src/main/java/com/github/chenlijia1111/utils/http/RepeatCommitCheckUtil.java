@@ -3,9 +3,8 @@ package com.github.chenlijia1111.utils.http;
 import com.github.chenlijia1111.utils.core.IOUtil;
 import com.github.chenlijia1111.utils.core.JSONUtil;
 import com.github.chenlijia1111.utils.core.StringUtils;
-import com.github.chenlijia1111.utils.core.cache.CacheObject;
-import com.github.chenlijia1111.utils.core.cache.CacheUtil;
-import com.github.chenlijia1111.utils.core.cache.TimeOutTypeEnum;
+import com.github.chenlijia1111.utils.core.cache.Cache;
+import com.github.chenlijia1111.utils.core.cache.CacheBuilder;
 import com.github.chenlijia1111.utils.encrypt.MD5EncryptUtil;
 import com.github.chenlijia1111.utils.list.Lists;
 
@@ -88,8 +87,14 @@ public class RepeatCommitCheckUtil {
     //是否要拦截未登录用户
     public static boolean filterNotLogin = false;
 
-    private RepeatCommitCheckUtil() {
+    //最近的请求 独立的缓存，不占用全局缓存的容量
+    private final Cache<String, Boolean> requestCache;
 
+    private RepeatCommitCheckUtil() {
+        //每次存入时读取当前的间隔限制
+        requestCache = CacheBuilder.<String, Boolean>newBuilder()
+                .expiry((key, value, currentTimeMillis) -> repeatTimeLimit)
+                .build();
     }
 
     /**
@@ -156,16 +161,13 @@ public class RepeatCommitCheckUtil {
             //md5生成唯一值
             String md5Str = MD5EncryptUtil.MD5StringToHexString(sb.toString());
 
-            CacheUtil cacheUtil = CacheUtil.getInstance();
-            CacheObject cacheObject = cacheUtil.get(md5Str);
-            if (Objects.nonNull(cacheObject)) {
+            //判断与存入需要是原子操作，否则同一时刻的重复请求可能同时通过校验
+            Boolean exist = requestCache.putIfAbsent(md5Str, Boolean.TRUE);
+            if (Objects.nonNull(exist)) {
                 //说明这个请求存在
                 //并且还没有被清理掉
                 return false;
             }
-
-            cacheObject = new CacheObject(md5Str, null, repeatTimeLimit, TimeOutTypeEnum.FIXED_TIME_OUT);
-            cacheUtil.put(cacheObject);
             return true;
         }
         return false;
@@ -241,16 +243,13 @@ public class RepeatCommitCheckUtil {
             //md5生成唯一值
             String md5Str = MD5EncryptUtil.MD5StringToHexString(sb.toString());
 
-            CacheUtil cacheUtil = CacheUtil.getInstance();
-            CacheObject cacheObject = cacheUtil.get(md5Str);
-            if (Objects.nonNull(cacheObject)) {
+            //判断与存入需要是原子操作，否则同一时刻的重复请求可能同时通过校验
+            Boolean exist = requestCache.putIfAbsent(md5Str, Boolean.TRUE);
+            if (Objects.nonNull(exist)) {
                 //说明这个请求存在
                 //并且还没有被清理掉
                 return false;
             }
-
-            cacheObject = new CacheObject(md5Str, null, repeatTimeLimit, TimeOutTypeEnum.FIXED_TIME_OUT);
-            cacheUtil.put(cacheObject);
             return true;
         }
         return false;
@@ -0,0 +1,116 @@
+package com.github.chenlijia1111.utils.http.entity;
+
+import com.github.chenlijia1111.utils.common.AssertUtil;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.mime.MIME;
+import org.apache.http.entity.mime.content.AbstractContentBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 文件通道上传的表单内容
+ *
+ * 按位置读取文件通道，每次只读一小块写到连接里，内存占用与文件大小无关
+ * 不会改变通道的当前位置，请求重试时可以重复发送
+ * 通道需要调用者自己关闭
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class FileChannelBody extends AbstractContentBody {
+
+    /**
+     * 每次读取的大小
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * 文件通道
+     */
+    private final FileChannel fileChannel;
+
+    /**
+     * 文件名称
+     */
+    private final String fileName;
+
+    /**
+     * 开始位置
+     */
+    private final long position;
+
+    /**
+     * 发送的字节数
+     */
+    private final long size;
+
+
+    /**
+     * 发送整个文件
+     *
+     * @param fileChannel 文件通道
+     * @param contentType contentType
+     * @param fileName    文件名称
+     * @throws IOException
+     */
+    public FileChannelBody(FileChannel fileChannel, ContentType contentType, String fileName) throws IOException {
+        this(fileChannel, 0, fileChannel.size(), contentType, fileName);
+    }
+
+    /**
+     * 发送文件的一部分
+     *
+     * @param fileChannel 文件通道
+     * @param position    开始位置
+     * @param size        发送的字节数
+     * @param contentType contentType
+     * @param fileName    文件名称
+     */
+    public FileChannelBody(FileChannel fileChannel, long position, long size, ContentType contentType, String fileName) {
+        super(contentType);
+        AssertUtil.notNull(fileChannel, "文件通道不能为空");
+        AssertUtil.isTrue(position >= 0 && size >= 0, "开始位置与长度不能小于0");
+        this.fileChannel = fileChannel;
+        this.position = position;
+        this.size = size;
+        this.fileName = fileName;
+    }
+
+    @Override
+    public String getFilename() {
+        return fileName;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        long current = position;
+        long end = position + size;
+        while (current < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(BUFFER_SIZE, end - current));
+            int len = fileChannel.read(buffer, current);
+            if (len < 0) {
+                //文件被截断
+                throw new IOException("文件长度小于要发送的长度");
+            }
+            out.write(buffer.array(), 0, len);
+            current += len;
+        }
+        out.flush();
+    }
+
+    @Override
+    public String getTransferEncoding() {
+        return MIME.ENC_BINARY;
+    }
+
+    @Override
+    public long getContentLength() {
+        return size;
+    }
+
+}
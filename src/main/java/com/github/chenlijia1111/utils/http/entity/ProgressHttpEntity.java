@@ -0,0 +1,113 @@
+package com.github.chenlijia1111.utils.http.entity;
+
+import com.github.chenlijia1111.utils.common.AssertUtil;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Objects;
+
+/**
+ * 可以监听上传进度、强制分块传输的请求体
+ *
+ * 请求体边读边写到连接里，不会整个放到内存中
+ * 分块传输时不需要提前知道请求体的长度，也不需要发送 Content-Length
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class ProgressHttpEntity extends HttpEntityWrapper {
+
+    /**
+     * 上传进度监听 可以为空
+     */
+    private final UploadProgressListener progressListener;
+
+    /**
+     * 是否强制分块传输
+     */
+    private final boolean chunked;
+
+
+    /**
+     * 构造函数
+     *
+     * @param wrappedEntity    原来的请求体
+     * @param progressListener 上传进度监听 可以为空
+     * @param chunked          是否强制分块传输
+     */
+    public ProgressHttpEntity(HttpEntity wrappedEntity, UploadProgressListener progressListener, boolean chunked) {
+        super(wrappedEntity);
+        AssertUtil.notNull(wrappedEntity, "请求体不能为空");
+        this.progressListener = progressListener;
+        this.chunked = chunked;
+    }
+
+    @Override
+    public boolean isChunked() {
+        return chunked || super.isChunked();
+    }
+
+    @Override
+    public long getContentLength() {
+        //长度小于 0 时 httpClient 使用 Transfer-Encoding: chunked
+        return chunked ? -1 : super.getContentLength();
+    }
+
+    @Override
+    public void writeTo(OutputStream outStream) throws IOException {
+        if (Objects.isNull(progressListener)) {
+            super.writeTo(outStream);
+            return;
+        }
+        long totalBytes = wrappedEntity.getContentLength();
+        CountingOutputStream countingOutputStream = new CountingOutputStream(outStream, totalBytes);
+        super.writeTo(countingOutputStream);
+        countingOutputStream.flush();
+    }
+
+    /**
+     * 统计写入字节数的输出流
+     */
+    private class CountingOutputStream extends FilterOutputStream {
+
+        /**
+         * 请求体总字节数
+         */
+        private final long totalBytes;
+
+        /**
+         * 已写入字节数
+         */
+        private long transferredBytes;
+
+        private CountingOutputStream(OutputStream out, long totalBytes) {
+            super(out);
+            this.totalBytes = totalBytes;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            transferredBytes++;
+            progressListener.onProgress(transferredBytes, totalBytes);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            //父类是一个字节一个字节写的，这里直接整块写
+            out.write(b, off, len);
+            transferredBytes += len;
+            progressListener.onProgress(transferredBytes, totalBytes);
+        }
+
+        @Override
+        public void close() throws IOException {
+            //连接的输出流由 httpClient 关闭
+            flush();
+        }
+    }
+
+}
@@ -0,0 +1,21 @@
+package com.github.chenlijia1111.utils.http.entity;
+
+/**
+ * 上传进度监听
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+@FunctionalInterface
+public interface UploadProgressListener {
+
+    /**
+     * 已经发送了一部分请求体
+     * 在发送请求的线程中回调，不要做耗时的操作
+     *
+     * @param transferredBytes 已发送的字节数
+     * @param totalBytes       请求体总字节数 不知道长度时为 -1
+     */
+    void onProgress(long transferredBytes, long totalBytes);
+
+}
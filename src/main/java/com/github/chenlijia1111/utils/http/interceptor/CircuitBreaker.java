@@ -0,0 +1,229 @@
+package com.github.chenlijia1111.utils.http.interceptor;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个地址的熔断器
+ *
+ * 关闭状态下按请求次数滑动统计最近的失败率与慢请求比例，
+ * 打开状态只读一个 volatile 状态与时间就可以拒绝请求，不加锁
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class CircuitBreaker {
+
+    private final CircuitBreakerConfig config;
+
+    /**
+     * 当前状态
+     */
+    private volatile CircuitBreakerStateEnum state = CircuitBreakerStateEnum.CLOSED;
+
+    /**
+     * 打开的时间
+     */
+    private volatile long openTime;
+
+    /**
+     * 最近的请求是否失败 环形记录
+     */
+    private final boolean[] failureWindow;
+
+    /**
+     * 最近的请求是否是慢请求 环形记录
+     */
+    private final boolean[] slowWindow;
+
+    /**
+     * 下一次记录的位置
+     */
+    private int windowIndex;
+
+    /**
+     * 已记录的请求数
+     */
+    private int bufferedCalls;
+
+    /**
+     * 窗口内的失败数
+     */
+    private int failureCalls;
+
+    /**
+     * 窗口内的慢请求数
+     */
+    private int slowCalls;
+
+    /**
+     * 半开时剩余的试探请求数
+     */
+    private final AtomicInteger halfOpenPermits = new AtomicInteger();
+
+    /**
+     * 半开时已经完成的试探请求数
+     */
+    private int halfOpenCompletedCalls;
+
+    /**
+     * 被拒绝的请求数
+     */
+    private final LongAdder notPermittedCalls = new LongAdder();
+
+
+    public CircuitBreaker(CircuitBreakerConfig config) {
+        this.config = config;
+        this.failureWindow = new boolean[config.getSlidingWindowSize()];
+        this.slowWindow = new boolean[config.getSlidingWindowSize()];
+    }
+
+    /**
+     * 判断是否允许请求
+     * 半开时拿到试探名额的请求结束之后必须调用 {@link #onResult(boolean, long)} 或者 {@link #releasePermission()}
+     *
+     * @return
+     */
+    public boolean tryAcquirePermission() {
+        CircuitBreakerStateEnum currentState = state;
+        if (currentState == CircuitBreakerStateEnum.CLOSED) {
+            return true;
+        }
+        if (currentState == CircuitBreakerStateEnum.OPEN) {
+            if (System.currentTimeMillis() - openTime < config.getWaitDurationInOpenState()) {
+                notPermittedCalls.increment();
+                return false;
+            }
+            toHalfOpen();
+        }
+        if (halfOpenPermits.getAndDecrement() > 0) {
+            return true;
+        }
+        halfOpenPermits.incrementAndGet();
+        notPermittedCalls.increment();
+        return false;
+    }
+
+    /**
+     * 归还试探名额
+     * 请求被其他原因拒绝，没有真正执行的时候调用
+     */
+    public void releasePermission() {
+        if (state == CircuitBreakerStateEnum.HALF_OPEN) {
+            halfOpenPermits.incrementAndGet();
+        }
+    }
+
+    /**
+     * 记录请求结果
+     *
+     * @param failure        是否失败
+     * @param durationMillis 耗时 毫秒
+     */
+    public synchronized void onResult(boolean failure, long durationMillis) {
+        boolean slow = durationMillis >= config.getSlowCallDurationThreshold();
+        if (state == CircuitBreakerStateEnum.HALF_OPEN) {
+            if (failure || slow) {
+                toOpen();
+                return;
+            }
+            halfOpenCompletedCalls++;
+            if (halfOpenCompletedCalls >= config.getPermittedCallsInHalfOpenState()) {
+                toClosed();
+            }
+            return;
+        }
+        if (state == CircuitBreakerStateEnum.OPEN) {
+            //打开之前发出去的请求，不再统计
+            return;
+        }
+
+        if (bufferedCalls == failureWindow.length) {
+            //移除最早的记录
+            if (failureWindow[windowIndex]) {
+                failureCalls--;
+            }
+            if (slowWindow[windowIndex]) {
+                slowCalls--;
+            }
+        } else {
+            bufferedCalls++;
+        }
+        failureWindow[windowIndex] = failure;
+        slowWindow[windowIndex] = slow;
+        if (failure) {
+            failureCalls++;
+        }
+        if (slow) {
+            slowCalls++;
+        }
+        windowIndex = (windowIndex + 1) % failureWindow.length;
+
+        if (bufferedCalls >= config.getMinimumNumberOfCalls() &&
+                (getFailureRate() >= config.getFailureRateThreshold() || getSlowCallRate() >= config.getSlowCallRateThreshold())) {
+            toOpen();
+        }
+    }
+
+    private synchronized void toHalfOpen() {
+        if (state == CircuitBreakerStateEnum.OPEN) {
+            halfOpenCompletedCalls = 0;
+            halfOpenPermits.set(config.getPermittedCallsInHalfOpenState());
+            state = CircuitBreakerStateEnum.HALF_OPEN;
+        }
+    }
+
+    private void toOpen() {
+        openTime = System.currentTimeMillis();
+        state = CircuitBreakerStateEnum.OPEN;
+    }
+
+    private void toClosed() {
+        windowIndex = 0;
+        bufferedCalls = 0;
+        failureCalls = 0;
+        slowCalls = 0;
+        state = CircuitBreakerStateEnum.CLOSED;
+    }
+
+    public CircuitBreakerStateEnum getState() {
+        return state;
+    }
+
+    /**
+     * 窗口内的失败率
+     *
+     * @return
+     */
+    public synchronized double getFailureRate() {
+        return bufferedCalls == 0 ? 0 : (double) failureCalls / bufferedCalls;
+    }
+
+    /**
+     * 窗口内的慢请求比例
+     *
+     * @return
+     */
+    public synchronized double getSlowCallRate() {
+        return bufferedCalls == 0 ? 0 : (double) slowCalls / bufferedCalls;
+    }
+
+    /**
+     * 被拒绝的请求数
+     *
+     * @return
+     */
+    public long getNotPermittedCalls() {
+        return notPermittedCalls.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreaker{" +
+                "state=" + state +
+                ", failureRate=" + getFailureRate() +
+                ", slowCallRate=" + getSlowCallRate() +
+                ", notPermittedCalls=" + getNotPermittedCalls() +
+                '}';
+    }
+}
@@ -0,0 +1,124 @@
+package com.github.chenlijia1111.utils.http.interceptor;
+
+import com.github.chenlijia1111.utils.common.AssertUtil;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 熔断器配置
+ *
+ * 最近 {@link #slidingWindowSize} 次请求里失败或者慢请求的比例超过阈值就打开熔断器，
+ * 打开期间请求直接失败，{@link #waitDurationInOpenState} 之后放 {@link #permittedCallsInHalfOpenState} 个请求试探
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class CircuitBreakerConfig {
+
+    /**
+     * 失败率阈值 0 ~ 1
+     * 请求异常或者响应状态码 >= 500 算失败
+     */
+    private double failureRateThreshold = 0.5;
+
+    /**
+     * 慢请求比例阈值 0 ~ 1
+     * 下游变慢时线程会一直堆积在等待响应上，慢请求太多也要熔断
+     */
+    private double slowCallRateThreshold = 1.0;
+
+    /**
+     * 超过这个耗时算慢请求 毫秒
+     */
+    private long slowCallDurationThreshold = TimeUnit.SECONDS.toMillis(5);
+
+    /**
+     * 统计最近多少次请求
+     */
+    private int slidingWindowSize = 100;
+
+    /**
+     * 至少有多少次请求才开始计算比例
+     */
+    private int minimumNumberOfCalls = 20;
+
+    /**
+     * 打开之后多久进入半开 毫秒
+     */
+    private long waitDurationInOpenState = TimeUnit.SECONDS.toMillis(30);
+
+    /**
+     * 半开时放多少个请求试探
+     */
+    private int permittedCallsInHalfOpenState = 5;
+
+    public double getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public CircuitBreakerConfig setFailureRateThreshold(double failureRateThreshold) {
+        AssertUtil.isTrue(failureRateThreshold > 0 && failureRateThreshold <= 1, "失败率阈值必须在0~1之间");
+        this.failureRateThreshold = failureRateThreshold;
+        return this;
+    }
+
+    public double getSlowCallRateThreshold() {
+        return slowCallRateThreshold;
+    }
+
+    public CircuitBreakerConfig setSlowCallRateThreshold(double slowCallRateThreshold) {
+        AssertUtil.isTrue(slowCallRateThreshold > 0 && slowCallRateThreshold <= 1, "慢请求比例阈值必须在0~1之间");
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        return this;
+    }
+
+    public long getSlowCallDurationThreshold() {
+        return slowCallDurationThreshold;
+    }
+
+    public CircuitBreakerConfig setSlowCallDurationThreshold(long slowCallDurationThreshold) {
+        AssertUtil.isTrue(slowCallDurationThreshold > 0, "慢请求耗时必须大于0");
+        this.slowCallDurationThreshold = slowCallDurationThreshold;
+        return this;
+    }
+
+    public int getSlidingWindowSize() {
+        return slidingWindowSize;
+    }
+
+    public CircuitBreakerConfig setSlidingWindowSize(int slidingWindowSize) {
+        AssertUtil.isTrue(slidingWindowSize > 0, "统计请求数必须大于0");
+        this.slidingWindowSize = slidingWindowSize;
+        return this;
+    }
+
+    public int getMinimumNumberOfCalls() {
+        return minimumNumberOfCalls;
+    }
+
+    public CircuitBreakerConfig setMinimumNumberOfCalls(int minimumNumberOfCalls) {
+        AssertUtil.isTrue(minimumNumberOfCalls > 0, "最少请求数必须大于0");
+        this.minimumNumberOfCalls = minimumNumberOfCalls;
+        return this;
+    }
+
+    public long getWaitDurationInOpenState() {
+        return waitDurationInOpenState;
+    }
+
+    public CircuitBreakerConfig setWaitDurationInOpenState(long waitDurationInOpenState) {
+        AssertUtil.isTrue(waitDurationInOpenState > 0, "打开时间必须大于0");
+        this.waitDurationInOpenState = waitDurationInOpenState;
+        return this;
+    }
+
+    public int getPermittedCallsInHalfOpenState() {
+        return permittedCallsInHalfOpenState;
+    }
+
+    public CircuitBreakerConfig setPermittedCallsInHalfOpenState(int permittedCallsInHalfOpenState) {
+        AssertUtil.isTrue(permittedCallsInHalfOpenState > 0, "试探请求数必须大于0");
+        this.permittedCallsInHalfOpenState = permittedCallsInHalfOpenState;
+        return this;
+    }
+}
@@ -0,0 +1,108 @@
+package com.github.chenlijia1111.utils.http.interceptor;
+
+import com.github.chenlijia1111.utils.common.AssertUtil;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpExecutionAware;
+import org.apache.http.client.methods.HttpUriRequest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 熔断拦截器
+ * 每个地址（scheme://host:port）一个熔断器，互不影响
+ *
+ * 下游出问题的时候，请求不再阻塞等待超时，而是直接抛出 {@link CircuitBreakerOpenException}
+ *
+ * {@code
+ *     HttpClientUtils.addInterceptor("https://api.weixin.qq.com", new CircuitBreakerInterceptor(new CircuitBreakerConfig()
+ *             .setSlowCallDurationThreshold(2000)));
+ * }
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class CircuitBreakerInterceptor implements HttpInterceptor {
+
+    private final CircuitBreakerConfig config;
+
+    /**
+     * 地址 -> 熔断器
+     */
+    private final Map<String, CircuitBreaker> circuitBreakerMap = new ConcurrentHashMap<>();
+
+    public CircuitBreakerInterceptor(CircuitBreakerConfig config) {
+        AssertUtil.notNull(config, "熔断配置不能为空");
+        this.config = config;
+    }
+
+    public CircuitBreakerInterceptor() {
+        this(new CircuitBreakerConfig());
+    }
+
+    @Override
+    public CloseableHttpResponse intercept(HttpUriRequest request, Chain chain) throws IOException {
+        String host = hostKey(request.getURI());
+        CircuitBreaker circuitBreaker = circuitBreakerMap.computeIfAbsent(host, k -> new CircuitBreaker(config));
+        if (!circuitBreaker.tryAcquirePermission()) {
+            throw new CircuitBreakerOpenException("熔断器已打开，拒绝请求 " + host);
+        }
+
+        long startTime = System.currentTimeMillis();
+        try {
+            CloseableHttpResponse response = chain.proceed(request);
+            int statusCode = response.getStatusLine().getStatusCode();
+            circuitBreaker.onResult(statusCode >= 500, System.currentTimeMillis() - startTime);
+            return response;
+        } catch (CircuitBreakerOpenException | RateLimitException e) {
+            //被其他拦截器拒绝，请求没有发出去
+            circuitBreaker.releasePermission();
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            if (request instanceof HttpExecutionAware && ((HttpExecutionAware) request).isAborted()) {
+                //主动取消的请求 如对冲请求中慢的那个，不算失败
+                circuitBreaker.releasePermission();
+                throw e;
+            }
+            circuitBreaker.onResult(true, System.currentTimeMillis() - startTime);
+            throw e;
+        }
+    }
+
+    /**
+     * 获取地址的熔断器
+     *
+     * @param url 如 https://api.weixin.qq.com/sns/userinfo
+     * @return 还没有请求过返回 null
+     */
+    public CircuitBreaker getCircuitBreaker(String url) {
+        return circuitBreakerMap.get(hostKey(URI.create(url)));
+    }
+
+    /**
+     * 所有地址的熔断器
+     *
+     * @return
+     */
+    public Map<String, CircuitBreaker> getCircuitBreakerMap() {
+        return Collections.unmodifiableMap(circuitBreakerMap);
+    }
+
+    /**
+     * scheme://host:port
+     *
+     * @param uri
+     * @return
+     */
+    static String hostKey(URI uri) {
+        int port = uri.getPort();
+        if (port < 0) {
+            port = "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+        }
+        return uri.getScheme() + "://" + uri.getHost() + ":" + port;
+    }
+
+}
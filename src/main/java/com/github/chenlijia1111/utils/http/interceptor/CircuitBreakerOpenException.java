@@ -0,0 +1,27 @@
+package com.github.chenlijia1111.utils.http.interceptor;
+
+import java.io.IOException;
+
+/**
+ * 熔断器打开，请求被直接拒绝
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class CircuitBreakerOpenException extends IOException {
+
+    public CircuitBreakerOpenException(String message) {
+        super(message);
+    }
+
+    /**
+     * 拒绝请求需要尽快返回，不收集调用栈
+     *
+     * @return
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+
+}
@@ -0,0 +1,26 @@
+package com.github.chenlijia1111.utils.http.interceptor;
+
+/**
+ * 熔断器状态
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public enum CircuitBreakerStateEnum {
+
+    /**
+     * 关闭 请求正常通过，统计失败率与慢请求比例
+     */
+    CLOSED,
+
+    /**
+     * 打开 请求直接拒绝，等待一段时间之后进入半开
+     */
+    OPEN,
+
+    /**
+     * 半开 放少量请求试探，都成功就关闭，否则重新打开
+     */
+    HALF_OPEN
+
+}
@@ -0,0 +1,470 @@
+package com.github.chenlijia1111.utils.http.interceptor;
+
+import com.github.chenlijia1111.utils.common.AssertUtil;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.methods.RequestBuilder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 对冲请求拦截器
+ *
+ * 第一个请求超过这个接口（地址 + 路径）最近耗时的 p95 还没有返回，就再发一个同样的请求，
+ * 哪个先成功返回就用哪个，另一个直接取消（断开连接），用少量额外请求换掉耗时长尾
+ * 返回 5xx 不算成功，另一个请求还在执行时继续等它，都没有成功时返回 5xx 的响应
+ *
+ * 只能用于幂等的请求，默认只对冲 GET HEAD OPTIONS，并且请求体必须可以重复读取
+ * 注意有些 GET 接口并不幂等，如微信的 jscode2session，同一个 code 只能用一次，不能对冲
+ *
+ * 对冲请求的数量不超过总请求数的 {@link #setMaxHedgeRatio(double)}，下游整体变慢时不会把请求量翻倍
+ *
+ * {@code
+ *     HttpClientUtils.addInterceptor("https://api.weixin.qq.com/sns/userinfo", new HedgingInterceptor());
+ * }
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class HedgingInterceptor implements HttpInterceptor {
+
+    /**
+     * 发出对冲请求的定时器
+     */
+    private static volatile ScheduledThreadPoolExecutor scheduler;
+
+    /**
+     * 执行对冲请求的线程池
+     */
+    private static volatile ExecutorService hedgeExecutor;
+
+    /**
+     * 可以对冲的请求方法
+     */
+    private Set<String> hedgeMethods = new HashSet<>(Arrays.asList("GET", "HEAD", "OPTIONS"));
+
+    /**
+     * 按耗时的哪个分位数决定什么时候发出对冲请求
+     */
+    private double percentile = 0.95;
+
+    /**
+     * 统计最近多少次请求的耗时
+     */
+    private int sampleSize = 256;
+
+    /**
+     * 至少有多少次耗时记录才按分位数对冲，之前使用 {@link #initialHedgeDelay}
+     */
+    private int minSamples = 20;
+
+    /**
+     * 耗时记录不够时的对冲等待时间 毫秒
+     */
+    private long initialHedgeDelay = 1000;
+
+    /**
+     * 最短对冲等待时间 毫秒
+     * 接口很快时不至于几乎每个请求都对冲
+     */
+    private long minHedgeDelay = 10;
+
+    /**
+     * 对冲请求占总请求数的最大比例
+     */
+    private double maxHedgeRatio = 0.1;
+
+    /**
+     * 接口 -> 耗时统计
+     * 同一个域名下不同接口的耗时相差很大，按 scheme://host:port/path 分别统计
+     */
+    private final Map<String, LatencyTracker> trackerMap = new ConcurrentHashMap<>();
+
+    /**
+     * 总请求数
+     */
+    private final AtomicLong requestCount = new AtomicLong();
+
+    /**
+     * 发出的对冲请求数
+     */
+    private final AtomicLong hedgeCount = new AtomicLong();
+
+    /**
+     * 对冲请求先返回的次数
+     */
+    private final AtomicLong hedgeWinCount = new AtomicLong();
+
+
+    public HedgingInterceptor setHedgeMethods(Set<String> hedgeMethods) {
+        AssertUtil.notNull(hedgeMethods, "请求方法不能为空");
+        this.hedgeMethods = hedgeMethods;
+        return this;
+    }
+
+    public HedgingInterceptor setPercentile(double percentile) {
+        AssertUtil.isTrue(percentile > 0 && percentile < 1, "分位数必须在0~1之间");
+        this.percentile = percentile;
+        return this;
+    }
+
+    public HedgingInterceptor setSampleSize(int sampleSize) {
+        AssertUtil.isTrue(sampleSize > 0, "统计请求数必须大于0");
+        this.sampleSize = sampleSize;
+        return this;
+    }
+
+    public HedgingInterceptor setMinSamples(int minSamples) {
+        AssertUtil.isTrue(minSamples > 0, "最少请求数必须大于0");
+        this.minSamples = minSamples;
+        return this;
+    }
+
+    public HedgingInterceptor setInitialHedgeDelay(long initialHedgeDelay) {
+        AssertUtil.isTrue(initialHedgeDelay > 0, "对冲等待时间必须大于0");
+        this.initialHedgeDelay = initialHedgeDelay;
+        return this;
+    }
+
+    public HedgingInterceptor setMinHedgeDelay(long minHedgeDelay) {
+        AssertUtil.isTrue(minHedgeDelay >= 0, "对冲等待时间不能小于0");
+        this.minHedgeDelay = minHedgeDelay;
+        return this;
+    }
+
+    public HedgingInterceptor setMaxHedgeRatio(double maxHedgeRatio) {
+        AssertUtil.isTrue(maxHedgeRatio >= 0 && maxHedgeRatio <= 1, "对冲比例必须在0~1之间");
+        this.maxHedgeRatio = maxHedgeRatio;
+        return this;
+    }
+
+    @Override
+    public CloseableHttpResponse intercept(HttpUriRequest request, Chain chain) throws IOException {
+        if (!isHedgeable(request)) {
+            return chain.proceed(request);
+        }
+        requestCount.incrementAndGet();
+        LatencyTracker tracker = trackerMap.computeIfAbsent(pathKey(request.getURI()),
+                k -> new LatencyTracker(percentile, sampleSize));
+
+        HedgedCall call = new HedgedCall((HttpRequestBase) request);
+        ScheduledFuture<?> hedgeFuture = getScheduler().schedule(() -> hedge(call, chain, tracker),
+                hedgeDelay(tracker), TimeUnit.MILLISECONDS);
+        //第一个请求在当前线程执行
+        attempt(call, (HttpRequestBase) request, chain, tracker);
+        hedgeFuture.cancel(false);
+        return call.await();
+    }
+
+    /**
+     * 发出对冲请求
+     *
+     * @param call
+     * @param chain
+     * @param tracker
+     */
+    private void hedge(HedgedCall call, Chain chain, LatencyTracker tracker) {
+        //超出对冲比例
+        if (hedgeCount.get() + 1 > requestCount.get() * maxHedgeRatio) {
+            return;
+        }
+        //不能用 clone，复制出来的请求与原请求共用取消状态，取消一个会影响另一个
+        HttpRequestBase hedgeRequest = (HttpRequestBase) RequestBuilder.copy(call.primary).build();
+        if (!call.start(hedgeRequest)) {
+            return;
+        }
+        hedgeCount.incrementAndGet();
+        try {
+            getHedgeExecutor().execute(() -> {
+                if (attempt(call, hedgeRequest, chain, tracker)) {
+                    hedgeWinCount.incrementAndGet();
+                }
+            });
+        } catch (RuntimeException e) {
+            call.onFailure(new IOException("对冲请求执行失败", e));
+        }
+    }
+
+    /**
+     * 执行一次请求
+     *
+     * @param call
+     * @param request
+     * @param chain
+     * @param tracker
+     * @return 是否先成功返回
+     */
+    private boolean attempt(HedgedCall call, HttpRequestBase request, Chain chain, LatencyTracker tracker) {
+        long startTime = System.currentTimeMillis();
+        CloseableHttpResponse response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException e) {
+            call.onFailure(e);
+            return false;
+        }
+        if (!request.isAborted()) {
+            tracker.record(System.currentTimeMillis() - startTime);
+        }
+        return call.onResponse(request, response, response.getStatusLine().getStatusCode() >= 500);
+    }
+
+    /**
+     * 对冲等待时间
+     *
+     * @param tracker
+     * @return 毫秒
+     */
+    private long hedgeDelay(LatencyTracker tracker) {
+        if (tracker.getCount() < minSamples) {
+            return initialHedgeDelay;
+        }
+        return Math.max(minHedgeDelay, tracker.getPercentileMillis());
+    }
+
+    /**
+     * 判断请求是否可以对冲
+     *
+     * @param request
+     * @return
+     */
+    private boolean isHedgeable(HttpUriRequest request) {
+        if (!(request instanceof HttpRequestBase) || !hedgeMethods.contains(request.getMethod())) {
+            return false;
+        }
+        if (request instanceof HttpEntityEnclosingRequest) {
+            HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+            return Objects.isNull(entity) || entity.isRepeatable();
+        }
+        return true;
+    }
+
+    /**
+     * 耗时统计
+     *
+     * @param url 如 https://api.weixin.qq.com/sns/userinfo 不包括参数
+     * @return 还没有请求过返回 null
+     */
+    public LatencyTracker getLatencyTracker(String url) {
+        return trackerMap.get(pathKey(URI.create(url)));
+    }
+
+    /**
+     * scheme://host:port/path
+     *
+     * @param uri
+     * @return
+     */
+    private static String pathKey(URI uri) {
+        String path = uri.getRawPath();
+        return CircuitBreakerInterceptor.hostKey(uri) + (Objects.isNull(path) || path.isEmpty() ? "/" : path);
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    public long getHedgeCount() {
+        return hedgeCount.get();
+    }
+
+    public long getHedgeWinCount() {
+        return hedgeWinCount.get();
+    }
+
+    private static ScheduledThreadPoolExecutor getScheduler() {
+        if (null == scheduler) {
+            synchronized (HedgingInterceptor.class) {
+                if (null == scheduler) {
+                    ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+                        Thread thread = new Thread(r, "http-hedge-timer");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    //请求先返回时取消的任务直接移除，不在队列里堆积
+                    executor.setRemoveOnCancelPolicy(true);
+                    scheduler = executor;
+                }
+            }
+        }
+        return scheduler;
+    }
+
+    private static ExecutorService getHedgeExecutor() {
+        if (null == hedgeExecutor) {
+            synchronized (HedgingInterceptor.class) {
+                if (null == hedgeExecutor) {
+                    AtomicInteger threadNumber = new AtomicInteger();
+                    hedgeExecutor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+                        Thread thread = new Thread(r, "http-hedge-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+            }
+        }
+        return hedgeExecutor;
+    }
+
+    /**
+     * 一次对冲调用
+     * 先成功返回的请求作为结果，取消其他还在执行的请求；
+     * 全部失败时返回收到的 5xx 响应，没有响应时抛出第一个异常
+     */
+    private static class HedgedCall {
+
+        /**
+         * 第一个请求
+         */
+        private final HttpRequestBase primary;
+
+        /**
+         * 已经发出的请求
+         */
+        private final List<HttpRequestBase> requestList = new ArrayList<>(2);
+
+        /**
+         * 还在执行的请求数
+         */
+        private int running = 1;
+
+        /**
+         * 是否已经有结果
+         */
+        private boolean done;
+
+        private CloseableHttpResponse response;
+
+        /**
+         * 还有请求在执行时先收到的 5xx 响应
+         */
+        private CloseableHttpResponse errorResponse;
+
+        private IOException exception;
+
+        private HedgedCall(HttpRequestBase primary) {
+            this.primary = primary;
+            this.requestList.add(primary);
+        }
+
+        /**
+         * 发出对冲请求
+         *
+         * @param request
+         * @return 已经有结果时返回 false 不再发出
+         */
+        private synchronized boolean start(HttpRequestBase request) {
+            if (done) {
+                return false;
+            }
+            running++;
+            requestList.add(request);
+            return true;
+        }
+
+        /**
+         * 收到响应
+         *
+         * @param request
+         * @param response
+         * @param error    是否 5xx
+         * @return 是否作为成功的结果
+         */
+        private synchronized boolean onResponse(HttpRequestBase request, CloseableHttpResponse response, boolean error) {
+            running--;
+            if (done) {
+                //慢了一步
+                closeQuietly(response);
+                return false;
+            }
+            if (error) {
+                //留一个 5xx 响应，其他请求都失败时返回
+                if (Objects.isNull(errorResponse)) {
+                    errorResponse = response;
+                } else {
+                    closeQuietly(response);
+                }
+                if (running == 0) {
+                    done = true;
+                    this.response = errorResponse;
+                    notifyAll();
+                }
+                return false;
+            }
+            if (Objects.nonNull(errorResponse)) {
+                closeQuietly(errorResponse);
+            }
+            done = true;
+            this.response = response;
+            for (HttpRequestBase other : requestList) {
+                if (other != request) {
+                    other.abort();
+                }
+            }
+            notifyAll();
+            return true;
+        }
+
+        private synchronized void onFailure(IOException e) {
+            running--;
+            if (done) {
+                return;
+            }
+            if (Objects.isNull(exception)) {
+                exception = e;
+            }
+            if (running == 0) {
+                done = true;
+                this.response = errorResponse;
+                notifyAll();
+            }
+        }
+
+        private synchronized CloseableHttpResponse await() throws IOException {
+            while (!done) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    for (HttpRequestBase request : requestList) {
+                        request.abort();
+                    }
+                    throw new IOException("等待对冲请求时被中断", e);
+                }
+            }
+            if (Objects.nonNull(response)) {
+                return response;
+            }
+            throw exception;
+        }
+
+        private static void closeQuietly(CloseableHttpResponse response) {
+            try {
+                response.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.github.chenlijia1111.utils.http.interceptor;
+
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+
+import java.io.IOException;
+
+/**
+ * 请求拦截器
+ * 通过 {@link com.github.chenlijia1111.utils.http.HttpClientUtils#addInterceptor(String, HttpInterceptor)} 按地址前缀注册
+ *
+ * 拦截器包在请求外面，可以在请求之前直接拒绝（抛出 {@link IOException}），也可以统计请求的结果与耗时
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+@FunctionalInterface
+public interface HttpInterceptor {
+
+    /**
+     * 拦截请求
+     *
+     * @param request 请求
+     * @param chain   调用 {@link Chain#proceed(HttpUriRequest)} 继续执行请求
+     * @return 响应
+     * @throws IOException 请求失败或者被拒绝
+     */
+    CloseableHttpResponse intercept(HttpUriRequest request, Chain chain) throws IOException;
+
+    /**
+     * 拦截器链
+     */
+    @FunctionalInterface
+    interface Chain {
+
+        /**
+         * 执行下一个拦截器 最后一个执行真正的请求
+         *
+         * @param request
+         * @return
+         * @throws IOException
+         */
+        CloseableHttpResponse proceed(HttpUriRequest request) throws IOException;
+    }
+
+}
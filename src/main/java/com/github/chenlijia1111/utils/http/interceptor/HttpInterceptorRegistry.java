@@ -0,0 +1,101 @@
+package com.github.chenlijia1111.utils.http.interceptor;
+
+import com.github.chenlijia1111.utils.common.AssertUtil;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 按地址前缀注册的拦截器
+ * 一个请求按注册顺序依次经过所有前缀匹配的拦截器
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class HttpInterceptorRegistry {
+
+    /**
+     * 注册的拦截器
+     * 注册很少，读取很多
+     */
+    private final List<Registration> registrationList = new CopyOnWriteArrayList<>();
+
+    /**
+     * 注册拦截器
+     *
+     * @param urlPrefix   地址前缀 如 https://api.weixin.qq.com 空字符串表示所有请求
+     * @param interceptor 拦截器
+     */
+    public void add(String urlPrefix, HttpInterceptor interceptor) {
+        AssertUtil.notNull(urlPrefix, "地址前缀不能为空");
+        AssertUtil.notNull(interceptor, "拦截器不能为空");
+        registrationList.add(new Registration(urlPrefix, interceptor));
+    }
+
+    /**
+     * 移除拦截器
+     *
+     * @param interceptor
+     */
+    public void remove(HttpInterceptor interceptor) {
+        registrationList.removeIf(registration -> Objects.equals(registration.interceptor, interceptor));
+    }
+
+    /**
+     * 移除所有拦截器
+     */
+    public void clear() {
+        registrationList.clear();
+    }
+
+    /**
+     * 经过匹配的拦截器执行请求
+     *
+     * @param request 请求
+     * @param target  真正执行请求
+     * @return
+     * @throws IOException
+     */
+    public CloseableHttpResponse execute(HttpUriRequest request, HttpInterceptor.Chain target) throws IOException {
+        if (registrationList.isEmpty()) {
+            return target.proceed(request);
+        }
+        String url = request.getURI().toString();
+        List<HttpInterceptor> interceptorList = new ArrayList<>();
+        for (Registration registration : registrationList) {
+            if (url.startsWith(registration.urlPrefix)) {
+                interceptorList.add(registration.interceptor);
+            }
+        }
+        return proceed(request, interceptorList, 0, target);
+    }
+
+    private CloseableHttpResponse proceed(HttpUriRequest request, List<HttpInterceptor> interceptorList, int index,
+                                          HttpInterceptor.Chain target) throws IOException {
+        if (index >= interceptorList.size()) {
+            return target.proceed(request);
+        }
+        return interceptorList.get(index).intercept(request, nextRequest -> proceed(nextRequest, interceptorList, index + 1, target));
+    }
+
+    /**
+     * 注册信息
+     */
+    private static class Registration {
+
+        private final String urlPrefix;
+
+        private final HttpInterceptor interceptor;
+
+        private Registration(String urlPrefix, HttpInterceptor interceptor) {
+            this.urlPrefix = urlPrefix;
+            this.interceptor = interceptor;
+        }
+    }
+
+}
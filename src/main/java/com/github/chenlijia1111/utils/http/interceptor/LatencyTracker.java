@@ -0,0 +1,92 @@
+package com.github.chenlijia1111.utils.http.interceptor;
+
+import java.util.Arrays;
+
+/**
+ * 最近请求耗时的分位数统计
+ * 保留最近固定数量的耗时，分位数隔一段时间重新排序计算一次，读取时不排序
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class LatencyTracker {
+
+    /**
+     * 每记录多少次重新计算分位数
+     */
+    private static final int RECOMPUTE_INTERVAL = 16;
+
+    /**
+     * 分位数 0 ~ 1
+     */
+    private final double percentile;
+
+    /**
+     * 最近的耗时 环形记录 毫秒
+     */
+    private final long[] samples;
+
+    /**
+     * 下一次记录的位置
+     */
+    private int index;
+
+    /**
+     * 已记录的数量
+     */
+    private int count;
+
+    /**
+     * 距离上次计算记录的数量
+     */
+    private int sinceRecompute;
+
+    /**
+     * 计算好的分位数 毫秒 -1 表示还没有计算
+     */
+    private volatile long percentileMillis = -1;
+
+
+    public LatencyTracker(double percentile, int sampleSize) {
+        this.percentile = percentile;
+        this.samples = new long[sampleSize];
+    }
+
+    /**
+     * 记录一次耗时
+     *
+     * @param millis
+     */
+    public synchronized void record(long millis) {
+        samples[index] = millis;
+        index = (index + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+        if (++sinceRecompute >= RECOMPUTE_INTERVAL || percentileMillis < 0) {
+            sinceRecompute = 0;
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            percentileMillis = sorted[Math.min(count - 1, (int) Math.ceil(percentile * count) - 1)];
+        }
+    }
+
+    /**
+     * 分位数耗时
+     *
+     * @return 毫秒 还没有记录时返回 -1
+     */
+    public long getPercentileMillis() {
+        return percentileMillis;
+    }
+
+    /**
+     * 已记录的数量
+     *
+     * @return
+     */
+    public synchronized int getCount() {
+        return count;
+    }
+
+}
@@ -0,0 +1,27 @@
+package com.github.chenlijia1111.utils.http.interceptor;
+
+import java.io.IOException;
+
+/**
+ * 超出限流，请求被直接拒绝
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class RateLimitException extends IOException {
+
+    public RateLimitException(String message) {
+        super(message);
+    }
+
+    /**
+     * 拒绝请求需要尽快返回，不收集调用栈
+     *
+     * @return
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+
+}
@@ -0,0 +1,119 @@
+package com.github.chenlijia1111.utils.http.interceptor;
+
+import com.github.chenlijia1111.utils.common.AssertUtil;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 令牌桶限流拦截器
+ * 每个地址（scheme://host:port）一个令牌桶，按固定速度生成令牌，最多攒 burst 个，
+ * 请求拿不到令牌时最多等待 maxWaitMillis，还拿不到就抛出 {@link RateLimitException}
+ *
+ * 用于不超过第三方接口的调用频率限制，如极光推送、微信接口
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class RateLimiterInterceptor implements HttpInterceptor {
+
+    /**
+     * 每秒生成的令牌数
+     */
+    private final double permitsPerSecond;
+
+    /**
+     * 最多攒的令牌数
+     */
+    private final int burst;
+
+    /**
+     * 拿不到令牌时最多等待的时间 毫秒
+     */
+    private final long maxWaitMillis;
+
+    /**
+     * 地址 -> 令牌桶
+     */
+    private final Map<String, TokenBucket> bucketMap = new ConcurrentHashMap<>();
+
+
+    /**
+     * 构造函数
+     *
+     * @param permitsPerSecond 每秒允许的请求数
+     * @param burst            允许的突发请求数
+     * @param maxWaitMillis    拿不到令牌时最多等待的时间 毫秒 0 表示不等待直接失败
+     */
+    public RateLimiterInterceptor(double permitsPerSecond, int burst, long maxWaitMillis) {
+        AssertUtil.isTrue(permitsPerSecond > 0, "每秒请求数必须大于0");
+        AssertUtil.isTrue(burst > 0, "突发请求数必须大于0");
+        AssertUtil.isTrue(maxWaitMillis >= 0, "等待时间不能小于0");
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    @Override
+    public CloseableHttpResponse intercept(HttpUriRequest request, Chain chain) throws IOException {
+        String host = CircuitBreakerInterceptor.hostKey(request.getURI());
+        TokenBucket tokenBucket = bucketMap.computeIfAbsent(host, k -> new TokenBucket());
+        long waitNanos = tokenBucket.reserve(TimeUnit.MILLISECONDS.toNanos(maxWaitMillis));
+        if (waitNanos < 0) {
+            throw new RateLimitException("超出限流，拒绝请求 " + host);
+        }
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RateLimitException("等待令牌时被中断 " + host);
+            }
+        }
+        return chain.proceed(request);
+    }
+
+    /**
+     * 令牌桶
+     * 按需计算补充的令牌，不需要后台线程
+     */
+    private class TokenBucket {
+
+        /**
+         * 当前令牌数 可以为负数，表示已经预定了之后生成的令牌
+         */
+        private double tokens = burst;
+
+        /**
+         * 上次补充令牌的时间
+         */
+        private long lastRefillNanos = System.nanoTime();
+
+        /**
+         * 预定一个令牌
+         *
+         * @param maxWaitNanos 最多等待时间
+         * @return 需要等待的时间 纳秒，-1 表示等待时间太长 拿不到令牌
+         */
+        private synchronized long reserve(long maxWaitNanos) {
+            long now = System.nanoTime();
+            tokens = Math.min(burst, tokens + (now - lastRefillNanos) * permitsPerSecond / TimeUnit.SECONDS.toNanos(1));
+            lastRefillNanos = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            long waitNanos = (long) ((1 - tokens) * TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+            if (waitNanos > maxWaitNanos) {
+                return -1;
+            }
+            tokens -= 1;
+            return waitNanos;
+        }
+    }
+
+}
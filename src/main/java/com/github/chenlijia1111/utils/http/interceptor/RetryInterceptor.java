@@ -0,0 +1,195 @@
+package com.github.chenlijia1111.utils.http.interceptor;
+
+import com.github.chenlijia1111.utils.common.AssertUtil;
+import com.github.chenlijia1111.utils.core.retry.ExponentialBackoff;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHeaders;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpExecutionAware;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.util.EntityUtils;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 重试拦截器
+ * 请求异常或者返回指定的状态码时，按随机的指数退避等待之后重试
+ *
+ * 默认只重试幂等的请求（GET HEAD OPTIONS PUT DELETE），并且请求体必须可以重复读取
+ * 被熔断、限流拒绝的请求不重试，被取消的请求不重试
+ * 不幂等的请求可以通过 {@link #setConnectFailureOnly(boolean)} 只在连接失败时重试
+ *
+ * {@code
+ *     HttpClientUtils.addInterceptor("https://api.weixin.qq.com/sns/userinfo", new RetryInterceptor(3, 100, 2000));
+ * }
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class RetryInterceptor implements HttpInterceptor {
+
+    /**
+     * 幂等的请求方法
+     */
+    public static final Set<String> IDEMPOTENT_METHODS = new HashSet<>(Arrays.asList("GET", "HEAD", "OPTIONS", "PUT", "DELETE"));
+
+    /**
+     * 最多请求次数 包括第一次
+     */
+    private final int maxAttempts;
+
+    /**
+     * 重试之前的等待
+     */
+    private final ExponentialBackoff backoff;
+
+    /**
+     * 需要重试的状态码
+     */
+    private Set<Integer> retryStatusCodes = new HashSet<>(Arrays.asList(429, 502, 503, 504));
+
+    /**
+     * 是否只重试幂等的请求
+     */
+    private boolean idempotentOnly = true;
+
+    /**
+     * 是否只重试连接失败的请求
+     * 连接失败时请求一定没有发到服务端，不幂等的请求也可以重试
+     */
+    private boolean connectFailureOnly;
+
+
+    /**
+     * 构造函数
+     *
+     * @param maxAttempts     最多请求次数 包括第一次
+     * @param baseDelayMillis 第一次重试最多等待的时间 毫秒 之后每次翻倍
+     * @param maxDelayMillis  最长等待时间 毫秒
+     */
+    public RetryInterceptor(int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+        AssertUtil.isTrue(maxAttempts > 0, "请求次数必须大于0");
+        this.maxAttempts = maxAttempts;
+        this.backoff = new ExponentialBackoff(baseDelayMillis, maxDelayMillis);
+    }
+
+    public RetryInterceptor setRetryStatusCodes(Set<Integer> retryStatusCodes) {
+        AssertUtil.notNull(retryStatusCodes, "状态码不能为空");
+        this.retryStatusCodes = retryStatusCodes;
+        return this;
+    }
+
+    public RetryInterceptor setIdempotentOnly(boolean idempotentOnly) {
+        this.idempotentOnly = idempotentOnly;
+        return this;
+    }
+
+    public RetryInterceptor setConnectFailureOnly(boolean connectFailureOnly) {
+        this.connectFailureOnly = connectFailureOnly;
+        return this;
+    }
+
+    @Override
+    public CloseableHttpResponse intercept(HttpUriRequest request, Chain chain) throws IOException {
+        if (!isRetryable(request)) {
+            return chain.proceed(request);
+        }
+        for (int attempt = 1; ; attempt++) {
+            CloseableHttpResponse response;
+            try {
+                response = chain.proceed(request);
+            } catch (CircuitBreakerOpenException | RateLimitException e) {
+                throw e;
+            } catch (IOException e) {
+                if (attempt >= maxAttempts || isAborted(request) || (connectFailureOnly && !isConnectFailure(e))) {
+                    throw e;
+                }
+                if (!backoff.sleep(attempt - 1)) {
+                    throw e;
+                }
+                continue;
+            }
+
+            int statusCode = response.getStatusLine().getStatusCode();
+            if (attempt >= maxAttempts || connectFailureOnly || !retryStatusCodes.contains(statusCode)) {
+                return response;
+            }
+            long delayMillis = Math.max(backoff.delayMillis(attempt - 1), retryAfterMillis(response));
+            //先读完响应体 连接才能放回连接池，直接 close 会断开连接
+            try {
+                EntityUtils.consume(response.getEntity());
+            } catch (IOException e) {
+                //读取失败 close 时断开连接
+            }
+            response.close();
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("等待重试时被中断", e);
+            }
+        }
+    }
+
+    /**
+     * 判断请求是否可以重试
+     *
+     * @param request
+     * @return
+     */
+    private boolean isRetryable(HttpUriRequest request) {
+        if (idempotentOnly && !connectFailureOnly && !IDEMPOTENT_METHODS.contains(request.getMethod())) {
+            return false;
+        }
+        if (request instanceof HttpEntityEnclosingRequest) {
+            HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+            return Objects.isNull(entity) || entity.isRepeatable();
+        }
+        return true;
+    }
+
+    /**
+     * 连接失败 请求还没有发出去
+     *
+     * @param e
+     * @return
+     */
+    private boolean isConnectFailure(IOException e) {
+        return e instanceof ConnectException || e instanceof ConnectTimeoutException || e instanceof UnknownHostException;
+    }
+
+    private boolean isAborted(HttpUriRequest request) {
+        return request instanceof HttpExecutionAware && ((HttpExecutionAware) request).isAborted();
+    }
+
+    /**
+     * 服务端通过 Retry-After 指定的等待时间
+     * 只支持秒数，不能超过最长等待时间
+     *
+     * @param response
+     * @return 毫秒
+     */
+    private long retryAfterMillis(CloseableHttpResponse response) {
+        Header header = response.getFirstHeader(HttpHeaders.RETRY_AFTER);
+        if (Objects.isNull(header)) {
+            return 0;
+        }
+        try {
+            long seconds = Long.parseLong(header.getValue().trim());
+            return Math.min(TimeUnit.SECONDS.toMillis(Math.max(seconds, 0)), backoff.getMaxDelayMillis());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.github.chenlijia1111.utils.http.po;
+
+import org.apache.http.entity.ContentType;
+
+import java.nio.channels.FileChannel;
+
+/**
+ * 文件上传对象
+ * 参数值为 文件通道，上传时按位置读取，不会整个读到内存
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class FileUploadWithChannelPo {
+
+    /**
+     * 文件名称
+     * 可以为空
+     */
+    private String fileName;
+
+    /**
+     * 参数名称
+     */
+    private String paramsKey;
+
+    /**
+     * 文件通道
+     */
+    private FileChannel fileChannel;
+
+    /**
+     * contentType
+     * 可以为空
+     */
+    private ContentType contentType;
+
+    public FileUploadWithChannelPo() {
+    }
+
+    public FileUploadWithChannelPo(String paramsKey, FileChannel fileChannel) {
+        this.paramsKey = paramsKey;
+        this.fileChannel = fileChannel;
+    }
+
+    public FileUploadWithChannelPo(String fileName, String paramsKey, FileChannel fileChannel) {
+        this.fileName = fileName;
+        this.paramsKey = paramsKey;
+        this.fileChannel = fileChannel;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getParamsKey() {
+        return paramsKey;
+    }
+
+    public void setParamsKey(String paramsKey) {
+        this.paramsKey = paramsKey;
+    }
+
+    public FileChannel getFileChannel() {
+        return fileChannel;
+    }
+
+    public void setFileChannel(FileChannel fileChannel) {
+        this.fileChannel = fileChannel;
+    }
+
+    public ContentType getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(ContentType contentType) {
+        this.contentType = contentType;
+    }
+}
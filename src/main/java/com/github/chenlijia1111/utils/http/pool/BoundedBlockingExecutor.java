@@ -0,0 +1,111 @@
+package com.github.chenlijia1111.utils.http.pool;
+
+import com.github.chenlijia1111.utils.common.AssertUtil;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 有界的阻塞请求线程池
+ *
+ * 请求仍然是 httpclient 的阻塞调用，只是放到后台线程中执行，每个执行中的请求占用一个线程直到响应返回，
+ * 并不是非阻塞 IO，能同时执行的请求数量受线程数限制，不适合大量长时间挂起的连接，
+ * 这种情况请使用非阻塞的 {@link HttpAsyncClientPool}
+ *
+ * 同时执行的请求数量不超过最大并发数，多出来的请求排队，
+ * 排队也满了之后新的请求直接失败，返回的 future 以 {@link RejectedExecutionException} 结束，
+ * 调用方可以据此降级或者稍后重试，不会因为下游变慢导致请求无限堆积
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class BoundedBlockingExecutor {
+
+    /**
+     * 线程编号
+     */
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+    private final ThreadPoolExecutor executor;
+
+
+    /**
+     * 构造函数
+     *
+     * @param maxConcurrency 最大并发数
+     * @param queueCapacity  最大排队数量 0 表示不排队
+     */
+    public BoundedBlockingExecutor(int maxConcurrency, int queueCapacity) {
+        AssertUtil.isTrue(maxConcurrency > 0, "最大并发数必须大于0");
+        AssertUtil.isTrue(queueCapacity >= 0, "排队数量不能小于0");
+        BlockingQueue<Runnable> queue = queueCapacity > 0 ? new ArrayBlockingQueue<>(queueCapacity) : new SynchronousQueue<>();
+        executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60L, TimeUnit.SECONDS, queue, r -> {
+            Thread thread = new Thread(r, "http-blocking-" + THREAD_NUMBER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        //空闲的线程也会被回收
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 提交异步请求
+     *
+     * @param request 执行请求 抛出的异常会让 future 以异常结束
+     * @param <T>
+     * @return 排队满了返回以 {@link RejectedExecutionException} 结束的 future
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> request) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                //提交之后被调用方取消的不再执行
+                if (future.isDone()) {
+                    return;
+                }
+                try {
+                    future.complete(request.get());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * 正在执行的请求数量
+     *
+     * @return
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * 排队中的请求数量
+     *
+     * @return
+     */
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * 关闭
+     * 已经提交的请求会继续执行完
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+}
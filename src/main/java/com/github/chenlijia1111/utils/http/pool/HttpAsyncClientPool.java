@@ -0,0 +1,263 @@
+package com.github.chenlijia1111.utils.http.pool;
+
+import com.github.chenlijia1111.utils.common.AssertUtil;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.util.EntityUtils;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 非阻塞的异步请求连接池
+ *
+ * 基于 {@link CloseableHttpAsyncClient}，少量 IO 线程通过 NIO 同时处理所有连接，
+ * 等待响应期间不占用任何线程，发出请求的线程立即返回 future
+ *
+ * 同时使用的连接数不超过 {@link HttpClientPoolConfig#getAsyncMaxConcurrency()}，
+ * 等待连接的请求不超过 {@link HttpClientPoolConfig#getAsyncQueueCapacity()}，
+ * 再多的请求直接以 {@link RejectedExecutionException} 失败，不会因为下游变慢导致请求无限堆积
+ *
+ * 响应体读完之后才完成 future，适合普通的接口调用，大文件下载与上传请使用阻塞的请求
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class HttpAsyncClientPool {
+
+    /**
+     * 线程编号
+     */
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+    /**
+     * 连接池配置
+     */
+    private final HttpClientPoolConfig config;
+
+    /**
+     * 连接管理
+     */
+    private final PoolingNHttpClientConnectionManager connectionManager;
+
+    /**
+     * 共享的异步请求工具
+     */
+    private final CloseableHttpAsyncClient httpAsyncClient;
+
+    /**
+     * 执行中与排队中的请求数量上限
+     */
+    private final Semaphore permits;
+
+    /**
+     * 是否已关闭
+     */
+    private volatile boolean closed;
+
+
+    /**
+     * 构造函数
+     *
+     * @param config             连接池配置
+     * @param sslContext         https 使用的证书 为空时使用默认的
+     * @param supportedProtocols https 允许的协议 为空时使用默认的
+     * @param hostnameVerifier   主机名校验 为空时使用默认的
+     */
+    public HttpAsyncClientPool(HttpClientPoolConfig config, SSLContext sslContext, String[] supportedProtocols, HostnameVerifier hostnameVerifier) {
+        AssertUtil.notNull(config, "连接池配置不能为空");
+        this.config = config;
+
+        SchemeIOSessionStrategy sslStrategy = Objects.nonNull(sslContext) ?
+                new SSLIOSessionStrategy(sslContext, supportedProtocols, null,
+                        Objects.nonNull(hostnameVerifier) ? hostnameVerifier : SSLIOSessionStrategy.getDefaultHostnameVerifier()) :
+                SSLIOSessionStrategy.getDefaultStrategy();
+        Registry<SchemeIOSessionStrategy> registry = RegistryBuilder.<SchemeIOSessionStrategy>create()
+                .register("http", NoopIOSessionStrategy.INSTANCE)
+                .register("https", sslStrategy)
+                .build();
+
+        IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+                .setConnectTimeout(config.getConnectTimeout())
+                .setSoTimeout(config.getSocketTimeout())
+                .build();
+        DefaultConnectingIOReactor ioReactor;
+        try {
+            ioReactor = new DefaultConnectingIOReactor(ioReactorConfig, r -> {
+                Thread thread = new Thread(r, "http-async-io-" + THREAD_NUMBER.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        } catch (IOReactorException e) {
+            throw new UncheckedIOException("创建异步连接池失败", e);
+        }
+
+        int maxConcurrency = config.getAsyncMaxConcurrency();
+        connectionManager = new PoolingNHttpClientConnectionManager(ioReactor, registry);
+        connectionManager.setMaxTotal(Math.min(config.getMaxTotal(), maxConcurrency));
+        connectionManager.setDefaultMaxPerRoute(Math.min(config.getDefaultMaxPerRoute(), maxConcurrency));
+        for (Map.Entry<String, Integer> entry : config.getMaxPerRouteMap().entrySet()) {
+            connectionManager.setMaxPerRoute(HttpClientPool.toRoute(entry.getKey()), Math.min(entry.getValue(), maxConcurrency));
+        }
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(config.getConnectTimeout())
+                .setSocketTimeout(config.getSocketTimeout())
+                .setConnectionRequestTimeout(config.getConnectionRequestTimeout())
+                .build();
+        httpAsyncClient = HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(HttpClientPool.keepAliveStrategy(config.getKeepAliveTime()))
+                .build();
+        httpAsyncClient.start();
+
+        permits = new Semaphore(maxConcurrency + config.getAsyncQueueCapacity());
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param config 连接池配置
+     */
+    public HttpAsyncClientPool(HttpClientPoolConfig config) {
+        this(config, null, null, null);
+    }
+
+    /**
+     * 发出请求
+     * 立即返回，不等待连接与响应
+     *
+     * 取消返回的 future 会取消请求
+     *
+     * @param request 请求
+     * @return 响应体已经读到内存中，关闭响应不会再占用连接；
+     * 请求失败时以 {@link IOException} 结束，排队满了以 {@link RejectedExecutionException} 结束
+     */
+    public CompletableFuture<CloseableHttpResponse> execute(HttpUriRequest request) {
+        CompletableFuture<CloseableHttpResponse> future = new CompletableFuture<>();
+        if (closed) {
+            future.completeExceptionally(new RejectedExecutionException("异步连接池已关闭"));
+            return future;
+        }
+        if (!permits.tryAcquire()) {
+            future.completeExceptionally(new RejectedExecutionException("异步请求排队已满"));
+            return future;
+        }
+        Future<HttpResponse> requestFuture = httpAsyncClient.execute(request, new FutureCallback<HttpResponse>() {
+            @Override
+            public void completed(HttpResponse result) {
+                permits.release();
+                future.complete(new BufferedHttpResponse(result));
+            }
+
+            @Override
+            public void failed(Exception e) {
+                permits.release();
+                future.completeExceptionally(e instanceof IOException ? e : new IOException(e.getMessage(), e));
+            }
+
+            @Override
+            public void cancelled() {
+                permits.release();
+                future.cancel(false);
+            }
+        });
+        //调用方取消时取消请求
+        future.whenComplete((response, e) -> {
+            if (future.isCancelled()) {
+                requestFuture.cancel(true);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 连接池整体统计
+     * leased 正在使用的连接数 available 空闲可复用的连接数 pending 等待获取连接的请求数 max 最大连接数
+     *
+     * @return
+     */
+    public PoolStats getTotalStats() {
+        return connectionManager.getTotalStats();
+    }
+
+    public HttpClientPoolConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * 关闭过期以及空闲太久的连接
+     */
+    public void evict() {
+        connectionManager.closeExpiredConnections();
+        connectionManager.closeIdleConnections(config.getMaxIdleTime(), TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * 关闭连接池
+     * 正在执行的请求会失败，确认没有请求在执行之后再调用
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            httpAsyncClient.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+
+    /**
+     * 响应体已经读到内存中的响应
+     * 异步请求读完响应才回调，连接已经放回连接池，关闭时只需要释放响应体
+     */
+    private static class BufferedHttpResponse extends BasicHttpResponse implements CloseableHttpResponse {
+
+        private BufferedHttpResponse(HttpResponse response) {
+            super(response.getStatusLine());
+            setHeaders(response.getAllHeaders());
+            setEntity(response.getEntity());
+            setLocale(response.getLocale());
+        }
+
+        @Override
+        public void close() throws IOException {
+            EntityUtils.consume(getEntity());
+        }
+    }
+
+}
@@ -0,0 +1,382 @@
+package com.github.chenlijia1111.utils.http.pool;
+
+import com.github.chenlijia1111.utils.common.AssertUtil;
+import org.apache.http.HeaderElement;
+import org.apache.http.HttpHost;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicHeaderElementIterator;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HTTP;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 共享连接池的 HttpClient
+ *
+ * 每次请求都新建 HttpClient 的话，每次都要重新建立 tcp 连接以及 tls 握手，高并发时还会产生大量 TIME_WAIT 的连接
+ * 这里同一个配置只创建一个 HttpClient，所有请求共用一个连接池，请求结束之后连接放回连接池给下一个请求复用
+ *
+ * 所有连接池共用一个后台线程定时关闭过期以及空闲太久的连接
+ *
+ * 异步请求使用同一份配置与证书的 {@link HttpAsyncClientPool}，第一次异步请求时才创建
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class HttpClientPool {
+
+    /**
+     * 定时清理空闲连接的间隔 毫秒
+     */
+    private static final long EVICT_INTERVAL = 5000L;
+
+    /**
+     * 所有还没关闭的连接池
+     */
+    private static final Set<HttpClientPool> POOL_SET = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 清理空闲连接的线程
+     */
+    private static volatile ScheduledExecutorService evictExecutor;
+
+    /**
+     * 连接池配置
+     */
+    private final HttpClientPoolConfig config;
+
+    /**
+     * 连接管理
+     */
+    private final PoolingHttpClientConnectionManager connectionManager;
+
+    /**
+     * 共享的请求工具
+     */
+    private final CloseableHttpClient httpClient;
+
+    /**
+     * https 使用的证书 为空时使用默认的
+     */
+    private final SSLContext sslContext;
+
+    /**
+     * https 允许的协议 为空时使用默认的
+     */
+    private final String[] supportedProtocols;
+
+    /**
+     * 主机名校验 为空时使用默认的
+     */
+    private final HostnameVerifier hostnameVerifier;
+
+    /**
+     * 异步请求的连接池
+     */
+    private volatile HttpAsyncClientPool asyncPool;
+
+    /**
+     * 是否已关闭
+     */
+    private volatile boolean closed;
+
+
+    /**
+     * 构造函数
+     *
+     * @param config           连接池配置
+     * @param sslSocketFactory https 连接工厂 为空时使用默认的
+     */
+    public HttpClientPool(HttpClientPoolConfig config, SSLConnectionSocketFactory sslSocketFactory) {
+        this(config, sslSocketFactory, null, null, null);
+    }
+
+    /**
+     * 构造函数
+     * 阻塞请求与异步请求使用同一个证书
+     *
+     * @param config             连接池配置
+     * @param sslContext         https 使用的证书 为空时使用默认的
+     * @param supportedProtocols https 允许的协议 如 TLSv1 为空时使用默认的
+     * @param hostnameVerifier   主机名校验 为空时使用默认的
+     */
+    public HttpClientPool(HttpClientPoolConfig config, SSLContext sslContext, String[] supportedProtocols, HostnameVerifier hostnameVerifier) {
+        this(config, Objects.nonNull(sslContext) ? new SSLConnectionSocketFactory(sslContext, supportedProtocols, null,
+                        Objects.nonNull(hostnameVerifier) ? hostnameVerifier : SSLConnectionSocketFactory.getDefaultHostnameVerifier()) : null,
+                sslContext, supportedProtocols, hostnameVerifier);
+    }
+
+    private HttpClientPool(HttpClientPoolConfig config, SSLConnectionSocketFactory sslSocketFactory,
+                           SSLContext sslContext, String[] supportedProtocols, HostnameVerifier hostnameVerifier) {
+        AssertUtil.notNull(config, "连接池配置不能为空");
+        this.config = config;
+        this.sslContext = sslContext;
+        this.supportedProtocols = supportedProtocols;
+        this.hostnameVerifier = hostnameVerifier;
+
+        Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", Objects.nonNull(sslSocketFactory) ? sslSocketFactory : SSLConnectionSocketFactory.getSocketFactory())
+                .build();
+        connectionManager = new PoolingHttpClientConnectionManager(registry);
+        connectionManager.setMaxTotal(config.getMaxTotal());
+        connectionManager.setDefaultMaxPerRoute(config.getDefaultMaxPerRoute());
+        connectionManager.setValidateAfterInactivity(config.getValidateAfterInactivity());
+        for (Map.Entry<String, Integer> entry : config.getMaxPerRouteMap().entrySet()) {
+            connectionManager.setMaxPerRoute(toRoute(entry.getKey()), entry.getValue());
+        }
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(config.getConnectTimeout())
+                .setSocketTimeout(config.getSocketTimeout())
+                .setConnectionRequestTimeout(config.getConnectionRequestTimeout())
+                .build();
+
+        HttpClientBuilder httpClientBuilder = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy(config.getKeepAliveTime()));
+        if (!config.isContentCompression()) {
+            httpClientBuilder.disableContentCompression();
+        }
+        httpClient = httpClientBuilder.build();
+
+        POOL_SET.add(this);
+        startEvictExecutor();
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param config 连接池配置
+     */
+    public HttpClientPool(HttpClientPoolConfig config) {
+        this(config, (SSLConnectionSocketFactory) null);
+    }
+
+    /**
+     * 优先使用服务端返回的 Keep-Alive: timeout=xx，没有返回时使用默认的保持时间
+     *
+     * @param defaultKeepAliveTime 默认保持时间 毫秒
+     * @return
+     */
+    static ConnectionKeepAliveStrategy keepAliveStrategy(long defaultKeepAliveTime) {
+        return (response, context) -> {
+            BasicHeaderElementIterator iterator = new BasicHeaderElementIterator(response.headerIterator(HTTP.CONN_KEEP_ALIVE));
+            while (iterator.hasNext()) {
+                HeaderElement headerElement = iterator.nextElement();
+                String value = headerElement.getValue();
+                if (Objects.nonNull(value) && "timeout".equalsIgnoreCase(headerElement.getName())) {
+                    try {
+                        return Math.min(Long.parseLong(value) * 1000, defaultKeepAliveTime);
+                    } catch (NumberFormatException e) {
+                        //格式不对使用默认值
+                    }
+                }
+            }
+            return defaultKeepAliveTime;
+        };
+    }
+
+    /**
+     * 把地址转为连接池的路由
+     *
+     * @param url 如 https://api.weixin.qq.com
+     * @return
+     */
+    static HttpRoute toRoute(String url) {
+        URI uri = URI.create(url);
+        AssertUtil.hasText(uri.getHost(), "地址格式不正确");
+        boolean secure = "https".equalsIgnoreCase(uri.getScheme());
+        int port = uri.getPort() > 0 ? uri.getPort() : (secure ? 443 : 80);
+        return new HttpRoute(new HttpHost(uri.getHost(), port, uri.getScheme()), null, secure);
+    }
+
+    /**
+     * 启动清理空闲连接的线程
+     */
+    private static void startEvictExecutor() {
+        if (null == evictExecutor) {
+            synchronized (HttpClientPool.class) {
+                if (null == evictExecutor) {
+                    ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                        Thread thread = new Thread(r, "http-idle-evictor");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    executor.scheduleWithFixedDelay(HttpClientPool::evictAll, EVICT_INTERVAL, EVICT_INTERVAL, TimeUnit.MILLISECONDS);
+                    evictExecutor = executor;
+                }
+            }
+        }
+    }
+
+    /**
+     * 清理所有连接池的过期以及空闲连接
+     */
+    private static void evictAll() {
+        for (HttpClientPool pool : POOL_SET) {
+            try {
+                pool.evict();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * 关闭过期以及空闲太久的连接
+     */
+    public void evict() {
+        connectionManager.closeExpiredConnections();
+        connectionManager.closeIdleConnections(config.getMaxIdleTime(), TimeUnit.MILLISECONDS);
+        HttpAsyncClientPool currentAsyncPool = asyncPool;
+        if (Objects.nonNull(currentAsyncPool)) {
+            currentAsyncPool.evict();
+        }
+    }
+
+    /**
+     * 共享的请求工具
+     * 不要关闭它，请求结束之后关闭响应就会把连接放回连接池
+     *
+     * @return
+     */
+    public CloseableHttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    /**
+     * 异步请求的连接池
+     * 第一次调用时创建，和阻塞请求使用同一份配置与证书
+     *
+     * @return
+     */
+    public HttpAsyncClientPool getAsyncPool() {
+        if (null == asyncPool) {
+            synchronized (this) {
+                if (null == asyncPool) {
+                    AssertUtil.isTrue(!closed, "连接池已关闭");
+                    asyncPool = new HttpAsyncClientPool(config, sslContext, supportedProtocols, hostnameVerifier);
+                }
+            }
+        }
+        return asyncPool;
+    }
+
+    public HttpClientPoolConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * 连接池整体统计
+     * leased 正在使用的连接数 available 空闲可复用的连接数 pending 等待获取连接的请求数 max 最大连接数
+     *
+     * @return
+     */
+    public PoolStats getTotalStats() {
+        return connectionManager.getTotalStats();
+    }
+
+    /**
+     * 每个地址的连接统计
+     *
+     * @return key 为 scheme://host:port
+     */
+    public Map<String, PoolStats> getRouteStats() {
+        Map<String, PoolStats> map = new HashMap<>();
+        for (HttpRoute route : connectionManager.getRoutes()) {
+            map.put(route.getTargetHost().toURI(), connectionManager.getStats(route));
+        }
+        return map;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * 等正在执行的请求结束之后再关闭连接池
+     * 最多等待一个读取超时的时间
+     */
+    public void closeLater() {
+        if (closed) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            long deadline = System.currentTimeMillis() + config.getSocketTimeout();
+            try {
+                while (isBusy() && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(100L);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            close();
+        }, "http-pool-closer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 是否还有请求在执行
+     *
+     * @return
+     */
+    private boolean isBusy() {
+        if (getTotalStats().getLeased() > 0) {
+            return true;
+        }
+        HttpAsyncClientPool currentAsyncPool = asyncPool;
+        if (Objects.isNull(currentAsyncPool)) {
+            return false;
+        }
+        PoolStats asyncStats = currentAsyncPool.getTotalStats();
+        return asyncStats.getLeased() > 0 || asyncStats.getPending() > 0;
+    }
+
+    /**
+     * 关闭连接池
+     * 正在使用的连接也会被关闭，确认没有请求在执行之后再调用
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        POOL_SET.remove(this);
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        synchronized (this) {
+            if (Objects.nonNull(asyncPool)) {
+                asyncPool.close();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,213 @@
+package com.github.chenlijia1111.utils.http.pool;
+
+import com.github.chenlijia1111.utils.common.AssertUtil;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 连接池配置
+ *
+ * {@code
+ *     HttpClientUtils.configurePool(new HttpClientPoolConfig()
+ *             .setMaxTotal(400)
+ *             .setDefaultMaxPerRoute(50)
+ *             .putMaxPerRoute("https://api.mch.weixin.qq.com", 100)
+ *             .setSocketTimeout(30000));
+ * }
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class HttpClientPoolConfig {
+
+    /**
+     * 最大连接数
+     */
+    private int maxTotal = 200;
+
+    /**
+     * 每个地址默认的最大连接数
+     */
+    private int defaultMaxPerRoute = 20;
+
+    /**
+     * 指定地址的最大连接数
+     * key 为 scheme://host:port
+     */
+    private Map<String, Integer> maxPerRouteMap = new HashMap<>();
+
+    /**
+     * 建立连接超时时间 毫秒
+     */
+    private int connectTimeout = 10000;
+
+    /**
+     * 读取数据超时时间 毫秒
+     */
+    private int socketTimeout = 60000;
+
+    /**
+     * 从连接池获取连接的超时时间 毫秒
+     * 连接池满了之后等待这么久还拿不到连接就失败，防止请求无限堆积
+     */
+    private int connectionRequestTimeout = 10000;
+
+    /**
+     * 服务端没有返回 Keep-Alive 时连接保持的时间 毫秒
+     * 很多服务端会主动关闭空闲连接，不限制的话复用到被关闭的连接会请求失败
+     */
+    private long keepAliveTime = TimeUnit.SECONDS.toMillis(30);
+
+    /**
+     * 空闲超过这个时间的连接会被后台线程关闭 毫秒
+     */
+    private long maxIdleTime = TimeUnit.SECONDS.toMillis(60);
+
+    /**
+     * 连接空闲超过这个时间之后，复用之前先检查一下是否可用 毫秒
+     */
+    private int validateAfterInactivity = 2000;
+
+    /**
+     * 是否自动解压响应
+     * 开启时请求头带上 Accept-Encoding: gzip,deflate，响应按 Content-Encoding 自动解压
+     */
+    private boolean contentCompression = true;
+
+    /**
+     * 异步请求同时使用的最大连接数
+     * 异步请求通过 NIO 处理，不占用线程，连接数同时也受 maxTotal 与每个地址的最大连接数限制
+     */
+    private int asyncMaxConcurrency = 20;
+
+    /**
+     * 异步请求等待连接的最大数量
+     * 超出之后新的异步请求直接失败，防止请求无限堆积
+     */
+    private int asyncQueueCapacity = 1000;
+
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    public HttpClientPoolConfig setMaxTotal(int maxTotal) {
+        AssertUtil.isTrue(maxTotal > 0, "最大连接数必须大于0");
+        this.maxTotal = maxTotal;
+        return this;
+    }
+
+    public int getDefaultMaxPerRoute() {
+        return defaultMaxPerRoute;
+    }
+
+    public HttpClientPoolConfig setDefaultMaxPerRoute(int defaultMaxPerRoute) {
+        AssertUtil.isTrue(defaultMaxPerRoute > 0, "最大连接数必须大于0");
+        this.defaultMaxPerRoute = defaultMaxPerRoute;
+        return this;
+    }
+
+    public Map<String, Integer> getMaxPerRouteMap() {
+        return maxPerRouteMap;
+    }
+
+    /**
+     * 设置指定地址的最大连接数
+     *
+     * @param url         请求地址，只取 scheme host port 如 https://api.weixin.qq.com
+     * @param maxPerRoute 最大连接数
+     * @return
+     */
+    public HttpClientPoolConfig putMaxPerRoute(String url, int maxPerRoute) {
+        AssertUtil.hasText(url, "地址不能为空");
+        AssertUtil.isTrue(maxPerRoute > 0, "最大连接数必须大于0");
+        this.maxPerRouteMap.put(url, maxPerRoute);
+        return this;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public HttpClientPoolConfig setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+        return this;
+    }
+
+    public int getSocketTimeout() {
+        return socketTimeout;
+    }
+
+    public HttpClientPoolConfig setSocketTimeout(int socketTimeout) {
+        this.socketTimeout = socketTimeout;
+        return this;
+    }
+
+    public int getConnectionRequestTimeout() {
+        return connectionRequestTimeout;
+    }
+
+    public HttpClientPoolConfig setConnectionRequestTimeout(int connectionRequestTimeout) {
+        this.connectionRequestTimeout = connectionRequestTimeout;
+        return this;
+    }
+
+    public long getKeepAliveTime() {
+        return keepAliveTime;
+    }
+
+    public HttpClientPoolConfig setKeepAliveTime(long keepAliveTime) {
+        AssertUtil.isTrue(keepAliveTime > 0, "连接保持时间必须大于0");
+        this.keepAliveTime = keepAliveTime;
+        return this;
+    }
+
+    public long getMaxIdleTime() {
+        return maxIdleTime;
+    }
+
+    public HttpClientPoolConfig setMaxIdleTime(long maxIdleTime) {
+        AssertUtil.isTrue(maxIdleTime > 0, "最大空闲时间必须大于0");
+        this.maxIdleTime = maxIdleTime;
+        return this;
+    }
+
+    public int getValidateAfterInactivity() {
+        return validateAfterInactivity;
+    }
+
+    public HttpClientPoolConfig setValidateAfterInactivity(int validateAfterInactivity) {
+        this.validateAfterInactivity = validateAfterInactivity;
+        return this;
+    }
+
+    public boolean isContentCompression() {
+        return contentCompression;
+    }
+
+    public HttpClientPoolConfig setContentCompression(boolean contentCompression) {
+        this.contentCompression = contentCompression;
+        return this;
+    }
+
+    public int getAsyncMaxConcurrency() {
+        return asyncMaxConcurrency;
+    }
+
+    public HttpClientPoolConfig setAsyncMaxConcurrency(int asyncMaxConcurrency) {
+        AssertUtil.isTrue(asyncMaxConcurrency > 0, "最大并发数必须大于0");
+        this.asyncMaxConcurrency = asyncMaxConcurrency;
+        return this;
+    }
+
+    public int getAsyncQueueCapacity() {
+        return asyncQueueCapacity;
+    }
+
+    public HttpClientPoolConfig setAsyncQueueCapacity(int asyncQueueCapacity) {
+        AssertUtil.isTrue(asyncQueueCapacity >= 0, "排队数量不能小于0");
+        this.asyncQueueCapacity = asyncQueueCapacity;
+        return this;
+    }
+}
@@ -0,0 +1,266 @@
+package com.github.chenlijia1111.utils.http.pool;
+
+import com.github.chenlijia1111.utils.common.AssertUtil;
+import com.github.chenlijia1111.utils.core.cache.Cache;
+import com.github.chenlijia1111.utils.core.cache.CacheBuilder;
+import com.github.chenlijia1111.utils.encrypt.SHA256EncryptUtil;
+import org.apache.http.ssl.SSLContexts;
+
+import javax.net.ssl.SSLContext;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按证书缓存带证书的连接池
+ *
+ * 每次都重新读取证书、加载 KeyStore、创建 SSLContext 以及新的 HttpClient 要花费几十毫秒，
+ * 而且每次请求都要重新进行完整的 tls 握手
+ * 这里同一个证书只创建一次连接池，批量退款、转账时复用已经建立好的连接以及 tls 会话
+ *
+ * 缓存的 key 是证书内容与密码的摘要，密码只保存加盐之后的摘要，不保存明文，
+ * 证书文件通过最后修改时间与文件大小判断是否变化，
+ * 文件没有变化时不需要重新读取，变化之后重新计算摘要，旧证书的连接池在请求结束之后关闭
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class SSLHttpClientPoolRegistry {
+
+    /**
+     * 最多缓存的证书数量
+     */
+    private static final long MAXIMUM_SIZE = 64;
+
+    /**
+     * 证书摘要 -> 连接池
+     */
+    private final Cache<String, HttpClientPool> poolCache;
+
+    /**
+     * 证书文件路径 -> 文件指纹
+     */
+    private final Map<String, FileFingerprint> fingerprintMap = new ConcurrentHashMap<>();
+
+    /**
+     * 计算密码摘要的盐 每个实例随机生成
+     */
+    private final String salt;
+
+    /**
+     * 连接池配置
+     */
+    private volatile HttpClientPoolConfig config;
+
+
+    public SSLHttpClientPoolRegistry(HttpClientPoolConfig config) {
+        AssertUtil.notNull(config, "连接池配置不能为空");
+        this.config = config;
+        byte[] saltBytes = new byte[16];
+        new SecureRandom().nextBytes(saltBytes);
+        this.salt = SHA256EncryptUtil.SHA256BytesToHexString(saltBytes);
+        this.poolCache = CacheBuilder.<String, HttpClientPool>newBuilder()
+                .maximumSize(MAXIMUM_SIZE)
+                //被淘汰、替换或者删除的连接池等请求结束之后关闭
+                .removalListener((key, pool, cause) -> pool.closeLater())
+                .build();
+    }
+
+    /**
+     * 修改连接池配置
+     * 已经创建的连接池全部作废
+     *
+     * @param config
+     */
+    public void setConfig(HttpClientPoolConfig config) {
+        AssertUtil.notNull(config, "连接池配置不能为空");
+        this.config = config;
+        invalidateAll();
+    }
+
+    /**
+     * 获取证书文件对应的连接池
+     *
+     * @param sslFile  证书文件 如 apiclient_cert.p12
+     * @param password 证书密码
+     * @return
+     * @throws IOException 证书读取或者加载失败 如密码错误
+     */
+    public HttpClientPool getPool(File sslFile, String password) throws IOException {
+        AssertUtil.notNull(sslFile, "证书文件不能为空");
+        AssertUtil.notNull(password, "证书密码不能为空");
+        String path = sslFile.getAbsolutePath();
+        long lastModified = sslFile.lastModified();
+        long length = sslFile.length();
+
+        String passwordHash = passwordHash(password);
+
+        FileFingerprint fingerprint = fingerprintMap.get(path);
+        byte[] bytes = null;
+        if (Objects.isNull(fingerprint) || !fingerprint.matches(lastModified, length, passwordHash)) {
+            bytes = Files.readAllBytes(sslFile.toPath());
+            FileFingerprint newFingerprint = new FileFingerprint(lastModified, length, passwordHash, digest(bytes, passwordHash));
+            fingerprintMap.put(path, newFingerprint);
+            //证书文件变了，旧证书的连接池不再使用
+            if (Objects.nonNull(fingerprint) && !Objects.equals(fingerprint.key, newFingerprint.key)) {
+                poolCache.remove(fingerprint.key);
+            }
+            fingerprint = newFingerprint;
+        }
+
+        byte[] certBytes = bytes;
+        try {
+            return poolCache.get(fingerprint.key, key -> {
+                try {
+                    //文件没有变化但是连接池已经被淘汰，需要重新读取
+                    byte[] loadBytes = Objects.nonNull(certBytes) ? certBytes : Files.readAllBytes(sslFile.toPath());
+                    return createPool(loadBytes, password);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 获取证书输入流对应的连接池
+     * 输入流只能读取一次，需要读取全部内容计算摘要，但是不需要重新加载 KeyStore 与 SSLContext
+     *
+     * @param sslFileInputStream 证书文件输入流 如 apiclient_cert.p12
+     * @param password           证书密码
+     * @return
+     * @throws IOException 证书读取或者加载失败 如密码错误
+     */
+    public HttpClientPool getPool(InputStream sslFileInputStream, String password) throws IOException {
+        AssertUtil.notNull(sslFileInputStream, "证书文件不能为空");
+        AssertUtil.notNull(password, "证书密码不能为空");
+        byte[] bytes = readAllBytes(sslFileInputStream);
+        try {
+            return poolCache.get(digest(bytes, passwordHash(password)), key -> {
+                try {
+                    return createPool(bytes, password);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 作废所有连接池
+     */
+    public void invalidateAll() {
+        fingerprintMap.clear();
+        poolCache.removeAll();
+    }
+
+    /**
+     * 当前缓存的连接池数量
+     *
+     * @return
+     */
+    public long size() {
+        return poolCache.estimatedSize();
+    }
+
+    /**
+     * 加载证书创建连接池
+     *
+     * @param bytes    证书内容
+     * @param password 证书密码
+     * @return
+     * @throws IOException 加载失败
+     */
+    private HttpClientPool createPool(byte[] bytes, String password) throws IOException {
+        try {
+            KeyStore keyStore = KeyStore.getInstance("PKCS12");
+            keyStore.load(new ByteArrayInputStream(bytes), password.toCharArray());
+            SSLContext sslcontext = SSLContexts.custom()
+                    //忽略掉对服务器端证书的校验
+                    .loadTrustMaterial((chain, authType) -> true)
+                    .loadKeyMaterial(keyStore, password.toCharArray())
+                    .build();
+            return new HttpClientPool(config, sslcontext, new String[]{"TLSv1"}, null);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("证书加载失败", e);
+        }
+    }
+
+    /**
+     * 证书内容与密码的摘要
+     *
+     * @param bytes
+     * @param passwordHash 加盐之后的密码摘要
+     * @return
+     */
+    private static String digest(byte[] bytes, String passwordHash) {
+        return SHA256EncryptUtil.SHA256BytesToHexString(bytes) + ":" + passwordHash;
+    }
+
+    /**
+     * 加盐之后的密码摘要
+     *
+     * @param password
+     * @return
+     */
+    private String passwordHash(String password) {
+        return SHA256EncryptUtil.SHA256StringToHexString(salt + password);
+    }
+
+    private static byte[] readAllBytes(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int len;
+        while ((len = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, len);
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * 证书文件指纹
+     * 最后修改时间或者文件大小变化说明文件被替换了
+     */
+    private static class FileFingerprint {
+
+        private final long lastModified;
+
+        private final long length;
+
+        /**
+         * 加盐之后的密码摘要
+         */
+        private final String passwordHash;
+
+        /**
+         * 证书内容与密码的摘要
+         */
+        private final String key;
+
+        private FileFingerprint(long lastModified, long length, String passwordHash, String key) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.passwordHash = passwordHash;
+            this.key = key;
+        }
+
+        private boolean matches(long lastModified, long length, String passwordHash) {
+            return this.lastModified == lastModified && this.length == length && Objects.equals(this.passwordHash, passwordHash);
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.github.chenlijia1111.utils.http.push;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 一批推送的结果
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class JiGuangPushBatchResult {
+
+    /**
+     * 推送内容
+     */
+    private final JiGuangPushMessage message;
+
+    /**
+     * 这一批的推送目标
+     */
+    private final List<String> audienceIds;
+
+    /**
+     * 响应状态码 请求失败时为 -1
+     */
+    private final int statusCode;
+
+    /**
+     * 响应内容 成功时包含 msg_id 失败时包含 error
+     */
+    private final Map response;
+
+    /**
+     * 请求异常
+     */
+    private final Exception exception;
+
+    /**
+     * 耗时 毫秒
+     */
+    private final long costMillis;
+
+    public JiGuangPushBatchResult(JiGuangPushMessage message, List<String> audienceIds, int statusCode, Map response,
+                                  Exception exception, long costMillis) {
+        this.message = message;
+        this.audienceIds = audienceIds;
+        this.statusCode = statusCode;
+        this.response = response;
+        this.exception = exception;
+        this.costMillis = costMillis;
+    }
+
+    /**
+     * 是否推送成功
+     *
+     * @return
+     */
+    public boolean isSuccess() {
+        return Objects.isNull(exception) && statusCode == 200 && Objects.nonNull(response) && !response.containsKey("error");
+    }
+
+    /**
+     * 推送成功返回的消息ID
+     *
+     * @return
+     */
+    public Object getMsgId() {
+        return Objects.isNull(response) ? null : response.get("msg_id");
+    }
+
+    public JiGuangPushMessage getMessage() {
+        return message;
+    }
+
+    public List<String> getAudienceIds() {
+        return audienceIds;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public Map getResponse() {
+        return response;
+    }
+
+    public Exception getException() {
+        return exception;
+    }
+
+    public long getCostMillis() {
+        return costMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "JiGuangPushBatchResult{" +
+                "audienceSize=" + audienceIds.size() +
+                ", statusCode=" + statusCode +
+                ", response=" + response +
+                ", exception=" + exception +
+                ", costMillis=" + costMillis +
+                '}';
+    }
+}
@@ -0,0 +1,20 @@
+package com.github.chenlijia1111.utils.http.push;
+
+/**
+ * 批量推送回调
+ * 在发送线程中执行，不要做耗时操作
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+@FunctionalInterface
+public interface JiGuangPushCallback {
+
+    /**
+     * 一批推送完成 成功或者失败
+     *
+     * @param result
+     */
+    void onComplete(JiGuangPushBatchResult result);
+
+}
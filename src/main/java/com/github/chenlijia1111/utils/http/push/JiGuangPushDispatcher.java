@@ -0,0 +1,458 @@
+package com.github.chenlijia1111.utils.http.push;
+
+import com.github.chenlijia1111.utils.common.AssertUtil;
+import com.github.chenlijia1111.utils.common.constant.ContentTypeConstant;
+import com.github.chenlijia1111.utils.core.enums.CharSetType;
+import com.github.chenlijia1111.utils.http.HttpClientUtils;
+import com.github.chenlijia1111.utils.http.pool.BoundedBlockingExecutor;
+import org.apache.http.HttpResponse;
+import org.apache.http.protocol.HTTP;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 极光批量推送
+ *
+ * 推送请求先放进队列，后台线程把同一个推送内容的推送目标合并成一批（别名、注册ID 一次最多 1000 个），
+ * 凑满一批或者等待超过 {@link #setLingerMillis(long)} 就发送，多批之间通过连接池并发发送，
+ * 每一批的结果通过 {@link JiGuangPushCallback} 回调
+ *
+ * 同时发送的批数达到 {@link #setMaxConcurrency(int)} 时后台线程等待，队列满了之后 {@link #push(JiGuangPushMessage, Collection)} 返回 false，
+ * 推送接口变慢时不会无限堆积
+ *
+ * {@code
+ *     JiGuangPushDispatcher dispatcher = new JiGuangPushDispatcher(appKey, masterSecret)
+ *             .setCallback(result -> {
+ *                 if (!result.isSuccess()) {
+ *                     log.error("推送失败 {}", result);
+ *                 }
+ *             });
+ *     JiGuangPushMessage message = new JiGuangPushMessage(PushAudienceTypeEnum.ALIAS).notification(notification);
+ *     for (List<String> aliasList : campaignAliasPages) {
+ *         dispatcher.push(message, aliasList);
+ *     }
+ *     dispatcher.close();
+ * }
+ *
+ * 单条推送继续使用 {@link com.github.chenlijia1111.utils.http.JiGuangPushUtil}
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class JiGuangPushDispatcher {
+
+    //请求地址
+    private String baseUrl = "https://api.jpush.cn/v3/push";
+
+    /**
+     * 认证请求头
+     */
+    private final String authorization;
+
+    /**
+     * 同时发送的最大批数
+     */
+    private int maxConcurrency = 8;
+
+    /**
+     * 队列最多的推送请求数
+     */
+    private int queueCapacity = 10000;
+
+    /**
+     * 没凑满一批时最多等待的时间 毫秒
+     */
+    private long lingerMillis = 100;
+
+    /**
+     * 每一批的结果回调
+     */
+    private JiGuangPushCallback callback;
+
+    /**
+     * 推送请求队列
+     */
+    private BlockingQueue<PushTask> queue;
+
+    /**
+     * 限制同时发送的批数
+     */
+    private Semaphore permits;
+
+    /**
+     * 发送线程池
+     */
+    private BoundedBlockingExecutor executor;
+
+    /**
+     * 合并推送目标的后台线程
+     */
+    private Thread dispatchThread;
+
+    /**
+     * 是否在运行
+     */
+    private volatile boolean running;
+
+    /**
+     * 是否需要立即发送没凑满的批
+     */
+    private volatile boolean flushRequested;
+
+    /**
+     * 已提交还没有完成的推送目标数
+     */
+    private final AtomicLong outstanding = new AtomicLong();
+
+    /**
+     * 发送成功的批数
+     */
+    private final AtomicLong successBatchCount = new AtomicLong();
+
+    /**
+     * 发送失败的批数
+     */
+    private final AtomicLong failureBatchCount = new AtomicLong();
+
+
+    public JiGuangPushDispatcher(String appKey, String masterSecret) {
+        AssertUtil.hasText(appKey, "appKey不能为空");
+        AssertUtil.hasText(masterSecret, "masterSecret不能为空");
+        this.authorization = "Basic " + Base64.getEncoder().encodeToString((appKey + ":" + masterSecret).getBytes(Charset.forName(CharSetType.UTF8.name())));
+    }
+
+    public JiGuangPushDispatcher setBaseUrl(String baseUrl) {
+        AssertUtil.hasText(baseUrl, "请求地址不能为空");
+        checkNotStarted();
+        this.baseUrl = baseUrl;
+        return this;
+    }
+
+    public JiGuangPushDispatcher setMaxConcurrency(int maxConcurrency) {
+        AssertUtil.isTrue(maxConcurrency > 0, "并发数必须大于0");
+        checkNotStarted();
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    public JiGuangPushDispatcher setQueueCapacity(int queueCapacity) {
+        AssertUtil.isTrue(queueCapacity > 0, "队列容量必须大于0");
+        checkNotStarted();
+        this.queueCapacity = queueCapacity;
+        return this;
+    }
+
+    public JiGuangPushDispatcher setLingerMillis(long lingerMillis) {
+        AssertUtil.isTrue(lingerMillis >= 0, "等待时间不能小于0");
+        checkNotStarted();
+        this.lingerMillis = lingerMillis;
+        return this;
+    }
+
+    public JiGuangPushDispatcher setCallback(JiGuangPushCallback callback) {
+        checkNotStarted();
+        this.callback = callback;
+        return this;
+    }
+
+    private void checkNotStarted() {
+        AssertUtil.isTrue(Objects.isNull(dispatchThread), "已经开始推送，不能再修改配置");
+    }
+
+    /**
+     * 启动后台线程
+     * 第一次推送时自动启动
+     *
+     * @return
+     */
+    public synchronized JiGuangPushDispatcher start() {
+        if (Objects.isNull(dispatchThread)) {
+            queue = new ArrayBlockingQueue<>(queueCapacity);
+            permits = new Semaphore(maxConcurrency);
+            executor = new BoundedBlockingExecutor(maxConcurrency, maxConcurrency);
+            running = true;
+            dispatchThread = new Thread(this::dispatch, "jpush-dispatcher");
+            dispatchThread.setDaemon(true);
+            dispatchThread.start();
+        }
+        return this;
+    }
+
+    /**
+     * 提交推送
+     *
+     * @param message     推送内容 同一个内容对象的推送目标会合并发送
+     * @param audienceIds 推送目标 别名、注册ID或者标签，与推送内容的目标类型一致
+     * @return 队列满了或者已经关闭返回 false
+     */
+    public boolean push(JiGuangPushMessage message, Collection<String> audienceIds) {
+        AssertUtil.notNull(message, "推送内容不能为空");
+        AssertUtil.isTrue(Objects.nonNull(audienceIds) && !audienceIds.isEmpty(), "推送目标不能为空");
+        message.check();
+        if (Objects.isNull(dispatchThread)) {
+            start();
+        }
+        PushTask task = new PushTask(message, new ArrayList<>(audienceIds));
+        //与关闭互斥，关闭之后不会再有推送进入队列
+        synchronized (this) {
+            if (!running) {
+                return false;
+            }
+            outstanding.addAndGet(task.audienceIds.size());
+            if (!queue.offer(task)) {
+                complete(task.audienceIds.size());
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 立即发送没凑满的批，并等待已提交的推送全部完成
+     *
+     * @param timeout
+     * @param unit
+     * @return 超时返回 false
+     * @throws InterruptedException
+     */
+    public boolean flush(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        flushRequested = true;
+        synchronized (outstanding) {
+            while (outstanding.get() > 0) {
+                long waitMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (waitMillis <= 0) {
+                    return false;
+                }
+                outstanding.wait(waitMillis);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 关闭
+     * 不再接收新的推送，已提交的推送发送完之后返回
+     */
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            thread = dispatchThread;
+            running = false;
+        }
+        if (Objects.isNull(thread)) {
+            return;
+        }
+        try {
+            thread.join();
+            flush(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * 后台线程 合并推送目标
+     */
+    private void dispatch() {
+        //推送内容 -> 正在凑的批
+        Map<JiGuangPushMessage, PendingBatch> pendingMap = new HashMap<>();
+        while (true) {
+            try {
+                PushTask task = queue.poll(pollMillis(pendingMap), TimeUnit.MILLISECONDS);
+                while (Objects.nonNull(task)) {
+                    add(pendingMap, task);
+                    task = queue.poll();
+                }
+            } catch (InterruptedException e) {
+                //关闭时把剩下的发完
+                running = false;
+            }
+
+            boolean flushAll = flushRequested || !running;
+            if (flushRequested && queue.isEmpty()) {
+                flushRequested = false;
+            }
+            long now = System.currentTimeMillis();
+            Iterator<PendingBatch> iterator = pendingMap.values().iterator();
+            while (iterator.hasNext()) {
+                PendingBatch batch = iterator.next();
+                if (flushAll || now - batch.createTime >= lingerMillis) {
+                    iterator.remove();
+                    send(batch.message, batch.audienceIds);
+                }
+            }
+            if (!running && queue.isEmpty() && pendingMap.isEmpty()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 距离最早的批到时间还有多久
+     *
+     * @param pendingMap
+     * @return
+     */
+    private long pollMillis(Map<JiGuangPushMessage, PendingBatch> pendingMap) {
+        if (!running || flushRequested) {
+            return 0;
+        }
+        long earliest = Long.MAX_VALUE;
+        for (PendingBatch batch : pendingMap.values()) {
+            earliest = Math.min(earliest, batch.createTime);
+        }
+        if (earliest == Long.MAX_VALUE) {
+            //空闲时定期醒来检查是否关闭
+            return Math.max(lingerMillis, 100);
+        }
+        return Math.max(0, earliest + lingerMillis - System.currentTimeMillis());
+    }
+
+    /**
+     * 合并推送目标 凑满一批立即发送
+     *
+     * @param pendingMap
+     * @param task
+     */
+    private void add(Map<JiGuangPushMessage, PendingBatch> pendingMap, PushTask task) {
+        int maxBatchSize = task.message.getAudienceType().getMaxBatchSize();
+        for (String audienceId : task.audienceIds) {
+            PendingBatch batch = pendingMap.computeIfAbsent(task.message, PendingBatch::new);
+            batch.audienceIds.add(audienceId);
+            if (batch.audienceIds.size() >= maxBatchSize) {
+                pendingMap.remove(task.message);
+                send(batch.message, batch.audienceIds);
+            }
+        }
+    }
+
+    /**
+     * 发送一批
+     * 同时发送的批数达到上限时等待
+     *
+     * @param message
+     * @param audienceIds
+     */
+    private void send(JiGuangPushMessage message, List<String> audienceIds) {
+        permits.acquireUninterruptibly();
+        executor.submit(() -> doSend(message, audienceIds)).whenComplete((result, e) -> {
+            permits.release();
+            if (Objects.isNull(result)) {
+                //发送线程池拒绝
+                result = new JiGuangPushBatchResult(message, audienceIds, -1, null,
+                        e instanceof Exception ? (Exception) e : new RuntimeException(e), 0);
+            }
+            if (result.isSuccess()) {
+                successBatchCount.incrementAndGet();
+            } else {
+                failureBatchCount.incrementAndGet();
+            }
+            if (Objects.nonNull(callback)) {
+                try {
+                    callback.onComplete(result);
+                } catch (Exception callbackException) {
+                    callbackException.printStackTrace();
+                }
+            }
+            complete(audienceIds.size());
+        });
+    }
+
+    /**
+     * 发送请求
+     *
+     * @param message
+     * @param audienceIds
+     * @return
+     */
+    private JiGuangPushBatchResult doSend(JiGuangPushMessage message, List<String> audienceIds) {
+        long startTime = System.currentTimeMillis();
+        HttpClientUtils httpClientUtils = HttpClientUtils.getInstance()
+                .putParams(message.getParams())
+                .putParams("audience", Collections.singletonMap(message.getAudienceType().getName(), audienceIds))
+                .putHeader("Authorization", authorization)
+                .putHeader(HTTP.CONTENT_TYPE, ContentTypeConstant.APPLICATION_JSON)
+                .doPost(baseUrl);
+        HttpResponse response = httpClientUtils.toResponse();
+        if (Objects.isNull(response)) {
+            return new JiGuangPushBatchResult(message, audienceIds, -1, null, httpClientUtils.getException(),
+                    System.currentTimeMillis() - startTime);
+        }
+        int statusCode = response.getStatusLine().getStatusCode();
+        Map map = httpClientUtils.toMap();
+        return new JiGuangPushBatchResult(message, audienceIds, statusCode, map, null, System.currentTimeMillis() - startTime);
+    }
+
+    private void complete(int count) {
+        if (outstanding.addAndGet(-count) == 0) {
+            synchronized (outstanding) {
+                outstanding.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 已提交还没有完成的推送目标数
+     *
+     * @return
+     */
+    public long getOutstandingCount() {
+        return outstanding.get();
+    }
+
+    public long getSuccessBatchCount() {
+        return successBatchCount.get();
+    }
+
+    public long getFailureBatchCount() {
+        return failureBatchCount.get();
+    }
+
+    /**
+     * 推送请求
+     */
+    private static class PushTask {
+
+        private final JiGuangPushMessage message;
+
+        private final List<String> audienceIds;
+
+        private PushTask(JiGuangPushMessage message, List<String> audienceIds) {
+            this.message = message;
+            this.audienceIds = audienceIds;
+        }
+    }
+
+    /**
+     * 正在凑的一批
+     */
+    private static class PendingBatch {
+
+        private final JiGuangPushMessage message;
+
+        private final List<String> audienceIds = new ArrayList<>();
+
+        private final long createTime = System.currentTimeMillis();
+
+        private PendingBatch(JiGuangPushMessage message) {
+            this.message = message;
+        }
+    }
+
+}
@@ -0,0 +1,109 @@
+package com.github.chenlijia1111.utils.http.push;
+
+import com.github.chenlijia1111.utils.common.AssertUtil;
+import com.github.chenlijia1111.utils.list.Lists;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 批量推送的内容
+ * 除了推送目标以外的参数，参数含义与 {@link com.github.chenlijia1111.utils.http.JiGuangPushUtil} 一致
+ *
+ * 同一个内容对象提交的推送目标会被合并到同一批请求里，所以同一次活动应该复用一个内容对象，
+ * 内容对象提交之后不要再修改
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class JiGuangPushMessage {
+
+    /**
+     * 推送目标类型
+     */
+    private final PushAudienceTypeEnum audienceType;
+
+    /**
+     * 除了推送目标以外的请求参数
+     */
+    private final Map<String, Object> params = new HashMap<>();
+
+    public JiGuangPushMessage(PushAudienceTypeEnum audienceType) {
+        AssertUtil.notNull(audienceType, "推送目标类型不能为空");
+        this.audienceType = audienceType;
+        this.params.put("platform", "all");
+    }
+
+    /**
+     * 设置推送平台 默认 all
+     *
+     * @param platform
+     * @return
+     */
+    public JiGuangPushMessage platform(String... platform) {
+        List<String> allowPlatFormList = Lists.asList("all", "android", "ios", "winphone");
+        AssertUtil.isTrue(null != platform && platform.length > 0 &&
+                Lists.asList(platform).stream().allMatch(allowPlatFormList::contains), "推送平台不合法");
+
+        List<String> platformList = Lists.asList(platform);
+        params.put("platform", platformList.contains("all") ? "all" : platformList);
+        return this;
+    }
+
+    /**
+     * 通知
+     *
+     * @param notification
+     * @return
+     */
+    public JiGuangPushMessage notification(Object notification) {
+        if (Objects.nonNull(notification)) {
+            params.put("notification", notification);
+        }
+        return this;
+    }
+
+    /**
+     * 自定义消息
+     *
+     * @param message
+     * @return
+     */
+    public JiGuangPushMessage message(Object message) {
+        if (Objects.nonNull(message)) {
+            params.put("message", message);
+        }
+        return this;
+    }
+
+    /**
+     * 可选参数
+     *
+     * @param options
+     * @return
+     */
+    public JiGuangPushMessage options(Object options) {
+        if (Objects.nonNull(options)) {
+            params.put("options", options);
+        }
+        return this;
+    }
+
+    public PushAudienceTypeEnum getAudienceType() {
+        return audienceType;
+    }
+
+    public Map<String, Object> getParams() {
+        return params;
+    }
+
+    /**
+     * 校验必填参数
+     */
+    void check() {
+        AssertUtil.isTrue(Objects.nonNull(params.get("notification")) || Objects.nonNull(params.get("message")),
+                "通知内容体 与 消息内容体 二选一必须有一个");
+    }
+}
@@ -0,0 +1,52 @@
+package com.github.chenlijia1111.utils.http.push;
+
+/**
+ * 批量推送的目标类型
+ * 只包含多个值之间是"或"关系的类型，这样不同的推送目标才能合并到同一个请求里
+ *
+ * 文档 http://docs.jiguang.cn/jpush/server/push/rest_api_v3_push/#audience
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public enum PushAudienceTypeEnum {
+
+    /**
+     * 别名 一次最多 1000 个
+     */
+    ALIAS("alias", 1000),
+
+    /**
+     * 注册ID 一次最多 1000 个
+     */
+    REGISTRATION_ID("registration_id", 1000),
+
+    /**
+     * 标签 一次最多 20 个
+     */
+    TAG("tag", 20),
+    ;
+
+    /**
+     * 请求参数里的名称
+     */
+    private final String name;
+
+    /**
+     * 一次请求最多的数量
+     */
+    private final int maxBatchSize;
+
+    PushAudienceTypeEnum(String name, int maxBatchSize) {
+        this.name = name;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+}
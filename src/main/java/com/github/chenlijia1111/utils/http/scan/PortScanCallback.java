@@ -0,0 +1,22 @@
+package com.github.chenlijia1111.utils.http.scan;
+
+/**
+ * 端口扫描结果回调
+ * 每个端口扫描完成之后立即回调，不用等全部扫描完
+ *
+ * 回调在扫描线程中执行，耗时的处理会拖慢扫描，应该放到其他线程中处理
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+@FunctionalInterface
+public interface PortScanCallback {
+
+    /**
+     * 一个端口扫描完成
+     *
+     * @param result 扫描结果
+     */
+    void onResult(PortScanResult result);
+
+}
@@ -0,0 +1,83 @@
+package com.github.chenlijia1111.utils.http.scan;
+
+/**
+ * 端口扫描结果
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class PortScanResult {
+
+    /**
+     * 主机
+     */
+    private final String host;
+
+    /**
+     * 端口
+     */
+    private final int port;
+
+    /**
+     * 端口状态
+     */
+    private final PortStateEnum state;
+
+    /**
+     * 连接耗时 毫秒
+     */
+    private final long costMillis;
+
+    /**
+     * 出错信息 只有 {@link PortStateEnum#ERROR} 时有值
+     */
+    private final String errorMessage;
+
+    public PortScanResult(String host, int port, PortStateEnum state, long costMillis, String errorMessage) {
+        this.host = host;
+        this.port = port;
+        this.state = state;
+        this.costMillis = costMillis;
+        this.errorMessage = errorMessage;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public PortStateEnum getState() {
+        return state;
+    }
+
+    public long getCostMillis() {
+        return costMillis;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    /**
+     * 端口是否开启
+     *
+     * @return
+     */
+    public boolean isOpen() {
+        return PortStateEnum.OPEN == state;
+    }
+
+    @Override
+    public String toString() {
+        return "PortScanResult{" +
+                "host='" + host + '\'' +
+                ", port=" + port +
+                ", state=" + state +
+                ", costMillis=" + costMillis +
+                (null != errorMessage ? ", errorMessage='" + errorMessage + '\'' : "") +
+                '}';
+    }
+}
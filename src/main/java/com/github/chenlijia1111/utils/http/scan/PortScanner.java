@@ -0,0 +1,356 @@
+package com.github.chenlijia1111.utils.http.scan;
+
+import com.github.chenlijia1111.utils.common.AssertUtil;
+import com.github.chenlijia1111.utils.list.Lists;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 非阻塞端口扫描
+ *
+ * 一个线程通过 {@link Selector} 同时发起多个非阻塞连接，
+ * 同时进行中的连接数不超过并发数，一个连接完成之后马上发起下一个，
+ * 每个连接单独计算超时，扫描耗时大约是 端口数 / 并发数 * 单个连接耗时
+ *
+ * 每个端口扫描完成之后立即通过 {@link PortScanCallback} 回调结果
+ * 扫描线程被中断时停止扫描，已经发起的连接全部关闭
+ *
+ * 并发数注意不要超过系统允许打开的文件句柄数，
+ * 扫描别人的主机时并发太大容易被当成攻击，只扫描自己有权限的主机
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class PortScanner {
+
+    /**
+     * 同时进行中的连接数
+     */
+    private int concurrency = 256;
+
+    /**
+     * 单个连接超时时间 毫秒
+     */
+    private long connectTimeoutMillis = 1000;
+
+
+    /**
+     * 设置同时进行中的连接数
+     * 默认 256
+     *
+     * @param concurrency
+     * @return
+     */
+    public PortScanner setConcurrency(int concurrency) {
+        AssertUtil.isTrue(concurrency > 0, "并发数必须大于0");
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    /**
+     * 设置单个连接超时时间
+     * 默认 1000 毫秒
+     *
+     * @param connectTimeoutMillis 毫秒
+     * @return
+     */
+    public PortScanner setConnectTimeoutMillis(long connectTimeoutMillis) {
+        AssertUtil.isTrue(connectTimeoutMillis > 0, "超时时间必须大于0");
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        return this;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public long getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    /**
+     * 扫描端口
+     * 扫描完成或者线程被中断之后返回
+     *
+     * @param hostList 主机集合 ip 或者域名
+     * @param portList 端口集合
+     * @param callback 每个端口的扫描结果
+     * @throws IOException 打开 Selector 失败
+     */
+    public void scan(List<String> hostList, List<Integer> portList, PortScanCallback callback) throws IOException {
+        AssertUtil.notNull(callback, "回调不能为空");
+        if (Lists.isEmpty(hostList) || Lists.isEmpty(portList)) {
+            return;
+        }
+        for (Integer port : portList) {
+            AssertUtil.isTrue(Objects.nonNull(port) && port > 0 && port <= 65535, "端口不合法");
+        }
+
+        TaskIterator taskIterator = new TaskIterator(hostList, portList);
+        //超时时间都一样，按发起的顺序排列就是按超时时间排列
+        Deque<PendingConnect> pendingDeque = new ArrayDeque<>();
+        //进行中的连接数
+        int inFlight = 0;
+        try (Selector selector = Selector.open()) {
+            while (true) {
+                //补充连接到并发数
+                while (inFlight < concurrency && taskIterator.hasNext() && !Thread.currentThread().isInterrupted()) {
+                    PendingConnect pendingConnect = taskIterator.next();
+                    if (Objects.nonNull(pendingConnect.result)) {
+                        callback.onResult(pendingConnect.result);
+                        continue;
+                    }
+                    if (connect(selector, pendingConnect)) {
+                        pendingDeque.offerLast(pendingConnect);
+                        inFlight++;
+                    } else {
+                        callback.onResult(pendingConnect.result);
+                    }
+                }
+                if (pendingDeque.isEmpty()) {
+                    return;
+                }
+
+                long waitMillis = pendingDeque.peekFirst().deadline - System.currentTimeMillis();
+                if (waitMillis > 0) {
+                    selector.select(waitMillis);
+                } else {
+                    selector.selectNow();
+                }
+                if (Thread.currentThread().isInterrupted()) {
+                    closeAll(pendingDeque);
+                    return;
+                }
+
+                //连接完成的
+                Iterator<SelectionKey> keyIterator = selector.selectedKeys().iterator();
+                while (keyIterator.hasNext()) {
+                    SelectionKey key = keyIterator.next();
+                    keyIterator.remove();
+                    PendingConnect pendingConnect = (PendingConnect) key.attachment();
+                    finishConnect(pendingConnect);
+                    if (Objects.nonNull(pendingConnect.result)) {
+                        inFlight--;
+                        callback.onResult(pendingConnect.result);
+                    }
+                }
+
+                //超时的
+                long currentTimeMillis = System.currentTimeMillis();
+                PendingConnect first;
+                while (Objects.nonNull(first = pendingDeque.peekFirst())) {
+                    if (Objects.nonNull(first.result)) {
+                        pendingDeque.pollFirst();
+                    } else if (first.deadline <= currentTimeMillis) {
+                        pendingDeque.pollFirst();
+                        first.complete(PortStateEnum.TIMEOUT, null);
+                        inFlight--;
+                        callback.onResult(first.result);
+                    } else {
+                        break;
+                    }
+                }
+            }
+        } finally {
+            closeAll(pendingDeque);
+        }
+    }
+
+    /**
+     * 扫描端口
+     * 扫描完成之后返回开启的端口
+     *
+     * @param host     主机
+     * @param portList 端口集合
+     * @return 开启的端口 按扫描完成的顺序
+     * @throws IOException 打开 Selector 失败
+     */
+    public List<Integer> scanOpenPorts(String host, List<Integer> portList) throws IOException {
+        List<Integer> openPortList = Lists.newArrayList();
+        scan(Lists.asList(host), portList, result -> {
+            if (result.isOpen()) {
+                openPortList.add(result.getPort());
+            }
+        });
+        return openPortList;
+    }
+
+    /**
+     * 发起非阻塞连接
+     *
+     * @param selector
+     * @param pendingConnect
+     * @return 是否需要等待连接结果 false 表示已经有结果了
+     */
+    private boolean connect(Selector selector, PendingConnect pendingConnect) {
+        try {
+            pendingConnect.channel = SocketChannel.open();
+            SocketChannel channel = pendingConnect.channel;
+            channel.configureBlocking(false);
+            pendingConnect.startTime = System.currentTimeMillis();
+            pendingConnect.deadline = pendingConnect.startTime + connectTimeoutMillis;
+            if (channel.connect(new InetSocketAddress(pendingConnect.address, pendingConnect.port))) {
+                //本机的连接可能立即完成
+                pendingConnect.complete(PortStateEnum.OPEN, null);
+                return false;
+            }
+            channel.register(selector, SelectionKey.OP_CONNECT, pendingConnect);
+            return true;
+        } catch (ClosedByInterruptException e) {
+            pendingConnect.complete(PortStateEnum.ERROR, "扫描被中断");
+            return false;
+        } catch (ConnectException e) {
+            pendingConnect.complete(PortStateEnum.CLOSED, null);
+            return false;
+        } catch (IOException e) {
+            //文件句柄不够、网络不可达等
+            pendingConnect.complete(PortStateEnum.ERROR, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 连接完成
+     *
+     * @param pendingConnect
+     */
+    private void finishConnect(PendingConnect pendingConnect) {
+        try {
+            if (pendingConnect.channel.finishConnect()) {
+                pendingConnect.complete(PortStateEnum.OPEN, null);
+            }
+        } catch (ConnectException e) {
+            //连接被拒绝
+            pendingConnect.complete(PortStateEnum.CLOSED, null);
+        } catch (IOException e) {
+            //网络不可达、主机不可达
+            pendingConnect.complete(PortStateEnum.ERROR, e.getMessage());
+        }
+    }
+
+    private void closeAll(Deque<PendingConnect> pendingDeque) {
+        PendingConnect pendingConnect;
+        while (Objects.nonNull(pendingConnect = pendingDeque.pollFirst())) {
+            closeQuietly(pendingConnect.channel);
+        }
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        if (Objects.nonNull(channel)) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                //忽略
+            }
+        }
+    }
+
+
+    /**
+     * 进行中的连接
+     */
+    private static class PendingConnect {
+
+        private final String host;
+
+        private final InetAddress address;
+
+        private final int port;
+
+        private SocketChannel channel;
+
+        private long startTime;
+
+        private long deadline;
+
+        /**
+         * 扫描结果 有值表示已经完成
+         */
+        private PortScanResult result;
+
+        PendingConnect(String host, InetAddress address, int port) {
+            this.host = host;
+            this.address = address;
+            this.port = port;
+        }
+
+        /**
+         * 完成 关闭连接
+         *
+         * @param state
+         * @param errorMessage
+         */
+        void complete(PortStateEnum state, String errorMessage) {
+            long costMillis = startTime > 0 ? System.currentTimeMillis() - startTime : 0;
+            result = new PortScanResult(host, port, state, costMillis, errorMessage);
+            closeQuietly(channel);
+        }
+    }
+
+    /**
+     * 按主机、端口的顺序依次产生扫描任务
+     * 不会一次性创建所有任务，扫描大量主机与端口时不占用太多内存
+     * 主机在扫描到的时候才解析，解析失败的主机所有端口都返回 {@link PortStateEnum#ERROR}
+     */
+    private static class TaskIterator implements Iterator<PendingConnect> {
+
+        private final List<String> hostList;
+
+        private final List<Integer> portList;
+
+        private int hostIndex;
+
+        private int portIndex;
+
+        private InetAddress address;
+
+        private String resolveError;
+
+        TaskIterator(List<String> hostList, List<Integer> portList) {
+            this.hostList = hostList;
+            this.portList = portList;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return hostIndex < hostList.size();
+        }
+
+        @Override
+        public PendingConnect next() {
+            String host = hostList.get(hostIndex);
+            if (portIndex == 0) {
+                try {
+                    address = InetAddress.getByName(host);
+                    resolveError = null;
+                } catch (UnknownHostException e) {
+                    address = null;
+                    resolveError = "无法解析主机 " + host;
+                }
+            }
+            PendingConnect pendingConnect = new PendingConnect(host, address, portList.get(portIndex));
+            if (Objects.nonNull(resolveError)) {
+                pendingConnect.complete(PortStateEnum.ERROR, resolveError);
+            }
+            if (++portIndex >= portList.size()) {
+                portIndex = 0;
+                hostIndex++;
+            }
+            return pendingConnect;
+        }
+    }
+
+}
@@ -0,0 +1,31 @@
+package com.github.chenlijia1111.utils.http.scan;
+
+/**
+ * 端口状态
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public enum PortStateEnum {
+
+    /**
+     * 开启 连接成功
+     */
+    OPEN,
+
+    /**
+     * 关闭 连接被拒绝
+     */
+    CLOSED,
+
+    /**
+     * 超时 一般是被防火墙过滤了，或者主机不在线
+     */
+    TIMEOUT,
+
+    /**
+     * 出错 主机名解析失败、网络不可达、本地文件句柄不够等
+     */
+    ERROR
+
+}
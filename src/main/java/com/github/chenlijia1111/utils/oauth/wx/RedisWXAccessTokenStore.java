@@ -0,0 +1,53 @@
+package com.github.chenlijia1111.utils.oauth.wx;
+
+import com.github.chenlijia1111.utils.common.AssertUtil;
+import com.github.chenlijia1111.utils.core.JSONUtil;
+import com.github.chenlijia1111.utils.core.StringUtils;
+import com.github.chenlijia1111.utils.database.redis.IRedisConnect;
+
+/**
+ * 通过 redis 保存 accessToken
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class RedisWXAccessTokenStore implements WXAccessTokenStore {
+
+    /**
+     * redis key 前缀
+     */
+    private static final String KEY_PREFIX = "wx:token:";
+
+    private final IRedisConnect redisConnect;
+
+    public RedisWXAccessTokenStore(IRedisConnect redisConnect) {
+        AssertUtil.notNull(redisConnect, "redis连接不能为空");
+        this.redisConnect = redisConnect;
+    }
+
+    @Override
+    public WXAccessToken load(String key) {
+        String value = redisConnect.get(KEY_PREFIX + key);
+        if (StringUtils.isEmpty(value)) {
+            return null;
+        }
+        return JSONUtil.strToObj(value, WXAccessToken.class);
+    }
+
+    @Override
+    public void save(String key, WXAccessToken accessToken) {
+        long ttl = accessToken.getExpireTime() - System.currentTimeMillis();
+        if (ttl > 0) {
+            redisConnect.putExpire(KEY_PREFIX + key, JSONUtil.objToStr(accessToken), ttl);
+        }
+    }
+
+    @Override
+    public void remove(String key) {
+        try {
+            redisConnect.remove(KEY_PREFIX + key);
+        } catch (UnsupportedOperationException e) {
+            //不支持删除就等它过期
+        }
+    }
+}
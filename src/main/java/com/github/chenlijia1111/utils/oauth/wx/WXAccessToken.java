@@ -0,0 +1,68 @@
+package com.github.chenlijia1111.utils.oauth.wx;
+
+/**
+ * 微信 accessToken 或者 jsApiTicket
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class WXAccessToken {
+
+    /**
+     * token 或者 ticket
+     */
+    private String token;
+
+    /**
+     * 获取的时间 毫秒
+     */
+    private long createTime;
+
+    /**
+     * 过期时间 毫秒 已经减去了提前量
+     */
+    private long expireTime;
+
+    public WXAccessToken() {
+    }
+
+    public WXAccessToken(String token, long createTime, long expireTime) {
+        this.token = token;
+        this.createTime = createTime;
+        this.expireTime = expireTime;
+    }
+
+    /**
+     * 是否还有效
+     *
+     * @param currentTimeMillis
+     * @return
+     */
+    public boolean isValid(long currentTimeMillis) {
+        return null != token && expireTime > currentTimeMillis;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public void setToken(String token) {
+        this.token = token;
+    }
+
+    public long getCreateTime() {
+        return createTime;
+    }
+
+    public void setCreateTime(long createTime) {
+        this.createTime = createTime;
+    }
+
+    public long getExpireTime() {
+        return expireTime;
+    }
+
+    public void setExpireTime(long expireTime) {
+        this.expireTime = expireTime;
+    }
+}
@@ -0,0 +1,276 @@
+package com.github.chenlijia1111.utils.oauth.wx;
+
+import com.github.chenlijia1111.utils.common.AssertUtil;
+import com.github.chenlijia1111.utils.core.LogUtil;
+import com.github.chenlijia1111.utils.core.StringUtils;
+import com.github.chenlijia1111.utils.core.cache.Cache;
+import com.github.chenlijia1111.utils.core.cache.CacheBuilder;
+import com.github.chenlijia1111.utils.http.HttpClientUtils;
+import org.slf4j.Logger;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 微信 accessToken 与 jsApiTicket 管理
+ * 按 appId 全局缓存，公众号与小程序共用
+ *
+ * 微信每天获取 accessToken 的次数有限，并且新获取的 token 会让旧的在 5 分钟后失效，所以不能每次请求都去获取
+ * 1. 读取 有效的 token 直接从本地缓存返回，不加锁
+ * 2. 获取 本地没有时同一个 appId 只有一个线程去请求微信，其他线程等待这次的结果
+ * 3. 刷新 有效期过去 {@link #REFRESH_AHEAD_RATIO} 之后再读取时在后台刷新，刷新完成之前继续返回旧的 token
+ * 4. 共享 设置了 {@link WXAccessTokenStore} 之后，请求微信之前先读取存储里其他节点获取的 token
+ *
+ * {@code
+ *     WXAccessTokenManager.getInstance().setStore(new RedisWXAccessTokenStore(redisConnect));
+ *     String accessToken = WXAccessTokenManager.getInstance().getAccessToken(appId, secret);
+ * }
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class WXAccessTokenManager {
+
+    private static final Logger log = new LogUtil(WXAccessTokenManager.class);
+
+    /**
+     * 有效期过去多少比例之后提前刷新
+     */
+    public static final double REFRESH_AHEAD_RATIO = 0.8;
+
+    /**
+     * 过期时间的提前量 秒
+     */
+    private static final int EXPIRE_MARGIN_SECONDS = 300;
+
+    /**
+     * 表示 accessToken 无效的错误码
+     */
+    private static final List<Integer> INVALID_TOKEN_CODES = Arrays.asList(40001, 40014, 42001);
+
+    /**
+     * 单例
+     */
+    private static volatile WXAccessTokenManager wxAccessTokenManager;
+
+    /**
+     * 接口地址
+     */
+    private volatile String apiUrl = "https://api.weixin.qq.com";
+
+    /**
+     * 持久化
+     */
+    private volatile WXAccessTokenStore store;
+
+    /**
+     * 类型:appId -> token
+     */
+    private final Cache<String, WXAccessToken> cache;
+
+
+    public WXAccessTokenManager() {
+        ThreadPoolExecutor refreshExecutor = new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "wx-token-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refreshExecutor.allowCoreThreadTimeOut(true);
+        this.cache = CacheBuilder.<String, WXAccessToken>newBuilder()
+                .expiry((key, accessToken, currentTimeMillis) -> accessToken.getExpireTime() - currentTimeMillis)
+                .refreshAheadRatio(REFRESH_AHEAD_RATIO)
+                .executor(refreshExecutor)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 单例
+     *
+     * @return
+     */
+    public static WXAccessTokenManager getInstance() {
+        if (Objects.isNull(wxAccessTokenManager)) {
+            synchronized (WXAccessTokenManager.class) {
+                if (Objects.isNull(wxAccessTokenManager)) {
+                    wxAccessTokenManager = new WXAccessTokenManager();
+                }
+            }
+        }
+        return wxAccessTokenManager;
+    }
+
+    /**
+     * 设置持久化
+     *
+     * @param store
+     * @return
+     */
+    public WXAccessTokenManager setStore(WXAccessTokenStore store) {
+        this.store = store;
+        return this;
+    }
+
+    /**
+     * 设置接口地址 默认 https://api.weixin.qq.com
+     *
+     * @param apiUrl
+     * @return
+     */
+    public WXAccessTokenManager setApiUrl(String apiUrl) {
+        AssertUtil.hasText(apiUrl, "接口地址不能为空");
+        this.apiUrl = apiUrl;
+        return this;
+    }
+
+    /**
+     * 获取 accessToken
+     * GET https://api.weixin.qq.com/cgi-bin/token
+     *
+     * @param appId
+     * @param secret
+     * @return 获取失败返回 null
+     */
+    public String getAccessToken(String appId, String secret) {
+        AssertUtil.hasText(appId, "appId不能为空");
+        AssertUtil.hasText(secret, "secret不能为空");
+        WXAccessToken accessToken = cache.get(accessTokenKey(appId), key -> loadOrFetch(key, () -> fetchAccessToken(appId, secret)));
+        return Objects.isNull(accessToken) ? null : accessToken.getToken();
+    }
+
+    /**
+     * 获取 jsApiTicket
+     * GET https://api.weixin.qq.com/cgi-bin/ticket/getticket
+     *
+     * @param appId
+     * @param secret
+     * @return 获取失败返回 null
+     */
+    public String getJsApiTicket(String appId, String secret) {
+        AssertUtil.hasText(appId, "appId不能为空");
+        AssertUtil.hasText(secret, "secret不能为空");
+        WXAccessToken ticket = cache.get(jsApiTicketKey(appId), key -> loadOrFetch(key, () -> fetchJsApiTicket(appId, secret)));
+        return Objects.isNull(ticket) ? null : ticket.getToken();
+    }
+
+    /**
+     * accessToken 被微信判定无效时调用，下次获取时重新请求
+     * 只有当前缓存的还是这个 token 时才删除，防止多个线程拿着同一个无效 token 重复刷新
+     *
+     * @param appId
+     * @param accessToken 无效的 token
+     */
+    public void invalidateAccessToken(String appId, String accessToken) {
+        String key = accessTokenKey(appId);
+        WXAccessToken current = cache.getIfPresent(key);
+        if (Objects.nonNull(current) && Objects.equals(current.getToken(), accessToken)) {
+            cache.remove(key);
+            //jsApiTicket 是用这个 token 获取的，一起失效
+            cache.remove(jsApiTicketKey(appId));
+            WXAccessTokenStore store = this.store;
+            if (Objects.nonNull(store)) {
+                store.remove(key);
+                store.remove(jsApiTicketKey(appId));
+            }
+        }
+    }
+
+    /**
+     * 先读取持久化的 token，还在提前刷新时间之前就直接使用，否则请求微信
+     *
+     * @param key
+     * @param fetcher
+     * @return
+     */
+    private WXAccessToken loadOrFetch(String key, TokenFetcher fetcher) {
+        WXAccessTokenStore store = this.store;
+        long currentTimeMillis = System.currentTimeMillis();
+        if (Objects.nonNull(store)) {
+            WXAccessToken stored = store.load(key);
+            if (Objects.nonNull(stored) && stored.isValid(currentTimeMillis) && !shouldRefresh(stored, currentTimeMillis)) {
+                return stored;
+            }
+        }
+        WXAccessToken accessToken = fetcher.fetch();
+        if (Objects.nonNull(accessToken) && Objects.nonNull(store)) {
+            store.save(key, accessToken);
+        }
+        return accessToken;
+    }
+
+    private boolean shouldRefresh(WXAccessToken accessToken, long currentTimeMillis) {
+        long lifetime = accessToken.getExpireTime() - accessToken.getCreateTime();
+        return currentTimeMillis - accessToken.getCreateTime() >= (long) (lifetime * REFRESH_AHEAD_RATIO);
+    }
+
+    private WXAccessToken fetchAccessToken(String appId, String secret) {
+        Map map = HttpClientUtils.getInstance().putParams("grant_type", "client_credential").
+                putParams("appid", appId).putParams("secret", secret).
+                doGet(apiUrl + "/cgi-bin/token").toMap();
+        if (Objects.nonNull(map) && StringUtils.isNotEmpty((String) map.get("access_token"))) {
+            return createToken((String) map.get("access_token"), map.get("expires_in"));
+        }
+        log.error("获取accessToken失败 appId:{} {}", appId, map);
+        return null;
+    }
+
+    private WXAccessToken fetchJsApiTicket(String appId, String secret) {
+        for (int i = 0; i < 2; i++) {
+            String accessToken = getAccessToken(appId, secret);
+            if (StringUtils.isEmpty(accessToken)) {
+                return null;
+            }
+            Map map = HttpClientUtils.getInstance().
+                    putParams("access_token", accessToken).
+                    putParams("type", "jsapi").
+                    doGet(apiUrl + "/cgi-bin/ticket/getticket").
+                    toMap();
+            if (Objects.nonNull(map) && Objects.equals(map.get("errcode"), 0)) {
+                return createToken((String) map.get("ticket"), map.get("expires_in"));
+            }
+            log.error("获取jsApiTicket失败 appId:{} {}", appId, map);
+            //可能是其他的客户端也获取了accessToken 导致这个不是最新的，重新获取一次
+            if (Objects.isNull(map) || !INVALID_TOKEN_CODES.contains(map.get("errcode"))) {
+                return null;
+            }
+            invalidateAccessToken(appId, accessToken);
+        }
+        return null;
+    }
+
+    private WXAccessToken createToken(String token, Object expiresIn) {
+        long currentTimeMillis = System.currentTimeMillis();
+        int expireSecond = expiresIn instanceof Number ? ((Number) expiresIn).intValue() : 7200;
+        //减去三百秒，防止超时
+        long expireTime = currentTimeMillis + TimeUnit.SECONDS.toMillis(Math.max(expireSecond - EXPIRE_MARGIN_SECONDS, 1));
+        return new WXAccessToken(token, currentTimeMillis, expireTime);
+    }
+
+    private String accessTokenKey(String appId) {
+        return "access_token:" + appId;
+    }
+
+    private String jsApiTicketKey(String appId) {
+        return "jsapi_ticket:" + appId;
+    }
+
+    /**
+     * 请求微信获取 token
+     */
+    @FunctionalInterface
+    private interface TokenFetcher {
+
+        /**
+         * 获取
+         *
+         * @return 失败返回 null
+         */
+        WXAccessToken fetch();
+    }
+
+}
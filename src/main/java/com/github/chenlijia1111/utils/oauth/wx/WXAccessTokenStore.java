@@ -0,0 +1,37 @@
+package com.github.chenlijia1111.utils.oauth.wx;
+
+/**
+ * accessToken 持久化
+ * 多个节点共用一个存储时，一个节点获取的 token 其他节点可以直接使用，不用各自请求微信
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public interface WXAccessTokenStore {
+
+    /**
+     * 读取
+     *
+     * @param key
+     * @return 没有时返回 null
+     */
+    WXAccessToken load(String key);
+
+    /**
+     * 保存
+     *
+     * @param key
+     * @param accessToken
+     */
+    void save(String key, WXAccessToken accessToken);
+
+    /**
+     * 删除
+     * token 被微信判定无效时调用，默认不处理，等待过期
+     *
+     * @param key
+     */
+    default void remove(String key) {
+    }
+
+}
@@ -3,12 +3,10 @@ package com.github.chenlijia1111.utils.oauth.wx;
 import com.github.chenlijia1111.utils.common.AssertUtil;
 import com.github.chenlijia1111.utils.core.StringUtils;
 import com.github.chenlijia1111.utils.http.HttpClientUtils;
-import org.apache.http.HttpResponse;
 import org.apache.http.protocol.HTTP;
 
-import java.io.IOException;
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
-import java.util.Date;
 import java.util.Map;
 import java.util.Objects;
 
@@ -20,17 +18,6 @@ import java.util.Objects;
  */
 public class WXAppletsLoginUtil {
 
-    /**
-     * 获取到的accessToken
-     */
-    private String accessToken;
-
-    /**
-     * 获取到accessToken的时间
-     */
-    private Date accessTime;
-
-
     /**
      * 单例对象
      */
@@ -66,30 +53,14 @@ public class WXAppletsLoginUtil {
      * "errcode":"errcode", 错误码 -1 系统繁忙，此时请开发者稍候再试 0 请求成功 40029 	code 无效 45011 频率限制，每个用户每分钟100次
      * "errmsg":"errmsg", 错误信息
      * }
+     * @see WXAccessTokenManager
      */
     public String accessToken(String appId, String secret) {
         AssertUtil.isTrue(StringUtils.isNotEmpty(appId), "appId不能为空");
         AssertUtil.isTrue(StringUtils.isNotEmpty(secret), "appSecret不能为空");
 
-        if (Objects.nonNull(this.accessToken) && Objects.nonNull(this.accessTime) && System.currentTimeMillis() - this.accessTime.getTime() <= 6000 * 1000L) {
-            //有效期是7200秒 6000秒就刷新
-            return accessToken;
-        }
-
-        //https://api.weixin.qq.com/cgi-bin/token?grant_type=client_credential&appid=APPID&secret=APPSECRET
-        Map map = HttpClientUtils.getInstance().
-                putParams("appid", appId).
-                putParams("secret", secret).
-                putParams("grant_type", "client_credential").
-                doGet("https://api.weixin.qq.com/cgi-bin/token").toMap();
-
-        Object errcode = map.get("errcode");
-        if (Objects.nonNull(map) && (Objects.isNull(errcode) || Objects.equals(errcode, 0))) {
-            //成功
-            this.accessToken = (String) map.get("access_token");
-            this.accessTime = new Date();
-        }
-        return this.accessToken;
+        //按 appId 全局缓存，快过期时后台刷新
+        return WXAccessTokenManager.getInstance().getAccessToken(appId, secret);
     }
 
     /**
@@ -100,25 +71,19 @@ public class WXAppletsLoginUtil {
      * @param secret
      * @param pagePath 页面地址 不能携带参数  前面不需要加斜杠  例如 pages/index/index
      * @param secene   页面参数
-     * @return 以流的形式返回
+     * @return 以流的形式返回 内容已经读到内存，连接已经放回连接池，不关闭也不会占用连接
      */
     public InputStream appletsQrCode(String appId, String secret, String pagePath, String secene) {
 
         String accessToken = accessToken(appId, secret);
 
         //https://api.weixin.qq.com/wxa/getwxacodeunlimit?access_token=ACCESS_TOKEN
-        HttpResponse response = HttpClientUtils.getInstance().
+        byte[] bytes = HttpClientUtils.getInstance().
                 putParams("scene", secene).
                 putParams("page", pagePath).
                 putHeader(HTTP.CONTENT_TYPE, "application/json;charset=utf-8").
-                doPost("https://api.weixin.qq.com/wxa/getwxacodeunlimit?access_token=" + accessToken).toResponse();
-        try {
-            InputStream inputStream = response.getEntity().getContent();
-            return inputStream;
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        return null;
+                doPost("https://api.weixin.qq.com/wxa/getwxacodeunlimit?access_token=" + accessToken).toBytes();
+        return Objects.nonNull(bytes) ? new ByteArrayInputStream(bytes) : null;
     }
 
 
@@ -130,6 +95,13 @@ public class WXAppletsLoginUtil {
      * "openid":"omoOI5CQZ8Ha_LNFovBpLgDXG9zQ"
      * }
      *
+     * 同一个 jsCode 只能使用一次，不要对这个接口开启对冲请求，
+     * 重试也只能在请求没有发出去的时候（连接失败）进行，否则第二次会返回 code 已被使用
+     * {@code
+     *     HttpClientUtils.addInterceptor("https://api.weixin.qq.com/sns/jscode2session",
+     *             new RetryInterceptor(3, 100, 1000).setConnectFailureOnly(true));
+     * }
+     *
      * @param appId
      * @param secret
      * @param jsCode
@@ -202,6 +202,12 @@ public class WXCommonLoginUtil {
      * "unionid": "o6_bmasdasdsad6_2sgVt7hMZOPfL"
      * }
      *
+     * 这个接口是幂等的，耗时长尾明显时可以开启对冲请求与重试
+     * {@code
+     *     HttpClientUtils.addInterceptor("https://api.weixin.qq.com/sns/userinfo", new RetryInterceptor(3, 100, 2000));
+     *     HttpClientUtils.addInterceptor("https://api.weixin.qq.com/sns/userinfo", new HedgingInterceptor());
+     * }
+     *
      * @param accessToken 1
      * @param openId      2
      * @return java.util.Map
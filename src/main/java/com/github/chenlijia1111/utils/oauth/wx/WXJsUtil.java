@@ -5,14 +5,11 @@ import com.github.chenlijia1111.utils.core.LogUtil;
 import com.github.chenlijia1111.utils.core.RandomUtil;
 import com.github.chenlijia1111.utils.core.StringUtils;
 import com.github.chenlijia1111.utils.encrypt.SHA1EncryptUtil;
-import com.github.chenlijia1111.utils.http.HttpClientUtils;
 import com.github.chenlijia1111.utils.http.URLBuildUtil;
-import org.joda.time.DateTime;
 import org.slf4j.Logger;
 
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.Date;
 import java.util.Map;
 import java.util.Objects;
 import java.util.TreeSet;
@@ -23,7 +20,7 @@ import java.util.stream.Collectors;
  * 注意，这个是公众号的accessToken 跟普通的那个不一样，这个是用来获取jsApiTicket的
  * 公众号的accessToken是对应整个应用的，而不是对应单个用户
  * 所以这个accessToken要全局缓存起来
- * 最好单例当前工具类
+ * accessToken 与 jsApiTicket 统一由 {@link WXAccessTokenManager} 按 appId 缓存与刷新，多个实例共用
  *
  * @author Chen LiJia
  * @since 2020/6/3
@@ -36,14 +33,6 @@ public class WXJsUtil {
 
     private String secret;
 
-    private String accessToken;
-
-    private Date limitTime;
-
-    private String jsApiTicket;
-
-    private Date ticketLimitTime;
-
     public WXJsUtil(String appId, String secret) {
 
         AssertUtil.hasText(appId,"appId不能为空");
@@ -118,27 +107,7 @@ public class WXJsUtil {
         this.appId = appId;
         this.secret = secret;
 
-        //判断是否之前有获取到
-        if (StringUtils.isNotEmpty(accessToken) && Objects.nonNull(limitTime) &&
-                limitTime.getTime() > System.currentTimeMillis()) {
-            return accessToken;
-        }
-
-        Map map = HttpClientUtils.getInstance().putParams("grant_type", "client_credential").
-                putParams("appid", appId).putParams("secret", secret).
-                doGet("https://api.weixin.qq.com/cgi-bin/token").toMap();
-        if (Objects.nonNull(map) && !map.containsKey("errcode")) {
-            Object access_token = map.get("access_token");
-            Object expires_in = map.get("expires_in");
-            this.accessToken = access_token.toString();
-            Integer expireSecond = (Integer) expires_in;
-            //减去三百秒，防止超时
-            this.limitTime = DateTime.now().plusSeconds(expireSecond - 300).toDate();
-            return this.accessToken;
-        }
-        //打印错误信息
-        log.error(map.get("errmsg").toString());
-        return null;
+        return WXAccessTokenManager.getInstance().getAccessToken(appId, secret);
     }
 
     /**
@@ -147,38 +116,7 @@ public class WXJsUtil {
      * @return
      */
     public String getTicket() {
-
-        //刷新accessToken
-        accessToken(this.appId,this.secret);
-
-        if (StringUtils.isNotEmpty(accessToken)) {
-
-            //判断之前有没有获取过
-            if (StringUtils.isNotEmpty(jsApiTicket) && Objects.nonNull(ticketLimitTime) &&
-                    ticketLimitTime.getTime() > System.currentTimeMillis()) {
-                return jsApiTicket;
-            }
-
-            Map map = HttpClientUtils.getInstance().
-                    putParams("access_token", this.accessToken).
-                    putParams("type", "jsapi").
-                    doGet("https://api.weixin.qq.com/cgi-bin/ticket/getticket").
-                    toMap();
-            if (Objects.nonNull(map) && Objects.equals(map.get("errcode"), 0)) {
-                Object ticket = map.get("ticket");
-                Object expires_in = map.get("expires_in");
-                this.jsApiTicket = ticket.toString();
-                Integer expireSecond = (Integer) expires_in;
-                //减去三百秒，防止超时
-                this.ticketLimitTime = DateTime.now().plusSeconds(expireSecond - 300).toDate();
-                return this.jsApiTicket;
-            }
-
-            //获取报错了，重新获取一次，可能是其他的客户端也获取了accessToken 导致这个不是最新的
-            //打印错误信息
-            log.error(map.get("errmsg").toString());
-        }
-        return null;
+        return WXAccessTokenManager.getInstance().getJsApiTicket(this.appId, this.secret);
     }
 
 
@@ -200,7 +138,7 @@ public class WXJsUtil {
         if (StringUtils.isNotEmpty(ticket)) {
             String paramsToString = urlBuildUtil.
                     putParams("noncestr", noncestr).
-                    putParams("jsapi_ticket", getTicket()).
+                    putParams("jsapi_ticket", ticket).
                     putParams("timestamp", timeStamp).
                     putParams("url", url).paramsToString();
 
@@ -0,0 +1,50 @@
+package com.github.chenlijia1111.utils.office.csv;
+
+/**
+ * csv 导出压缩方式
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public enum CsvCompressTypeEnum {
+
+    /**
+     * 不压缩
+     */
+    NONE("", "text/csv"),
+
+    /**
+     * gzip 压缩 文件名后加 .gz
+     */
+    GZIP(".gz", "application/gzip"),
+
+    /**
+     * zip 压缩 压缩包中只有一个 csv 文件
+     */
+    ZIP(".zip", "application/zip"),
+    ;
+
+    /**
+     * 下载文件名后缀
+     */
+    private String suffix;
+
+    /**
+     * 响应类型
+     */
+    private String contentType;
+
+
+    CsvCompressTypeEnum(String suffix, String contentType) {
+        this.suffix = suffix;
+        this.contentType = contentType;
+    }
+
+    public String getSuffix() {
+        return suffix;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+}
@@ -0,0 +1,569 @@
+package com.github.chenlijia1111.utils.office.csv;
+
+import com.github.chenlijia1111.utils.common.AssertUtil;
+import com.github.chenlijia1111.utils.common.constant.TimeConstant;
+import com.github.chenlijia1111.utils.core.FileUtils;
+import com.github.chenlijia1111.utils.core.StringUtils;
+import com.github.chenlijia1111.utils.dateTime.DateTimeConvertUtil;
+import com.github.chenlijia1111.utils.http.HttpUtils;
+import com.github.chenlijia1111.utils.office.excel.ExcelColumn;
+import com.github.chenlijia1111.utils.office.excel.ExcelColumnPlan;
+import com.github.chenlijia1111.utils.office.excel.ExcelExport;
+import com.github.chenlijia1111.utils.office.excel.ExcelPageIterator;
+import com.github.chenlijia1111.utils.office.excel.ExcelPageSupplier;
+import com.github.chenlijia1111.utils.office.excel.ExcelStyleRegistry;
+import com.github.chenlijia1111.utils.office.excel.annos.ExcelExportField;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 导出 csv 工具类
+ * <p>
+ * 只需要数据、不需要样式的导出不必经过 poi，直接按行写成文本，内存占用与 cpu 消耗都小很多
+ * <p>
+ * 导出的列与 {@link ExcelExport} 一致：
+ * 没有设置 {@link #exportTitleHeadNameMap} 时取 {@link ExcelExportField} 注解定义的表头，
+ * 转换器优先取 {@link #transferMap} 中的，没有再取注解中定义的，日期按 {@link ExcelExportField#dateFormat()} 格式化
+ * 与 {@link ExcelExport} 不同的是没有序号列
+ * <p>
+ * 文件名以 tsv 结尾时以制表符分隔，否则以逗号分隔，也可以通过 {@link #setDelimiter(char)} 指定
+ * 包含分隔符、双引号、换行的值按 RFC 4180 用双引号包起来
+ * <p>
+ * 以 = + - @ 制表符 回车开头的文本值前面加一个单引号，防止 excel 打开时当成公式执行（csv 注入），
+ * 数字、日期不处理，可以通过 {@link #setEscapeFormula(boolean)} 关闭
+ * <p>
+ * 数据边遍历边写到输出流，可以通过 {@link #setCompressType(CsvCompressTypeEnum)} 压缩成 gzip 或者 zip
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class CsvExport {
+
+    /**
+     * 写入缓冲区大小
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 导出数据
+     **/
+    private List<? extends Object> dataList;
+
+    /**
+     * 导出数据 迭代器
+     * 与 {@link #dataList} 二选一，导出时边遍历边写入
+     **/
+    private Iterator<? extends Object> dataIterator;
+
+    /**
+     * 导出完成之后需要关闭的数据源
+     * 如 {@link Stream} 数据库游标
+     **/
+    private AutoCloseable dataSource;
+
+    /**
+     * 导出的class类型
+     * 构造方法传入
+     **/
+    private Class<?> exportClass;
+
+    /**
+     * 数据转换方法
+     * key 为属性名称 value 为具体的转换方法
+     **/
+    private Map<String, Function> transferMap;
+
+    /**
+     * 导出的表头名称
+     * 如果没有设置 默认取导出字段中设置的名称
+     * <p>
+     * key  属性名称 value 表头名称
+     **/
+    private LinkedHashMap<String, String> exportTitleHeadNameMap;
+
+    /**
+     * 忽略导出的字段
+     */
+    private List<String> ignoreFieldList;
+
+    /**
+     * 导出的文件名称
+     * 如果没有设置 默认以当前时间为文件名称
+     **/
+    private String exportFileName;
+
+    /**
+     * 分隔符
+     * 为空时按文件名判断，tsv 以制表符分隔，否则以逗号分隔
+     **/
+    private Character delimiter;
+
+    /**
+     * 字符集 默认 UTF-8
+     **/
+    private Charset charset = StandardCharsets.UTF_8;
+
+    /**
+     * UTF-8 时是否在文件开头写入 BOM
+     * 默认 true，不写的话 excel 打开中文会乱码
+     **/
+    private boolean withBom = true;
+
+    /**
+     * 压缩方式 默认不压缩
+     **/
+    private CsvCompressTypeEnum compressType = CsvCompressTypeEnum.NONE;
+
+    /**
+     * 是否转义可能被当成公式的文本值
+     * 默认 true，导出的数据需要被其他程序原样读取时可以关闭
+     **/
+    private boolean escapeFormula = true;
+
+
+    /**
+     * 构造方法
+     *
+     * @param exportFileName 导出文件名称
+     * @param exportClass    导出的class类型
+     */
+    public CsvExport(String exportFileName, Class exportClass) {
+        setExportFileName(exportFileName);
+        this.exportClass = exportClass;
+    }
+
+    public CsvExport setDataList(List<? extends Object> dataList) {
+        this.dataList = dataList;
+        this.dataIterator = null;
+        this.dataSource = null;
+        return this;
+    }
+
+    /**
+     * 设置导出数据 迭代器
+     * 导出时边遍历边写入，不需要把数据全部加载到内存中
+     *
+     * @param dataIterator
+     * @return
+     */
+    public CsvExport setDataIterator(Iterator<? extends Object> dataIterator) {
+        this.dataIterator = dataIterator;
+        this.dataList = null;
+        this.dataSource = null;
+        return this;
+    }
+
+    /**
+     * 设置导出数据 流
+     * 导出完成之后会关闭流，可以直接传入数据库游标转换的流
+     *
+     * @param dataStream
+     * @return
+     */
+    public CsvExport setDataStream(Stream<? extends Object> dataStream) {
+        AssertUtil.notNull(dataStream, "导出的数据流为null");
+        setDataIterator(dataStream.iterator());
+        this.dataSource = dataStream;
+        return this;
+    }
+
+    /**
+     * 设置导出数据 分页查询
+     * 导出时按页依次查询，每次只有一页数据在内存中
+     *
+     * @param pageSize     每页数量
+     * @param pageSupplier 分页查询
+     * @param <T>
+     * @return
+     */
+    public <T> CsvExport setDataPageSupplier(int pageSize, ExcelPageSupplier<T> pageSupplier) {
+        return setDataIterator(new ExcelPageIterator<>(pageSize, pageSupplier));
+    }
+
+    public CsvExport setTransferMap(Map<String, Function> transferMap) {
+        this.transferMap = transferMap;
+        return this;
+    }
+
+    public Map<String, Function> getTransferMap() {
+        if (Objects.isNull(transferMap)) {
+            transferMap = new HashMap<>();
+        }
+        return transferMap;
+    }
+
+    public CsvExport setExportTitleHeadNameMap(LinkedHashMap<String, String> exportTitleHeadNameMap) {
+        this.exportTitleHeadNameMap = exportTitleHeadNameMap;
+        return this;
+    }
+
+    public CsvExport setIgnoreFieldList(List<String> ignoreFieldList) {
+        this.ignoreFieldList = ignoreFieldList;
+        return this;
+    }
+
+    /**
+     * 默认后缀名为 csv
+     *
+     * @param exportFileName
+     * @return
+     */
+    public CsvExport setExportFileName(String exportFileName) {
+        if (StringUtils.isEmpty(exportFileName)) {
+            this.exportFileName = DateTimeConvertUtil.dateToStr(new Date(), TimeConstant.DATE_TIME) + ".csv";
+        } else if (!FileUtils.checkFileSuffix(exportFileName, "csv", "tsv", "txt")) {
+            //非法文件名 加默认后缀
+            this.exportFileName = exportFileName + ".csv";
+        } else {
+            //合法后缀名
+            this.exportFileName = exportFileName;
+        }
+        return this;
+    }
+
+    /**
+     * 设置分隔符
+     *
+     * @param delimiter 如 ',' '\t' ';'
+     * @return
+     */
+    public CsvExport setDelimiter(char delimiter) {
+        AssertUtil.isTrue(delimiter != '"' && delimiter != '\r' && delimiter != '\n', "分隔符不能是双引号或者换行");
+        this.delimiter = delimiter;
+        return this;
+    }
+
+    public CsvExport setCharset(Charset charset) {
+        AssertUtil.notNull(charset, "字符集不能为空");
+        this.charset = charset;
+        return this;
+    }
+
+    public CsvExport setWithBom(boolean withBom) {
+        this.withBom = withBom;
+        return this;
+    }
+
+    public CsvExport setCompressType(CsvCompressTypeEnum compressType) {
+        AssertUtil.notNull(compressType, "压缩方式不能为空");
+        this.compressType = compressType;
+        return this;
+    }
+
+    public CsvExport setEscapeFormula(boolean escapeFormula) {
+        this.escapeFormula = escapeFormula;
+        return this;
+    }
+
+    /**
+     * 导出到响应
+     * 边查询边写到响应流中，压缩时文件名加上压缩后缀
+     *
+     * @param request
+     * @param response
+     */
+    public void exportData(HttpServletRequest request, HttpServletResponse response) {
+
+        //导出
+        try (ServletOutputStream outputStream = response.getOutputStream()) {
+
+            //设置响应头
+            if (Objects.equals(CsvCompressTypeEnum.NONE, compressType)) {
+                response.setContentType(compressType.getContentType() + ";charset=" + charset.name());
+            } else {
+                response.setContentType(compressType.getContentType());
+            }
+            String fileName = URLDecoder.decode(this.exportFileName, "UTF-8") + compressType.getSuffix();
+            if (HttpUtils.isIE(request)) {
+                fileName = URLEncoder.encode(fileName, "UTF-8");
+            } else {
+                fileName = new String(fileName.getBytes("UTF-8"), "ISO-8859-1");
+            }
+            response.setHeader("Content-Disposition", "attachment; filename=" + fileName);
+
+            //执行 重载方法 导出
+            exportData(outputStream);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 导出到输出流
+     * 写完之后不会关闭传入的输出流
+     *
+     * @param outputStream
+     * @throws UncheckedIOException 写入失败 如客户端断开
+     */
+    public void exportData(OutputStream outputStream) {
+
+        //可以导出空数据,但是对象导出对象以及集合不能为空 否则无法确定表头
+        AssertUtil.isTrue(null != dataList || null != dataIterator, "导出的数据集合为null");
+        AssertUtil.isTrue(null != exportClass, "导出的数据Class 对象为null");
+        AssertUtil.isTrue(null != outputStream, "输出流为空");
+
+        try {
+            //如果自定义了就不初始化了
+            if (null == exportTitleHeadNameMap || exportTitleHeadNameMap.size() == 0) {
+                this.exportTitleHeadNameMap = ExcelColumnPlan.getAnnotatedHeadNameMap(exportClass, ignoreFieldList);
+            }
+
+            //每一列的读取方法与转换器只解析一次
+            ExcelColumnPlan columnPlan = ExcelColumnPlan.compile(exportClass, exportTitleHeadNameMap, transferMap);
+
+            //关闭写入流时不关闭传入的输出流，压缩流关闭时才会释放本地内存
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(wrapOutputStream(outputStream), charset), BUFFER_SIZE)) {
+                writeData(writer, columnPlan);
+            }
+        } catch (IOException e) {
+            //不能吞掉，否则调用方以为导出成功，拿到的是不完整的文件
+            throw new UncheckedIOException("导出csv失败", e);
+        } finally {
+            closeDataSource();
+        }
+    }
+
+    /**
+     * 写入数据
+     *
+     * @param writer     写入流
+     * @param columnPlan 导出列计划
+     * @throws IOException
+     */
+    private void writeData(Writer writer, ExcelColumnPlan columnPlan) throws IOException {
+
+        //集合也按迭代器遍历，与流式导出走同一个逻辑
+        Iterator<?> dataIterator = Objects.nonNull(this.dataIterator) ? this.dataIterator : this.dataList.iterator();
+        char delimiter = getDelimiter();
+
+        if (withBom && Objects.equals(StandardCharsets.UTF_8, charset)) {
+            writer.write('\uFEFF');
+        }
+
+        //表头
+        List<ExcelColumn> columnList = columnPlan.getColumnList();
+        for (int i = 0; i < columnList.size(); i++) {
+            if (i > 0) {
+                writer.write(delimiter);
+            }
+            writeValue(writer, columnList.get(i).getHeadName(), delimiter);
+        }
+        writer.write("\r\n");
+
+        //每一列的日期格式 第一次用到时创建
+        DateTimeFormatter[] dateFormatters = new DateTimeFormatter[columnList.size()];
+        //单元格的值 引用
+        Object value;
+        while (dataIterator.hasNext()) {
+            Object o = dataIterator.next();
+            for (int i = 0; i < columnList.size(); i++) {
+                if (i > 0) {
+                    writer.write(delimiter);
+                }
+                //空值写空字符串
+                value = columnList.get(i).getValue(o);
+                if (null != value) {
+                    String str = formatValue(value, dateFormatters, i, columnList.get(i));
+                    if (escapeFormula && !(value instanceof Number) && isFormulaLike(str)) {
+                        str = "'" + str;
+                    }
+                    writeValue(writer, str, delimiter);
+                }
+            }
+            writer.write("\r\n");
+        }
+    }
+
+    /**
+     * 按压缩方式包装输出流
+     *
+     * @param outputStream 传入的输出流
+     * @return
+     * @throws IOException
+     */
+    private OutputStream wrapOutputStream(OutputStream outputStream) throws IOException {
+        OutputStream target = new NonClosingOutputStream(outputStream);
+        if (Objects.equals(CsvCompressTypeEnum.GZIP, compressType)) {
+            return new GZIPOutputStream(target, BUFFER_SIZE);
+        }
+        if (Objects.equals(CsvCompressTypeEnum.ZIP, compressType)) {
+            ZipOutputStream zipOutputStream = new ZipOutputStream(target, StandardCharsets.UTF_8);
+            zipOutputStream.putNextEntry(new ZipEntry(URLDecoder.decode(exportFileName, "UTF-8")));
+            return zipOutputStream;
+        }
+        return target;
+    }
+
+    /**
+     * 分隔符
+     *
+     * @return
+     */
+    private char getDelimiter() {
+        if (Objects.nonNull(delimiter)) {
+            return delimiter;
+        }
+        return FileUtils.checkFileSuffix(exportFileName, "tsv") ? '\t' : ',';
+    }
+
+    /**
+     * 值转为字符串
+     * 日期按列定义的格式格式化，没有定义时取 {@link ExcelStyleRegistry#DEFAULT_DATE_FORMAT}
+     *
+     * @param value          值
+     * @param dateFormatters 每一列的日期格式
+     * @param index          列下标
+     * @param column         列
+     * @return
+     */
+    private static String formatValue(Object value, DateTimeFormatter[] dateFormatters, int index, ExcelColumn column) {
+        if (value instanceof String) {
+            return (String) value;
+        }
+        if (value instanceof BigDecimal) {
+            //不使用科学计数法
+            return ((BigDecimal) value).toPlainString();
+        }
+        if (value instanceof Date || value instanceof LocalDateTime || value instanceof LocalDate) {
+            if (Objects.isNull(dateFormatters[index])) {
+                String dateFormat = column.getDateFormat();
+                if (StringUtils.isEmpty(dateFormat)) {
+                    dateFormat = value instanceof LocalDate ? ExcelStyleRegistry.DEFAULT_LOCAL_DATE_FORMAT : ExcelStyleRegistry.DEFAULT_DATE_FORMAT;
+                }
+                dateFormatters[index] = DateTimeFormatter.ofPattern(dateFormat);
+            }
+            return dateFormatters[index].format(toLocalDateTime(value));
+        }
+        return value.toString();
+    }
+
+    /**
+     * 转换为 {@link LocalDateTime}
+     * {@link java.sql.Date} 不支持 toInstant，按毫秒数转换
+     *
+     * @param value {@link Date} {@link LocalDateTime} {@link LocalDate}
+     * @return
+     */
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof LocalDateTime) {
+            return (LocalDateTime) value;
+        }
+        if (value instanceof LocalDate) {
+            return ((LocalDate) value).atStartOfDay();
+        }
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(((Date) value).getTime()), ZoneId.systemDefault());
+    }
+
+    /**
+     * 是否会被 excel 当成公式
+     *
+     * @param value
+     * @return
+     */
+    private static boolean isFormulaLike(String value) {
+        if (value.isEmpty()) {
+            return false;
+        }
+        char c = value.charAt(0);
+        return c == '=' || c == '+' || c == '-' || c == '@' || c == '\t' || c == '\r';
+    }
+
+    /**
+     * 写入一个值
+     * 包含分隔符、双引号、换行时用双引号包起来，双引号写两次
+     *
+     * @param writer    写入流
+     * @param value     值
+     * @param delimiter 分隔符
+     * @throws IOException
+     */
+    private static void writeValue(Writer writer, String value, char delimiter) throws IOException {
+        boolean needQuote = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == delimiter || c == '"' || c == '\r' || c == '\n') {
+                needQuote = true;
+                break;
+            }
+        }
+        if (!needQuote) {
+            writer.write(value);
+            return;
+        }
+
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    /**
+     * 关闭数据源
+     * 迭代器只能遍历一次，导出之后不再引用
+     */
+    private void closeDataSource() {
+        if (Objects.nonNull(dataSource)) {
+            try {
+                dataSource.close();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        this.dataSource = null;
+        this.dataIterator = null;
+    }
+
+
+    /**
+     * 关闭时只刷新不关闭的输出流
+     * 传入的输出流由调用方关闭
+     */
+    private static class NonClosingOutputStream extends FilterOutputStream {
+
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            //FilterOutputStream 默认逐个字节写入
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+    }
+
+}
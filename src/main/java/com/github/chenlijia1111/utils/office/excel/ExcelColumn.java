@@ -0,0 +1,103 @@
+package com.github.chenlijia1111.utils.office.excel;
+
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * 导出的一列
+ * 读取方法与转换器在导出之前解析好，导出每一行时直接调用
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class ExcelColumn {
+
+    /**
+     * 属性名称
+     */
+    private final String fieldName;
+
+    /**
+     * 表头名称
+     */
+    private final String headName;
+
+    /**
+     * 属性读取方法
+     * 为 null 表示导出对象没有这个属性，是自定义的列
+     */
+    private final Function<Object, Object> getter;
+
+    /**
+     * 转换器
+     * 普通列转换属性值，自定义的列转换整个导出对象
+     */
+    private final Function converter;
+
+    /**
+     * 日期格式 为空时按值的类型取默认格式
+     */
+    private final String dateFormat;
+
+    public ExcelColumn(String fieldName, String headName, Function<Object, Object> getter, Function converter) {
+        this(fieldName, headName, getter, converter, null);
+    }
+
+    public ExcelColumn(String fieldName, String headName, Function<Object, Object> getter, Function converter, String dateFormat) {
+        this.fieldName = fieldName;
+        this.headName = headName;
+        this.getter = getter;
+        this.converter = converter;
+        this.dateFormat = dateFormat;
+    }
+
+    /**
+     * 获取导出的值
+     * 与原来的逻辑保持一致：
+     * 属性值为 null 时不导出；
+     * 自定义的列有转换器时转换整个导出对象，没有转换器时导出空字符串
+     *
+     * @param o 导出对象
+     * @return 转换之后的值 null 表示空单元格
+     */
+    @SuppressWarnings("unchecked")
+    public Object getValue(Object o) {
+        if (Objects.isNull(getter)) {
+            return Objects.nonNull(converter) ? converter.apply(o) : "";
+        }
+        Object fieldValue = getter.apply(o);
+        if (Objects.isNull(fieldValue)) {
+            return null;
+        }
+        return Objects.nonNull(converter) ? converter.apply(fieldValue) : fieldValue;
+    }
+
+    /**
+     * 是否是自定义的列
+     *
+     * @return
+     */
+    public boolean isCustom() {
+        return Objects.isNull(getter);
+    }
+
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    public String getHeadName() {
+        return headName;
+    }
+
+    public Function<Object, Object> getGetter() {
+        return getter;
+    }
+
+    public Function getConverter() {
+        return converter;
+    }
+
+    public String getDateFormat() {
+        return dateFormat;
+    }
+}
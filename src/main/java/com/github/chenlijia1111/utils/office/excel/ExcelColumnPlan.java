@@ -0,0 +1,213 @@
+package com.github.chenlijia1111.utils.office.excel;
+
+import com.github.chenlijia1111.utils.common.AssertUtil;
+import com.github.chenlijia1111.utils.core.StringUtils;
+import com.github.chenlijia1111.utils.core.reflect.PropertyGetterUtil;
+import com.github.chenlijia1111.utils.core.reflect.PropertyUtil;
+import com.github.chenlijia1111.utils.list.Lists;
+import com.github.chenlijia1111.utils.office.excel.annos.ExcelExportField;
+
+import java.lang.reflect.Field;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * 导出列计划
+ * <p>
+ * 导出之前把每一列的读取方法、转换器解析好，导出每一行时按列依次调用，
+ * 不再对每个单元格查找属性、查找转换器
+ * <p>
+ * 每个导出类的注解信息（表头、排序、宽度、转换器类型、日期格式）只解析一次，缓存起来给之后的导出重复使用，
+ * 属性读取方法由 {@link PropertyGetterUtil} 缓存
+ * <p>
+ * 注解中的转换器每次生成列计划时重新创建实例，不同的导出不共用转换器，转换器可以有自己的状态
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class ExcelColumnPlan {
+
+    /**
+     * 导出类的注解信息缓存
+     */
+    private static final ClassValue<ExportClassInfo> CLASS_INFO_CACHE = new ClassValue<ExportClassInfo>() {
+        @Override
+        protected ExportClassInfo computeValue(Class<?> type) {
+            return new ExportClassInfo(type);
+        }
+    };
+
+    /**
+     * 导出的列 按表头顺序
+     */
+    private final List<ExcelColumn> columnList;
+
+
+    private ExcelColumnPlan(List<ExcelColumn> columnList) {
+        this.columnList = columnList;
+    }
+
+    /**
+     * 生成导出列计划
+     * 转换器优先取 transferMap 中的，没有再取注解中定义的
+     *
+     * @param exportClass            导出的class类型
+     * @param exportTitleHeadNameMap 导出的表头 key 属性名称 value 表头名称
+     * @param transferMap            转换方法 key 属性名称 value 转换方法 可以为 null
+     * @return
+     */
+    public static ExcelColumnPlan compile(Class<?> exportClass, LinkedHashMap<String, String> exportTitleHeadNameMap,
+                                          Map<String, Function> transferMap) {
+        AssertUtil.isTrue(null != exportClass, "导出的数据Class 对象为null");
+        AssertUtil.isTrue(null != exportTitleHeadNameMap, "导出的表头为null");
+
+        ExportClassInfo classInfo = CLASS_INFO_CACHE.get(exportClass);
+        List<ExcelColumn> columnList = new ArrayList<>(exportTitleHeadNameMap.size());
+        for (Map.Entry<String, String> entry : exportTitleHeadNameMap.entrySet()) {
+            String fieldName = entry.getKey();
+            Function converter = Objects.nonNull(transferMap) ? transferMap.get(fieldName) : null;
+            if (Objects.isNull(converter)) {
+                converter = newConverter(classInfo.converterClassMap.get(fieldName));
+            }
+            columnList.add(new ExcelColumn(fieldName, entry.getValue(),
+                    PropertyGetterUtil.getGetter(exportClass, fieldName), converter, classInfo.dateFormatMap.get(fieldName)));
+        }
+        return new ExcelColumnPlan(Collections.unmodifiableList(columnList));
+    }
+
+    /**
+     * 创建注解中定义的转换器
+     *
+     * @param convertClass 转换器类型 可以为 null
+     * @return
+     */
+    private static Function newConverter(Class<? extends Function> convertClass) {
+        if (Objects.isNull(convertClass)) {
+            return null;
+        }
+        try {
+            return convertClass.newInstance();
+        } catch (InstantiationException | IllegalAccessException e) {
+            //不能跳过，否则这一列没有转换就导出了
+            throw new IllegalArgumentException("转换器实例化失败 " + convertClass.getName(), e);
+        }
+    }
+
+    /**
+     * 获取有 {@link ExcelExportField} 注解的属性的表头信息
+     * 已按 {@link ExcelExportField#sort()} 排序
+     *
+     * @param exportClass     导出的class类型
+     * @param ignoreFieldList 忽略导出的字段 可以为 null
+     * @return
+     */
+    public static List<ExcelExportHeadInfo> getAnnotatedHeadInfoList(Class<?> exportClass, List<String> ignoreFieldList) {
+        AssertUtil.isTrue(null != exportClass, "导出的数据Class 对象为null");
+        List<ExcelExportHeadInfo> headInfoList = CLASS_INFO_CACHE.get(exportClass).headInfoList;
+        if (Lists.isEmpty(ignoreFieldList)) {
+            return headInfoList;
+        }
+        List<ExcelExportHeadInfo> resultList = new ArrayList<>(headInfoList.size());
+        for (ExcelExportHeadInfo headInfo : headInfoList) {
+            if (!ignoreFieldList.contains(headInfo.getFieldName())) {
+                resultList.add(headInfo);
+            }
+        }
+        return resultList;
+    }
+
+    /**
+     * 获取注解定义的表头
+     *
+     * @param exportClass     导出的class类型
+     * @param ignoreFieldList 忽略导出的字段 可以为 null
+     * @return key 属性名称 value 表头名称
+     */
+    public static LinkedHashMap<String, String> getAnnotatedHeadNameMap(Class<?> exportClass, List<String> ignoreFieldList) {
+        List<ExcelExportHeadInfo> headInfoList = getAnnotatedHeadInfoList(exportClass, ignoreFieldList);
+        if (headInfoList.isEmpty()) {
+            throw new IllegalArgumentException("没有到导出的字段");
+        }
+        LinkedHashMap<String, String> headNameMap = new LinkedHashMap<>();
+        for (ExcelExportHeadInfo headInfo : headInfoList) {
+            headNameMap.put(headInfo.getFieldName(), headInfo.getHeadName());
+        }
+        return headNameMap;
+    }
+
+    /**
+     * 获取一行的值
+     *
+     * @param o 导出对象
+     * @return 每一列转换之后的值 null 表示空单元格
+     */
+    public Object[] getRowValues(Object o) {
+        Object[] values = new Object[columnList.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = columnList.get(i).getValue(o);
+        }
+        return values;
+    }
+
+    public List<ExcelColumn> getColumnList() {
+        return columnList;
+    }
+
+    /**
+     * 列数
+     *
+     * @return
+     */
+    public int size() {
+        return columnList.size();
+    }
+
+
+    /**
+     * 导出类的注解信息
+     */
+    private static class ExportClassInfo {
+
+        /**
+         * 有注解的属性的表头信息 已排序
+         */
+        private final List<ExcelExportHeadInfo> headInfoList;
+
+        /**
+         * 注解中定义的转换器类型 key 属性名称
+         */
+        private final Map<String, Class<? extends Function>> converterClassMap;
+
+        /**
+         * 注解中定义的日期格式 key 属性名称
+         */
+        private final Map<String, String> dateFormatMap;
+
+        ExportClassInfo(Class<?> exportClass) {
+            List<ExcelExportHeadInfo> headInfoList = new ArrayList<>();
+            Map<String, Class<? extends Function>> converterClassMap = new HashMap<>();
+            Map<String, String> dateFormatMap = new HashMap<>();
+            for (Field field : PropertyUtil.getAllFields(exportClass)) {
+                ExcelExportField annotation = field.getAnnotation(ExcelExportField.class);
+                if (Objects.isNull(annotation)) {
+                    continue;
+                }
+                headInfoList.add(new ExcelExportHeadInfo(field.getName(), annotation.titleHeadName(), annotation.sort(), annotation.cellWidth()));
+                if (StringUtils.isNotEmpty(annotation.dateFormat())) {
+                    dateFormatMap.putIfAbsent(field.getName(), annotation.dateFormat());
+                }
+
+                Class<? extends Function> convert = annotation.convert();
+                if (!Objects.equals(convert, ExcelExportField.NoConvert.class)) {
+                    converterClassMap.putIfAbsent(field.getName(), convert);
+                }
+            }
+            //以 sort进行排序
+            headInfoList.sort(Comparator.comparing(ExcelExportHeadInfo::getSort));
+            this.headInfoList = Collections.unmodifiableList(headInfoList);
+            this.converterClassMap = converterClassMap;
+            this.dateFormatMap = dateFormatMap;
+        }
+    }
+
+}
@@ -4,13 +4,12 @@ import com.github.chenlijia1111.utils.common.AssertUtil;
 import com.github.chenlijia1111.utils.common.constant.TimeConstant;
 import com.github.chenlijia1111.utils.core.FileUtils;
 import com.github.chenlijia1111.utils.core.StringUtils;
-import com.github.chenlijia1111.utils.core.reflect.PropertyUtil;
 import com.github.chenlijia1111.utils.dateTime.DateTimeConvertUtil;
 import com.github.chenlijia1111.utils.http.HttpUtils;
-import com.github.chenlijia1111.utils.list.Lists;
 import com.github.chenlijia1111.utils.office.excel.annos.ExcelExportField;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
 import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
@@ -19,11 +18,22 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * 导出 excel 工具类
@@ -45,7 +55,27 @@ import java.util.function.Function;
  * 2020-08-10 修改表格样式为只生成一次
  * 优化 row 对象 cell 对象 使用之后就将引用指向 null
  * 方便 gc 回收空间
+ * <p>
+ * 大量数据导出不需要先把数据全部查询到集合中，可以通过 {@link #setDataIterator(Iterator)}、
+ * {@link #setDataStream(Stream)}、{@link #setDataPageSupplier(int, ExcelPageSupplier)} 边查询边写入，
+ * 这时使用 {@link SXSSFWorkbook} 导出，内存中只保留 {@link #setRowAccessWindowSize(int)} 行，
+ * 超出的行写到临时文件，最后再压缩写到输出流，内存占用与导出的数据量无关
+ * <p>
+ * 每一列的读取方法与转换器在导出之前由 {@link ExcelColumnPlan} 解析好，导出类的注解信息只解析一次
+ * <p>
+ * 通过 {@link #setTypedCell(boolean)} 开启之后，数字、布尔值、日期按原本的类型写入单元格，
+ * 日期格式见 {@link ExcelExportField#dateFormat()}，默认与之前一样全部按字符串写入
+ * 样式由 {@link ExcelStyleRegistry} 统一管理，相同的样式只创建一次
  *
+ * 一个工作表的行数超过 {@link #setMaxRowsPerSheet(int)}（默认为文件格式的上限，xlsx 1048576 行，xls 65536 行）时
+ * 自动新建工作表继续写入，每个工作表都有表头，序号接着上一个工作表
+ * <p>
+ * 转换器比较耗时的时候可以通过 {@link #setParallelism(int)} 开启多个线程转换数据，
+ * 数据按批次交给线程池读取属性、调用转换器，当前线程按顺序把转换好的值写到工作表中，
+ * 这时转换器必须是线程安全的，不能共用 {@link java.text.SimpleDateFormat}
+ * <p>
+ * 只需要数据、不需要样式时可以使用 {@link com.github.chenlijia1111.utils.office.csv.CsvExport} 导出 csv，导出的列与这里一致
+ * <p>
  * @author chenlijia
  * @version 1.0
  * @since 2019/9/3 0003 下午 8:41
@@ -59,15 +89,107 @@ public class ExcelExport {
 
     /**
      * 工作表对象
+     * 当前正在写入的工作表
      */
     private Sheet sheet;
 
+    /**
+     * xlsx 一个工作表最多的行数 包括表头
+     */
+    public static final int XLSX_MAX_ROWS = 1048576;
+
+    /**
+     * xls 一个工作表最多的行数 包括表头
+     */
+    public static final int XLS_MAX_ROWS = 65536;
+
+    /**
+     * 多线程转换时每个批次的数据量
+     */
+    private static final int PARALLEL_BATCH_SIZE = 500;
+
+    /**
+     * 转换数据的线程编号
+     */
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+    /**
+     * 每个工作表最多写入的数据行数 不包括表头
+     * 为 0 时取文件格式的上限，超出之后自动新建工作表
+     **/
+    private int maxRowsPerSheet;
+
+    /**
+     * 转换数据的线程数
+     * 默认 1，在当前线程中转换并写入
+     **/
+    private int parallelism = 1;
+
+    /**
+     * 注解定义的列宽
+     * 每个新建的工作表都要设置
+     **/
+    private int[] columnWidths;
+
+    /**
+     * 当前工作表已写入的数据行数
+     **/
+    private int sheetRowCount;
+
+    /**
+     * 已写入的数据行数 即序号
+     **/
+    private int rowCount;
+
 
     /**
      * 导出数据
      **/
     private List<? extends Object> dataList;
 
+    /**
+     * 导出数据 迭代器
+     * 与 {@link #dataList} 二选一，导出时边遍历边写入
+     **/
+    private Iterator<? extends Object> dataIterator;
+
+    /**
+     * 导出完成之后需要关闭的数据源
+     * 如 {@link Stream} 数据库游标
+     **/
+    private AutoCloseable dataSource;
+
+    /**
+     * {@link SXSSFWorkbook} 内存中保留的行数
+     * 超出的行写到临时文件
+     **/
+    private int rowAccessWindowSize = SXSSFWorkbook.DEFAULT_WINDOW_SIZE;
+
+    /**
+     * {@link SXSSFWorkbook} 临时文件是否压缩
+     * 压缩之后临时文件小很多，但是更耗 cpu
+     **/
+    private boolean compressTempFiles;
+
+    /**
+     * {@link SXSSFWorkbook} 字符串是否直接写在单元格中
+     * 默认 true，不使用共享字符串表，写入更快，内存占用不会随着不同字符串的数量增长
+     * 重复的字符串很多（如状态、类型）时可以设置为 false 使用共享字符串表，文件更小
+     **/
+    private boolean inlineStrings = true;
+
+    /**
+     * 是否按值的类型写入单元格
+     * 默认 false，与之前的版本一致，全部转为字符串写入，
+     * 设置为 true 时数字、布尔值、日期按原本的类型写入
+     **/
+    private boolean typedCell;
+
+    /**
+     * 样式注册表
+     **/
+    private ExcelStyleRegistry styleRegistry;
+
     /**
      * 导出的class类型
      * 构造方法传入
@@ -121,6 +243,140 @@ public class ExcelExport {
 
     public ExcelExport setDataList(List<? extends Object> dataList) {
         this.dataList = dataList;
+        this.dataIterator = null;
+        this.dataSource = null;
+        return this;
+    }
+
+    /**
+     * 设置导出数据 迭代器
+     * 导出时边遍历边写入，不需要把数据全部加载到内存中
+     *
+     * @param dataIterator
+     * @return
+     * @since 2020/8/17
+     */
+    public ExcelExport setDataIterator(Iterator<? extends Object> dataIterator) {
+        this.dataIterator = dataIterator;
+        this.dataList = null;
+        this.dataSource = null;
+        return this;
+    }
+
+    /**
+     * 设置导出数据 流
+     * 导出完成之后会关闭流，可以直接传入数据库游标转换的流
+     *
+     * @param dataStream
+     * @return
+     * @since 2020/8/17
+     */
+    public ExcelExport setDataStream(Stream<? extends Object> dataStream) {
+        AssertUtil.notNull(dataStream, "导出的数据流为null");
+        setDataIterator(dataStream.iterator());
+        this.dataSource = dataStream;
+        return this;
+    }
+
+    /**
+     * 设置导出数据 分页查询
+     * 导出时按页依次查询，每次只有一页数据在内存中
+     *
+     * @param pageSize     每页数量
+     * @param pageSupplier 分页查询
+     * @param <T>
+     * @return
+     * @since 2020/8/17
+     */
+    public <T> ExcelExport setDataPageSupplier(int pageSize, ExcelPageSupplier<T> pageSupplier) {
+        return setDataIterator(new ExcelPageIterator<>(pageSize, pageSupplier));
+    }
+
+    /**
+     * 设置 {@link SXSSFWorkbook} 内存中保留的行数
+     * 默认 {@link SXSSFWorkbook#DEFAULT_WINDOW_SIZE}
+     *
+     * @param rowAccessWindowSize
+     * @return
+     * @since 2020/8/17
+     */
+    public ExcelExport setRowAccessWindowSize(int rowAccessWindowSize) {
+        AssertUtil.isTrue(rowAccessWindowSize > 0, "内存中保留的行数必须大于0");
+        this.rowAccessWindowSize = rowAccessWindowSize;
+        return this;
+    }
+
+    /**
+     * 设置 {@link SXSSFWorkbook} 临时文件是否压缩
+     * 磁盘空间紧张时开启
+     *
+     * @param compressTempFiles
+     * @return
+     * @since 2020/8/17
+     */
+    public ExcelExport setCompressTempFiles(boolean compressTempFiles) {
+        this.compressTempFiles = compressTempFiles;
+        return this;
+    }
+
+    /**
+     * 设置 {@link SXSSFWorkbook} 字符串是否直接写在单元格中
+     * 默认 true，数据量少时使用的 {@link XSSFWorkbook} 总是使用共享字符串表
+     *
+     * @param inlineStrings
+     * @return
+     * @since 2020/8/17
+     */
+    public ExcelExport setInlineStrings(boolean inlineStrings) {
+        this.inlineStrings = inlineStrings;
+        return this;
+    }
+
+    /**
+     * 设置是否按值的类型写入单元格
+     * 默认 false 全部按字符串写入
+     * 开启之后数字、日期单元格不再是字符串，按字符串读取导出文件的程序（如 {@link ExcelUtil}）需要一起调整
+     *
+     * @param typedCell
+     * @return
+     * @since 2020/8/17
+     */
+    public ExcelExport setTypedCell(boolean typedCell) {
+        this.typedCell = typedCell;
+        return this;
+    }
+
+    /**
+     * 设置每个工作表最多写入的数据行数 不包括表头
+     * 超出之后自动新建工作表，不能超过文件格式的上限
+     *
+     * @param maxRowsPerSheet
+     * @return
+     * @since 2020/8/17
+     */
+    public ExcelExport setMaxRowsPerSheet(int maxRowsPerSheet) {
+        AssertUtil.isTrue(maxRowsPerSheet > 0 && maxRowsPerSheet < XLSX_MAX_ROWS, "每个工作表的行数必须大于0且小于" + XLSX_MAX_ROWS);
+        this.maxRowsPerSheet = maxRowsPerSheet;
+        return this;
+    }
+
+    /**
+     * 设置转换数据的线程数
+     * 大于 1 时开启多个线程读取属性、调用转换器，写入工作表仍然只在当前线程
+     * <p>
+     * 注意 转换器必须是线程安全的：{@link #transferMap} 中的转换器以及注解 {@link ExcelExportField#convert()}
+     * 的转换器在一次导出中只有一个实例，会被多个线程同时调用。
+     * 常见的把 {@link java.text.SimpleDateFormat} 作为成员变量的日期转换器不是线程安全的，
+     * 多线程转换时会得到错乱的日期甚至抛出异常，需要改成 {@link java.time.format.DateTimeFormatter}
+     * 或者每次调用时新建，或者直接使用 {@link ExcelExportField#dateFormat()}
+     *
+     * @param parallelism
+     * @return
+     * @since 2020/8/17
+     */
+    public ExcelExport setParallelism(int parallelism) {
+        AssertUtil.isTrue(parallelism > 0, "线程数必须大于0");
+        this.parallelism = parallelism;
         return this;
     }
 
@@ -149,6 +405,8 @@ public class ExcelExport {
 
     public ExcelExport setExportTitleHeadNameMap(LinkedHashMap<String, String> exportTitleHeadNameMap) {
         this.exportTitleHeadNameMap = exportTitleHeadNameMap;
+        //自定义表头没有列宽
+        this.columnWidths = null;
         return this;
     }
 
@@ -232,42 +490,41 @@ public class ExcelExport {
      **/
     public void exportData(OutputStream outputStream) {
 
+        //可以导出空数据,但是对象导出对象以及集合不能为空 否则无法确定表头
+        AssertUtil.isTrue(null != dataList || null != dataIterator, "导出的数据集合为null");
+        AssertUtil.isTrue(null != exportClass, "导出的数据Class 对象为null");
+        AssertUtil.isTrue(null != outputStream, "输出流为空");
+
         if (this.exportFileName.toLowerCase().endsWith("xls")) {
             workbook = new HSSFWorkbook();
         } else {
-            //判断数据量，如果数据量大于500条，使用 SXSSFWorkbook 进行导出
-            if (this.dataList.size() >= 1000) {
-                workbook = new SXSSFWorkbook();
+            //判断数据量，如果数据量大于1000条或者不知道数据量，使用 SXSSFWorkbook 进行导出
+            if (null != this.dataIterator || this.dataList.size() >= 1000) {
+                workbook = new SXSSFWorkbook(null, rowAccessWindowSize, compressTempFiles, !inlineStrings);
             } else {
                 workbook = new XSSFWorkbook();
             }
         }
 
-        sheet = workbook.createSheet();
-
-        //可以导出空数据,但是对象导出对象以及集合不能为空 否则无法确定表头
-        AssertUtil.isTrue(null != dataList, "导出的数据集合为null");
-        AssertUtil.isTrue(null != exportClass, "导出的数据Class 对象为null");
-        AssertUtil.isTrue(null != outputStream, "输出流为空");
-
-        //初始化表头数据
-        initHeadTitle();
+        //导出
+        try {
+            //初始化表头数据
+            initHeadTitle();
 
-        //初始化表格数据
-        checkData();
+            //初始化表格数据
+            checkData();
 
-        //校验是否设置了导出文件名
-        if (StringUtils.isEmpty(this.exportFileName)) {
-            //设置默认名城
-            this.exportFileName = DateTimeConvertUtil.dateToStr(new Date(), TimeConstant.DATE_TIME);
-        }
+            //校验是否设置了导出文件名
+            if (StringUtils.isEmpty(this.exportFileName)) {
+                //设置默认名城
+                this.exportFileName = DateTimeConvertUtil.dateToStr(new Date(), TimeConstant.DATE_TIME);
+            }
 
-        //导出
-        try {
             workbook.write(outputStream);
         } catch (IOException e) {
             e.printStackTrace();
         } finally {
+            //出错时也要删除临时文件、关闭数据源
             if (workbook instanceof SXSSFWorkbook) {
                 ((SXSSFWorkbook) workbook).dispose();
             }
@@ -277,10 +534,28 @@ public class ExcelExport {
             } catch (IOException e) {
                 e.printStackTrace();
             }
+
+            closeDataSource();
         }
 
     }
 
+    /**
+     * 关闭数据源
+     * 迭代器只能遍历一次，导出之后不再引用
+     */
+    private void closeDataSource() {
+        if (Objects.nonNull(dataSource)) {
+            try {
+                dataSource.close();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        this.dataSource = null;
+        this.dataIterator = null;
+    }
+
     /**
      * 处理数据
      * <p>
@@ -289,19 +564,180 @@ public class ExcelExport {
      * @return void
      * @since 上午 11:05 2019/9/4 0004
      **/
-    private void checkData() {
+    private void checkData() throws IOException {
 
-        List<?> dataList = this.dataList;
+        //集合也按迭代器遍历，与流式导出走同一个逻辑
+        Iterator<?> dataIterator = Objects.nonNull(this.dataIterator) ? this.dataIterator : this.dataList.iterator();
 
         AssertUtil.isTrue(null != exportClass, "导出的数据Class 对象为null");
 
+        //样式只创建一次，所有单元格共用
+        styleRegistry = new ExcelStyleRegistry(workbook);
+
+        //每一列的读取方法与转换器只解析一次
+        ExcelColumnPlan columnPlan = ExcelColumnPlan.compile(exportClass, this.exportTitleHeadNameMap, transferMap);
+        List<ExcelColumn> columnList = columnPlan.getColumnList();
+        //每一列的日期样式 第一次用到时创建
+        CellStyle[] dateStyles = new CellStyle[columnList.size()];
+
+        //没有数据也要导出表头
+        this.sheet = null;
+        this.rowCount = 0;
+        createSheet();
+
+        if (parallelism > 1) {
+            writeDataParallel(dataIterator, columnPlan, dateStyles);
+        } else {
+            while (dataIterator.hasNext()) {
+                writeRow(columnPlan.getRowValues(dataIterator.next()), columnList, dateStyles);
+            }
+        }
+    }
+
+    /**
+     * 多线程转换数据
+     * 当前线程从迭代器中按批次取数据交给线程池转换，再按提交的顺序取出转换好的值写到工作表中，
+     * 未写入的批次最多 线程数 * 2 个，内存占用不随数据量增长
+     *
+     * @param dataIterator 导出数据
+     * @param columnPlan   导出列计划
+     * @param dateStyles   每一列的日期样式
+     * @throws IOException
+     */
+    private void writeDataParallel(Iterator<?> dataIterator, ExcelColumnPlan columnPlan, CellStyle[] dateStyles) throws IOException {
+        List<ExcelColumn> columnList = columnPlan.getColumnList();
+        ExecutorService executorService = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread thread = new Thread(r, "excel-export-" + THREAD_NUMBER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        //按提交的顺序排队，保证行的顺序与数据的顺序一致
+        Deque<Future<List<Object[]>>> futureDeque = new ArrayDeque<>();
+        try {
+            while (dataIterator.hasNext()) {
+                //迭代器不是线程安全的，只在当前线程中遍历
+                List<Object> batchList = new ArrayList<>(PARALLEL_BATCH_SIZE);
+                while (batchList.size() < PARALLEL_BATCH_SIZE && dataIterator.hasNext()) {
+                    batchList.add(dataIterator.next());
+                }
+                futureDeque.add(executorService.submit(() -> {
+                    List<Object[]> rowValuesList = new ArrayList<>(batchList.size());
+                    for (Object o : batchList) {
+                        rowValuesList.add(columnPlan.getRowValues(o));
+                    }
+                    return rowValuesList;
+                }));
+
+                if (futureDeque.size() >= parallelism * 2) {
+                    writeBatch(futureDeque.poll(), columnList, dateStyles);
+                }
+            }
+            while (!futureDeque.isEmpty()) {
+                writeBatch(futureDeque.poll(), columnList, dateStyles);
+            }
+        } finally {
+            //出错时取消还没有转换的批次
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * 等待一个批次转换完成并写入工作表
+     *
+     * @param future     批次转换结果
+     * @param columnList 导出的列
+     * @param dateStyles 每一列的日期样式
+     * @throws IOException
+     */
+    private void writeBatch(Future<List<Object[]>> future, List<ExcelColumn> columnList, CellStyle[] dateStyles) throws IOException {
+        List<Object[]> rowValuesList;
+        try {
+            rowValuesList = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("导出被中断", e);
+        } catch (ExecutionException e) {
+            //转换器抛出的异常原样抛出，与单线程导出一致
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException("导出数据转换失败", cause);
+        }
+        for (Object[] rowValues : rowValuesList) {
+            writeRow(rowValues, columnList, dateStyles);
+        }
+    }
+
+    /**
+     * 写入一行
+     * 当前工作表写满之后新建工作表
+     *
+     * @param rowValues  每一列转换之后的值
+     * @param columnList 导出的列
+     * @param dateStyles 每一列的日期样式
+     * @throws IOException
+     */
+    private void writeRow(Object[] rowValues, List<ExcelColumn> columnList, CellStyle[] dateStyles) throws IOException {
+        if (sheetRowCount >= getSheetMaxRows()) {
+            createSheet();
+        }
+        sheetRowCount++;
+        rowCount++;
+
+        CellStyle cellStyle = styleRegistry.getCellStyle();
+        Row row = sheet.createRow(sheetRowCount);
+        //第一列 序号 接着上一个工作表
+        Cell serialCell = row.createCell(0);
+        serialCell.setCellValue(rowCount);
+        serialCell.setCellStyle(cellStyle);
+
+        Cell cell;
+        Object value;
+        for (int j = 0; j < rowValues.length; j++) {
+            //自定义的列（导出对象没有这个属性）由转换器对整个对象进行转换
+            value = rowValues[j];
+            if (null != value) {
+                cell = row.createCell(j + 1);
+                if (typedCell) {
+                    setTypedCellValue(cell, value, cellStyle, dateStyles, j, columnList.get(j));
+                } else {
+                    cell.setCellValue(value.toString());
+                    cell.setCellStyle(cellStyle);
+                }
+            }
+        }
+    }
+
+    /**
+     * 新建工作表 并写入表头
+     * {@link SXSSFWorkbook} 的上一个工作表中还在内存中的行先写到临时文件
+     *
+     * @throws IOException
+     */
+    private void createSheet() throws IOException {
+        if (sheet instanceof SXSSFSheet) {
+            ((SXSSFSheet) sheet).flushRows();
+        }
+        sheet = workbook.createSheet();
+        sheetRowCount = 0;
+
+        if (Objects.nonNull(columnWidths)) {
+            for (int i = 0; i < columnWidths.length; i++) {
+                //设置表格列宽度  宽度公式
+                sheet.setColumnWidth(i + 1, 256 * columnWidths[i] + 184);
+            }
+        }
+
         //表格样式
-        CellStyle cellStyle = simpleCellStyle(workbook);
+        CellStyle cellStyle = styleRegistry.getCellStyle();
         //表头样式
-        CellStyle headCellStyle = headCellStyle(workbook);
+        CellStyle headCellStyle = styleRegistry.getHeadStyle();
 
         //导出表头
-        LinkedHashMap<String, String> exportTitleHeadNameMap = this.exportTitleHeadNameMap;
         Row headRow = sheet.createRow(0);
         //第一列 序号
         Cell serialCell = headRow.createCell(0);
@@ -309,130 +745,25 @@ public class ExcelExport {
         serialCell.setCellStyle(cellStyle);
         int currentHeadIndex = 1;
 
-        Set<Map.Entry<String, String>> entries = exportTitleHeadNameMap.entrySet();
-        Iterator<Map.Entry<String, String>> iterator = entries.iterator();
         //列对象引用，不要放在循环内，防止对象引用太多，影响垃圾回收
         Cell cell;
-        while (iterator.hasNext()) {
-            Map.Entry<String, String> next = iterator.next();
-            String headName = next.getValue();
+        for (String headName : exportTitleHeadNameMap.values()) {
             cell = headRow.createCell(currentHeadIndex);
             cell.setCellValue(headName);
             cell.setCellStyle(headCellStyle);
 
             currentHeadIndex++;
         }
-
-        int size = dataList.size();
-        if (size > 0) {
-
-            //行对象引用
-            Row row;
-            //第一列 序号 引用
-            Cell serialCellValue;
-            //转换器 引用
-            Function function;
-
-            for (int i = 0; i < size; i++) {
-
-                row = sheet.createRow(i + 1);
-                //第一列 序号
-                serialCellValue = row.createCell(0);
-                serialCellValue.setCellValue(i + 1);
-                serialCellValue.setCellStyle(cellStyle);
-
-                Object o = dataList.get(i);
-                //获取对象的所有属性
-                //当前列下标
-                int currentColumnIndex = 1;
-                for (String fieldName : exportTitleHeadNameMap.keySet()) {
-
-                    try {
-                        Object fieldValue = PropertyUtil.getFieldValue(o, exportClass, fieldName);
-                        if (null != fieldValue) {
-                            //判断有没有转换器
-                            function = finFieldConvert(fieldName);
-                            if (Objects.nonNull(function)) {
-                                //有转换器
-                                Object apply = function.apply(fieldValue);
-                                cell = row.createCell(currentColumnIndex);
-                                cell.setCellValue(apply.toString());
-                                cell.setCellStyle(cellStyle);
-                            } else {
-                                cell = row.createCell(currentColumnIndex);
-                                cell.setCellValue(fieldValue.toString());
-                                cell.setCellStyle(cellStyle);
-                            }
-                        }
-
-                    } catch (NoSuchFieldException e) {
-                        //如果没有这个属性,那就是自定义的属性，需要单独处理
-                        //判断有没有转换器,直接对传进来的对象进行转换操作
-                        function = finFieldConvert(fieldName);
-                        if (Objects.nonNull(function)) {
-                            //有转换器
-                            Object apply = function.apply(o);
-                            cell = row.createCell(currentColumnIndex);
-                            cell.setCellValue(apply.toString());
-                            cell.setCellStyle(cellStyle);
-                        } else {
-                            cell = row.createCell(currentColumnIndex);
-                            cell.setCellValue("");
-                            cell.setCellStyle(cellStyle);
-                        }
-                    }
-
-                    currentColumnIndex++;
-
-                }
-            }
-        }
     }
 
     /**
-     * 获取字段的转换器
+     * 每个工作表最多写入的数据行数 不包括表头
      *
-     * @param fieldName
      * @return
      */
-    private Function finFieldConvert(String fieldName) {
-
-        Function function = null;
-
-        if (this.getTransferMap().containsKey(fieldName)) {
-            return this.getTransferMap().get(fieldName);
-        }
-
-        if (StringUtils.isNotEmpty(fieldName)) {
-            //先判断有没有在 transferMap 定义转换器
-            if (Objects.nonNull(transferMap)) {
-                function = transferMap.get(fieldName);
-            }
-            //如果没有，再去注解中寻找有没有定义转换器
-            if (Objects.isNull(function)) {
-                try {
-                    Field field = this.exportClass.getDeclaredField(fieldName);
-                    if (Objects.nonNull(field)) {
-                        ExcelExportField excelExportField = field.getAnnotation(ExcelExportField.class);
-                        if (Objects.nonNull(excelExportField)) {
-                            Class<? extends Function> convert = excelExportField.convert();
-                            if (!Objects.equals(convert, ExcelExportField.NoConvert.class)) {
-                                function = convert.newInstance();
-                            }
-                        }
-                    }
-                } catch (NoSuchFieldException e) {
-                } catch (IllegalAccessException e) {
-                } catch (InstantiationException e) {
-                }
-            }
-        }
-
-
-        if (Objects.nonNull(function) && !this.getTransferMap().containsKey(fieldName)) {
-            this.getTransferMap().put(fieldName, function);
-        }
-        return function;
+    private int getSheetMaxRows() {
+        int formatMaxRows = (workbook instanceof HSSFWorkbook ? XLS_MAX_ROWS : XLSX_MAX_ROWS) - 1;
+        return maxRowsPerSheet > 0 ? Math.min(maxRowsPerSheet, formatMaxRows) : formatMaxRows;
     }
 
 
@@ -450,129 +781,95 @@ public class ExcelExport {
 
         //如果自定义了就不初始化了
         if (null == exportTitleHeadNameMap || exportTitleHeadNameMap.size() == 0) {
-            Class<?> exportClass = this.exportClass;
-            List<Field> allFields = PropertyUtil.getAllFields(exportClass);
-            //判断有ExcelExportField 注解的属性
-            if (Lists.isNotEmpty(allFields)) {
-                //以sort进行排序
-                ArrayList<ExcelExportHeadInfo> headInfoArrayList = new ArrayList<>();
-                for (int i = 0; i < allFields.size(); i++) {
-                    Field field = allFields.get(i);
-                    String fieldName = field.getName();
-                    //判断是否要忽略这个字段
-                    if (Lists.isNotEmpty(ignoreFieldList) && ignoreFieldList.contains(fieldName)) {
-                        continue;
-                    }
-                    ExcelExportField annotation = field.getAnnotation(ExcelExportField.class);
-                    if (null != annotation) {
-                        String titleHeadName = annotation.titleHeadName();
-                        ExcelExportHeadInfo headInfo = new ExcelExportHeadInfo(field.getName(), titleHeadName, annotation.sort(), annotation.cellWidth());
-                        headInfoArrayList.add(headInfo);
-                    }
-                }
-
-                if (headInfoArrayList.size() == 0) {
-                    throw new IllegalArgumentException("没有到导出的字段");
-                } else {
-                    //赋值导出的表头
-                    LinkedHashMap<String, String> titleHeadHashMap = new LinkedHashMap<>();
-                    //以 sort进行排序
-                    Collections.sort(headInfoArrayList, Comparator.comparing(ExcelExportHeadInfo::getSort));
-                    for (int i = 0; i < headInfoArrayList.size(); i++) {
-                        ExcelExportHeadInfo headInfo = headInfoArrayList.get(i);
-                        titleHeadHashMap.put(headInfo.getFieldName(), headInfo.getHeadName());
-                        //设置表格列宽度  宽度公式
-                        sheet.setColumnWidth(i + 1, 256 * headInfo.getCellWidth() + 184);
-                    }
-                    this.exportTitleHeadNameMap = titleHeadHashMap;
-                }
+            //注解信息每个类只解析一次 已按 sort 排序
+            List<ExcelExportHeadInfo> headInfoList = ExcelColumnPlan.getAnnotatedHeadInfoList(exportClass, ignoreFieldList);
+            this.exportTitleHeadNameMap = ExcelColumnPlan.getAnnotatedHeadNameMap(exportClass, ignoreFieldList);
+            //列宽在新建工作表时设置
+            this.columnWidths = new int[headInfoList.size()];
+            for (int i = 0; i < headInfoList.size(); i++) {
+                this.columnWidths[i] = headInfoList.get(i).getCellWidth();
+            }
+        }
+    }
 
+    /**
+     * 按值的类型写入单元格
+     * 数字超过 15 位有效数字时 excel 会丢失精度（如雪花算法生成的 id），这种数字按字符串写入
+     *
+     * @param cell       单元格
+     * @param value      值
+     * @param cellStyle  表格样式
+     * @param dateStyles 每一列的日期样式
+     * @param index      列下标
+     * @param column     列
+     */
+    private void setTypedCellValue(Cell cell, Object value, CellStyle cellStyle, CellStyle[] dateStyles, int index, ExcelColumn column) {
+        if (value instanceof String) {
+            cell.setCellValue((String) value);
+        } else if (value instanceof Number) {
+            if (isExactDouble((Number) value)) {
+                cell.setCellValue(((Number) value).doubleValue());
             } else {
-                throw new IllegalArgumentException("没有要导出的字段");
+                cell.setCellValue(value.toString());
             }
-
+        } else if (value instanceof Boolean) {
+            cell.setCellValue((Boolean) value);
+        } else if (value instanceof Date || value instanceof LocalDateTime || value instanceof LocalDate) {
+            if (Objects.isNull(dateStyles[index])) {
+                String dateFormat = column.getDateFormat();
+                if (StringUtils.isEmpty(dateFormat)) {
+                    dateFormat = value instanceof LocalDate ? ExcelStyleRegistry.DEFAULT_LOCAL_DATE_FORMAT : ExcelStyleRegistry.DEFAULT_DATE_FORMAT;
+                }
+                dateStyles[index] = styleRegistry.getDateStyle(dateFormat);
+            }
+            cell.setCellValue(toDate(value));
+            cell.setCellStyle(dateStyles[index]);
+            return;
+        } else {
+            cell.setCellValue(value.toString());
         }
+        cell.setCellStyle(cellStyle);
     }
 
     /**
-     * 初始化样式
+     * 数字转成 double 之后是否不丢失精度
+     * excel 最多只能显示 15 位有效数字
      *
-     * @param workbook 1
-     * @return void
-     * @since 上午 10:07 2019/9/4 0004
-     **/
-    private CellStyle simpleCellStyle(Workbook workbook) {
-
-        //初始样式
-        CellStyle style = workbook.createCellStyle();
-
-        //设置样式  上下左右边框 字体 居中 宽度
-        style.setVerticalAlignment(VerticalAlignment.CENTER);
-        style.setBorderRight(BorderStyle.THIN);
-        style.setRightBorderColor(IndexedColors.GREY_50_PERCENT.getIndex());
-        style.setBorderLeft(BorderStyle.THIN);
-        style.setLeftBorderColor(IndexedColors.GREY_50_PERCENT.getIndex());
-        style.setBorderTop(BorderStyle.THIN);
-        style.setTopBorderColor(IndexedColors.GREY_50_PERCENT.getIndex());
-        style.setBorderBottom(BorderStyle.THIN);
-        style.setBottomBorderColor(IndexedColors.GREY_50_PERCENT.getIndex());
-
-        Font dataFont = workbook.createFont();
-        dataFont.setFontName("Arial");
-        dataFont.setFontHeightInPoints((short) 10);
-        style.setFont(dataFont);
-
-        //水平居中
-        style.setAlignment(HorizontalAlignment.CENTER);
-        //垂直居中
-        style.setVerticalAlignment(VerticalAlignment.CENTER);
-        //第一个参数代表列id(从0开始),第2个参数代表宽度值  参考 ："2012-08-10"的宽度为2500
-        //设置自动换行:
-        style.setWrapText(true);//设置自动换行
-
-        return style;
+     * @param number
+     * @return
+     */
+    private static boolean isExactDouble(Number number) {
+        if (number instanceof Integer || number instanceof Short || number instanceof Byte
+                || number instanceof Double || number instanceof Float) {
+            return true;
+        }
+        if (number instanceof Long || number instanceof AtomicLong || number instanceof AtomicInteger) {
+            long longValue = number.longValue();
+            return longValue > -1000000000000000L && longValue < 1000000000000000L;
+        }
+        if (number instanceof BigDecimal) {
+            return ((BigDecimal) number).precision() <= 15;
+        }
+        if (number instanceof BigInteger) {
+            return ((BigInteger) number).bitLength() < 50;
+        }
+        return false;
     }
 
     /**
-     * 表头样式
-     * 粗体显示表头
+     * 转换为 {@link Date}
      *
-     * @param workbook 1
-     * @return void
-     * @since 上午 10:07 2019/9/4 0004
-     **/
-    private CellStyle headCellStyle(Workbook workbook) {
-
-        //初始样式
-        CellStyle style = workbook.createCellStyle();
-
-        //设置样式  上下左右边框 字体 居中 宽度
-        style.setVerticalAlignment(VerticalAlignment.CENTER);
-        style.setBorderRight(BorderStyle.THIN);
-        style.setRightBorderColor(IndexedColors.GREY_50_PERCENT.getIndex());
-        style.setBorderLeft(BorderStyle.THIN);
-        style.setLeftBorderColor(IndexedColors.GREY_50_PERCENT.getIndex());
-        style.setBorderTop(BorderStyle.THIN);
-        style.setTopBorderColor(IndexedColors.GREY_50_PERCENT.getIndex());
-        style.setBorderBottom(BorderStyle.THIN);
-        style.setBottomBorderColor(IndexedColors.GREY_50_PERCENT.getIndex());
-
-        Font dataFont = workbook.createFont();
-        dataFont.setFontName("Arial");
-        dataFont.setFontHeightInPoints((short) 10);
-        //粗体
-        dataFont.setBold(true);
-        style.setFont(dataFont);
-
-        //水平居中
-        style.setAlignment(HorizontalAlignment.CENTER);
-        //垂直居中
-        style.setVerticalAlignment(VerticalAlignment.CENTER);
-        //第一个参数代表列id(从0开始),第2个参数代表宽度值  参考 ："2012-08-10"的宽度为2500
-        //设置自动换行:
-        style.setWrapText(true);//设置自动换行
-
-        return style;
+     * @param value {@link Date} {@link LocalDateTime} {@link LocalDate}
+     * @return
+     */
+    private static Date toDate(Object value) {
+        if (value instanceof LocalDateTime) {
+            return Date.from(((LocalDateTime) value).atZone(ZoneId.systemDefault()).toInstant());
+        }
+        if (value instanceof LocalDate) {
+            return Date.from(((LocalDate) value).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        }
+        return (Date) value;
     }
 
 
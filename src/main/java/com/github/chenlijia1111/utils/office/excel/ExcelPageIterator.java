@@ -0,0 +1,88 @@
+package com.github.chenlijia1111.utils.office.excel;
+
+import com.github.chenlijia1111.utils.common.AssertUtil;
+import com.github.chenlijia1111.utils.list.Lists;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * 按页依次查询数据的迭代器
+ * 当前页遍历完之后才查询下一页，上一页的数据不再引用
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class ExcelPageIterator<T> implements Iterator<T> {
+
+    private final ExcelPageSupplier<T> pageSupplier;
+
+    private final int pageSize;
+
+    /**
+     * 下一次查询的页码
+     */
+    private int nextPageNum = 1;
+
+    /**
+     * 当前页数据
+     */
+    private List<T> currentPage;
+
+    /**
+     * 当前页的下标
+     */
+    private int currentIndex;
+
+    /**
+     * 是否已经查询到最后一页
+     */
+    private boolean lastPage;
+
+
+    public ExcelPageIterator(int pageSize, ExcelPageSupplier<T> pageSupplier) {
+        AssertUtil.isTrue(pageSize > 0, "每页数量必须大于0");
+        AssertUtil.notNull(pageSupplier, "分页查询不能为空");
+        this.pageSize = pageSize;
+        this.pageSupplier = pageSupplier;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (Objects.isNull(currentPage) || currentIndex >= currentPage.size()) {
+            if (lastPage) {
+                currentPage = null;
+                return false;
+            }
+            //释放上一页的引用之后再查询，防止两页数据同时在内存中
+            currentPage = null;
+            List<T> page = pageSupplier.getPage(nextPageNum++, pageSize);
+            lastPage = Lists.isEmpty(page) || page.size() < pageSize;
+            currentPage = page;
+            currentIndex = 0;
+            if (Lists.isEmpty(page)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return currentPage.get(currentIndex++);
+    }
+
+    /**
+     * 已经查询的页数
+     *
+     * @return
+     */
+    public int getPageCount() {
+        return nextPageNum - 1;
+    }
+}
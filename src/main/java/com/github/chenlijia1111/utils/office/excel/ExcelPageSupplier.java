@@ -0,0 +1,32 @@
+package com.github.chenlijia1111.utils.office.excel;
+
+import java.util.List;
+
+/**
+ * 分页查询导出数据
+ * 导出时按页依次查询，每次只有一页数据在内存中
+ *
+ * 示例代码:
+ * new ExcelExport("订单.xlsx", Order.class)
+ * .setDataPageSupplier(5000, (pageNum, pageSize) -> {
+ * PageHelper.startPage(pageNum, pageSize, false);
+ * return orderMapper.listOrder(condition);
+ * })
+ * .exportData(outputStream);
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+@FunctionalInterface
+public interface ExcelPageSupplier<T> {
+
+    /**
+     * 查询一页数据
+     *
+     * @param pageNum  页码 从 1 开始
+     * @param pageSize 每页数量
+     * @return 返回空集合或者数量小于每页数量表示没有更多数据了
+     */
+    List<T> getPage(int pageNum, int pageSize);
+
+}
@@ -0,0 +1,181 @@
+package com.github.chenlijia1111.utils.office.excel;
+
+import com.github.chenlijia1111.utils.common.AssertUtil;
+import com.github.chenlijia1111.utils.core.StringUtils;
+import org.apache.poi.ss.usermodel.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 表格样式注册表
+ * <p>
+ * 同一个工作薄中定义相同的样式只创建一次，所有单元格共用
+ * excel 对样式数量有限制（xls 4000 个，xlsx 64000 个），样式太多文件也会变大、打开变慢，
+ * 不能每个单元格都创建一个样式
+ * <p>
+ * 样式定义由 是否粗体 + 数据格式 组成，边框、字体、对齐方式统一
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class ExcelStyleRegistry {
+
+    /**
+     * 默认日期格式
+     */
+    public static final String DEFAULT_DATE_FORMAT = "yyyy-MM-dd HH:mm:ss";
+
+    /**
+     * 默认日期格式 没有时间的日期
+     */
+    public static final String DEFAULT_LOCAL_DATE_FORMAT = "yyyy-MM-dd";
+
+    private final Workbook workbook;
+
+    /**
+     * 已创建的样式 key 样式定义
+     */
+    private final Map<String, CellStyle> styleMap = new HashMap<>();
+
+    /**
+     * 普通字体
+     */
+    private Font dataFont;
+
+    /**
+     * 粗体
+     */
+    private Font boldFont;
+
+    /**
+     * 数据格式
+     */
+    private DataFormat dataFormat;
+
+
+    public ExcelStyleRegistry(Workbook workbook) {
+        AssertUtil.notNull(workbook, "工作薄不能为空");
+        this.workbook = workbook;
+    }
+
+    /**
+     * 表格样式
+     *
+     * @return
+     */
+    public CellStyle getCellStyle() {
+        return getStyle(false, null);
+    }
+
+    /**
+     * 表头样式
+     * 粗体显示表头
+     *
+     * @return
+     */
+    public CellStyle getHeadStyle() {
+        return getStyle(true, null);
+    }
+
+    /**
+     * 日期样式
+     *
+     * @param format 日期格式 如 yyyy-MM-dd HH:mm:ss 为空取 {@link #DEFAULT_DATE_FORMAT}
+     * @return
+     */
+    public CellStyle getDateStyle(String format) {
+        return getStyle(false, StringUtils.isEmpty(format) ? DEFAULT_DATE_FORMAT : format);
+    }
+
+    /**
+     * 获取样式 相同定义的样式只创建一次
+     *
+     * @param bold   是否粗体
+     * @param format 数据格式 为空表示常规
+     * @return
+     */
+    public CellStyle getStyle(boolean bold, String format) {
+        String key = (bold ? "B|" : "N|") + (Objects.isNull(format) ? "" : format);
+        CellStyle style = styleMap.get(key);
+        if (Objects.isNull(style)) {
+            style = createStyle(bold, format);
+            styleMap.put(key, style);
+        }
+        return style;
+    }
+
+    /**
+     * 已创建的样式数量
+     *
+     * @return
+     */
+    public int size() {
+        return styleMap.size();
+    }
+
+    /**
+     * 创建样式
+     *
+     * @param bold
+     * @param format
+     * @return
+     */
+    private CellStyle createStyle(boolean bold, String format) {
+
+        //初始样式
+        CellStyle style = workbook.createCellStyle();
+
+        //设置样式  上下左右边框 字体 居中 宽度
+        style.setBorderRight(BorderStyle.THIN);
+        style.setRightBorderColor(IndexedColors.GREY_50_PERCENT.getIndex());
+        style.setBorderLeft(BorderStyle.THIN);
+        style.setLeftBorderColor(IndexedColors.GREY_50_PERCENT.getIndex());
+        style.setBorderTop(BorderStyle.THIN);
+        style.setTopBorderColor(IndexedColors.GREY_50_PERCENT.getIndex());
+        style.setBorderBottom(BorderStyle.THIN);
+        style.setBottomBorderColor(IndexedColors.GREY_50_PERCENT.getIndex());
+
+        //字体也只创建一次
+        style.setFont(bold ? getBoldFont() : getDataFont());
+
+        //水平居中
+        style.setAlignment(HorizontalAlignment.CENTER);
+        //垂直居中
+        style.setVerticalAlignment(VerticalAlignment.CENTER);
+        //设置自动换行
+        style.setWrapText(true);
+
+        if (StringUtils.isNotEmpty(format)) {
+            if (Objects.isNull(dataFormat)) {
+                dataFormat = workbook.createDataFormat();
+            }
+            style.setDataFormat(dataFormat.getFormat(format));
+        }
+        return style;
+    }
+
+    private Font getDataFont() {
+        if (Objects.isNull(dataFont)) {
+            dataFont = createFont(false);
+        }
+        return dataFont;
+    }
+
+    private Font getBoldFont() {
+        if (Objects.isNull(boldFont)) {
+            boldFont = createFont(true);
+        }
+        return boldFont;
+    }
+
+    private Font createFont(boolean bold) {
+        Font font = workbook.createFont();
+        font.setFontName("Arial");
+        font.setFontHeightInPoints((short) 10);
+        font.setBold(bold);
+        return font;
+    }
+
+}
@@ -42,6 +42,17 @@ public @interface ExcelExportField {
      **/
     int sort();
 
+    /**
+     * 日期格式
+     * 属性值（或者转换之后的值）是日期时按这个格式显示，单元格仍然是日期类型，可以排序、筛选
+     * 不设置时 {@link java.util.Date}、{@link java.time.LocalDateTime} 为 yyyy-MM-dd HH:mm:ss，
+     * {@link java.time.LocalDate} 为 yyyy-MM-dd
+     *
+     * @return java.lang.String
+     * @since 2020/8/17
+     **/
+    String dateFormat() default "";
+
     /**
      * 默认不做转换
      *
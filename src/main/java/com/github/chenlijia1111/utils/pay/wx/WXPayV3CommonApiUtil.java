@@ -7,6 +7,7 @@ import com.github.chenlijia1111.utils.encrypt.enums.SignType;
 import com.github.chenlijia1111.utils.http.HttpClientUtils;
 import org.apache.http.entity.ContentType;
 
+import java.io.File;
 import java.util.Map;
 import java.util.Objects;
 
@@ -74,6 +75,40 @@ public class WXPayV3CommonApiUtil {
         return map;
     }
 
+    /**
+     * 图片上传 api
+     * 直接从文件分块读取上传，不需要把图片整个读到内存
+     * POST https://api.mch.weixin.qq.com/v3/merchant/media/upload
+     *
+     * @param mchId      商户id
+     * @param serialNo   证书序列号
+     * @param privateKey 商户私钥
+     * @param file       图片文件 文件名称即上传的文件名称
+     * @return
+     */
+    public Map uploadImage(String mchId, String serialNo, String privateKey, File file) {
+
+        //计算 sha值
+        String sha256BytesToHexString = SHA256EncryptUtil.SHA256FileToHexString(file);
+        String meta = String.format("{\"filename\":\"%s\",\"sha256\":\"%s\"}", file.getName(), sha256BytesToHexString);
+
+        //拼装http头的Authorization内容
+        String authorization = authorization(mchId, serialNo, privateKey,
+                "POST", "/v3/merchant/media/upload", meta);
+
+        //开始请求
+        HttpClientUtils httpClientUtils = HttpClientUtils.getInstance().
+                putHeader("Authorization", authorization).
+                putFileParams("file", file, file.getName(), ContentType.IMAGE_JPEG).
+                putParams("meta", meta).
+                putFileParamsContentType("meta", ContentType.APPLICATION_JSON).
+                doPost("https://api.mch.weixin.qq.com/v3/merchant/media/upload");
+        Map map = httpClientUtils.toMap();
+        httpClientUtils.close();
+
+        return map;
+    }
+
     /**
      * 生成 authorization 头部信息
      *
@@ -0,0 +1,143 @@
+package com.github.chenlijia1111.util.core.cache;
+
+import com.github.chenlijia1111.utils.core.cache.Cache;
+import com.github.chenlijia1111.utils.core.cache.CacheBuilder;
+import com.github.chenlijia1111.utils.core.cache.CacheStats;
+import com.github.chenlijia1111.utils.core.cache.EvictionPolicyTypeEnum;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 独立缓存实例测试
+ *
+ * @author Chen LiJia
+ * @since 2020/7/2
+ */
+public class CacheBuilderTest {
+
+    /**
+     * 不同缓存的容量互不影响
+     */
+    @Test
+    public void testIsolation() {
+        Cache<Integer, String> smallCache = CacheBuilder.<Integer, String>newBuilder()
+                .maximumSize(10)
+                .evictionPolicy(EvictionPolicyTypeEnum.LRU)
+                .build();
+        Cache<Integer, String> largeCache = CacheBuilder.<Integer, String>newBuilder()
+                .maximumSize(1000)
+                .build();
+
+        for (int i = 0; i < 100; i++) {
+            smallCache.put(i, "small-" + i);
+            largeCache.put(i, "large-" + i);
+        }
+        smallCache.cleanUp();
+        largeCache.cleanUp();
+
+        Assert.assertEquals(10, smallCache.estimatedSize());
+        Assert.assertEquals(100, largeCache.estimatedSize());
+        //最近存入的还在
+        Assert.assertEquals("small-99", smallCache.getIfPresent(99));
+        Assert.assertEquals("large-0", largeCache.getIfPresent(0));
+    }
+
+    /**
+     * 按字节数限制容量的 W-TinyLFU 缓存，最大权重很大时也能创建，按权重淘汰
+     */
+    @Test
+    public void testLargeMaximumWeight() {
+        Cache<Integer, byte[]> cache = CacheBuilder.<Integer, byte[]>newBuilder()
+                .maximumWeight(256L << 20, (key, value) -> value.length)
+                .build();
+        //每条 1M，最多存 256 条
+        for (int i = 0; i < 300; i++) {
+            cache.put(i, new byte[1 << 20]);
+        }
+        cache.cleanUp();
+        Assert.assertTrue(cache.estimatedSize() <= 256);
+        Assert.assertTrue(cache.estimatedSize() > 200);
+    }
+
+    /**
+     * 存入之后固定时间过期
+     *
+     * @throws InterruptedException
+     */
+    @Test
+    public void testExpireAfterWrite() throws InterruptedException {
+        Cache<String, Integer> cache = CacheBuilder.<String, Integer>newBuilder()
+                .expireAfterWrite(200, TimeUnit.MILLISECONDS)
+                .build();
+        cache.put("a", 1);
+
+        Thread.sleep(100L);
+        Assert.assertEquals(Integer.valueOf(1), cache.getIfPresent("a"));
+        Thread.sleep(200L);
+        Assert.assertNull(cache.getIfPresent("a"));
+        //不访问也会被后台清理掉
+        cache.put("b", 2);
+        Thread.sleep(400L);
+        Assert.assertEquals(0, cache.estimatedSize());
+    }
+
+    /**
+     * 访问之后延续过期时间
+     *
+     * @throws InterruptedException
+     */
+    @Test
+    public void testExpireAfterAccess() throws InterruptedException {
+        Cache<String, Integer> cache = CacheBuilder.<String, Integer>newBuilder()
+                .expireAfterAccess(200, TimeUnit.MILLISECONDS)
+                .build();
+        cache.put("a", 1);
+
+        for (int i = 0; i < 5; i++) {
+            Thread.sleep(100L);
+            Assert.assertEquals(Integer.valueOf(1), cache.getIfPresent("a"));
+        }
+        Thread.sleep(500L);
+        Assert.assertEquals(0, cache.estimatedSize());
+    }
+
+    /**
+     * 不记录统计数据时统计全部是 0
+     */
+    @Test
+    public void testRecordStats() {
+        Cache<String, Integer> recordCache = CacheBuilder.<String, Integer>newBuilder().recordStats().build();
+        Cache<String, Integer> noRecordCache = CacheBuilder.<String, Integer>newBuilder().build();
+        for (Cache<String, Integer> cache : new Cache[]{recordCache, noRecordCache}) {
+            cache.put("a", 1);
+            cache.getIfPresent("a");
+            cache.getIfPresent("b");
+        }
+
+        CacheStats stats = recordCache.stats();
+        Assert.assertEquals(1, stats.getHitCount());
+        Assert.assertEquals(1, stats.getMissCount());
+        Assert.assertEquals(0, noRecordCache.stats().requestCount());
+    }
+
+    /**
+     * 创建多个缓存也只有一个后台维护线程
+     */
+    @Test
+    public void testSharedScheduler() {
+        for (int i = 0; i < 20; i++) {
+            Cache<Integer, Integer> cache = CacheBuilder.<Integer, Integer>newBuilder()
+                    .expireAfterWrite(1, TimeUnit.MINUTES)
+                    .build();
+            cache.put(i, i);
+        }
+
+        long threadCount = Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> "cache-maintenance".equals(thread.getName()))
+                .count();
+        Assert.assertEquals(1, threadCount);
+    }
+
+}
@@ -0,0 +1,121 @@
+package com.github.chenlijia1111.util.core.cache;
+
+import com.github.chenlijia1111.utils.core.cache.CacheObject;
+import com.github.chenlijia1111.utils.core.cache.CacheUtil;
+import com.github.chenlijia1111.utils.core.cache.TimeOutTypeEnum;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 缓存多线程压力测试
+ *
+ * @author Chen LiJia
+ * @since 2020/7/2
+ */
+public class CacheConcurrentTest {
+
+    //线程数
+    private static final int THREAD_COUNT = 32;
+
+    //每个线程操作次数
+    private static final int PER_THREAD_COUNT = 10000;
+
+    /**
+     * 多线程同时存入、读取、删除，存入的数据不能丢失
+     *
+     * @throws InterruptedException
+     */
+    @Test
+    public void testNoLostUpdate() throws InterruptedException {
+        CacheUtil cacheUtil = CacheUtil.getInstance();
+        String prefix = "testNoLostUpdate-";
+        int beforeCount = cacheUtil.currentCacheCount();
+
+        ExecutorService executorService = Executors.newFixedThreadPool(THREAD_COUNT);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        AtomicInteger missCount = new AtomicInteger();
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            int threadIndex = i;
+            executorService.execute(() -> {
+                try {
+                    startLatch.await();
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+                for (int j = 0; j < PER_THREAD_COUNT; j++) {
+                    String key = prefix + threadIndex + "-" + j;
+                    cacheUtil.put(new CacheObject(key, j, 60000L, TimeOutTypeEnum.FIXED_TIME_OUT));
+                    //同时存入一些很快过期的数据，让清理线程一起工作
+                    cacheUtil.put(new CacheObject(key + "-short", j, 1L, TimeOutTypeEnum.FIXED_TIME_OUT));
+                    //存入一个马上删除的数据
+                    cacheUtil.put(new CacheObject(key + "-remove", j, 60000L, TimeOutTypeEnum.NOT_TIME_OUT));
+                    cacheUtil.remove(key + "-remove");
+                    CacheObject cacheObject = cacheUtil.get(key);
+                    if (null == cacheObject || !Integer.valueOf(j).equals(cacheObject.getValue())) {
+                        missCount.incrementAndGet();
+                    }
+                }
+            });
+        }
+        startLatch.countDown();
+        executorService.shutdown();
+        Assert.assertTrue(executorService.awaitTermination(1, TimeUnit.MINUTES));
+
+        Assert.assertEquals(0, missCount.get());
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            for (int j = 0; j < PER_THREAD_COUNT; j++) {
+                String key = prefix + i + "-" + j;
+                Assert.assertTrue(key, cacheUtil.containsKey(key));
+                Assert.assertFalse(key, cacheUtil.containsKey(key + "-remove"));
+                Assert.assertFalse(key, cacheUtil.containsKey(key + "-short"));
+                cacheUtil.remove(key);
+            }
+        }
+        System.out.println("清理前缓存数量：" + (cacheUtil.currentCacheCount() - beforeCount));
+    }
+
+    /**
+     * 多线程同时抢占同一个 key，只能有一个线程成功
+     *
+     * @throws InterruptedException
+     */
+    @Test
+    public void testPutIfAbsent() throws InterruptedException {
+        CacheUtil cacheUtil = CacheUtil.getInstance();
+        int round = 1000;
+
+        ExecutorService executorService = Executors.newFixedThreadPool(THREAD_COUNT);
+        AtomicInteger successCount = new AtomicInteger();
+        CountDownLatch startLatch = new CountDownLatch(1);
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            executorService.execute(() -> {
+                try {
+                    startLatch.await();
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+                for (int j = 0; j < round; j++) {
+                    CacheObject cacheObject = new CacheObject("testPutIfAbsent-" + j, j, 60000L, TimeOutTypeEnum.FIXED_TIME_OUT);
+                    if (null == cacheUtil.putIfAbsent(cacheObject)) {
+                        successCount.incrementAndGet();
+                    }
+                }
+            });
+        }
+        startLatch.countDown();
+        executorService.shutdown();
+        Assert.assertTrue(executorService.awaitTermination(1, TimeUnit.MINUTES));
+
+        Assert.assertEquals(round, successCount.get());
+        for (int j = 0; j < round; j++) {
+            cacheUtil.remove("testPutIfAbsent-" + j);
+        }
+    }
+
+}
@@ -0,0 +1,130 @@
+package com.github.chenlijia1111.util.core.cache;
+
+import com.github.chenlijia1111.utils.core.cache.CacheObject;
+import com.github.chenlijia1111.utils.core.cache.CacheUtil;
+import com.github.chenlijia1111.utils.core.cache.EvictionPolicyTypeEnum;
+import com.github.chenlijia1111.utils.core.cache.TimeOutTypeEnum;
+import com.github.chenlijia1111.utils.core.cache.eviction.EvictionPolicy;
+import com.github.chenlijia1111.utils.core.cache.eviction.LfuEvictionPolicy;
+import com.github.chenlijia1111.utils.core.cache.eviction.LruEvictionPolicy;
+import com.github.chenlijia1111.utils.core.cache.eviction.WTinyLfuEvictionPolicy;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 缓存淘汰策略测试
+ *
+ * @author Chen LiJia
+ * @since 2020/7/2
+ */
+public class CacheEvictionTest {
+
+    /**
+     * LRU 淘汰最久没有访问的
+     */
+    @Test
+    public void testLru() {
+        EvictionPolicy<String> policy = new LruEvictionPolicy<>();
+        policy.onWrite("a", 1);
+        policy.onWrite("b", 1);
+        policy.onWrite("c", 1);
+        policy.onAccess("a");
+
+        Assert.assertEquals(3, policy.weightedSize());
+        Assert.assertEquals("b", policy.evict());
+        Assert.assertEquals("c", policy.evict());
+        Assert.assertEquals("a", policy.evict());
+        Assert.assertNull(policy.evict());
+        Assert.assertEquals(0, policy.weightedSize());
+    }
+
+    /**
+     * LFU 淘汰访问次数最少的，次数相同淘汰最早的
+     */
+    @Test
+    public void testLfu() {
+        EvictionPolicy<String> policy = new LfuEvictionPolicy<>();
+        policy.onWrite("a", 1);
+        policy.onWrite("b", 2);
+        policy.onWrite("c", 3);
+        policy.onAccess("a");
+        policy.onAccess("a");
+        policy.onAccess("c");
+
+        Assert.assertEquals(6, policy.weightedSize());
+        Assert.assertEquals("b", policy.evict());
+        Assert.assertEquals("c", policy.evict());
+        policy.onRemove("a");
+        Assert.assertNull(policy.evict());
+        Assert.assertEquals(0, policy.weightedSize());
+    }
+
+    /**
+     * W-TinyLFU 热点数据不会被一次性扫描挤出去
+     */
+    @Test
+    public void testWTinyLfuScanResistant() {
+        int maximum = 100;
+        EvictionPolicy<String> policy = new WTinyLfuEvictionPolicy<>(maximum);
+        for (int i = 0; i < maximum; i++) {
+            policy.onWrite("hot-" + i, 1);
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < maximum; i++) {
+                policy.onAccess("hot-" + i);
+            }
+        }
+
+        //一次性扫描大量只访问一次的数据
+        int hotEvicted = 0;
+        for (int i = 0; i < maximum * 10; i++) {
+            policy.onWrite("scan-" + i, 1);
+            while (policy.weightedSize() > maximum) {
+                if (policy.evict().startsWith("hot-")) {
+                    hotEvicted++;
+                }
+            }
+        }
+        System.out.println("被淘汰的热点数据数量：" + hotEvicted);
+        Assert.assertTrue(hotEvicted < maximum / 10);
+    }
+
+    /**
+     * 访问频率计数表按数据条数扩大，不按最大权重分配
+     */
+    @Test
+    public void testWTinyLfuSketchSize() {
+        WTinyLfuEvictionPolicy<Integer> policy = new WTinyLfuEvictionPolicy<>(256L << 20);
+        Assert.assertEquals(1024, policy.sketchTableSize());
+        for (int i = 0; i < 5000; i++) {
+            policy.onWrite(i, 1 << 10);
+        }
+        Assert.assertEquals(8192, policy.sketchTableSize());
+        //同一批数据再次写入不会扩大
+        for (int i = 0; i < 5000; i++) {
+            policy.onWrite(i, 1 << 10);
+        }
+        Assert.assertEquals(8192, policy.sketchTableSize());
+    }
+
+    /**
+     * 设置容量之后缓存数量不会超出
+     */
+    @Test
+    public void testMaximumSize() {
+        CacheUtil cacheUtil = CacheUtil.getInstance();
+        for (EvictionPolicyTypeEnum policyType : EvictionPolicyTypeEnum.values()) {
+            cacheUtil.setEvictionPolicy(policyType).setMaximumSize(100);
+            for (int i = 0; i < 1000; i++) {
+                cacheUtil.put(new CacheObject("testMaximumSize-" + i, i, 60000L, TimeOutTypeEnum.NOT_TIME_OUT));
+            }
+            System.out.println(policyType + " 缓存数量：" + cacheUtil.currentCacheCount());
+            Assert.assertTrue(cacheUtil.currentCacheCount() <= 100);
+
+            cacheUtil.setMaximumSize(0);
+            Assert.assertEquals(0, cacheUtil.currentCacheCount());
+        }
+        cacheUtil.setMaximumSize(CacheUtil.UNBOUNDED);
+    }
+
+}
@@ -0,0 +1,158 @@
+package com.github.chenlijia1111.util.core.cache;
+
+import com.github.chenlijia1111.utils.core.cache.CacheObject;
+import com.github.chenlijia1111.utils.core.cache.CacheUtil;
+import com.github.chenlijia1111.utils.core.cache.TimeOutTypeEnum;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 缓存过期清理测试
+ *
+ * @author Chen LiJia
+ * @since 2020/7/2
+ */
+public class CacheExpireTest {
+
+    /**
+     * 延时超时类型被访问之后会延续过期时间，不再访问之后会被清理线程删除
+     *
+     * @throws InterruptedException
+     */
+    @Test
+    public void testSlidingExpire() throws InterruptedException {
+        CacheUtil cacheUtil = CacheUtil.getInstance();
+        int beforeCount = cacheUtil.currentCacheCount();
+        cacheUtil.put(new CacheObject("testSlidingExpire", 1, 200L, TimeOutTypeEnum.DELAY_TIME_OUT));
+
+        for (int i = 0; i < 6; i++) {
+            Thread.sleep(100L);
+            //getValue 才会更新访问时间
+            Assert.assertEquals(1, cacheUtil.get("testSlidingExpire").getValue());
+        }
+
+        //不再访问，不调用 get 也会被清理掉
+        Thread.sleep(500L);
+        Assert.assertEquals(beforeCount, cacheUtil.currentCacheCount());
+    }
+
+    /**
+     * 同一个 key 反复覆盖，旧的定时会被取消，最后一次存入的数据到期之后被清理
+     *
+     * @throws InterruptedException
+     */
+    @Test
+    public void testOverwrite() throws InterruptedException {
+        CacheUtil cacheUtil = CacheUtil.getInstance();
+        int beforeCount = cacheUtil.currentCacheCount();
+        for (int i = 0; i < 100000; i++) {
+            cacheUtil.put(new CacheObject("testOverwrite", i, 100L, TimeOutTypeEnum.FIXED_TIME_OUT));
+        }
+        Assert.assertEquals(99999, cacheUtil.get("testOverwrite").getValue());
+
+        Thread.sleep(300L);
+        Assert.assertEquals(beforeCount, cacheUtil.currentCacheCount());
+    }
+
+    /**
+     * 存入吞吐量对比 时间轮 与 原来的延时队列
+     *
+     * @throws InterruptedException
+     */
+    @Test
+    public void benchmarkPut() throws InterruptedException {
+        int threadCount = 8;
+        int perThreadCount = 100000;
+
+        //原来的设计：ConcurrentHashMap + 每条数据一个 DelayQueue 元素
+        Map<String, CacheObject> delayQueueMap = new ConcurrentHashMap<>();
+        DelayQueue<DelayItem> delayQueue = new DelayQueue<>();
+        long delayQueueCost = runPut(threadCount, perThreadCount, "delayQueue-", cacheObject -> {
+            delayQueueMap.put(cacheObject.getKey(), cacheObject);
+            delayQueue.put(new DelayItem(cacheObject.getKey(), cacheObject.createTime + cacheObject.survivalTime));
+        });
+
+        CacheUtil cacheUtil = CacheUtil.getInstance();
+        long timerWheelCost = runPut(threadCount, perThreadCount, "timerWheel-", cacheUtil::put);
+
+        long total = (long) threadCount * perThreadCount;
+        System.out.println("DelayQueue 存入 " + total + " 条耗时 " + delayQueueCost + " 毫秒，队列中元素 " + delayQueue.size());
+        System.out.println("时间轮 存入 " + total + " 条耗时 " + timerWheelCost + " 毫秒");
+
+        for (int i = 0; i < threadCount; i++) {
+            for (int j = 0; j < perThreadCount; j++) {
+                cacheUtil.remove("timerWheel-" + i + "-" + j);
+            }
+        }
+    }
+
+    /**
+     * 多线程存入，返回耗时
+     *
+     * @param threadCount
+     * @param perThreadCount
+     * @param prefix
+     * @param putFunction
+     * @return
+     * @throws InterruptedException
+     */
+    private long runPut(int threadCount, int perThreadCount, String prefix,
+                        Consumer<CacheObject> putFunction) throws InterruptedException {
+        ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        for (int i = 0; i < threadCount; i++) {
+            int threadIndex = i;
+            executorService.execute(() -> {
+                try {
+                    startLatch.await();
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+                for (int j = 0; j < perThreadCount; j++) {
+                    putFunction.accept(new CacheObject(prefix + threadIndex + "-" + j, j, 60000L + j, TimeOutTypeEnum.FIXED_TIME_OUT));
+                }
+            });
+        }
+        long startTime = System.currentTimeMillis();
+        startLatch.countDown();
+        executorService.shutdown();
+        executorService.awaitTermination(5, TimeUnit.MINUTES);
+        return System.currentTimeMillis() - startTime;
+    }
+
+    /**
+     * 原来设计中的延时队列元素
+     */
+    private static class DelayItem implements Delayed {
+
+        private final String cacheKey;
+
+        private final long limitTime;
+
+        private DelayItem(String cacheKey, long limitTime) {
+            this.cacheKey = cacheKey;
+            this.limitTime = limitTime;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(limitTime - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed o) {
+            return Long.compare(limitTime, ((DelayItem) o).limitTime);
+        }
+    }
+
+}
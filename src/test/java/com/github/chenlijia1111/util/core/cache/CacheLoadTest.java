@@ -0,0 +1,143 @@
+package com.github.chenlijia1111.util.core.cache;
+
+import com.github.chenlijia1111.utils.core.cache.CacheObject;
+import com.github.chenlijia1111.utils.core.cache.CacheUtil;
+import com.github.chenlijia1111.utils.core.cache.TimeOutTypeEnum;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 缓存加载测试
+ *
+ * @author Chen LiJia
+ * @since 2020/7/2
+ */
+public class CacheLoadTest {
+
+    /**
+     * 多线程同时未命中，只加载一次
+     *
+     * @throws InterruptedException
+     */
+    @Test
+    public void testSingleFlight() throws InterruptedException {
+        CacheUtil cacheUtil = CacheUtil.getInstance();
+        AtomicInteger loadCount = new AtomicInteger();
+        Function<String, CacheObject> loader = key -> {
+            loadCount.incrementAndGet();
+            try {
+                //模拟查询数据库
+                Thread.sleep(200L);
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+            return new CacheObject(key, "value", 60000L, TimeOutTypeEnum.FIXED_TIME_OUT);
+        };
+
+        int threadCount = 32;
+        ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        AtomicInteger valueCount = new AtomicInteger();
+        for (int i = 0; i < threadCount; i++) {
+            executorService.execute(() -> {
+                try {
+                    startLatch.await();
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+                if ("value".equals(cacheUtil.get("testSingleFlight", loader).getValue())) {
+                    valueCount.incrementAndGet();
+                }
+            });
+        }
+        startLatch.countDown();
+        executorService.shutdown();
+        Assert.assertTrue(executorService.awaitTermination(1, TimeUnit.MINUTES));
+
+        Assert.assertEquals(1, loadCount.get());
+        Assert.assertEquals(threadCount, valueCount.get());
+        Assert.assertTrue(cacheUtil.stats().getLoadSuccessCount() > 0);
+        System.out.println("平均加载耗时：" + cacheUtil.stats().averageLoadPenalty() / 1000000 + " 毫秒");
+        cacheUtil.remove("testSingleFlight");
+    }
+
+    /**
+     * 加载失败时异常抛给调用方，不存入缓存
+     */
+    @Test
+    public void testLoadFailure() {
+        CacheUtil cacheUtil = CacheUtil.getInstance();
+        try {
+            cacheUtil.get("testLoadFailure", key -> {
+                throw new IllegalStateException("加载失败");
+            });
+            Assert.fail("应该抛出异常");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("加载失败", e.getMessage());
+        }
+        Assert.assertFalse(cacheUtil.containsKey("testLoadFailure"));
+    }
+
+    /**
+     * 快要过期的数据后台提前加载，加载完成之前返回旧值
+     *
+     * @throws InterruptedException
+     */
+    @Test
+    public void testRefreshAhead() throws InterruptedException {
+        CacheUtil cacheUtil = CacheUtil.getInstance();
+        cacheUtil.setRefreshAheadRatio(0.5);
+        AtomicInteger version = new AtomicInteger();
+        Function<String, CacheObject> loader = key -> {
+            try {
+                Thread.sleep(100L);
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+            return new CacheObject(key, version.incrementAndGet(), 1000L, TimeOutTypeEnum.FIXED_TIME_OUT);
+        };
+
+        Assert.assertEquals(1, cacheUtil.get("testRefreshAhead", loader).getValue());
+        Thread.sleep(600L);
+        //超过一半存活时间，触发后台刷新，先返回旧值
+        Assert.assertEquals(1, cacheUtil.get("testRefreshAhead", loader).getValue());
+        Thread.sleep(300L);
+        Assert.assertEquals(2, cacheUtil.get("testRefreshAhead", loader).getValue());
+
+        cacheUtil.setRefreshAheadRatio(0);
+        cacheUtil.remove("testRefreshAhead");
+    }
+
+    /**
+     * 延时超时的数据一直被访问就不会过期，不提前刷新
+     *
+     * @throws InterruptedException
+     */
+    @Test
+    public void testNoRefreshAheadForDelayTimeOut() throws InterruptedException {
+        CacheUtil cacheUtil = CacheUtil.getInstance();
+        cacheUtil.setRefreshAheadRatio(0.5);
+        AtomicInteger loadCount = new AtomicInteger();
+        Function<String, CacheObject> loader = key ->
+                new CacheObject(key, loadCount.incrementAndGet(), 1000L, TimeOutTypeEnum.DELAY_TIME_OUT);
+
+        Assert.assertEquals(1, cacheUtil.get("testNoRefreshAheadForDelayTimeOut", loader).getValue());
+        for (int i = 0; i < 8; i++) {
+            Thread.sleep(200L);
+            Assert.assertEquals(1, cacheUtil.get("testNoRefreshAheadForDelayTimeOut", loader).getValue());
+        }
+        Thread.sleep(200L);
+        Assert.assertEquals(1, loadCount.get());
+
+        cacheUtil.setRefreshAheadRatio(0);
+        cacheUtil.remove("testNoRefreshAheadForDelayTimeOut");
+    }
+
+}
@@ -0,0 +1,81 @@
+package com.github.chenlijia1111.util.core.cache;
+
+import com.github.chenlijia1111.utils.core.cache.CacheObject;
+import com.github.chenlijia1111.utils.core.cache.CacheStats;
+import com.github.chenlijia1111.utils.core.cache.CacheUtil;
+import com.github.chenlijia1111.utils.core.cache.RemovalCauseEnum;
+import com.github.chenlijia1111.utils.core.cache.RemovalListener;
+import com.github.chenlijia1111.utils.core.cache.TimeOutTypeEnum;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缓存统计与删除监听测试
+ *
+ * @author Chen LiJia
+ * @since 2020/7/2
+ */
+public class CacheStatsTest {
+
+    /**
+     * 命中 未命中 存入 统计
+     */
+    @Test
+    public void testStats() {
+        CacheUtil cacheUtil = CacheUtil.getInstance();
+        CacheStats before = cacheUtil.stats();
+
+        cacheUtil.put(new CacheObject("testStats", 1, 60000L, TimeOutTypeEnum.FIXED_TIME_OUT));
+        cacheUtil.get("testStats");
+        cacheUtil.get("testStats");
+        cacheUtil.get("testStats-miss");
+        cacheUtil.remove("testStats");
+
+        CacheStats after = cacheUtil.stats();
+        System.out.println(after);
+        Assert.assertEquals(1, after.getPutCount() - before.getPutCount());
+        Assert.assertEquals(2, after.getHitCount() - before.getHitCount());
+        Assert.assertEquals(1, after.getMissCount() - before.getMissCount());
+    }
+
+    /**
+     * 删除监听 异步回调并带上删除原因
+     *
+     * @throws InterruptedException
+     */
+    @Test
+    public void testRemovalListener() throws InterruptedException {
+        CacheUtil cacheUtil = CacheUtil.getInstance();
+        Map<String, RemovalCauseEnum> causeMap = new ConcurrentHashMap<>();
+        CountDownLatch latch = new CountDownLatch(3);
+        RemovalListener<String, CacheObject> listener = (key, value, cause) -> {
+            if (key.startsWith("testRemovalListener")) {
+                causeMap.put(key + "-" + value.getValue(), cause);
+                latch.countDown();
+            }
+        };
+        cacheUtil.addRemovalListener(listener);
+        long expirationCount = cacheUtil.stats().getExpirationCount();
+
+        cacheUtil.put(new CacheObject("testRemovalListener-replace", 1, 60000L, TimeOutTypeEnum.FIXED_TIME_OUT));
+        cacheUtil.put(new CacheObject("testRemovalListener-replace", 2, 60000L, TimeOutTypeEnum.FIXED_TIME_OUT));
+        cacheUtil.put(new CacheObject("testRemovalListener-explicit", 1, 60000L, TimeOutTypeEnum.FIXED_TIME_OUT));
+        cacheUtil.remove("testRemovalListener-explicit");
+        cacheUtil.put(new CacheObject("testRemovalListener-expire", 1, 50L, TimeOutTypeEnum.FIXED_TIME_OUT));
+
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        cacheUtil.removeRemovalListener(listener);
+        cacheUtil.remove("testRemovalListener-replace");
+
+        Assert.assertEquals(RemovalCauseEnum.REPLACED, causeMap.get("testRemovalListener-replace-1"));
+        Assert.assertEquals(RemovalCauseEnum.EXPLICIT, causeMap.get("testRemovalListener-explicit-1"));
+        Assert.assertEquals(RemovalCauseEnum.EXPIRED, causeMap.get("testRemovalListener-expire-1"));
+        Assert.assertTrue(cacheUtil.stats().getExpirationCount() > expirationCount);
+    }
+
+}
@@ -0,0 +1,346 @@
+package com.github.chenlijia1111.util.core.cache;
+
+import com.github.chenlijia1111.utils.core.cache.Cache;
+import com.github.chenlijia1111.utils.core.cache.CacheBuilder;
+import com.github.chenlijia1111.utils.core.cache.EvictionPolicyTypeEnum;
+import com.github.chenlijia1111.utils.core.cache.RemovalCauseEnum;
+import com.github.chenlijia1111.utils.core.cache.offheap.OffHeapEntry;
+import com.github.chenlijia1111.utils.core.cache.offheap.OffHeapStats;
+import com.github.chenlijia1111.utils.core.cache.offheap.OffHeapStore;
+import com.github.chenlijia1111.utils.core.cache.offheap.Serializer;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 堆外缓存测试
+ *
+ * @author Chen LiJia
+ * @since 2020/7/2
+ */
+public class OffHeapCacheTest {
+
+    /**
+     * 直接缓存字节数组，不需要转换
+     */
+    private static final Serializer<byte[]> BYTE_ARRAY_SERIALIZER = new Serializer<byte[]>() {
+        @Override
+        public byte[] serialize(byte[] value) {
+            return value;
+        }
+
+        @Override
+        public byte[] deserialize(byte[] bytes) {
+            return bytes;
+        }
+    };
+
+    /**
+     * 超出容量回收最早写满的 slab，内存占用不超过容量
+     */
+    @Test
+    public void testStoreEviction() {
+        List<String> evictedList = new CopyOnWriteArrayList<>();
+        OffHeapStore<Integer> store = new OffHeapStore<>(4096, 1024, (key, bytes, expired) -> {
+            Assert.assertFalse(expired);
+            evictedList.add(new String(bytes.get(), StandardCharsets.UTF_8));
+        });
+
+        for (int i = 0; i < 100; i++) {
+            byte[] bytes = String.format("%0100d", i).getBytes(StandardCharsets.UTF_8);
+            Assert.assertNotNull(store.put(i, bytes, System.currentTimeMillis(), Long.MAX_VALUE));
+        }
+
+        OffHeapStats stats = store.stats();
+        System.out.println(stats);
+        Assert.assertEquals(4096, stats.getAllocatedBytes());
+        Assert.assertTrue(stats.getUsedBytes() <= stats.getCapacityBytes());
+        Assert.assertEquals(100, stats.getEntryCount() + stats.getEvictionCount());
+        //最早写入的被淘汰，淘汰时能读到原来的数据
+        Assert.assertEquals(String.format("%0100d", 0), evictedList.get(0));
+        Assert.assertNull(store.get(0, System.currentTimeMillis()));
+
+        OffHeapEntry<Integer> entry = store.get(99, System.currentTimeMillis());
+        Assert.assertEquals(String.format("%0100d", 99), new String(store.read(entry), StandardCharsets.UTF_8));
+        //超过 slab 大小存不下
+        Assert.assertNull(store.put(100, new byte[2048], System.currentTimeMillis(), Long.MAX_VALUE));
+    }
+
+    /**
+     * 淘汰监听在释放锁之后回调，回调中其他线程可以正常读写
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testStoreEvictionOutsideLock() throws Exception {
+        List<Boolean> unblockedList = new CopyOnWriteArrayList<>();
+        OffHeapStore<Integer>[] storeHolder = new OffHeapStore[1];
+        storeHolder[0] = new OffHeapStore<>(2048, 1024, (key, bytes, expired) -> {
+            Thread thread = new Thread(() -> storeHolder[0].stats());
+            thread.start();
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            unblockedList.add(!thread.isAlive());
+        });
+        for (int i = 0; i < 30; i++) {
+            storeHolder[0].put(i, new byte[100], System.currentTimeMillis(), Long.MAX_VALUE);
+        }
+        Assert.assertFalse(unblockedList.isEmpty());
+        Assert.assertFalse(unblockedList.contains(false));
+    }
+
+    /**
+     * 不需要被淘汰的数据时不复制
+     */
+    @Test
+    public void testStoreEvictionWithoutBytes() {
+        List<byte[]> evictedList = new CopyOnWriteArrayList<>();
+        OffHeapStore<Integer> store = new OffHeapStore<>(2048, 1024, new OffHeapStore.EvictionListener<Integer>() {
+            @Override
+            public void onEviction(Integer key, Supplier<byte[]> bytes, boolean expired) {
+                evictedList.add(bytes.get());
+            }
+
+            @Override
+            public boolean isBytesRequired() {
+                return false;
+            }
+        });
+        for (int i = 0; i < 30; i++) {
+            store.put(i, new byte[100], System.currentTimeMillis(), Long.MAX_VALUE);
+        }
+        Assert.assertFalse(evictedList.isEmpty());
+        for (byte[] bytes : evictedList) {
+            Assert.assertNull(bytes);
+        }
+    }
+
+    /**
+     * 并发读取时命中次数不会少算
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testStoreHitCount() throws Exception {
+        OffHeapStore<String> store = new OffHeapStore<>(4096, (key, bytes, expired) -> {
+        });
+        store.put("a", new byte[10], System.currentTimeMillis(), Long.MAX_VALUE);
+        int threadCount = 4;
+        int count = 20000;
+        CountDownLatch latch = new CountDownLatch(threadCount);
+        for (int i = 0; i < threadCount; i++) {
+            new Thread(() -> {
+                for (int j = 0; j < count; j++) {
+                    store.get("a", System.currentTimeMillis());
+                }
+                latch.countDown();
+            }).start();
+        }
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(threadCount * count, store.get("a", System.currentTimeMillis()).getHitCount() - 1);
+    }
+
+    /**
+     * 过期数据读取时删除
+     *
+     * @throws InterruptedException
+     */
+    @Test
+    public void testStoreExpire() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        OffHeapStore<String> store = new OffHeapStore<>(4096, (key, bytes, expired) -> {
+            Assert.assertTrue(expired);
+            latch.countDown();
+        });
+        long currentTimeMillis = System.currentTimeMillis();
+        store.put("a", new byte[10], currentTimeMillis, currentTimeMillis + 100);
+
+        Assert.assertTrue(store.containsKey("a", System.currentTimeMillis()));
+        Thread.sleep(200L);
+        Assert.assertNull(store.get("a", System.currentTimeMillis()));
+        Assert.assertTrue(latch.await(1, TimeUnit.SECONDS));
+        Assert.assertEquals(0, store.stats().getUsedBytes());
+        Assert.assertEquals(1, store.stats().getExpirationCount());
+    }
+
+    /**
+     * 超出堆内容量的数据降级到堆外，多次命中之后提升回堆内
+     */
+    @Test
+    public void testDemoteAndPromote() {
+        Cache<Integer, String> cache = CacheBuilder.<Integer, String>newBuilder()
+                .maximumSize(10)
+                .evictionPolicy(EvictionPolicyTypeEnum.LRU)
+                .offHeap(1024 * 1024)
+                .build();
+
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, "value-" + i);
+        }
+        cache.cleanUp();
+        Assert.assertEquals(100, cache.estimatedSize());
+        Assert.assertEquals(90, cache.offHeapStats().getEntryCount());
+
+        //第一次命中还留在堆外
+        Assert.assertEquals("value-0", cache.getIfPresent(0));
+        Assert.assertEquals(0, cache.offHeapStats().getPromotionCount());
+        //第二次命中提升到堆内
+        Assert.assertEquals("value-0", cache.getIfPresent(0));
+        cache.cleanUp();
+        Assert.assertEquals(1, cache.offHeapStats().getPromotionCount());
+        Assert.assertEquals(100, cache.estimatedSize());
+        Assert.assertEquals("value-0", cache.getIfPresent(0));
+
+        //覆盖之后堆外的旧值作废
+        cache.put(50, "new-50");
+        Assert.assertEquals("new-50", cache.getIfPresent(50));
+        Assert.assertTrue(cache.remove(1));
+        Assert.assertFalse(cache.containsKey(1));
+    }
+
+    /**
+     * 堆外数据被淘汰时删除监听能拿到原来的值
+     *
+     * @throws InterruptedException
+     */
+    @Test
+    public void testOffHeapRemovalListener() throws InterruptedException {
+        Map<Integer, RemovalCauseEnum> causeMap = new ConcurrentHashMap<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        Cache<Integer, byte[]> cache = CacheBuilder.<Integer, byte[]>newBuilder()
+                .maximumWeight(4096, (key, value) -> value.length)
+                .offHeap(8192, BYTE_ARRAY_SERIALIZER)
+                .removalListener((key, value, cause) -> {
+                    Assert.assertEquals(1024, value.length);
+                    causeMap.put(key, cause);
+                    latch.countDown();
+                })
+                .build();
+
+        for (int i = 0; i < 20; i++) {
+            cache.put(i, new byte[1024]);
+        }
+        cache.cleanUp();
+
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(RemovalCauseEnum.SIZE, causeMap.values().iterator().next());
+        Assert.assertTrue(cache.offHeapStats().getUsedBytes() <= 8192);
+    }
+
+    /**
+     * gc 停顿对比
+     * 同样的数据分别全部放在堆内 以及 堆内只保留热点数据其余放在堆外，
+     * 然后按热点分布读取缓存并持续产生短生命周期的对象，对比 gc 次数与耗时，最后各执行一次 full gc 对比停顿时间
+     *
+     * 缓存值是很多小对象组成的列表，类似解析之后的 json，gc 停顿主要取决于存活对象的数量
+     *
+     * 默认缓存约 256M 数据，可以通过 -Doffheap.benchmark.mb=4096 调整到 2 ~ 4G，
+     * 此时需要 -Xmx12g -XX:MaxDirectMemorySize=8g
+     */
+    @Test
+    @Ignore("耗时的对比测试 需要时手动执行")
+    public void benchmarkGcPause() {
+        int dataMb = Integer.getInteger("offheap.benchmark.mb", 256);
+        //每条数据大约 32K
+        int entryCount = dataMb * 32;
+        //热点数据占 1%
+        int hotCount = Math.max(1, entryCount / 100);
+
+        Cache<Integer, ArrayList<String>> heapCache = CacheBuilder.<Integer, ArrayList<String>>newBuilder().build();
+        fill(heapCache, entryCount);
+        long[] heapResult = runGcWorkload(heapCache, entryCount, hotCount);
+        heapCache.removeAll();
+        heapCache = null;
+        System.gc();
+
+        Cache<Integer, ArrayList<String>> offHeapCache = CacheBuilder.<Integer, ArrayList<String>>newBuilder()
+                .maximumSize(hotCount * 2)
+                .offHeap((long) dataMb * 1024 * 1024 * 2)
+                .build();
+        fill(offHeapCache, entryCount);
+        offHeapCache.cleanUp();
+        long[] offHeapResult = runGcWorkload(offHeapCache, entryCount, hotCount);
+
+        System.out.println("缓存数据 " + entryCount + " 条，约 " + dataMb + "M");
+        System.out.println("全部堆内：gc " + heapResult[0] + " 次，耗时 " + heapResult[1] + " 毫秒，full gc 停顿 " + heapResult[2] + " 毫秒");
+        System.out.println("堆外缓存：gc " + offHeapResult[0] + " 次，耗时 " + offHeapResult[1] + " 毫秒，full gc 停顿 " + offHeapResult[2] + " 毫秒");
+        System.out.println(offHeapCache.offHeapStats());
+        Assert.assertEquals(entryCount, offHeapCache.estimatedSize());
+    }
+
+    private void fill(Cache<Integer, ArrayList<String>> cache, int entryCount) {
+        for (int i = 0; i < entryCount; i++) {
+            ArrayList<String> value = new ArrayList<>(500);
+            for (int j = 0; j < 500; j++) {
+                value.add("item-" + i + "-" + j);
+            }
+            cache.put(i, value);
+        }
+    }
+
+    /**
+     * 按热点分布读取缓存并产生短生命周期的垃圾对象
+     * 90% 的请求访问热点数据
+     *
+     * @param cache
+     * @param entryCount
+     * @param hotCount
+     * @return gc 次数、gc 耗时、full gc 停顿
+     */
+    private long[] runGcWorkload(Cache<Integer, ArrayList<String>> cache, int entryCount, int hotCount) {
+        long beforeCount = gcCount();
+        long beforeTime = gcTime();
+        long checksum = 0;
+        for (int i = 0; i < 200000; i++) {
+            long random = (i * 2654435761L) & Integer.MAX_VALUE;
+            int key = i % 10 == 0 ? (int) (random % entryCount) : (int) (random % hotCount);
+            List<String> value = cache.getIfPresent(key);
+            if (null != value) {
+                checksum += value.size();
+            }
+            //模拟请求处理过程中产生的临时对象
+            byte[] garbage = new byte[8 * 1024];
+            checksum += garbage.length;
+        }
+        long gcCount = gcCount() - beforeCount;
+        long gcTime = gcTime() - beforeTime;
+
+        long startTime = System.currentTimeMillis();
+        System.gc();
+        long fullGcTime = System.currentTimeMillis() - startTime;
+        Assert.assertTrue(checksum > 0);
+        return new long[]{gcCount, gcTime, fullGcTime};
+    }
+
+    private long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += bean.getCollectionCount();
+        }
+        return count;
+    }
+
+    private long gcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += bean.getCollectionTime();
+        }
+        return time;
+    }
+
+}
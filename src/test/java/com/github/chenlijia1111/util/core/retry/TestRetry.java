@@ -1,10 +1,16 @@
 package com.github.chenlijia1111.util.core.retry;
 
 import com.github.chenlijia1111.utils.common.Result;
+import com.github.chenlijia1111.utils.core.retry.ExponentialBackoff;
 import com.github.chenlijia1111.utils.core.retry.RetryUtil;
 import com.github.chenlijia1111.utils.list.Lists;
+import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 /**
  * @author Chen LiJia
  * @since 2020/7/29
@@ -23,4 +29,41 @@ public class TestRetry {
         }).process();
     }
 
+    /**
+     * 每次重试之前按指数退避等待
+     * 第 n 次重试的等待时间不超过 min(maxDelay, baseDelay * 2^n)，两次执行的间隔不小于等待时间
+     */
+    @Test
+    public void testBackoff() {
+        List<Integer> retryCountList = new ArrayList<>();
+        List<Long> delayList = new ArrayList<>();
+        ExponentialBackoff backoff = new ExponentialBackoff(10, 40) {
+            @Override
+            public long delayMillis(int retryCount) {
+                long delay = super.delayMillis(retryCount);
+                retryCountList.add(retryCount);
+                delayList.add(delay);
+                return delay;
+            }
+        };
+        List<Long> attemptTimeList = new ArrayList<>();
+        new RetryUtil().setRepeatCount(5).setRepeatException(Lists.asList(ArithmeticException.class))
+                .setBackoff(backoff).setProcess(() -> {
+            attemptTimeList.add(System.nanoTime());
+            int i = 1 / 0;
+            return Result.success("不会执行到这里");
+        }).process();
+
+        System.out.println("等待时间 " + delayList);
+        //第一次执行不等待，之后每次重试之前等待一次
+        Assert.assertEquals(6, attemptTimeList.size());
+        Assert.assertEquals(Lists.asList(0, 1, 2, 3, 4), retryCountList);
+        long[] ceilings = {10, 20, 40, 40, 40};
+        for (int i = 0; i < delayList.size(); i++) {
+            Assert.assertTrue(delayList.get(i) >= 0 && delayList.get(i) <= ceilings[i]);
+            long intervalMillis = TimeUnit.NANOSECONDS.toMillis(attemptTimeList.get(i + 1) - attemptTimeList.get(i));
+            Assert.assertTrue(intervalMillis >= delayList.get(i));
+        }
+    }
+
 }
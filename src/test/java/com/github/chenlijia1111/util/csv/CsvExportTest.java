@@ -0,0 +1,291 @@
+package com.github.chenlijia1111.util.csv;
+
+import com.github.chenlijia1111.utils.office.csv.CsvCompressTypeEnum;
+import com.github.chenlijia1111.utils.office.csv.CsvExport;
+import com.github.chenlijia1111.utils.office.excel.ExcelExport;
+import com.github.chenlijia1111.utils.office.excel.annos.ExcelExportField;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * csv 导出测试
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class CsvExportTest {
+
+    /**
+     * 状态转换
+     */
+    public static class StatusConvert implements Function<Integer, String> {
+        @Override
+        public String apply(Integer status) {
+            return status == 1 ? "已支付" : "未支付";
+        }
+    }
+
+    public static class OrderVo {
+
+        @ExcelExportField(titleHeadName = "订单编号", sort = 1)
+        private Long id;
+
+        @ExcelExportField(titleHeadName = "金额", sort = 2)
+        private BigDecimal amount;
+
+        @ExcelExportField(titleHeadName = "状态", sort = 3, convert = StatusConvert.class)
+        private Integer status;
+
+        @ExcelExportField(titleHeadName = "下单时间", sort = 4)
+        private LocalDateTime createTime;
+
+        @ExcelExportField(titleHeadName = "发货日期", sort = 5, dateFormat = "yyyy/MM/dd")
+        private LocalDate sendDate;
+
+        @ExcelExportField(titleHeadName = "备注", sort = 6)
+        private String remark;
+
+        public Long getId() {
+            return id;
+        }
+
+        public BigDecimal getAmount() {
+            return amount;
+        }
+
+        public Integer getStatus() {
+            return status;
+        }
+
+        public LocalDateTime getCreateTime() {
+            return createTime;
+        }
+
+        public LocalDate getSendDate() {
+            return sendDate;
+        }
+
+        public String getRemark() {
+            return remark;
+        }
+    }
+
+    private static OrderVo newOrderVo(long i, String remark) {
+        OrderVo orderVo = new OrderVo();
+        orderVo.id = i;
+        orderVo.amount = new BigDecimal("1E+3").add(new BigDecimal(i));
+        orderVo.status = (int) (i % 2);
+        orderVo.createTime = LocalDateTime.of(2020, 8, 17, 10, 30, 0);
+        orderVo.sendDate = LocalDate.of(2020, 8, 18);
+        orderVo.remark = remark;
+        return orderVo;
+    }
+
+    private static List<OrderVo> dataList(int rows) {
+        List<OrderVo> dataList = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            dataList.add(newOrderVo(i, i % 10 == 0 ? null : "备注" + i));
+        }
+        return dataList;
+    }
+
+    private static byte[] export(CsvExport csvExport) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        csvExport.exportData(outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private static String read(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] bytes = new byte[8192];
+        int len;
+        while ((len = inputStream.read(bytes)) != -1) {
+            outputStream.write(bytes, 0, len);
+        }
+        return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 注解表头、转换器、日期格式、转义
+     */
+    @Test
+    public void testExport() {
+        List<OrderVo> dataList = new ArrayList<>();
+        dataList.add(newOrderVo(1, "含,逗号"));
+        dataList.add(newOrderVo(2, "含\"引号\"\n换行"));
+        dataList.add(newOrderVo(3, null));
+
+        String csv = new String(export(new CsvExport("订单", OrderVo.class).setDataList(dataList)), StandardCharsets.UTF_8);
+        System.out.println(csv);
+        Assert.assertEquals("\uFEFF订单编号,金额,状态,下单时间,发货日期,备注\r\n"
+                + "1,1001,已支付,2020-08-17 10:30:00,2020/08/18,\"含,逗号\"\r\n"
+                + "2,1002,未支付,2020-08-17 10:30:00,2020/08/18,\"含\"\"引号\"\"\n换行\"\r\n"
+                + "3,1003,已支付,2020-08-17 10:30:00,2020/08/18,\r\n", csv);
+    }
+
+    /**
+     * tsv、自定义表头、transferMap、不写 BOM
+     */
+    @Test
+    public void testTsv() {
+        LinkedHashMap<String, String> headNameMap = new LinkedHashMap<>();
+        headNameMap.put("id", "编号");
+        headNameMap.put("summary", "摘要");
+        CsvExport csvExport = new CsvExport("订单.tsv", OrderVo.class)
+                .setDataList(dataList(2))
+                .setExportTitleHeadNameMap(headNameMap)
+                .setWithBom(false);
+        csvExport.getTransferMap().put("summary", o -> ((OrderVo) o).getId() + "\t" + ((OrderVo) o).getRemark());
+
+        String tsv = new String(export(csvExport), StandardCharsets.UTF_8);
+        Assert.assertEquals("编号\t摘要\r\n0\t\"0\tnull\"\r\n1\t\"1\t备注1\"\r\n", tsv);
+    }
+
+    /**
+     * 可能被当成公式的文本前面加单引号，数字不处理
+     */
+    @Test
+    public void testEscapeFormula() {
+        List<OrderVo> dataList = new ArrayList<>();
+        dataList.add(newOrderVo(1, "=HYPERLINK(\"http://evil\",\"点击\")"));
+        dataList.add(newOrderVo(2, "@SUM(1+1)"));
+        dataList.add(newOrderVo(3, "-1+2"));
+        dataList.add(newOrderVo(4, "正常"));
+        dataList.get(3).amount = new BigDecimal("-12.5");
+
+        String csv = new String(export(new CsvExport("订单.csv", OrderVo.class).setDataList(dataList).setWithBom(false)), StandardCharsets.UTF_8);
+        String[] lines = csv.split("\r\n");
+        Assert.assertTrue(lines[1].endsWith(",\"'=HYPERLINK(\"\"http://evil\"\",\"\"点击\"\")\""));
+        Assert.assertTrue(lines[2].endsWith(",'@SUM(1+1)"));
+        Assert.assertTrue(lines[3].endsWith(",'-1+2"));
+        Assert.assertEquals("4,-12.5,未支付,2020-08-17 10:30:00,2020/08/18,正常", lines[4]);
+
+        csv = new String(export(new CsvExport("订单.csv", OrderVo.class).setDataList(dataList).setWithBom(false)
+                .setEscapeFormula(false)), StandardCharsets.UTF_8);
+        Assert.assertTrue(csv.split("\r\n")[2].endsWith(",@SUM(1+1)"));
+    }
+
+    /**
+     * 写入失败时抛出异常
+     */
+    @Test
+    public void testWriteFailure() {
+        OutputStream outputStream = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("连接已断开");
+            }
+        };
+        try {
+            new CsvExport("订单.csv", OrderVo.class).setDataList(dataList(10)).exportData(outputStream);
+            Assert.fail("写入失败应该抛出异常");
+        } catch (UncheckedIOException e) {
+            Assert.assertEquals("连接已断开", e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * gzip、zip 压缩之后内容一致
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testCompress() throws IOException {
+        List<OrderVo> dataList = dataList(10000);
+        byte[] plain = export(new CsvExport("订单.csv", OrderVo.class).setDataList(dataList));
+
+        byte[] gzip = export(new CsvExport("订单.csv", OrderVo.class).setDataList(dataList).setCompressType(CsvCompressTypeEnum.GZIP));
+        Assert.assertEquals(new String(plain, StandardCharsets.UTF_8), read(new GZIPInputStream(new ByteArrayInputStream(gzip))));
+
+        byte[] zip = export(new CsvExport("订单.csv", OrderVo.class).setDataList(dataList).setCompressType(CsvCompressTypeEnum.ZIP));
+        try (ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(zip), StandardCharsets.UTF_8)) {
+            ZipEntry entry = zipInputStream.getNextEntry();
+            Assert.assertEquals("订单.csv", entry.getName());
+            Assert.assertEquals(new String(plain, StandardCharsets.UTF_8), read(zipInputStream));
+        }
+
+        System.out.println("csv " + plain.length / 1024 + "K gzip " + gzip.length / 1024 + "K zip " + zip.length / 1024 + "K");
+        Assert.assertTrue(gzip.length < plain.length / 3);
+    }
+
+    /**
+     * 导出之后不关闭传入的输出流
+     */
+    @Test
+    public void testNotCloseOutputStream() {
+        boolean[] closed = new boolean[1];
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+        new CsvExport("订单.csv", OrderVo.class).setDataList(dataList(10))
+                .setCompressType(CsvCompressTypeEnum.GZIP).exportData(outputStream);
+        Assert.assertFalse(closed[0]);
+        Assert.assertTrue(outputStream.size() > 0);
+    }
+
+    /**
+     * csv 与 xlsx 导出耗时对比
+     *
+     * @throws IOException
+     */
+    @Test
+    public void benchmarkCsvAndXlsx() throws IOException {
+        int rows = 500000;
+        List<OrderVo> dataList = dataList(rows);
+
+        long startTime = System.currentTimeMillis();
+        File xlsxFile = File.createTempFile("export", ".xlsx");
+        xlsxFile.deleteOnExit();
+        try (OutputStream outputStream = new FileOutputStream(xlsxFile)) {
+            new ExcelExport("订单.xlsx", OrderVo.class).setDataList(dataList).exportData(outputStream);
+        }
+        long xlsxTime = System.currentTimeMillis() - startTime;
+
+        startTime = System.currentTimeMillis();
+        File csvFile = File.createTempFile("export", ".csv");
+        csvFile.deleteOnExit();
+        try (OutputStream outputStream = new FileOutputStream(csvFile)) {
+            new CsvExport("订单.csv", OrderVo.class).setDataList(dataList).exportData(outputStream);
+        }
+        long csvTime = System.currentTimeMillis() - startTime;
+
+        startTime = System.currentTimeMillis();
+        File gzipFile = File.createTempFile("export", ".csv.gz");
+        gzipFile.deleteOnExit();
+        try (OutputStream outputStream = new FileOutputStream(gzipFile)) {
+            new CsvExport("订单.csv", OrderVo.class).setDataList(dataList)
+                    .setCompressType(CsvCompressTypeEnum.GZIP).exportData(outputStream);
+        }
+        long gzipTime = System.currentTimeMillis() - startTime;
+
+        System.out.println("导出 " + rows + " 行");
+        System.out.println("xlsx：" + xlsxTime + " 毫秒，" + rows * 1000L / Math.max(xlsxTime, 1) + " 行/秒，" + xlsxFile.length() / 1024 + "K");
+        System.out.println("csv：" + csvTime + " 毫秒，" + rows * 1000L / Math.max(csvTime, 1) + " 行/秒，" + csvFile.length() / 1024 + "K");
+        System.out.println("csv gzip：" + gzipTime + " 毫秒，" + rows * 1000L / Math.max(gzipTime, 1) + " 行/秒，" + gzipFile.length() / 1024 + "K");
+        Assert.assertTrue(csvTime < xlsxTime);
+    }
+
+}
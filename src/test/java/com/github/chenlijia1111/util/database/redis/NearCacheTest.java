@@ -0,0 +1,233 @@
+package com.github.chenlijia1111.util.database.redis;
+
+import com.github.chenlijia1111.utils.database.redis.IRedisConnect;
+import com.github.chenlijia1111.utils.database.redis.InvalidationBroadcaster;
+import com.github.chenlijia1111.utils.database.redis.NearCache;
+import com.github.chenlijia1111.utils.database.redis.NearCacheBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 二级缓存测试
+ *
+ * @author Chen LiJia
+ * @since 2020/7/2
+ */
+public class NearCacheTest {
+
+    /**
+     * 重复读取只访问一次 redis
+     */
+    @Test
+    public void testReadThrough() {
+        MemoryRedisConnect redisConnect = new MemoryRedisConnect();
+        redisConnect.put("user:1", "张三");
+        NearCache nearCache = NearCacheBuilder.newBuilder(redisConnect).build();
+
+        long startTime = System.nanoTime();
+        for (int i = 0; i < 100000; i++) {
+            Assert.assertEquals("张三", nearCache.get("user:1"));
+        }
+        System.out.println("读取 100000 次耗时 " + (System.nanoTime() - startTime) / 1000000 + " 毫秒，访问 redis " + redisConnect.getCount.get() + " 次");
+        Assert.assertEquals(1, redisConnect.getCount.get());
+        Assert.assertEquals(1, nearCache.stats().getMissCount());
+    }
+
+    /**
+     * 本地与 redis 都没有时调用加载方法，并写回 redis
+     */
+    @Test
+    public void testLoader() {
+        MemoryRedisConnect redisConnect = new MemoryRedisConnect();
+        NearCache nearCache = NearCacheBuilder.newBuilder(redisConnect)
+                .remoteExpireAfterWrite(1, TimeUnit.HOURS)
+                .build();
+        AtomicInteger loadCount = new AtomicInteger();
+
+        for (int i = 0; i < 10; i++) {
+            Pojo pojo = nearCache.get("pojo:1", Pojo.class, key -> {
+                loadCount.incrementAndGet();
+                Pojo value = new Pojo();
+                value.setName("pojo");
+                return value;
+            });
+            Assert.assertEquals("pojo", pojo.getName());
+        }
+        Assert.assertEquals(1, loadCount.get());
+        Assert.assertEquals("{\"name\":\"pojo\"}", redisConnect.dataMap.get("pojo:1"));
+
+        //其他节点直接从 redis 读到
+        NearCache otherCache = NearCacheBuilder.newBuilder(redisConnect).build();
+        Assert.assertEquals("pojo", otherCache.get("pojo:1", Pojo.class).getName());
+    }
+
+    /**
+     * 写入之后广播失效，其他节点重新从 redis 读取新值
+     */
+    @Test
+    public void testInvalidationBroadcast() {
+        MemoryRedisConnect redisConnect = new MemoryRedisConnect();
+        List<NearCache> nodeList = new CopyOnWriteArrayList<>();
+        //模拟 redis 发布订阅，所有节点都能收到消息，包括自己
+        InvalidationBroadcaster broadcaster = (sourceId, key) -> nodeList.forEach(node -> node.onRemoteInvalidation(sourceId, key));
+        NearCache nodeA = NearCacheBuilder.newBuilder(redisConnect).invalidationBroadcaster(broadcaster).build();
+        NearCache nodeB = NearCacheBuilder.newBuilder(redisConnect).invalidationBroadcaster(broadcaster).build();
+        nodeList.add(nodeA);
+        nodeList.add(nodeB);
+
+        nodeA.put("config", "v1");
+        Assert.assertEquals("v1", nodeB.get("config"));
+
+        nodeA.put("config", "v2");
+        int getCount = redisConnect.getCount.get();
+        //自己发出的消息不会删除自己的本地缓存
+        Assert.assertEquals("v2", nodeA.get("config"));
+        Assert.assertEquals(getCount, redisConnect.getCount.get());
+        //其他节点本地缓存被删除，重新读取
+        Assert.assertEquals("v2", nodeB.get("config"));
+        Assert.assertEquals(getCount + 1, redisConnect.getCount.get());
+
+        nodeB.invalidate("config");
+        Assert.assertNull(nodeA.get("config"));
+        Assert.assertNull(redisConnect.get("config"));
+    }
+
+    /**
+     * 加载期间被写入，加载的旧值不写回 redis，也不留在本地缓存
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testLoadRace() throws Exception {
+        MemoryRedisConnect redisConnect = new MemoryRedisConnect();
+        NearCache nearCache = NearCacheBuilder.newBuilder(redisConnect).build();
+        CountDownLatch loadingLatch = new CountDownLatch(1);
+        CountDownLatch putLatch = new CountDownLatch(1);
+
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        Future<Pojo> future = executorService.submit(() -> nearCache.get("pojo:1", Pojo.class, key -> {
+            loadingLatch.countDown();
+            try {
+                putLatch.await();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+            Pojo value = new Pojo();
+            value.setName("old");
+            return value;
+        }));
+        Assert.assertTrue(loadingLatch.await(10, TimeUnit.SECONDS));
+        Pojo pojo = new Pojo();
+        pojo.setName("new");
+        nearCache.put("pojo:1", pojo);
+        putLatch.countDown();
+        future.get(10, TimeUnit.SECONDS);
+        executorService.shutdown();
+
+        Assert.assertEquals("{\"name\":\"new\"}", redisConnect.dataMap.get("pojo:1"));
+        Assert.assertEquals("new", nearCache.get("pojo:1", Pojo.class).getName());
+    }
+
+    /**
+     * redis 连接没有实现删除时抛出异常，本地缓存也不删除
+     */
+    @Test
+    public void testInvalidateWithoutRemove() {
+        Map<String, String> dataMap = new ConcurrentHashMap<>();
+        IRedisConnect redisConnect = new IRedisConnect() {
+            @Override
+            public void put(String key, Object value) {
+                dataMap.put(key, String.valueOf(value));
+            }
+
+            @Override
+            public void putExpire(String key, Object value, Long expireTime) {
+                dataMap.put(key, String.valueOf(value));
+            }
+
+            @Override
+            public String get(String key) {
+                return dataMap.get(key);
+            }
+        };
+        NearCache nearCache = NearCacheBuilder.newBuilder(redisConnect).build();
+        nearCache.put("config", "v1");
+        dataMap.put("config", "v2");
+        Assert.assertEquals("v1", nearCache.get("config"));
+
+        try {
+            nearCache.invalidate("config");
+            Assert.fail("不支持删除时应该抛出异常");
+        } catch (UnsupportedOperationException e) {
+            Assert.assertTrue(e.getMessage().contains("IRedisConnect#remove"));
+        }
+        Assert.assertEquals("v1", nearCache.get("config"));
+        Assert.assertEquals("v2", dataMap.get("config"));
+    }
+
+    /**
+     * 内存版 redis 连接
+     */
+    private static class MemoryRedisConnect implements IRedisConnect {
+
+        private final Map<String, String> dataMap = new ConcurrentHashMap<>();
+
+        private final Map<String, Long> expireMap = new ConcurrentHashMap<>();
+
+        private final AtomicInteger getCount = new AtomicInteger();
+
+        @Override
+        public void put(String key, Object value) {
+            dataMap.put(key, String.valueOf(value));
+            expireMap.remove(key);
+        }
+
+        @Override
+        public void putExpire(String key, Object value, Long expireTime) {
+            dataMap.put(key, String.valueOf(value));
+            expireMap.put(key, System.currentTimeMillis() + expireTime);
+        }
+
+        @Override
+        public String get(String key) {
+            getCount.incrementAndGet();
+            Long expireTime = expireMap.get(key);
+            if (Objects.nonNull(expireTime) && expireTime <= System.currentTimeMillis()) {
+                remove(key);
+            }
+            return dataMap.get(key);
+        }
+
+        @Override
+        public void remove(String key) {
+            dataMap.remove(key);
+            expireMap.remove(key);
+        }
+    }
+
+    public static class Pojo {
+
+        private String name;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+}
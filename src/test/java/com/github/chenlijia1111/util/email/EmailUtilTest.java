@@ -0,0 +1,369 @@
+package com.github.chenlijia1111.util.email;
+
+import com.github.chenlijia1111.utils.common.Result;
+import com.github.chenlijia1111.utils.email.EmailMessage;
+import com.github.chenlijia1111.utils.email.EmailUtil;
+import com.github.chenlijia1111.utils.list.Lists;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 邮件连接复用测试
+ * 连接本地的模拟 SMTP 服务，统计建立的连接数与收到的邮件数
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class EmailUtilTest {
+
+    private FakeSmtpServer server;
+
+    @Before
+    public void before() throws IOException {
+        server = new FakeSmtpServer(0);
+    }
+
+    @After
+    public void after() throws IOException {
+        server.close();
+    }
+
+    private EmailUtil newEmailUtil() {
+        return new EmailUtil("sender@test.com", "password", "127.0.0.1", String.valueOf(server.getPort()), false, "测试");
+    }
+
+    private EmailUtil newPooledEmailUtil() {
+        return newEmailUtil().setPooled(true);
+    }
+
+    private List<EmailMessage> messageList(int count) {
+        List<EmailMessage> messageList = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            messageList.add(new EmailMessage(Lists.asList("user" + i + "@test.com"), "标题" + i, "<p>内容" + i + "</p>"));
+        }
+        return messageList;
+    }
+
+    /**
+     * 批量发送只建立一次连接
+     */
+    @Test
+    public void testReuseConnection() {
+        EmailUtil emailUtil = newPooledEmailUtil().setMaxConnections(1);
+        List<Result> resultList = emailUtil.sendBatch(messageList(20));
+        //单封发送也复用同一个连接
+        Result result = emailUtil.sendMassage(Lists.asList("single@test.com"), null, null, null);
+        emailUtil.close();
+
+        Assert.assertEquals(20, resultList.size());
+        resultList.forEach(r -> Assert.assertTrue(r.getSuccess()));
+        Assert.assertTrue(result.getSuccess());
+        Assert.assertEquals(21, server.getMessageCount());
+        Assert.assertEquals(1, server.getConnectionCount());
+        Assert.assertEquals(1, emailUtil.getTransportPool().getConnectCount());
+    }
+
+    /**
+     * 没有开启连接池时发送完关闭连接，不调用 close 也不会留下连接
+     */
+    @Test
+    public void testCloseWithoutPool() {
+        EmailUtil emailUtil = newEmailUtil();
+        Assert.assertTrue(emailUtil.sendMassage(Lists.asList("single@test.com"), null, null, null).getSuccess());
+        List<Result> resultList = emailUtil.sendBatch(messageList(5));
+        resultList.forEach(r -> Assert.assertTrue(r.getSuccess()));
+
+        Assert.assertEquals(6, server.getMessageCount());
+        //批量发送还是只用一个连接
+        Assert.assertEquals(2, server.getConnectionCount());
+        Assert.assertEquals(2, server.getQuitCount());
+        Assert.assertEquals(0, emailUtil.getTransportPool().getIdleCount());
+    }
+
+    /**
+     * 每封邮件单独返回结果，收件地址被拒绝不影响后面的邮件
+     */
+    @Test
+    public void testResultPerMessage() {
+        EmailUtil emailUtil = newEmailUtil().setMaxConnections(1);
+        List<EmailMessage> messageList = messageList(3);
+        messageList.get(1).setReceiveEmails(Lists.asList("bad@test.com"));
+        messageList.add(new EmailMessage());
+
+        List<Result> resultList = emailUtil.sendBatch(messageList);
+        emailUtil.close();
+        System.out.println(resultList);
+
+        Assert.assertTrue(resultList.get(0).getSuccess());
+        Assert.assertFalse(resultList.get(1).getSuccess());
+        Assert.assertTrue(resultList.get(2).getSuccess());
+        Assert.assertFalse(resultList.get(3).getSuccess());
+        Assert.assertEquals(2, server.getMessageCount());
+        Assert.assertEquals(1, server.getConnectionCount());
+    }
+
+    /**
+     * 达到单个连接的发送上限之后换新的连接
+     */
+    @Test
+    public void testMaxMessagesPerConnection() {
+        EmailUtil emailUtil = newPooledEmailUtil().setMaxConnections(1).setMaxMessagesPerConnection(3);
+        List<Result> resultList = emailUtil.sendBatch(messageList(10));
+        emailUtil.close();
+
+        resultList.forEach(r -> Assert.assertTrue(r.getSuccess()));
+        Assert.assertEquals(10, server.getMessageCount());
+        Assert.assertEquals(4, server.getConnectionCount());
+    }
+
+    /**
+     * 服务器断开连接之后，下一封邮件重新建立连接
+     */
+    @Test
+    public void testReconnectAfterServerClose() {
+        EmailUtil emailUtil = newPooledEmailUtil().setMaxConnections(1);
+        Assert.assertTrue(emailUtil.sendBatch(messageList(1)).get(0).getSuccess());
+        server.closeClients();
+        //连接断开的那一封失败，之后的邮件换新的连接
+        List<Result> resultList = emailUtil.sendBatch(messageList(3));
+        emailUtil.close();
+        System.out.println(resultList);
+
+        Assert.assertTrue(resultList.get(2).getSuccess());
+        Assert.assertEquals(2, server.getConnectionCount());
+    }
+
+    /**
+     * 异步发送 连接数不超过最大连接数
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSendAsync() throws Exception {
+        EmailUtil emailUtil = newPooledEmailUtil().setMaxConnections(2);
+        List<CompletableFuture<Result>> futureList = new ArrayList<>();
+        for (EmailMessage emailMessage : messageList(50)) {
+            futureList.add(emailUtil.sendAsync(emailMessage));
+        }
+        for (CompletableFuture<Result> future : futureList) {
+            Assert.assertTrue(future.get(10, TimeUnit.SECONDS).getSuccess());
+        }
+        emailUtil.close();
+
+        Assert.assertEquals(50, server.getMessageCount());
+        Assert.assertTrue(server.getConnectionCount() <= 2);
+    }
+
+    /**
+     * 排队满了直接返回失败
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSendAsyncQueueFull() throws Exception {
+        server.setGreetingDelayMillis(200);
+        EmailUtil emailUtil = newEmailUtil().setMaxConnections(1).setAsyncQueueCapacity(2);
+        List<CompletableFuture<Result>> futureList = new ArrayList<>();
+        for (EmailMessage emailMessage : messageList(10)) {
+            futureList.add(emailUtil.sendAsync(emailMessage));
+        }
+        int successCount = 0;
+        int rejectCount = 0;
+        for (CompletableFuture<Result> future : futureList) {
+            Result result = future.get(10, TimeUnit.SECONDS);
+            if (result.getSuccess()) {
+                successCount++;
+            } else if ("发送队列已满".equals(result.getMsg())) {
+                rejectCount++;
+            }
+        }
+        emailUtil.close();
+
+        Assert.assertEquals(3, successCount);
+        Assert.assertEquals(7, rejectCount);
+    }
+
+    /**
+     * 复用连接与每封邮件新建连接的耗时对比
+     * 模拟服务器在握手阶段延迟 20 毫秒，相当于 TLS 握手与登录认证的耗时
+     */
+    @Test
+    public void benchmarkBulkSend() {
+        server.setGreetingDelayMillis(20);
+        int count = 200;
+
+        EmailUtil pooled = newPooledEmailUtil().setMaxConnections(1).setMaxMessagesPerConnection(count);
+        long startTime = System.currentTimeMillis();
+        pooled.sendBatch(messageList(count)).forEach(r -> Assert.assertTrue(r.getSuccess()));
+        long pooledTime = System.currentTimeMillis() - startTime;
+        pooled.close();
+        int pooledConnections = server.getConnectionCount();
+
+        EmailUtil single = newEmailUtil().setMaxConnections(1);
+        startTime = System.currentTimeMillis();
+        for (EmailMessage emailMessage : messageList(count)) {
+            Assert.assertTrue(single.sendBatch(Lists.asList(emailMessage)).get(0).getSuccess());
+        }
+        long singleTime = System.currentTimeMillis() - startTime;
+        single.close();
+
+        System.out.println("发送 " + count + " 封");
+        System.out.println("复用连接：" + pooledTime + " 毫秒，连接 " + pooledConnections + " 次");
+        System.out.println("每封新建连接：" + singleTime + " 毫秒，连接 " + (server.getConnectionCount() - pooledConnections) + " 次");
+        Assert.assertEquals(1, pooledConnections);
+        Assert.assertTrue(pooledTime < singleTime);
+    }
+
+
+    /**
+     * 模拟的 SMTP 服务
+     * 只实现发送邮件需要的命令，收件地址以 bad@ 开头的会被拒绝
+     */
+    private static class FakeSmtpServer {
+
+        private final ServerSocket serverSocket;
+
+        private final List<Socket> socketList = new ArrayList<>();
+
+        private final AtomicInteger connectionCount = new AtomicInteger();
+
+        private final AtomicInteger messageCount = new AtomicInteger();
+
+        private final AtomicInteger quitCount = new AtomicInteger();
+
+        private volatile long greetingDelayMillis;
+
+        FakeSmtpServer(int port) throws IOException {
+            serverSocket = new ServerSocket(port);
+            Thread thread = new Thread(() -> {
+                while (!serverSocket.isClosed()) {
+                    try {
+                        Socket socket = serverSocket.accept();
+                        connectionCount.incrementAndGet();
+                        synchronized (socketList) {
+                            socketList.add(socket);
+                        }
+                        Thread handler = new Thread(() -> handle(socket), "fake-smtp-handler");
+                        handler.setDaemon(true);
+                        handler.start();
+                    } catch (IOException e) {
+                        //服务关闭
+                    }
+                }
+            }, "fake-smtp");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private void handle(Socket socket) {
+            try (Socket s = socket;
+                 BufferedReader reader = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8))) {
+                OutputStream out = s.getOutputStream();
+                if (greetingDelayMillis > 0) {
+                    Thread.sleep(greetingDelayMillis);
+                }
+                write(out, "220 fake smtp");
+                String line;
+                //认证阶段还需要读取的行数
+                int authLines = 0;
+                while (null != (line = reader.readLine())) {
+                    if (authLines > 0) {
+                        authLines--;
+                        write(out, authLines > 0 ? "334 UGFzc3dvcmQ6" : "235 ok");
+                        continue;
+                    }
+                    String command = line.toUpperCase();
+                    if (command.startsWith("EHLO")) {
+                        write(out, "250-fake\r\n250-AUTH LOGIN\r\n250 8BITMIME");
+                    } else if (command.startsWith("HELO")) {
+                        write(out, "250 fake");
+                    } else if (command.startsWith("AUTH")) {
+                        //带了用户名的只需要再读取密码
+                        authLines = line.trim().split(" ").length > 2 ? 1 : 2;
+                        write(out, authLines > 1 ? "334 VXNlcm5hbWU6" : "334 UGFzc3dvcmQ6");
+                    } else if (command.startsWith("RCPT")) {
+                        write(out, command.contains("<BAD@") ? "550 no such user" : "250 ok");
+                    } else if (command.startsWith("DATA")) {
+                        write(out, "354 go ahead");
+                        while (null != (line = reader.readLine()) && !".".equals(line)) {
+                            //读取邮件内容
+                        }
+                        messageCount.incrementAndGet();
+                        write(out, "250 queued");
+                    } else if (command.startsWith("QUIT")) {
+                        quitCount.incrementAndGet();
+                        write(out, "221 bye");
+                        return;
+                    } else {
+                        //MAIL RSET NOOP
+                        write(out, "250 ok");
+                    }
+                }
+            } catch (IOException | InterruptedException e) {
+                //连接断开
+            }
+        }
+
+        private void write(OutputStream out, String response) throws IOException {
+            out.write((response + "\r\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+
+        /**
+         * 断开所有客户端连接
+         */
+        void closeClients() {
+            synchronized (socketList) {
+                for (Socket socket : socketList) {
+                    try {
+                        socket.close();
+                    } catch (IOException e) {
+                        //忽略
+                    }
+                }
+                socketList.clear();
+            }
+        }
+
+        void setGreetingDelayMillis(long greetingDelayMillis) {
+            this.greetingDelayMillis = greetingDelayMillis;
+        }
+
+        int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        int getConnectionCount() {
+            return connectionCount.get();
+        }
+
+        int getMessageCount() {
+            return messageCount.get();
+        }
+
+        int getQuitCount() {
+            return quitCount.get();
+        }
+
+        void close() throws IOException {
+            serverSocket.close();
+            closeClients();
+        }
+    }
+
+}
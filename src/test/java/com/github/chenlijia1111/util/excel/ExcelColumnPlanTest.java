@@ -0,0 +1,296 @@
+package com.github.chenlijia1111.util.excel;
+
+import com.github.chenlijia1111.utils.core.reflect.PropertyGetterUtil;
+import com.github.chenlijia1111.utils.core.reflect.PropertyUtil;
+import com.github.chenlijia1111.utils.list.Lists;
+import com.github.chenlijia1111.utils.office.excel.ExcelColumnPlan;
+import com.github.chenlijia1111.utils.office.excel.annos.ExcelExportField;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * 导出列计划测试
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class ExcelColumnPlanTest {
+
+    /**
+     * 状态转换
+     */
+    public static class StatusConvert implements Function<Integer, String> {
+        @Override
+        public String apply(Integer status) {
+            return status == 1 ? "已支付" : "未支付";
+        }
+    }
+
+    /**
+     * 没有无参构造方法，无法实例化
+     */
+    public static class NoDefaultConstructorConvert implements Function<Integer, String> {
+
+        private final String prefix;
+
+        public NoDefaultConstructorConvert(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public String apply(Integer status) {
+            return prefix + status;
+        }
+    }
+
+    public static class BadConvertVo {
+
+        @ExcelExportField(titleHeadName = "状态", sort = 1, convert = NoDefaultConstructorConvert.class)
+        private Integer status;
+
+        public Integer getStatus() {
+            return status;
+        }
+    }
+
+    public static class BaseVo {
+
+        @ExcelExportField(titleHeadName = "编号", sort = 0)
+        private Long id;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+    }
+
+    public static class OrderVo extends BaseVo {
+
+        @ExcelExportField(titleHeadName = "订单号", sort = 1)
+        private String orderNo;
+
+        @ExcelExportField(titleHeadName = "状态", sort = 3, convert = StatusConvert.class)
+        private Integer status;
+
+        @ExcelExportField(titleHeadName = "金额", sort = 2)
+        private Double amount;
+
+        /**
+         * 没有 get 方法
+         */
+        @ExcelExportField(titleHeadName = "备注", sort = 4)
+        private String remark;
+
+        private boolean paid;
+
+        public String getOrderNo() {
+            return orderNo;
+        }
+
+        public Integer getStatus() {
+            return status;
+        }
+
+        public Double getAmount() {
+            return amount;
+        }
+
+        public boolean isPaid() {
+            return paid;
+        }
+    }
+
+    private static OrderVo newOrderVo(long i) {
+        OrderVo orderVo = new OrderVo();
+        orderVo.setId(i);
+        orderVo.orderNo = "NO" + i;
+        orderVo.status = (int) (i % 2);
+        orderVo.amount = i * 1.5;
+        orderVo.remark = i % 3 == 0 ? null : "备注" + i;
+        orderVo.paid = i % 2 == 1;
+        return orderVo;
+    }
+
+    /**
+     * 读取方法 get 方法、父类属性、没有 get 方法的属性、不存在的属性
+     */
+    @Test
+    public void testGetter() {
+        OrderVo orderVo = newOrderVo(7);
+        Assert.assertEquals(7L, PropertyGetterUtil.getGetter(OrderVo.class, "id").apply(orderVo));
+        Assert.assertEquals("NO7", PropertyGetterUtil.getGetter(OrderVo.class, "orderNo").apply(orderVo));
+        Assert.assertEquals("备注7", PropertyGetterUtil.getGetter(OrderVo.class, "remark").apply(orderVo));
+        Assert.assertEquals(true, PropertyGetterUtil.getGetter(OrderVo.class, "paid").apply(orderVo));
+        Assert.assertNull(PropertyGetterUtil.getGetter(OrderVo.class, "notExist"));
+        //缓存起来的是同一个
+        Assert.assertSame(PropertyGetterUtil.getGetter(OrderVo.class, "orderNo"), PropertyGetterUtil.getGetter(OrderVo.class, "orderNo"));
+    }
+
+    /**
+     * 注解表头排序、注解转换器、transferMap 优先、自定义列
+     */
+    @Test
+    public void testPlan() {
+        LinkedHashMap<String, String> headNameMap = ExcelColumnPlan.getAnnotatedHeadNameMap(OrderVo.class, null);
+        Assert.assertEquals("[id, orderNo, amount, status, remark]", headNameMap.keySet().toString());
+
+        OrderVo orderVo = newOrderVo(3);
+        Object[] values = ExcelColumnPlan.compile(OrderVo.class, headNameMap, null).getRowValues(orderVo);
+        Assert.assertEquals(3L, values[0]);
+        Assert.assertEquals("NO3", values[1]);
+        Assert.assertEquals(4.5, values[2]);
+        Assert.assertEquals("已支付", values[3]);
+        Assert.assertNull(values[4]);
+
+        //忽略字段，transferMap 覆盖注解转换器，不存在的属性转换整个对象
+        headNameMap = ExcelColumnPlan.getAnnotatedHeadNameMap(OrderVo.class, Lists.asList("remark"));
+        headNameMap.put("summary", "摘要");
+        headNameMap.put("unknown", "未知");
+        Map<String, Function> transferMap = new HashMap<>();
+        transferMap.put("status", o -> "状态" + o);
+        transferMap.put("summary", o -> ((OrderVo) o).getOrderNo() + "-" + ((OrderVo) o).getAmount());
+        values = ExcelColumnPlan.compile(OrderVo.class, headNameMap, transferMap).getRowValues(orderVo);
+        Assert.assertEquals(6, values.length);
+        Assert.assertEquals("状态1", values[3]);
+        Assert.assertEquals("NO3-4.5", values[4]);
+        Assert.assertEquals("", values[5]);
+    }
+
+    /**
+     * 注解转换器每次生成列计划都是新的实例，不同的导出不共用
+     */
+    @Test
+    public void testConverterPerPlan() {
+        LinkedHashMap<String, String> headNameMap = ExcelColumnPlan.getAnnotatedHeadNameMap(OrderVo.class, null);
+        Function first = ExcelColumnPlan.compile(OrderVo.class, headNameMap, null).getColumnList().get(3).getConverter();
+        Function second = ExcelColumnPlan.compile(OrderVo.class, headNameMap, null).getColumnList().get(3).getConverter();
+        Assert.assertTrue(first instanceof StatusConvert);
+        Assert.assertTrue(second instanceof StatusConvert);
+        Assert.assertNotSame(first, second);
+    }
+
+    /**
+     * 注解转换器无法实例化时导出失败，不会跳过转换
+     */
+    @Test
+    public void testConverterInstantiationFailure() {
+        LinkedHashMap<String, String> headNameMap = ExcelColumnPlan.getAnnotatedHeadNameMap(BadConvertVo.class, null);
+        try {
+            ExcelColumnPlan.compile(BadConvertVo.class, headNameMap, null);
+            Assert.fail("转换器无法实例化应该抛出异常");
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage().contains(NoDefaultConstructorConvert.class.getName()));
+        }
+        //transferMap 中定义了就不需要实例化注解转换器
+        Map<String, Function> transferMap = new HashMap<>();
+        transferMap.put("status", o -> "状态" + o);
+        Assert.assertEquals(1, ExcelColumnPlan.compile(BadConvertVo.class, headNameMap, transferMap).size());
+    }
+
+    /**
+     * 每行耗时对比
+     * 原来每个单元格都通过 {@link PropertyUtil#getFieldValue(Object, Class, String)} 读取属性、查找转换器，
+     * 现在每一列的读取方法与转换器只解析一次
+     */
+    @Test
+    public void benchmarkRowValues() {
+        int rows = 200000;
+        List<OrderVo> dataList = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            dataList.add(newOrderVo(i));
+        }
+        LinkedHashMap<String, String> headNameMap = ExcelColumnPlan.getAnnotatedHeadNameMap(OrderVo.class, null);
+        headNameMap.put("summary", "摘要");
+        Map<String, Function> transferMap = new HashMap<>();
+        transferMap.put("summary", o -> ((OrderVo) o).getOrderNo());
+
+        //预热
+        long checksum = 0;
+        for (int round = 0; round < 3; round++) {
+            checksum += reflectRowValues(dataList, headNameMap, transferMap);
+            checksum += planRowValues(dataList, headNameMap, transferMap);
+        }
+
+        long startTime = System.nanoTime();
+        checksum += reflectRowValues(dataList, headNameMap, transferMap);
+        long reflectTime = System.nanoTime() - startTime;
+
+        startTime = System.nanoTime();
+        checksum += planRowValues(dataList, headNameMap, transferMap);
+        long planTime = System.nanoTime() - startTime;
+
+        System.out.println("读取 " + rows + " 行，每行 " + headNameMap.size() + " 列 " + checksum);
+        System.out.println("逐个单元格反射：每行 " + reflectTime / rows + " 纳秒");
+        System.out.println("导出列计划：每行 " + planTime / rows + " 纳秒");
+        Assert.assertTrue(planTime < reflectTime);
+    }
+
+    private long planRowValues(List<OrderVo> dataList, LinkedHashMap<String, String> headNameMap, Map<String, Function> transferMap) {
+        long checksum = 0;
+        ExcelColumnPlan columnPlan = ExcelColumnPlan.compile(OrderVo.class, headNameMap, transferMap);
+        for (OrderVo orderVo : dataList) {
+            for (Object value : columnPlan.getRowValues(orderVo)) {
+                if (null != value) {
+                    checksum += value.toString().length();
+                }
+            }
+        }
+        return checksum;
+    }
+
+    /**
+     * 原来的读取方式
+     */
+    @SuppressWarnings("unchecked")
+    private long reflectRowValues(List<OrderVo> dataList, LinkedHashMap<String, String> headNameMap, Map<String, Function> transferMap) {
+        long checksum = 0;
+        for (OrderVo orderVo : dataList) {
+            for (String fieldName : headNameMap.keySet()) {
+                Object value;
+                try {
+                    Object fieldValue = PropertyUtil.getFieldValue(orderVo, OrderVo.class, fieldName);
+                    Function function = findConvert(fieldName, transferMap);
+                    value = null == fieldValue ? null : Objects.nonNull(function) ? function.apply(fieldValue) : fieldValue;
+                } catch (NoSuchFieldException e) {
+                    Function function = findConvert(fieldName, transferMap);
+                    value = Objects.nonNull(function) ? function.apply(orderVo) : "";
+                }
+                if (null != value) {
+                    checksum += value.toString().length();
+                }
+            }
+        }
+        return checksum;
+    }
+
+    private Function findConvert(String fieldName, Map<String, Function> transferMap) {
+        if (transferMap.containsKey(fieldName)) {
+            return transferMap.get(fieldName);
+        }
+        try {
+            Field field = OrderVo.class.getDeclaredField(fieldName);
+            ExcelExportField annotation = field.getAnnotation(ExcelExportField.class);
+            if (null != annotation && !Objects.equals(annotation.convert(), ExcelExportField.NoConvert.class)) {
+                Function function = annotation.convert().newInstance();
+                transferMap.put(fieldName, function);
+                return function;
+            }
+        } catch (NoSuchFieldException | InstantiationException | IllegalAccessException e) {
+            //没有注解转换器
+        }
+        return null;
+    }
+
+}
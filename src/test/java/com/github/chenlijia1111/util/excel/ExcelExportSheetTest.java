@@ -0,0 +1,191 @@
+package com.github.chenlijia1111.util.excel;
+
+import com.github.chenlijia1111.utils.office.excel.ExcelExport;
+import com.github.chenlijia1111.utils.office.excel.annos.ExcelExportField;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * 多工作表、多线程转换导出测试
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class ExcelExportSheetTest {
+
+    /**
+     * 模拟比较耗时的转换器 如查询字典、格式化
+     */
+    public static class SlowConvert implements Function<Integer, String> {
+        @Override
+        public String apply(Integer id) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 200; i++) {
+                sb.setLength(0);
+                sb.append("用户").append(Integer.toHexString(id * 31 + i));
+            }
+            return sb.toString();
+        }
+    }
+
+    public static class UserVo {
+
+        @ExcelExportField(titleHeadName = "编号", sort = 1)
+        private Integer id;
+
+        @ExcelExportField(titleHeadName = "名称", sort = 2, convert = SlowConvert.class)
+        private Integer name;
+
+        public UserVo(Integer id) {
+            this.id = id;
+            this.name = id;
+        }
+
+        public Integer getId() {
+            return id;
+        }
+
+        public Integer getName() {
+            return name;
+        }
+    }
+
+    private static Iterator<UserVo> dataIterator(int rows) {
+        return IntStream.range(0, rows).mapToObj(UserVo::new).iterator();
+    }
+
+    private static File export(int rows, Consumer<ExcelExport> config) throws IOException {
+        File file = File.createTempFile("excel-sheet", ".xlsx");
+        file.deleteOnExit();
+        try (OutputStream outputStream = new FileOutputStream(file)) {
+            ExcelExport excelExport = new ExcelExport("用户.xlsx", UserVo.class).setDataIterator(dataIterator(rows));
+            config.accept(excelExport);
+            excelExport.exportData(outputStream);
+        }
+        return file;
+    }
+
+    /**
+     * 超过每个工作表的行数之后新建工作表，每个工作表都有表头，序号连续
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testSplitSheet() throws IOException {
+        File file = export(2500, excelExport -> excelExport.setMaxRowsPerSheet(1000));
+
+        try (Workbook workbook = WorkbookFactory.create(file)) {
+            Assert.assertEquals(3, workbook.getNumberOfSheets());
+            Assert.assertEquals(1000, workbook.getSheetAt(0).getLastRowNum());
+            Assert.assertEquals(500, workbook.getSheetAt(2).getLastRowNum());
+
+            Sheet sheet = workbook.getSheetAt(1);
+            Assert.assertEquals("编号", sheet.getRow(0).getCell(1).getStringCellValue());
+            Row row = sheet.getRow(1);
+            Assert.assertEquals(1001, row.getCell(0).getNumericCellValue(), 0);
+            Assert.assertEquals("1000", row.getCell(1).getStringCellValue());
+        }
+    }
+
+    /**
+     * 没有数据时只有一个工作表的表头
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testEmptySheet() throws IOException {
+        File file = export(0, excelExport -> excelExport.setMaxRowsPerSheet(1000));
+
+        try (Workbook workbook = WorkbookFactory.create(file)) {
+            Assert.assertEquals(1, workbook.getNumberOfSheets());
+            Assert.assertEquals(0, workbook.getSheetAt(0).getLastRowNum());
+        }
+    }
+
+    /**
+     * 多线程转换 行的顺序与数据的顺序一致
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testParallel() throws IOException {
+        File file = export(5000, excelExport -> excelExport.setParallelism(4).setMaxRowsPerSheet(3000));
+
+        SlowConvert slowConvert = new SlowConvert();
+        try (Workbook workbook = WorkbookFactory.create(file)) {
+            Assert.assertEquals(2, workbook.getNumberOfSheets());
+            int serialNumber = 0;
+            for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
+                Sheet sheet = workbook.getSheetAt(i);
+                for (int j = 1; j <= sheet.getLastRowNum(); j++) {
+                    Row row = sheet.getRow(j);
+                    Assert.assertEquals(serialNumber + 1, row.getCell(0).getNumericCellValue(), 0);
+                    Assert.assertEquals(slowConvert.apply(serialNumber), row.getCell(2).getStringCellValue());
+                    serialNumber++;
+                }
+            }
+            Assert.assertEquals(5000, serialNumber);
+        }
+    }
+
+    /**
+     * 多线程转换时转换器的异常原样抛出
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testParallelConvertError() throws IOException {
+        try {
+            export(5000, excelExport -> {
+                excelExport.setParallelism(4);
+                excelExport.getTransferMap().put("name", o -> {
+                    if ((Integer) o == 3000) {
+                        throw new IllegalArgumentException("转换失败");
+                    }
+                    return o.toString();
+                });
+            });
+            Assert.fail("转换器的异常没有抛出");
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("转换失败", e.getMessage());
+        }
+    }
+
+    /**
+     * 单线程与多线程转换耗时对比
+     *
+     * @throws IOException
+     */
+    @Test
+    public void benchmarkParallel() throws IOException {
+        int rows = 500000;
+        int parallelism = Runtime.getRuntime().availableProcessors();
+
+        long startTime = System.currentTimeMillis();
+        export(rows, excelExport -> {
+        });
+        long serialTime = System.currentTimeMillis() - startTime;
+
+        startTime = System.currentTimeMillis();
+        export(rows, excelExport -> excelExport.setParallelism(parallelism));
+        long parallelTime = System.currentTimeMillis() - startTime;
+
+        System.out.println("导出 " + rows + " 行");
+        System.out.println("单线程：" + serialTime + " 毫秒");
+        System.out.println(parallelism + " 个线程转换：" + parallelTime + " 毫秒");
+    }
+
+}
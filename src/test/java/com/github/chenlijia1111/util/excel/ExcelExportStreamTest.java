@@ -0,0 +1,198 @@
+package com.github.chenlijia1111.util.excel;
+
+import com.github.chenlijia1111.utils.office.excel.ExcelExport;
+import com.github.chenlijia1111.utils.office.excel.ExcelPageIterator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * 流式导出测试
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class ExcelExportStreamTest {
+
+    private static ListVo newListVo(int i) {
+        ListVo listVo = new ListVo();
+        listVo.setId(i);
+        listVo.setCreateTime(new Date());
+        listVo.setOperateName("操作" + i);
+        listVo.setOperateUserName("测试" + i);
+        return listVo;
+    }
+
+    /**
+     * 按页查询，最后一页不满时不再查询
+     */
+    @Test
+    public void testPageIterator() {
+        ExcelPageIterator<Integer> iterator = new ExcelPageIterator<>(10, (pageNum, pageSize) -> {
+            List<Integer> page = new ArrayList<>();
+            for (int i = (pageNum - 1) * pageSize; i < Math.min(25, pageNum * pageSize); i++) {
+                page.add(i);
+            }
+            return page;
+        });
+
+        int count = 0;
+        while (iterator.hasNext()) {
+            Assert.assertEquals(count, iterator.next().intValue());
+            count++;
+        }
+        Assert.assertEquals(25, count);
+        Assert.assertEquals(3, iterator.getPageCount());
+        Assert.assertFalse(iterator.hasNext());
+
+        //刚好满页时多查询一次空页
+        ExcelPageIterator<Integer> fullIterator = new ExcelPageIterator<>(5, (pageNum, pageSize) ->
+                pageNum <= 2 ? IntStream.range(0, pageSize).boxed().collect(Collectors.toList()) : new ArrayList<>());
+        count = 0;
+        while (fullIterator.hasNext()) {
+            fullIterator.next();
+            count++;
+        }
+        Assert.assertEquals(10, count);
+        Assert.assertEquals(3, fullIterator.getPageCount());
+    }
+
+    /**
+     * 从流导出，导出完成之后流被关闭
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testExportStream() throws IOException {
+        File file = File.createTempFile("excel-stream", ".xlsx");
+        file.deleteOnExit();
+        AtomicBoolean closed = new AtomicBoolean();
+        Stream<ListVo> stream = IntStream.range(0, 20000).mapToObj(ExcelExportStreamTest::newListVo)
+                .onClose(() -> closed.set(true));
+
+        try (OutputStream outputStream = new FileOutputStream(file)) {
+            new ExcelExport("流式导出.xlsx", ListVo.class)
+                    .setDataStream(stream)
+                    .setRowAccessWindowSize(200)
+                    .exportData(outputStream);
+        }
+
+        Assert.assertTrue(closed.get());
+        Assert.assertTrue(file.length() > 0);
+    }
+
+    /**
+     * 分页查询导出
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testExportPageSupplier() throws IOException {
+        File file = File.createTempFile("excel-page", ".xlsx");
+        file.deleteOnExit();
+        AtomicInteger queryCount = new AtomicInteger();
+
+        try (OutputStream outputStream = new FileOutputStream(file)) {
+            new ExcelExport("分页导出.xlsx", ListVo.class)
+                    .setDataPageSupplier(1000, (pageNum, pageSize) -> {
+                        queryCount.incrementAndGet();
+                        List<ListVo> page = new ArrayList<>();
+                        for (int i = (pageNum - 1) * pageSize; i < Math.min(4500, pageNum * pageSize); i++) {
+                            page.add(newListVo(i));
+                        }
+                        return page;
+                    })
+                    .exportData(outputStream);
+        }
+
+        Assert.assertEquals(5, queryCount.get());
+        Assert.assertTrue(file.length() > 0);
+    }
+
+    /**
+     * 内存占用对比
+     * 先查询到集合再导出 与 从流边生成边导出，采样导出过程中的最大堆内存占用
+     * 数据量可以通过 -Dexcel.benchmark.rows=2000000 调整
+     *
+     * @throws Exception
+     */
+    @Test
+    public void benchmarkMemory() throws Exception {
+        int rows = Integer.getInteger("excel.benchmark.rows", 300000);
+
+        long listPeak = samplePeakHeap(() -> {
+            List<ListVo> list = new ArrayList<>(rows);
+            for (int i = 0; i < rows; i++) {
+                list.add(newListVo(i));
+            }
+            export(new ExcelExport("集合导出.xlsx", ListVo.class).setDataList(list));
+        });
+
+        long streamPeak = samplePeakHeap(() -> export(new ExcelExport("流式导出.xlsx", ListVo.class)
+                .setDataStream(IntStream.range(0, rows).mapToObj(ExcelExportStreamTest::newListVo))));
+
+        System.out.println("导出 " + rows + " 行");
+        System.out.println("集合导出 最大堆内存：" + listPeak / 1024 / 1024 + "M");
+        System.out.println("流式导出 最大堆内存：" + streamPeak / 1024 / 1024 + "M");
+    }
+
+    private void export(ExcelExport excelExport) {
+        try {
+            File file = File.createTempFile("excel-benchmark", ".xlsx");
+            try (OutputStream outputStream = new FileOutputStream(file)) {
+                excelExport.exportData(outputStream);
+            } finally {
+                file.delete();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 执行过程中每 10 毫秒采样一次堆内存占用
+     *
+     * @param runnable
+     * @return 最大堆内存占用
+     * @throws InterruptedException
+     */
+    private long samplePeakHeap(Runnable runnable) throws InterruptedException {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        AtomicLong peak = new AtomicLong();
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread sampler = new Thread(() -> {
+            while (running.get()) {
+                peak.accumulateAndGet(runtime.totalMemory() - runtime.freeMemory(), Math::max);
+                try {
+                    Thread.sleep(10L);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        sampler.setDaemon(true);
+        sampler.start();
+        try {
+            runnable.run();
+        } finally {
+            running.set(false);
+            sampler.join();
+        }
+        return peak.get();
+    }
+
+}
@@ -0,0 +1,189 @@
+package com.github.chenlijia1111.util.excel;
+
+import com.github.chenlijia1111.utils.office.excel.ExcelExport;
+import com.github.chenlijia1111.utils.office.excel.annos.ExcelExportField;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 按类型写入单元格测试
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class ExcelExportTypedCellTest {
+
+    public static class OrderVo {
+
+        @ExcelExportField(titleHeadName = "订单编号", sort = 1)
+        private Long id;
+
+        @ExcelExportField(titleHeadName = "数量", sort = 2)
+        private Integer count;
+
+        @ExcelExportField(titleHeadName = "金额", sort = 3)
+        private BigDecimal amount;
+
+        @ExcelExportField(titleHeadName = "是否支付", sort = 4)
+        private Boolean paid;
+
+        @ExcelExportField(titleHeadName = "下单时间", sort = 5)
+        private Date createTime;
+
+        @ExcelExportField(titleHeadName = "发货日期", sort = 6, dateFormat = "yyyy/MM/dd")
+        private LocalDate sendDate;
+
+        @ExcelExportField(titleHeadName = "状态", sort = 7)
+        private String status;
+
+        public Long getId() {
+            return id;
+        }
+
+        public Integer getCount() {
+            return count;
+        }
+
+        public BigDecimal getAmount() {
+            return amount;
+        }
+
+        public Boolean getPaid() {
+            return paid;
+        }
+
+        public Date getCreateTime() {
+            return createTime;
+        }
+
+        public LocalDate getSendDate() {
+            return sendDate;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+    }
+
+    private static List<OrderVo> dataList(int rows) {
+        List<OrderVo> dataList = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            OrderVo orderVo = new OrderVo();
+            //雪花算法生成的 id 超过 15 位
+            orderVo.id = 1294871234567890000L + i;
+            orderVo.count = i % 100;
+            orderVo.amount = new BigDecimal(i).movePointLeft(2);
+            orderVo.paid = i % 2 == 0;
+            orderVo.createTime = new Date();
+            orderVo.sendDate = LocalDate.of(2020, 8, 17);
+            orderVo.status = i % 3 == 0 ? "已完成" : "待发货";
+            dataList.add(orderVo);
+        }
+        return dataList;
+    }
+
+    private static File export(List<OrderVo> dataList, Consumer<ExcelExport> config) throws IOException {
+        File file = File.createTempFile("excel-typed", ".xlsx");
+        file.deleteOnExit();
+        try (OutputStream outputStream = new FileOutputStream(file)) {
+            ExcelExport excelExport = new ExcelExport("订单.xlsx", OrderVo.class).setDataList(dataList);
+            config.accept(excelExport);
+            excelExport.exportData(outputStream);
+        }
+        return file;
+    }
+
+    /**
+     * 数字、布尔值、日期按原本的类型写入，超过 15 位的数字按字符串写入，样式不重复创建
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testTypedCell() throws IOException {
+        File file = export(dataList(2000), excelExport -> excelExport.setTypedCell(true));
+
+        try (Workbook workbook = WorkbookFactory.create(file)) {
+            Sheet sheet = workbook.getSheetAt(0);
+            Assert.assertEquals(2000, sheet.getLastRowNum());
+            Row row = sheet.getRow(2);
+            Assert.assertEquals(CellType.STRING, row.getCell(1).getCellType());
+            Assert.assertEquals("1294871234567890001", row.getCell(1).getStringCellValue());
+            Assert.assertEquals(CellType.NUMERIC, row.getCell(2).getCellType());
+            Assert.assertEquals(1, row.getCell(2).getNumericCellValue(), 0);
+            Assert.assertEquals(0.01, row.getCell(3).getNumericCellValue(), 0);
+            Assert.assertEquals(CellType.BOOLEAN, row.getCell(4).getCellType());
+            Assert.assertFalse(row.getCell(4).getBooleanCellValue());
+            Assert.assertEquals(CellType.NUMERIC, row.getCell(5).getCellType());
+            Assert.assertEquals("yyyy-MM-dd HH:mm:ss", row.getCell(5).getCellStyle().getDataFormatString());
+            Assert.assertEquals("yyyy/MM/dd", row.getCell(6).getCellStyle().getDataFormatString());
+            Assert.assertEquals("待发货", row.getCell(7).getStringCellValue());
+            //默认样式 + 表格 + 表头 + 两种日期
+            System.out.println("样式数量 " + workbook.getNumCellStyles());
+            Assert.assertTrue(workbook.getNumCellStyles() <= 5);
+        }
+    }
+
+    /**
+     * 默认与之前的版本一致，全部按字符串写入
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testStringCell() throws IOException {
+        File file = export(dataList(10), excelExport -> {
+        });
+
+        try (Workbook workbook = WorkbookFactory.create(file)) {
+            Row row = workbook.getSheetAt(0).getRow(1);
+            Assert.assertEquals(CellType.STRING, row.getCell(2).getCellType());
+            Assert.assertEquals("0", row.getCell(2).getStringCellValue());
+        }
+    }
+
+    /**
+     * 文件大小与耗时对比
+     * 全部按字符串写入并使用共享字符串表 与 按类型写入并把字符串直接写在单元格中
+     *
+     * @throws IOException
+     */
+    @Test
+    public void benchmarkTypedCell() throws IOException {
+        int rows = 200000;
+        List<OrderVo> dataList = dataList(rows);
+
+        long startTime = System.currentTimeMillis();
+        File stringFile = export(dataList, excelExport -> excelExport.setInlineStrings(false));
+        long stringTime = System.currentTimeMillis() - startTime;
+
+        startTime = System.currentTimeMillis();
+        File typedFile = export(dataList, excelExport -> excelExport.setTypedCell(true).setInlineStrings(false));
+        long typedTime = System.currentTimeMillis() - startTime;
+
+        startTime = System.currentTimeMillis();
+        File inlineFile = export(dataList, excelExport -> excelExport.setTypedCell(true));
+        long inlineTime = System.currentTimeMillis() - startTime;
+
+        System.out.println("导出 " + rows + " 行");
+        System.out.println("字符串 + 共享字符串表：" + stringTime + " 毫秒，" + stringFile.length() / 1024 + "K");
+        System.out.println("按类型 + 共享字符串表：" + typedTime + " 毫秒，" + typedFile.length() / 1024 + "K");
+        System.out.println("按类型 + 字符串写在单元格中：" + inlineTime + " 毫秒，" + inlineFile.length() / 1024 + "K");
+        Assert.assertTrue(typedFile.length() < stringFile.length());
+    }
+
+}
@@ -0,0 +1,178 @@
+package com.github.chenlijia1111.util.http;
+
+import com.github.chenlijia1111.utils.http.HttpClientUtils;
+import com.github.chenlijia1111.utils.http.pool.HttpAsyncClientPool;
+import com.github.chenlijia1111.utils.http.pool.HttpClientPoolConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 异步请求测试
+ * 在本地启动一个响应很慢的 http 服务代替第三方接口
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class HttpClientAsyncTest {
+
+    static {
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    /**
+     * 同时在处理的请求数
+     */
+    private final AtomicInteger concurrentCount = new AtomicInteger();
+
+    /**
+     * 同时在处理的最大请求数
+     */
+    private final AtomicInteger maxConcurrentCount = new AtomicInteger();
+
+    /**
+     * 启动本地服务，每个请求处理 100 毫秒
+     *
+     * @return
+     * @throws IOException
+     */
+    private HttpServer startServer() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            int count = concurrentCount.incrementAndGet();
+            maxConcurrentCount.accumulateAndGet(count, Math::max);
+            try {
+                Thread.sleep(100L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            concurrentCount.decrementAndGet();
+            byte[] bytes = ("{\"query\":\"" + exchange.getRequestURI().getQuery() + "\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(bytes);
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        return server;
+    }
+
+    /**
+     * 调用线程不阻塞，所有请求并发执行
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testAsync() throws Exception {
+        HttpServer server = startServer();
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/test";
+        try {
+            //预热
+            HttpClientUtils.getInstance().doGetAsync(url).thenApply(HttpClientUtils::toMap).get();
+            maxConcurrentCount.set(0);
+
+            int threadCount = Thread.activeCount();
+            long startTime = System.currentTimeMillis();
+            List<CompletableFuture<Map>> futureList = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                futureList.add(HttpClientUtils.getInstance().putParams("i", i).doGetAsync(url).thenApply(HttpClientUtils::toMap));
+            }
+            //提交不需要等待请求完成
+            Assert.assertFalse(futureList.get(9).isDone());
+            //等待响应不占用线程 一个请求一个线程的话至少多出 10 个
+            Assert.assertTrue(Thread.activeCount() - threadCount < 10);
+
+            CompletableFuture.allOf(futureList.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+            long time = System.currentTimeMillis() - startTime;
+            System.out.println("10 个请求耗时 " + time + " 毫秒，同时处理 " + maxConcurrentCount.get() + " 个");
+            for (int i = 0; i < 10; i++) {
+                Assert.assertEquals("i=" + i, futureList.get(i).get().get("query"));
+            }
+            //串行需要 1 秒
+            Assert.assertTrue(time < 800);
+            Assert.assertEquals(0, HttpClientUtils.getAsyncActiveCount());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * 请求失败时 future 以异常结束
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testFailure() throws Exception {
+        HttpServer server = startServer();
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/test";
+        server.stop(0);
+
+        CompletableFuture<HttpClientUtils> future = HttpClientUtils.getInstance().doGetAsync(url);
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            Assert.fail("请求应该失败");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    /**
+     * 并发数与排队数量有上限，超出之后直接失败
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testBackpressure() throws Exception {
+        HttpServer server = startServer();
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/test";
+        HttpAsyncClientPool pool = new HttpAsyncClientPool(new HttpClientPoolConfig().setAsyncMaxConcurrency(2).setAsyncQueueCapacity(3));
+        try {
+            List<CompletableFuture<String>> futureList = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futureList.add(pool.execute(new HttpGet(url)).thenApply(response -> {
+                    try (CloseableHttpResponse closeableHttpResponse = response) {
+                        return EntityUtils.toString(closeableHttpResponse.getEntity());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+            }
+            int rejectedCount = 0;
+            for (CompletableFuture<String> future : futureList) {
+                try {
+                    Assert.assertNotNull(future.get(5, TimeUnit.SECONDS));
+                } catch (ExecutionException e) {
+                    Assert.assertTrue(e.getCause() instanceof RejectedExecutionException);
+                    rejectedCount++;
+                }
+            }
+            System.out.println("拒绝 " + rejectedCount + " 个，同时处理 " + maxConcurrentCount.get() + " 个");
+            //2 个执行中 3 个排队
+            Assert.assertEquals(3, rejectedCount);
+            Assert.assertTrue(maxConcurrentCount.get() <= 2);
+        } finally {
+            pool.close();
+            server.stop(0);
+        }
+    }
+
+}
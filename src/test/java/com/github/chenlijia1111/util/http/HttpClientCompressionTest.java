@@ -0,0 +1,229 @@
+package com.github.chenlijia1111.util.http;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.chenlijia1111.utils.http.HttpClientUtils;
+import com.github.chenlijia1111.utils.http.pool.HttpClientPool;
+import com.github.chenlijia1111.utils.http.pool.HttpClientPoolConfig;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 请求与响应压缩测试
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class HttpClientCompressionTest {
+
+    static {
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    /**
+     * 实际传输的响应字节数
+     */
+    private final AtomicLong responseWireBytes = new AtomicLong();
+
+    /**
+     * 启动本地服务
+     * get 返回 size 参数指定大小的 json，客户端支持 gzip 时压缩返回
+     * post 返回收到的请求体解压之后的大小与实际传输的大小
+     *
+     * @return
+     * @throws IOException
+     */
+    private HttpServer startServer() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            if ("POST".equals(exchange.getRequestMethod())) {
+                byte[] wireBytes = readAll(exchange.getRequestBody());
+                byte[] bodyBytes = wireBytes;
+                if ("gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+                    bodyBytes = readAll(new GZIPInputStream(new java.io.ByteArrayInputStream(wireBytes)));
+                }
+                String body = new String(bodyBytes, StandardCharsets.UTF_8);
+                send(exchange, ("{\"received\":" + bodyBytes.length + ",\"wire\":" + wireBytes.length + ",\"json\":" + body + "}").getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            int size = Integer.parseInt(exchange.getRequestURI().getQuery().substring("size=".length()));
+            send(exchange, createJson(size).getBytes(StandardCharsets.UTF_8));
+        });
+        server.setExecutor(Executors.newFixedThreadPool(2));
+        server.start();
+        return server;
+    }
+
+    private void send(HttpExchange exchange, byte[] bytes) throws IOException {
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (null != acceptEncoding && acceptEncoding.contains("gzip")) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream)) {
+                gzipOutputStream.write(bytes);
+            }
+            bytes = outputStream.toByteArray();
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+        }
+        responseWireBytes.addAndGet(bytes.length);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+
+    private byte[] readAll(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int len;
+        while ((len = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, len);
+        }
+        inputStream.close();
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * 生成大约指定大小的 json 数组
+     *
+     * @param size
+     * @return
+     */
+    private String createJson(int size) {
+        StringBuilder sb = new StringBuilder("[");
+        int i = 0;
+        while (sb.length() < size) {
+            if (i > 0) {
+                sb.append(",");
+            }
+            sb.append("{\"id\":").append(i).append(",\"title\":\"推送消息标题\",\"content\":\"您的订单已发货，请注意查收\"}");
+            i++;
+        }
+        return sb.append("]").toString();
+    }
+
+    /**
+     * 响应自动解压
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testResponseDecompression() throws IOException {
+        HttpServer server = startServer();
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/data";
+        try {
+            HttpClientUtils httpClientUtils = HttpClientUtils.getInstance().putParams("size", 100000).doGet(url);
+            JsonNode jsonNode = httpClientUtils.toJsonNode();
+            httpClientUtils.close();
+            Assert.assertEquals("推送消息标题", jsonNode.get(0).get("title").asText());
+            Assert.assertTrue(responseWireBytes.get() < 100000 / 5);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * 请求体超过阈值才压缩
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testRequestGzip() throws IOException {
+        HttpServer server = startServer();
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/push";
+        try {
+            String content = createJson(50000);
+            HttpClientUtils httpClientUtils = HttpClientUtils.getInstance()
+                    .setContentType("application/json")
+                    .putParams("content", content)
+                    .setGzipRequest(true)
+                    .doPost(url);
+            JsonNode jsonNode = httpClientUtils.toJsonNode();
+            httpClientUtils.close();
+            System.out.println("请求体 " + jsonNode.get("received") + " 字节，实际传输 " + jsonNode.get("wire") + " 字节");
+            Assert.assertEquals(content, jsonNode.get("json").get("content").asText());
+            Assert.assertTrue(jsonNode.get("wire").asInt() < jsonNode.get("received").asInt() / 5);
+
+            //小于阈值不压缩
+            httpClientUtils = HttpClientUtils.getInstance()
+                    .setContentType("application/json")
+                    .putParams("content", "a")
+                    .setGzipRequest(true)
+                    .doPost(url);
+            jsonNode = httpClientUtils.toJsonNode();
+            httpClientUtils.close();
+            Assert.assertEquals(jsonNode.get("received").asInt(), jsonNode.get("wire").asInt());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * 不同大小的响应 压缩与不压缩传输的字节数与耗时
+     *
+     * @throws IOException
+     */
+    @Test
+    public void benchmarkCompression() throws IOException {
+        HttpServer server = startServer();
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/data?size=";
+        HttpClientPool compressionPool = new HttpClientPool(new HttpClientPoolConfig());
+        HttpClientPool plainPool = new HttpClientPool(new HttpClientPoolConfig().setContentCompression(false));
+        try {
+            for (int size : new int[]{1024, 10 * 1024, 100 * 1024, 1024 * 1024}) {
+                int count = Math.max(10, 2 * 1024 * 1024 / size);
+                long[] plain = run(plainPool, url + size, count);
+                long[] compression = run(compressionPool, url + size, count);
+                System.out.println(String.format("响应 %7d 字节：不压缩 传输 %7d 字节 平均 %5d 微秒；gzip 传输 %7d 字节 平均 %5d 微秒",
+                        size, plain[0], plain[1], compression[0], compression[1]));
+                Assert.assertTrue(compression[0] < plain[0]);
+            }
+        } finally {
+            compressionPool.close();
+            plainPool.close();
+            server.stop(0);
+        }
+    }
+
+    /**
+     * 执行多次请求
+     *
+     * @param pool
+     * @param url
+     * @param count
+     * @return 每次请求传输的字节数、平均耗时 微秒
+     * @throws IOException
+     */
+    private long[] run(HttpClientPool pool, String url, int count) throws IOException {
+        //预热
+        for (int i = 0; i < 3; i++) {
+            try (CloseableHttpResponse response = pool.getHttpClient().execute(new HttpGet(url))) {
+                EntityUtils.consume(response.getEntity());
+            }
+        }
+        responseWireBytes.set(0);
+        long startTime = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            try (CloseableHttpResponse response = pool.getHttpClient().execute(new HttpGet(url))) {
+                EntityUtils.toString(response.getEntity());
+            }
+        }
+        long time = (System.nanoTime() - startTime) / 1000 / count;
+        return new long[]{responseWireBytes.get() / count, time};
+    }
+
+}
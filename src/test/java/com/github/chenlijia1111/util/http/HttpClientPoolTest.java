@@ -0,0 +1,203 @@
+package com.github.chenlijia1111.util.http;
+
+import com.github.chenlijia1111.utils.http.HttpClientUtils;
+import com.github.chenlijia1111.utils.http.pool.HttpClientPool;
+import com.github.chenlijia1111.utils.http.pool.HttpClientPoolConfig;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.util.EntityUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 连接池测试
+ * 在本地启动一个 http 服务，通过客户端端口判断连接是否复用
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class HttpClientPoolTest {
+
+    static {
+        //本地服务关闭 Nagle 算法，否则复用连接时响应头和响应体分两次发送会等待 ack 延迟几十毫秒
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    /**
+     * 启动本地服务，返回客户端的端口
+     *
+     * @param remotePortSet 记录客户端端口
+     * @return
+     * @throws IOException
+     */
+    private HttpServer startServer(Set<Integer> remotePortSet) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            remotePortSet.add(exchange.getRemoteAddress().getPort());
+            byte[] bytes = ("{\"port\":" + exchange.getRemoteAddress().getPort() + "}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            if (exchange.getRequestURI().getPath().startsWith("/close")) {
+                //不保持连接 测试完不在连接池留下空闲连接
+                exchange.getResponseHeaders().add("Connection", "close");
+            }
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(bytes);
+            }
+        });
+        server.setExecutor(Executors.newFixedThreadPool(8));
+        server.start();
+        return server;
+    }
+
+    /**
+     * 多次请求复用同一个连接，关闭之后连接回到连接池
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testReuse() throws IOException {
+        Set<Integer> remotePortSet = ConcurrentHashMap.newKeySet();
+        HttpServer server = startServer(remotePortSet);
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/test";
+        try {
+            for (int i = 0; i < 50; i++) {
+                HttpClientUtils httpClientUtils = HttpClientUtils.getInstance().putParams("i", i).doGet(url);
+                Assert.assertNotNull(httpClientUtils.toMap().get("port"));
+                httpClientUtils.close();
+            }
+            //顺序请求只需要一个连接
+            Assert.assertEquals(1, remotePortSet.size());
+            //只看这个地址的连接 其他测试留下的空闲连接不算
+            PoolStats poolStats = HttpClientUtils.getRouteStats().get("http://127.0.0.1:" + server.getAddress().getPort());
+            System.out.println(poolStats);
+            Assert.assertEquals(0, poolStats.getLeased());
+            Assert.assertEquals(1, poolStats.getAvailable());
+            System.out.println(HttpClientUtils.getRouteStats());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * 读成字节数组之后连接释放，不需要再关闭
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testToBytes() throws IOException {
+        Set<Integer> remotePortSet = ConcurrentHashMap.newKeySet();
+        HttpServer server = startServer(remotePortSet);
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/close/bytes";
+        try {
+            //超过每个地址的最大连接数
+            for (int i = 0; i < 30; i++) {
+                byte[] bytes = HttpClientUtils.getInstance().doGet(url).toBytes();
+                Assert.assertTrue(new String(bytes, StandardCharsets.UTF_8).startsWith("{\"port\":"));
+            }
+            //没有释放的话第 21 个请求会等不到连接
+            Assert.assertEquals(0, HttpClientUtils.getPoolStats().getLeased());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * 并发请求不超过每个地址的最大连接数
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMaxPerRoute() throws Exception {
+        Set<Integer> remotePortSet = ConcurrentHashMap.newKeySet();
+        HttpServer server = startServer(remotePortSet);
+        String url = "http://127.0.0.1:" + server.getAddress().getPort();
+        HttpClientPool pool = new HttpClientPool(new HttpClientPoolConfig()
+                .setDefaultMaxPerRoute(2)
+                .putMaxPerRoute(url, 4));
+        ExecutorService executorService = Executors.newFixedThreadPool(16);
+        try {
+            CountDownLatch latch = new CountDownLatch(200);
+            for (int i = 0; i < 200; i++) {
+                executorService.execute(() -> {
+                    try (CloseableHttpResponse response = pool.getHttpClient().execute(new HttpGet(url + "/test"))) {
+                        EntityUtils.consume(response.getEntity());
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    } finally {
+                        latch.countDown();
+                    }
+                });
+            }
+            Assert.assertTrue(latch.await(30, TimeUnit.SECONDS));
+            System.out.println("连接数：" + remotePortSet.size() + " " + pool.getRouteStats());
+            Assert.assertTrue(remotePortSet.size() <= 4);
+            Assert.assertEquals(0, pool.getTotalStats().getLeased());
+            Assert.assertEquals(4, pool.getRouteStats().values().iterator().next().getMax());
+
+            //空闲连接被清理
+            Thread.sleep(100L);
+            pool.getConfig().setMaxIdleTime(50L);
+            pool.evict();
+            Assert.assertEquals(0, pool.getTotalStats().getAvailable());
+        } finally {
+            executorService.shutdown();
+            pool.close();
+            server.stop(0);
+        }
+    }
+
+    /**
+     * 对比每次新建连接与复用连接的耗时
+     *
+     * @throws IOException
+     */
+    @Test
+    public void benchmarkReuse() throws IOException {
+        Set<Integer> remotePortSet = ConcurrentHashMap.newKeySet();
+        HttpServer server = startServer(remotePortSet);
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/test";
+        int count = 2000;
+        try {
+            long startTime = System.currentTimeMillis();
+            for (int i = 0; i < count; i++) {
+                HttpClientPool pool = new HttpClientPool(new HttpClientPoolConfig());
+                try (CloseableHttpResponse response = pool.getHttpClient().execute(new HttpGet(url))) {
+                    EntityUtils.consume(response.getEntity());
+                }
+                pool.close();
+            }
+            long newConnectionTime = System.currentTimeMillis() - startTime;
+            int newConnectionCount = remotePortSet.size();
+
+            remotePortSet.clear();
+            startTime = System.currentTimeMillis();
+            for (int i = 0; i < count; i++) {
+                HttpClientUtils httpClientUtils = HttpClientUtils.getInstance().doGet(url);
+                httpClientUtils.toString();
+                httpClientUtils.close();
+            }
+            long reuseTime = System.currentTimeMillis() - startTime;
+
+            System.out.println("每次新建连接：" + count + " 次请求 " + newConnectionCount + " 个连接，耗时 " + newConnectionTime + " 毫秒");
+            System.out.println("连接池复用：" + count + " 次请求 " + remotePortSet.size() + " 个连接，耗时 " + reuseTime + " 毫秒");
+            Assert.assertEquals(1, remotePortSet.size());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+}
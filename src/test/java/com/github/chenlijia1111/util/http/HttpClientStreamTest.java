@@ -0,0 +1,215 @@
+package com.github.chenlijia1111.util.http;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.chenlijia1111.utils.core.JSONUtil;
+import com.github.chenlijia1111.utils.http.HttpClientUtils;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * 流式读取响应测试
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class HttpClientStreamTest {
+
+    static {
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    /**
+     * 启动本地服务 返回指定大小的 json
+     *
+     * @param body 响应内容
+     * @return
+     * @throws IOException
+     */
+    private HttpServer startServer(byte[] body) throws IOException {
+        return startServer(body, "application/json;charset=UTF-8");
+    }
+
+    /**
+     * 启动本地服务 返回指定类型的内容
+     *
+     * @param body        响应内容
+     * @param contentType 响应类型
+     * @return
+     * @throws IOException
+     */
+    private HttpServer startServer(byte[] body, String contentType) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", contentType);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+        server.setExecutor(Executors.newFixedThreadPool(2));
+        server.start();
+        return server;
+    }
+
+    /**
+     * 生成大约指定大小的 json
+     * {"total":n,"list":[{"id":0,"name":"..."},...]}
+     *
+     * @param size 字节数
+     * @return
+     */
+    private byte[] createJson(int size) {
+        StringBuilder sb = new StringBuilder(size + 100);
+        sb.append("{\"list\":[");
+        int i = 0;
+        while (sb.length() < size) {
+            if (i > 0) {
+                sb.append(",");
+            }
+            sb.append("{\"id\":").append(i).append(",\"name\":\"商品-").append(i).append("\",\"price\":").append(i % 1000).append(".99}");
+            i++;
+        }
+        sb.append("],\"total\":").append(i).append("}");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 流式读取与原来读成字符串的结果一致
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testStream() throws IOException {
+        byte[] body = createJson(100 * 1024);
+        HttpServer server = startServer(body);
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/bill";
+        try {
+            HttpClientUtils httpClientUtils = HttpClientUtils.getInstance().doGet(url);
+            JsonNode jsonNode = httpClientUtils.toJsonNode();
+            httpClientUtils.close();
+            Assert.assertEquals(jsonNode.get("total").asInt(), jsonNode.get("list").size());
+            Assert.assertEquals("商品-1", jsonNode.get("list").get(1).get("name").asText());
+
+            httpClientUtils = HttpClientUtils.getInstance().doGet(url);
+            Map map = httpClientUtils.toObject(HashMap.class);
+            httpClientUtils.close();
+            Assert.assertEquals(jsonNode.get("total").asInt(), map.get("total"));
+
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            httpClientUtils = HttpClientUtils.getInstance().doGet(url);
+            Assert.assertEquals(body.length, httpClientUtils.writeTo(outputStream));
+            httpClientUtils.close();
+            Assert.assertArrayEquals(body, outputStream.toByteArray());
+
+            Assert.assertEquals(0, HttpClientUtils.getPoolStats().getLeased());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * 按响应头中的编码解析 如 GBK
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testCharset() throws IOException {
+        byte[] body = "[{\"name\":\"商品\"}]".getBytes(Charset.forName("GBK"));
+        HttpServer server = startServer(body, "application/json;charset=GBK");
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/gbk";
+        try {
+            HttpClientUtils httpClientUtils = HttpClientUtils.getInstance().doGet(url);
+            Assert.assertEquals("商品", httpClientUtils.toJsonNode().get(0).get("name").asText());
+            httpClientUtils.close();
+
+            httpClientUtils = HttpClientUtils.getInstance().doGet(url);
+            Assert.assertEquals("商品", ((Map) httpClientUtils.toList().get(0)).get("name"));
+            httpClientUtils.close();
+
+            httpClientUtils = HttpClientUtils.getInstance().doGet(url);
+            Assert.assertEquals("商品", ((Map) httpClientUtils.toObject(Object[].class)[0]).get("name"));
+            httpClientUtils.close();
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * 对比 10M 响应读成字符串再解析 与 直接从流解析 当前线程分配的内存
+     *
+     * @throws IOException
+     */
+    @Test
+    public void benchmarkAllocation() throws IOException {
+        byte[] body = createJson(10 * 1024 * 1024);
+        HttpServer server = startServer(body);
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/bill";
+        OutputStream discardOutputStream = new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        };
+        try {
+            for (int i = 0; i < 3; i++) {
+                long stringJson = allocatedBytes(() -> {
+                    HttpClientUtils httpClientUtils = HttpClientUtils.getInstance().doGet(url);
+                    JSONUtil.strToJsonNode(httpClientUtils.toString());
+                    httpClientUtils.close();
+                });
+                long streamJson = allocatedBytes(() -> {
+                    HttpClientUtils httpClientUtils = HttpClientUtils.getInstance().doGet(url);
+                    httpClientUtils.toJsonNode();
+                    httpClientUtils.close();
+                });
+                long stringCopy = allocatedBytes(() -> {
+                    HttpClientUtils httpClientUtils = HttpClientUtils.getInstance().doGet(url);
+                    httpClientUtils.toString();
+                    httpClientUtils.close();
+                });
+                long streamCopy = allocatedBytes(() -> {
+                    HttpClientUtils httpClientUtils = HttpClientUtils.getInstance().doGet(url);
+                    httpClientUtils.writeTo(discardOutputStream);
+                    httpClientUtils.close();
+                });
+                System.out.println("10M 响应 字符串解析 " + stringJson / 1024 / 1024 + "M 流式解析 " + streamJson / 1024 / 1024 + "M " +
+                        "读成字符串 " + stringCopy / 1024 / 1024 + "M 写到输出流 " + streamCopy / 1024 + "K");
+                if (i == 2) {
+                    Assert.assertTrue(streamJson < stringJson);
+                    Assert.assertTrue(streamCopy < 1024 * 1024);
+                }
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * 当前线程执行过程中分配的内存
+     *
+     * @param runnable
+     * @return
+     */
+    private long allocatedBytes(Runnable runnable) {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long before = threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        runnable.run();
+        return threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+    }
+
+}
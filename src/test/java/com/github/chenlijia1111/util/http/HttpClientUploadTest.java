@@ -0,0 +1,180 @@
+package com.github.chenlijia1111.util.http;
+
+import com.github.chenlijia1111.utils.http.HttpClientUtils;
+import com.github.chenlijia1111.utils.http.entity.FileChannelBody;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.InputStreamEntity;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 流式上传测试
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class HttpClientUploadTest {
+
+    static {
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    /**
+     * 启动本地服务 读取请求体并返回收到的字节数与传输方式
+     *
+     * @return
+     * @throws IOException
+     */
+    private HttpServer startServer() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            long count = 0;
+            byte[] buffer = new byte[8192];
+            try (InputStream inputStream = exchange.getRequestBody()) {
+                int len;
+                while ((len = inputStream.read(buffer)) != -1) {
+                    count += len;
+                }
+            }
+            String transferEncoding = exchange.getRequestHeaders().getFirst("Transfer-Encoding");
+            byte[] bytes = ("{\"count\":" + count + ",\"transferEncoding\":\"" + transferEncoding + "\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(bytes);
+            }
+        });
+        server.setExecutor(Executors.newFixedThreadPool(2));
+        server.start();
+        return server;
+    }
+
+    /**
+     * 创建指定大小的临时文件
+     *
+     * @param size
+     * @return
+     * @throws IOException
+     */
+    private File createFile(long size) throws IOException {
+        File file = File.createTempFile("upload", ".bin");
+        file.deleteOnExit();
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.setLength(size);
+            randomAccessFile.write("head".getBytes(StandardCharsets.UTF_8));
+        }
+        return file;
+    }
+
+    /**
+     * 分块上传 并回调进度
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testChunkedUpload() throws IOException {
+        HttpServer server = startServer();
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/upload";
+        File file = createFile(5 * 1024 * 1024);
+        AtomicLong progress = new AtomicLong();
+        try (InputStream inputStream = new FileInputStream(file)) {
+            HttpClientUtils httpClientUtils = HttpClientUtils.getInstance()
+                    .setHttpEntity(new InputStreamEntity(inputStream, file.length(), ContentType.DEFAULT_BINARY))
+                    .setChunked(true)
+                    .setUploadProgressListener((transferredBytes, totalBytes) -> {
+                        Assert.assertEquals(file.length(), totalBytes);
+                        Assert.assertTrue(transferredBytes >= progress.get());
+                        progress.set(transferredBytes);
+                    })
+                    .doPost(url);
+            java.util.Map map = httpClientUtils.toMap();
+            httpClientUtils.close();
+            Assert.assertEquals("chunked", map.get("transferEncoding"));
+            Assert.assertEquals(file.length(), ((Number) map.get("count")).longValue());
+            Assert.assertEquals(file.length(), progress.get());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * 文件通道按位置读取 不改变通道的位置
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testFileChannelBody() throws IOException {
+        File file = createFile(100 * 1024);
+        try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            FileChannelBody body = new FileChannelBody(fileChannel, 0, 4, ContentType.DEFAULT_BINARY, "a.bin");
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            body.writeTo(outputStream);
+            Assert.assertEquals("head", new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+
+            FileChannelBody fullBody = new FileChannelBody(fileChannel, ContentType.DEFAULT_BINARY, "a.bin");
+            Assert.assertEquals(file.length(), fullBody.getContentLength());
+            //可以重复发送
+            for (int i = 0; i < 2; i++) {
+                outputStream.reset();
+                fullBody.writeTo(outputStream);
+                Assert.assertEquals(file.length(), outputStream.size());
+            }
+            Assert.assertEquals(0, fileChannel.position());
+        }
+    }
+
+    /**
+     * 不同大小文件上传的吞吐量以及当前线程分配的内存
+     *
+     * @throws IOException
+     */
+    @Test
+    public void benchmarkUpload() throws IOException {
+        HttpServer server = startServer();
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/upload";
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        try {
+            int[] sizes = {10, 10, 50, 200};
+            for (int i = 0; i < sizes.length; i++) {
+                int mb = sizes[i];
+                File file = createFile(mb * 1024L * 1024);
+                long beforeAllocated = threadMXBean.getThreadAllocatedBytes(threadId);
+                long startTime = System.currentTimeMillis();
+                try (InputStream inputStream = new FileInputStream(file)) {
+                    HttpClientUtils httpClientUtils = HttpClientUtils.getInstance()
+                            .setHttpEntity(new InputStreamEntity(inputStream, -1, ContentType.DEFAULT_BINARY))
+                            .doPost(url);
+                    Assert.assertEquals(file.length(), ((Number) httpClientUtils.toMap().get("count")).longValue());
+                    httpClientUtils.close();
+                }
+                long time = Math.max(1, System.currentTimeMillis() - startTime);
+                long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - beforeAllocated;
+                System.out.println(mb + "M 文件上传耗时 " + time + " 毫秒，" + (mb * 1000L / time) + " M/s，分配内存 " + allocated / 1024 + "K");
+                //只有分块头等很小的临时对象，不到文件大小的 2%，第一次包含类加载不统计
+                if (i > 0) {
+                    Assert.assertTrue(allocated < file.length() / 50);
+                }
+                file.delete();
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+}
@@ -0,0 +1,340 @@
+package com.github.chenlijia1111.util.http;
+
+import com.github.chenlijia1111.utils.core.retry.ExponentialBackoff;
+import com.github.chenlijia1111.utils.http.HttpClientUtils;
+import com.github.chenlijia1111.utils.http.interceptor.HedgingInterceptor;
+import com.github.chenlijia1111.utils.http.interceptor.HttpInterceptor;
+import com.github.chenlijia1111.utils.http.interceptor.RetryInterceptor;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 对冲请求与重试测试
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class HttpHedgingTest {
+
+    static {
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    /**
+     * 服务端收到的请求数
+     */
+    private final AtomicInteger requestCount = new AtomicInteger();
+
+    /**
+     * 依次返回的状态码 为空时返回 200
+     */
+    private final Queue<Integer> statusQueue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 依次响应的延迟 为空时不延迟
+     */
+    private final Queue<Long> delayQueue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 每多少个请求有一个慢请求 0 表示没有
+     */
+    private volatile int slowEvery;
+
+    private HttpServer startServer() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            int count = requestCount.incrementAndGet();
+            Long delay = delayQueue.poll();
+            if (null == delay && slowEvery > 0 && count % slowEvery == 0) {
+                delay = 300L;
+            }
+            if (null != delay && delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            Integer status = statusQueue.poll();
+            byte[] bytes = ("{\"count\":" + count + "}").getBytes(StandardCharsets.UTF_8);
+            try {
+                exchange.sendResponseHeaders(null == status ? 200 : status, bytes.length);
+                try (OutputStream outputStream = exchange.getResponseBody()) {
+                    outputStream.write(bytes);
+                }
+            } catch (IOException e) {
+                //对冲请求中慢的那个已经被客户端断开
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        return server;
+    }
+
+    private String url(HttpServer server, String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    /**
+     * 第一个请求超过等待时间没有返回，对冲请求先返回，慢的被取消
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testHedge() throws Exception {
+        HttpServer server = startServer();
+        HedgingInterceptor interceptor = new HedgingInterceptor().setInitialHedgeDelay(50).setMaxHedgeRatio(1);
+        HttpClientUtils.addInterceptor(url(server, "/hedge"), interceptor);
+        try {
+            //预热
+            HttpClientUtils.getInstance().doGet(url(server, "/warm")).close();
+            requestCount.set(0);
+            delayQueue.addAll(Arrays.asList(2000L, 0L));
+            long startTime = System.currentTimeMillis();
+            HttpClientUtils httpClientUtils = HttpClientUtils.getInstance().doGet(url(server, "/hedge"));
+            long cost = System.currentTimeMillis() - startTime;
+            System.out.println("对冲请求耗时 " + cost + " 毫秒 " + httpClientUtils.toMap());
+            Assert.assertNull(httpClientUtils.getException());
+            Assert.assertTrue(cost < 1000);
+            Assert.assertEquals(2, requestCount.get());
+            Assert.assertEquals(1, interceptor.getHedgeCount());
+            Assert.assertEquals(1, interceptor.getHedgeWinCount());
+
+            //很快返回时不对冲
+            for (int i = 0; i < 10; i++) {
+                Assert.assertNull(HttpClientUtils.getInstance().doGet(url(server, "/hedge")).toMap().get("error"));
+            }
+            Assert.assertEquals(1, interceptor.getHedgeCount());
+            Assert.assertEquals(12, requestCount.get());
+
+            //post 不对冲
+            delayQueue.add(200L);
+            HttpClientUtils.getInstance().putParams("a", "b").doPost(url(server, "/hedge")).close();
+            Assert.assertEquals(1, interceptor.getHedgeCount());
+
+            //按接口统计耗时
+            Assert.assertNotNull(interceptor.getLatencyTracker(url(server, "/hedge")));
+            Assert.assertNull(interceptor.getLatencyTracker(url(server, "/other")));
+        } finally {
+            HttpClientUtils.removeInterceptor(interceptor);
+            server.stop(0);
+        }
+    }
+
+    /**
+     * 第一个请求失败时等待对冲请求的结果
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testPrimaryFailure() throws Exception {
+        HttpServer server = startServer();
+        HedgingInterceptor interceptor = new HedgingInterceptor().setInitialHedgeDelay(50).setMaxHedgeRatio(1);
+        //第一个请求延迟之后失败
+        AtomicInteger attempt = new AtomicInteger();
+        HttpInterceptor failFirst = (request, chain) -> {
+            if (attempt.incrementAndGet() == 1) {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IOException("第一个请求失败");
+            }
+            return chain.proceed(request);
+        };
+        HttpClientUtils.addInterceptor(url(server, "/"), interceptor);
+        HttpClientUtils.addInterceptor(url(server, "/"), failFirst);
+        try {
+            HttpClientUtils httpClientUtils = HttpClientUtils.getInstance().doGet(url(server, "/fail"));
+            Assert.assertNull(httpClientUtils.getException());
+            Assert.assertEquals(1, httpClientUtils.toMap().get("count"));
+        } finally {
+            HttpClientUtils.removeInterceptor(interceptor);
+            HttpClientUtils.removeInterceptor(failFirst);
+            server.stop(0);
+        }
+    }
+
+    /**
+     * 对冲请求先返回 5xx 不算成功，继续等第一个请求
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testHedgeErrorResponse() throws Exception {
+        HttpServer server = startServer();
+        HedgingInterceptor interceptor = new HedgingInterceptor().setInitialHedgeDelay(50).setMaxHedgeRatio(1);
+        HttpClientUtils.addInterceptor(url(server, "/error"), interceptor);
+        try {
+            //预热
+            HttpClientUtils.getInstance().doGet(url(server, "/warm")).close();
+            //状态码按返回顺序取，对冲请求先返回 503
+            delayQueue.addAll(Arrays.asList(300L, 0L));
+            statusQueue.add(503);
+            HttpClientUtils httpClientUtils = HttpClientUtils.getInstance().doGet(url(server, "/error"));
+            Assert.assertEquals(200, httpClientUtils.toResponse().getStatusLine().getStatusCode());
+            httpClientUtils.close();
+            Assert.assertEquals(1, interceptor.getHedgeCount());
+            Assert.assertEquals(0, interceptor.getHedgeWinCount());
+
+            //都返回 5xx 时返回 5xx 的响应
+            delayQueue.addAll(Arrays.asList(300L, 0L));
+            statusQueue.addAll(Arrays.asList(503, 502));
+            httpClientUtils = HttpClientUtils.getInstance().doGet(url(server, "/error"));
+            Assert.assertNull(httpClientUtils.getException());
+            Assert.assertTrue(httpClientUtils.toResponse().getStatusLine().getStatusCode() >= 500);
+            httpClientUtils.close();
+        } finally {
+            HttpClientUtils.removeInterceptor(interceptor);
+            server.stop(0);
+        }
+    }
+
+    /**
+     * 长尾对比
+     * 每 20 个请求有一个 300 毫秒的慢请求，对比开启对冲前后的 p99
+     *
+     * @throws Exception
+     */
+    @Test
+    public void benchmarkTailLatency() throws Exception {
+        HttpServer server = startServer();
+        slowEvery = 20;
+        try {
+            //预热
+            for (int i = 0; i < 20; i++) {
+                HttpClientUtils.getInstance().doGet(url(server, "/bench")).toMap();
+            }
+            long[] plain = run(url(server, "/bench"), 400);
+
+            HedgingInterceptor interceptor = new HedgingInterceptor();
+            HttpClientUtils.addInterceptor(url(server, "/bench"), interceptor);
+            long[] hedged;
+            try {
+                hedged = run(url(server, "/bench"), 400);
+            } finally {
+                HttpClientUtils.removeInterceptor(interceptor);
+            }
+            System.out.println("不对冲 p50 " + plain[0] + " p99 " + plain[1] + " 毫秒");
+            System.out.println("对冲   p50 " + hedged[0] + " p99 " + hedged[1] + " 毫秒，对冲请求 " +
+                    interceptor.getHedgeCount() + " 个，对冲先返回 " + interceptor.getHedgeWinCount() + " 个");
+            Assert.assertTrue(plain[1] >= 300);
+            Assert.assertTrue(hedged[1] < plain[1]);
+            Assert.assertTrue(interceptor.getHedgeCount() <= 400 * 0.1);
+        } finally {
+            slowEvery = 0;
+            server.stop(0);
+        }
+    }
+
+    private long[] run(String url, int count) {
+        long[] costArray = new long[count];
+        for (int i = 0; i < count; i++) {
+            long startTime = System.nanoTime();
+            HttpClientUtils httpClientUtils = HttpClientUtils.getInstance().doGet(url);
+            httpClientUtils.close();
+            Assert.assertNull(httpClientUtils.getException());
+            costArray[i] = (System.nanoTime() - startTime) / 1000000;
+        }
+        Arrays.sort(costArray);
+        return new long[]{costArray[count / 2], costArray[count * 99 / 100]};
+    }
+
+    /**
+     * 返回 503 时退避重试，post 默认不重试
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRetry() throws Exception {
+        HttpServer server = startServer();
+        RetryInterceptor interceptor = new RetryInterceptor(3, 10, 100);
+        HttpClientUtils.addInterceptor(url(server, "/retry"), interceptor);
+        try {
+            statusQueue.addAll(Arrays.asList(503, 503));
+            HttpClientUtils httpClientUtils = HttpClientUtils.getInstance().doGet(url(server, "/retry"));
+            Assert.assertEquals(200, httpClientUtils.toResponse().getStatusLine().getStatusCode());
+            Assert.assertEquals(3, httpClientUtils.toMap().get("count"));
+
+            //超过次数返回最后一次的响应
+            statusQueue.addAll(Arrays.asList(503, 503, 503, 503));
+            httpClientUtils = HttpClientUtils.getInstance().doGet(url(server, "/retry"));
+            Assert.assertEquals(503, httpClientUtils.toResponse().getStatusLine().getStatusCode());
+            httpClientUtils.close();
+            Assert.assertEquals(6, requestCount.get());
+            statusQueue.clear();
+
+            statusQueue.add(503);
+            httpClientUtils = HttpClientUtils.getInstance().putParams("a", "b").doPost(url(server, "/retry"));
+            Assert.assertEquals(503, httpClientUtils.toResponse().getStatusLine().getStatusCode());
+            httpClientUtils.close();
+            Assert.assertEquals(7, requestCount.get());
+        } finally {
+            HttpClientUtils.removeInterceptor(interceptor);
+            server.stop(0);
+        }
+    }
+
+    /**
+     * 只重试连接失败
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testConnectFailureOnly() throws Exception {
+        int port;
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            port = serverSocket.getLocalPort();
+        }
+        String url = "http://127.0.0.1:" + port + "/closed";
+        AtomicInteger attempt = new AtomicInteger();
+        HttpInterceptor counter = (request, chain) -> {
+            attempt.incrementAndGet();
+            return chain.proceed(request);
+        };
+        RetryInterceptor interceptor = new RetryInterceptor(3, 10, 100).setConnectFailureOnly(true);
+        HttpClientUtils.addInterceptor(url, interceptor);
+        HttpClientUtils.addInterceptor(url, counter);
+        try {
+            HttpClientUtils httpClientUtils = HttpClientUtils.getInstance().putParams("a", "b").doPost(url);
+            Assert.assertTrue(httpClientUtils.getException() instanceof ConnectException);
+            Assert.assertEquals(3, attempt.get());
+        } finally {
+            HttpClientUtils.removeInterceptor(interceptor);
+            HttpClientUtils.removeInterceptor(counter);
+        }
+    }
+
+    /**
+     * 退避时间在范围内随机
+     */
+    @Test
+    public void testBackoff() {
+        ExponentialBackoff backoff = new ExponentialBackoff(100, 1000);
+        long sum = 0;
+        for (int i = 0; i < 1000; i++) {
+            long delay = backoff.delayMillis(0);
+            Assert.assertTrue(delay >= 0 && delay <= 100);
+            sum += delay;
+            Assert.assertTrue(backoff.delayMillis(3) <= 800);
+            Assert.assertTrue(backoff.delayMillis(100) <= 1000);
+        }
+        //随机分布 平均值在一半左右
+        Assert.assertTrue(sum / 1000 > 30 && sum / 1000 < 70);
+    }
+
+}
@@ -0,0 +1,272 @@
+package com.github.chenlijia1111.util.http;
+
+import com.github.chenlijia1111.utils.http.HttpClientUtils;
+import com.github.chenlijia1111.utils.http.interceptor.*;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 熔断与限流拦截器测试
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class HttpInterceptorTest {
+
+    static {
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    /**
+     * 服务端收到的请求数
+     */
+    private final AtomicInteger requestCount = new AtomicInteger();
+
+    /**
+     * 服务端返回的状态码
+     */
+    private volatile int statusCode = 200;
+
+    /**
+     * 服务端响应延迟 毫秒
+     */
+    private volatile long delayMillis;
+
+    private HttpServer startServer() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            requestCount.incrementAndGet();
+            if (delayMillis > 0) {
+                try {
+                    Thread.sleep(delayMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            byte[] bytes = "{\"ok\":true}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(statusCode, bytes.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(bytes);
+            }
+        });
+        server.setExecutor(Executors.newFixedThreadPool(4));
+        server.start();
+        return server;
+    }
+
+    private String url(HttpServer server, String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    private HttpClientUtils get(String url) {
+        HttpClientUtils httpClientUtils = HttpClientUtils.getInstance().doGet(url);
+        httpClientUtils.close();
+        return httpClientUtils;
+    }
+
+    /**
+     * 服务端持续报错时熔断器打开，之后的请求不再发到服务端并且立即失败
+     * 等待时间过后半开试探，试探成功关闭熔断器
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCircuitBreaker() throws Exception {
+        HttpServer server = startServer();
+        CircuitBreakerInterceptor interceptor = new CircuitBreakerInterceptor(new CircuitBreakerConfig()
+                .setSlidingWindowSize(10)
+                .setMinimumNumberOfCalls(10)
+                .setWaitDurationInOpenState(300)
+                .setPermittedCallsInHalfOpenState(2));
+        HttpClientUtils.addInterceptor(url(server, "/"), interceptor);
+        try {
+            String url = url(server, "/api");
+            statusCode = 500;
+            for (int i = 0; i < 10; i++) {
+                Assert.assertNull(get(url).getException());
+            }
+            CircuitBreaker circuitBreaker = interceptor.getCircuitBreaker(url);
+            System.out.println(circuitBreaker);
+            Assert.assertEquals(CircuitBreakerStateEnum.OPEN, circuitBreaker.getState());
+
+            //打开期间直接失败，不发请求
+            int count = requestCount.get();
+            long startTime = System.nanoTime();
+            for (int i = 0; i < 1000; i++) {
+                Assert.assertTrue(get(url).getException() instanceof CircuitBreakerOpenException);
+            }
+            long costMicros = (System.nanoTime() - startTime) / 1000 / 1000;
+            System.out.println("熔断时每个请求耗时 " + costMicros + " 微秒");
+            Assert.assertEquals(count, requestCount.get());
+            Assert.assertEquals(1000, circuitBreaker.getNotPermittedCalls());
+
+            //半开试探失败重新打开
+            Thread.sleep(400);
+            Assert.assertNull(get(url).getException());
+            Assert.assertEquals(CircuitBreakerStateEnum.OPEN, circuitBreaker.getState());
+
+            //半开试探成功关闭
+            statusCode = 200;
+            Thread.sleep(400);
+            Assert.assertNull(get(url).getException());
+            Assert.assertEquals(CircuitBreakerStateEnum.HALF_OPEN, circuitBreaker.getState());
+            Assert.assertNull(get(url).getException());
+            Assert.assertEquals(CircuitBreakerStateEnum.CLOSED, circuitBreaker.getState());
+            Assert.assertEquals(0, circuitBreaker.getFailureRate(), 0);
+        } finally {
+            HttpClientUtils.removeInterceptor(interceptor);
+            server.stop(0);
+        }
+    }
+
+    /**
+     * 慢请求比例超过阈值也会熔断
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSlowCall() throws Exception {
+        HttpServer server = startServer();
+        CircuitBreakerInterceptor interceptor = new CircuitBreakerInterceptor(new CircuitBreakerConfig()
+                .setSlidingWindowSize(5)
+                .setMinimumNumberOfCalls(5)
+                .setSlowCallDurationThreshold(50)
+                .setSlowCallRateThreshold(0.8));
+        HttpClientUtils.addInterceptor(url(server, "/"), interceptor);
+        try {
+            String url = url(server, "/slow");
+            delayMillis = 100;
+            for (int i = 0; i < 5; i++) {
+                Assert.assertNull(get(url).getException());
+            }
+            CircuitBreaker circuitBreaker = interceptor.getCircuitBreaker(url);
+            System.out.println(circuitBreaker);
+            Assert.assertEquals(CircuitBreakerStateEnum.OPEN, circuitBreaker.getState());
+            Assert.assertTrue(get(url).getException() instanceof CircuitBreakerOpenException);
+        } finally {
+            HttpClientUtils.removeInterceptor(interceptor);
+            server.stop(0);
+        }
+    }
+
+    /**
+     * 超出令牌的请求直接失败，等待令牌补充之后恢复
+     * 前缀不匹配的请求不经过拦截器
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRateLimiter() throws Exception {
+        HttpServer server = startServer();
+        RateLimiterInterceptor interceptor = new RateLimiterInterceptor(10, 5, 0);
+        HttpClientUtils.addInterceptor(url(server, "/limit"), interceptor);
+        try {
+            String url = url(server, "/limit/api");
+            int success = 0;
+            int reject = 0;
+            for (int i = 0; i < 20; i++) {
+                IOException exception = get(url).getException();
+                if (null == exception) {
+                    success++;
+                } else {
+                    Assert.assertTrue(exception instanceof RateLimitException);
+                    reject++;
+                }
+            }
+            System.out.println("限流 成功 " + success + " 拒绝 " + reject);
+            Assert.assertTrue(success >= 5 && success <= 7);
+
+            Thread.sleep(200);
+            Assert.assertNull(get(url).getException());
+
+            //前缀不匹配
+            for (int i = 0; i < 20; i++) {
+                Assert.assertNull(get(url(server, "/other")).getException());
+            }
+        } finally {
+            HttpClientUtils.removeInterceptor(interceptor);
+            server.stop(0);
+        }
+    }
+
+    /**
+     * 设置了等待时间时排队等待令牌，按限定的速度发出请求
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRateLimiterWait() throws Exception {
+        HttpServer server = startServer();
+        RateLimiterInterceptor interceptor = new RateLimiterInterceptor(20, 1, 5000);
+        HttpClientUtils.addInterceptor(url(server, "/"), interceptor);
+        try {
+            long startTime = System.currentTimeMillis();
+            for (int i = 0; i < 11; i++) {
+                Assert.assertNull(get(url(server, "/wait")).getException());
+            }
+            long cost = System.currentTimeMillis() - startTime;
+            System.out.println("11 个请求耗时 " + cost + " 毫秒");
+            Assert.assertTrue(cost >= 450);
+        } finally {
+            HttpClientUtils.removeInterceptor(interceptor);
+            server.stop(0);
+        }
+    }
+
+    /**
+     * 熔断与限流直接拒绝的请求只记录异常，不打印调用栈
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRejectionQuiet() throws Exception {
+        HttpServer server = startServer();
+        RateLimiterInterceptor rateLimiter = new RateLimiterInterceptor(1, 1, 0);
+        CircuitBreakerInterceptor circuitBreaker = new CircuitBreakerInterceptor(new CircuitBreakerConfig()
+                .setSlidingWindowSize(5)
+                .setMinimumNumberOfCalls(5));
+        HttpClientUtils.addInterceptor(url(server, "/quiet/limit"), rateLimiter);
+        HttpClientUtils.addInterceptor(url(server, "/quiet/breaker"), circuitBreaker);
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        try {
+            String limitUrl = url(server, "/quiet/limit");
+            String breakerUrl = url(server, "/quiet/breaker");
+            Assert.assertNull(get(limitUrl).getException());
+            statusCode = 500;
+            for (int i = 0; i < 5; i++) {
+                get(breakerUrl);
+            }
+            Assert.assertEquals(CircuitBreakerStateEnum.OPEN, circuitBreaker.getCircuitBreaker(breakerUrl).getState());
+
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            PrintStream printStream = new PrintStream(outputStream, true);
+            System.setOut(printStream);
+            System.setErr(printStream);
+            for (int i = 0; i < 10; i++) {
+                Assert.assertTrue(get(limitUrl).getException() instanceof RateLimitException);
+                Assert.assertTrue(get(breakerUrl).getException() instanceof CircuitBreakerOpenException);
+            }
+            System.setOut(out);
+            System.setErr(err);
+            Assert.assertEquals("", outputStream.toString());
+        } finally {
+            System.setOut(out);
+            System.setErr(err);
+            HttpClientUtils.removeInterceptor(rateLimiter);
+            HttpClientUtils.removeInterceptor(circuitBreaker);
+            server.stop(0);
+        }
+    }
+
+}
@@ -0,0 +1,266 @@
+package com.github.chenlijia1111.util.http;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.chenlijia1111.utils.core.JSONUtil;
+import com.github.chenlijia1111.utils.http.JiGuangPushUtil;
+import com.github.chenlijia1111.utils.http.push.JiGuangPushBatchResult;
+import com.github.chenlijia1111.utils.http.push.JiGuangPushDispatcher;
+import com.github.chenlijia1111.utils.http.push.JiGuangPushMessage;
+import com.github.chenlijia1111.utils.http.push.PushAudienceTypeEnum;
+import com.github.chenlijia1111.utils.list.Maps;
+import com.github.chenlijia1111.utils.list.annos.MapType;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 极光批量推送测试
+ * 本地模拟推送接口
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class JiGuangPushDispatcherTest {
+
+    static {
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    /**
+     * 模拟接口的耗时 毫秒
+     */
+    private static final long LATENCY = 20;
+
+    /**
+     * 收到的请求数
+     */
+    private final AtomicInteger requestCount = new AtomicInteger();
+
+    /**
+     * 收到的推送目标数
+     */
+    private final AtomicInteger audienceCount = new AtomicInteger();
+
+    /**
+     * 正在处理的请求数
+     */
+    private final AtomicInteger concurrent = new AtomicInteger();
+
+    /**
+     * 最大同时处理的请求数
+     */
+    private final AtomicInteger maxConcurrent = new AtomicInteger();
+
+    /**
+     * 启动模拟推送接口
+     * 推送目标里包含 fail 时返回 400
+     *
+     * @return
+     * @throws IOException
+     */
+    private HttpServer startServer() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v3/push", exchange -> {
+            int current = concurrent.incrementAndGet();
+            maxConcurrent.accumulateAndGet(current, Math::max);
+            try {
+                int count = requestCount.incrementAndGet();
+                JsonNode body = JSONUtil.inputStreamToJsonNode(exchange.getRequestBody());
+                Assert.assertTrue(exchange.getRequestHeaders().getFirst("Authorization").startsWith("Basic "));
+                JsonNode alias = body.get("audience").get("alias");
+                audienceCount.addAndGet(alias.size());
+                Thread.sleep(LATENCY);
+
+                int status = 200;
+                String response = "{\"sendno\":\"0\",\"msg_id\":\"" + count + "\"}";
+                if (alias.toString().contains("fail")) {
+                    status = 400;
+                    response = "{\"error\":{\"code\":1011,\"message\":\"cannot find user by this audience\"}}";
+                }
+                byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(status, bytes.length);
+                try (OutputStream outputStream = exchange.getResponseBody()) {
+                    outputStream.write(bytes);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                concurrent.decrementAndGet();
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        return server;
+    }
+
+    private String url(HttpServer server) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/v3/push";
+    }
+
+    private JiGuangPushMessage createMessage() {
+        Map notification = Maps.mapBuilder(MapType.HASH_MAP).put("alert", "活动开始了").build();
+        return new JiGuangPushMessage(PushAudienceTypeEnum.ALIAS).notification(notification);
+    }
+
+    private List<String> aliasList(int start, int count) {
+        List<String> list = new ArrayList<>(count);
+        for (int i = start; i < start + count; i++) {
+            list.add("user" + i);
+        }
+        return list;
+    }
+
+    /**
+     * 同一个推送内容的推送目标按 1000 个一批合并发送
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testBatch() throws Exception {
+        HttpServer server = startServer();
+        List<JiGuangPushBatchResult> resultList = new CopyOnWriteArrayList<>();
+        JiGuangPushDispatcher dispatcher = new JiGuangPushDispatcher("appKey", "masterSecret")
+                .setBaseUrl(url(server))
+                .setCallback(resultList::add);
+        try {
+            JiGuangPushMessage message = createMessage();
+            for (int i = 0; i < 25; i++) {
+                Assert.assertTrue(dispatcher.push(message, aliasList(i * 100, 100)));
+            }
+            //另一个推送内容单独发送
+            dispatcher.push(createMessage(), aliasList(0, 10));
+            Assert.assertTrue(dispatcher.flush(10, TimeUnit.SECONDS));
+
+            resultList.forEach(System.out::println);
+            Assert.assertEquals(4, requestCount.get());
+            Assert.assertEquals(2510, audienceCount.get());
+            Assert.assertEquals(4, resultList.size());
+            Assert.assertTrue(resultList.stream().allMatch(JiGuangPushBatchResult::isSuccess));
+            Assert.assertTrue(resultList.stream().allMatch(result -> result.getAudienceIds().size() <= 1000));
+            Assert.assertEquals(0, dispatcher.getOutstandingCount());
+        } finally {
+            dispatcher.close();
+            server.stop(0);
+        }
+    }
+
+    /**
+     * 没凑满一批时等待一段时间之后发送
+     * 失败的批通过回调返回错误信息
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testLingerAndFailure() throws Exception {
+        HttpServer server = startServer();
+        List<JiGuangPushBatchResult> resultList = new CopyOnWriteArrayList<>();
+        JiGuangPushDispatcher dispatcher = new JiGuangPushDispatcher("appKey", "masterSecret")
+                .setBaseUrl(url(server))
+                .setLingerMillis(50)
+                .setCallback(resultList::add);
+        try {
+            long startTime = System.currentTimeMillis();
+            dispatcher.push(createMessage(), Collections.singletonList("fail"));
+            //第一次请求要加载 httpclient，不能按固定时间等待
+            long deadline = startTime + 10000;
+            while (resultList.isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(1, resultList.size());
+            //至少等待了 lingerMillis 才发送
+            Assert.assertTrue(System.currentTimeMillis() - startTime >= 50);
+            JiGuangPushBatchResult result = resultList.get(0);
+            System.out.println(result);
+            Assert.assertFalse(result.isSuccess());
+            Assert.assertEquals(400, result.getStatusCode());
+            Assert.assertEquals(1, dispatcher.getFailureBatchCount());
+        } finally {
+            dispatcher.close();
+            server.stop(0);
+        }
+        //关闭之后不再接收
+        Assert.assertFalse(dispatcher.push(createMessage(), Collections.singletonList("user")));
+    }
+
+    /**
+     * 关闭时把剩下的推送发完
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testClose() throws Exception {
+        HttpServer server = startServer();
+        AtomicInteger callbackCount = new AtomicInteger();
+        JiGuangPushDispatcher dispatcher = new JiGuangPushDispatcher("appKey", "masterSecret")
+                .setBaseUrl(url(server))
+                .setLingerMillis(TimeUnit.MINUTES.toMillis(1))
+                .setCallback(result -> callbackCount.incrementAndGet());
+        try {
+            dispatcher.push(createMessage(), aliasList(0, 1500));
+            dispatcher.close();
+            Assert.assertEquals(2, callbackCount.get());
+            Assert.assertEquals(1500, audienceCount.get());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * 对比逐个推送与批量推送
+     * 模拟接口每个请求耗时 20 毫秒
+     *
+     * @throws Exception
+     */
+    @Test
+    public void benchmarkPush() throws Exception {
+        HttpServer server = startServer();
+        try {
+            Map notification = Maps.mapBuilder(MapType.HASH_MAP).put("alert", "活动开始了").build();
+            int singleCount = 100;
+            long startTime = System.currentTimeMillis();
+            for (int i = 0; i < singleCount; i++) {
+                Map map = new JiGuangPushUtil("appKey", "masterSecret").baseUrl(url(server))
+                        .platform("all")
+                        .audience(Collections.singletonMap("alias", Collections.singletonList("user" + i)))
+                        .notification(notification)
+                        .push();
+                Assert.assertNotNull(map.get("msg_id"));
+            }
+            long singleCost = System.currentTimeMillis() - startTime;
+
+            int batchCount = 50000;
+            maxConcurrent.set(0);
+            JiGuangPushDispatcher dispatcher = new JiGuangPushDispatcher("appKey", "masterSecret").setBaseUrl(url(server));
+            startTime = System.currentTimeMillis();
+            JiGuangPushMessage message = createMessage();
+            for (int i = 0; i < batchCount; i += 100) {
+                Assert.assertTrue(dispatcher.push(message, aliasList(i, 100)));
+            }
+            Assert.assertTrue(dispatcher.flush(30, TimeUnit.SECONDS));
+            long batchCost = System.currentTimeMillis() - startTime;
+            dispatcher.close();
+
+            System.out.println("逐个推送 " + singleCount + " 个用户耗时 " + singleCost + " 毫秒，每秒 " + singleCount * 1000L / Math.max(1, singleCost) + " 个");
+            System.out.println("批量推送 " + batchCount + " 个用户耗时 " + batchCost + " 毫秒，每秒 " + batchCount * 1000L / Math.max(1, batchCost) +
+                    " 个，请求 " + dispatcher.getSuccessBatchCount() + " 次，最大并发 " + maxConcurrent.get());
+            Assert.assertEquals(50, dispatcher.getSuccessBatchCount());
+            Assert.assertTrue(maxConcurrent.get() > 1);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+}
@@ -0,0 +1,252 @@
+package com.github.chenlijia1111.util.http;
+
+import com.github.chenlijia1111.utils.http.PortScanUtil;
+import com.github.chenlijia1111.utils.http.scan.PortScanResult;
+import com.github.chenlijia1111.utils.http.scan.PortScanner;
+import com.github.chenlijia1111.utils.http.scan.PortStateEnum;
+import com.github.chenlijia1111.utils.list.Lists;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 非阻塞端口扫描测试
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class PortScannerTest {
+
+    /**
+     * 扫描一段端口，找出本地监听的端口
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testScanOpenPorts() throws Exception {
+        List<ServerSocket> serverSocketList = new ArrayList<>();
+        List<Integer> listenPortList = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ServerSocket serverSocket = new ServerSocket(0);
+            serverSocketList.add(serverSocket);
+            listenPortList.add(serverSocket.getLocalPort());
+        }
+        //前后加上一些没有监听的端口
+        List<Integer> portList = new ArrayList<>(listenPortList);
+        int minPort = listenPortList.stream().min(Integer::compareTo).get();
+        for (int port = Math.max(1, minPort - 500); port < minPort; port++) {
+            portList.add(port);
+        }
+
+        try {
+            List<PortScanResult> resultList = new CopyOnWriteArrayList<>();
+            new PortScanner().setConcurrency(100).setConnectTimeoutMillis(2000)
+                    .scan(Lists.asList("127.0.0.1"), portList, resultList::add);
+
+            //每个端口都有结果
+            Assert.assertEquals(portList.size(), resultList.size());
+            List<Integer> openPortList = new PortScanner().scanOpenPorts("127.0.0.1", portList);
+            System.out.println(openPortList);
+            listenPortList.sort(Integer::compareTo);
+            for (Integer port : listenPortList) {
+                Assert.assertTrue(openPortList.contains(port));
+            }
+            for (PortScanResult result : resultList) {
+                if (listenPortList.contains(result.getPort())) {
+                    Assert.assertEquals(PortStateEnum.OPEN, result.getState());
+                }
+            }
+        } finally {
+            for (ServerSocket serverSocket : serverSocketList) {
+                serverSocket.close();
+            }
+        }
+    }
+
+    /**
+     * 单个主机的旧方法不再限制端口数量
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testScanPortWithoutLimit() throws Exception {
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            int port = serverSocket.getLocalPort();
+            Assert.assertEquals(Lists.asList(port), PortScanUtil.scanPort("127.0.0.1", Lists.asList(port)));
+            //超过 10 个端口也可以扫描，结果按传入的顺序
+            List<Integer> portList = PortScanUtil.portRange(Math.max(1, port - 50), Math.min(65535, port + 50));
+            Collections.reverse(portList);
+            List<Integer> openPortList = PortScanUtil.scanPort("127.0.0.1", portList);
+            Assert.assertTrue(openPortList.contains(port));
+            List<Integer> expectedList = new ArrayList<>(portList);
+            expectedList.retainAll(openPortList);
+            Assert.assertEquals(expectedList, openPortList);
+        }
+    }
+
+    /**
+     * 多个主机，解析失败的主机返回出错
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMultipleHosts() throws Exception {
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            int port = serverSocket.getLocalPort();
+            Map<String, PortStateEnum> stateMap = new ConcurrentHashMap<>();
+            PortScanUtil.scanPort(Lists.asList("127.0.0.1", "localhost", "no-such-host.invalid"), Lists.asList(port), 10, 1000,
+                    result -> stateMap.put(result.getHost(), result.getState()));
+            System.out.println(stateMap);
+
+            Assert.assertEquals(PortStateEnum.OPEN, stateMap.get("127.0.0.1"));
+            Assert.assertEquals(PortStateEnum.OPEN, stateMap.get("localhost"));
+            Assert.assertEquals(PortStateEnum.ERROR, stateMap.get("no-such-host.invalid"));
+        }
+    }
+
+    /**
+     * 没有响应的端口按超时返回
+     * 监听队列占满之后新的连接请求会被丢弃，相当于被防火墙过滤
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testTimeout() throws Exception {
+        List<Socket> socketList = new ArrayList<>();
+        try (ServerSocket serverSocket = new ServerSocket(0, 1)) {
+            int port = serverSocket.getLocalPort();
+            fillBacklog(port, socketList);
+
+            List<PortScanResult> resultList = new CopyOnWriteArrayList<>();
+            long startTime = System.currentTimeMillis();
+            new PortScanner().setConnectTimeoutMillis(300).scan(Lists.asList("127.0.0.1"), Lists.asList(port), resultList::add);
+            long costTime = System.currentTimeMillis() - startTime;
+            System.out.println(resultList + " 耗时 " + costTime);
+
+            Assert.assertEquals(PortStateEnum.TIMEOUT, resultList.get(0).getState());
+            Assert.assertTrue(costTime < 2000);
+        } finally {
+            for (Socket socket : socketList) {
+                socket.close();
+            }
+        }
+    }
+
+    /**
+     * 扫描线程被中断时停止扫描
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testInterrupt() throws Exception {
+        List<Socket> socketList = new ArrayList<>();
+        try (ServerSocket serverSocket = new ServerSocket(0, 1)) {
+            int port = serverSocket.getLocalPort();
+            fillBacklog(port, socketList);
+
+            List<PortScanResult> resultList = new CopyOnWriteArrayList<>();
+            Thread thread = new Thread(() -> {
+                try {
+                    new PortScanner().setConcurrency(1).setConnectTimeoutMillis(10000)
+                            .scan(Lists.asList("127.0.0.1"), Lists.asList(port, port, port), resultList::add);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            });
+            thread.start();
+            Thread.sleep(200L);
+            thread.interrupt();
+            thread.join(2000L);
+
+            Assert.assertFalse(thread.isAlive());
+            Assert.assertTrue(resultList.isEmpty());
+        } finally {
+            for (Socket socket : socketList) {
+                socket.close();
+            }
+        }
+    }
+
+    /**
+     * 逐个阻塞连接与非阻塞并发扫描的耗时对比
+     * 50 个端口都没有响应，阻塞扫描每个端口都要等到超时
+     *
+     * @throws Exception
+     */
+    @Test
+    public void benchmarkScan() throws Exception {
+        int timeout = 200;
+        List<Socket> socketList = new ArrayList<>();
+        List<ServerSocket> serverSocketList = new ArrayList<>();
+        List<Integer> portList = new ArrayList<>();
+        try {
+            for (int i = 0; i < 50; i++) {
+                ServerSocket serverSocket = new ServerSocket(0, 1);
+                serverSocketList.add(serverSocket);
+                portList.add(serverSocket.getLocalPort());
+                fillBacklog(serverSocket.getLocalPort(), socketList);
+            }
+
+            long startTime = System.currentTimeMillis();
+            int blockingTimeoutCount = 0;
+            for (Integer port : portList) {
+                try (Socket socket = new Socket()) {
+                    socket.connect(new InetSocketAddress("127.0.0.1", port), timeout);
+                } catch (IOException e) {
+                    blockingTimeoutCount++;
+                }
+            }
+            long blockingTime = System.currentTimeMillis() - startTime;
+
+            List<PortScanResult> resultList = new CopyOnWriteArrayList<>();
+            startTime = System.currentTimeMillis();
+            new PortScanner().setConnectTimeoutMillis(timeout).scan(Lists.asList("127.0.0.1"), portList, resultList::add);
+            long nioTime = System.currentTimeMillis() - startTime;
+
+            System.out.println("扫描 " + portList.size() + " 个无响应端口，超时 " + timeout + " 毫秒");
+            System.out.println("逐个阻塞连接：" + blockingTime + " 毫秒，超时 " + blockingTimeoutCount + " 个");
+            System.out.println("非阻塞并发扫描：" + nioTime + " 毫秒，超时 "
+                    + resultList.stream().filter(r -> PortStateEnum.TIMEOUT == r.getState()).count() + " 个");
+            Assert.assertEquals(portList.size(), resultList.size());
+            Assert.assertTrue(nioTime < blockingTime);
+        } finally {
+            for (Socket socket : socketList) {
+                socket.close();
+            }
+            for (ServerSocket serverSocket : serverSocketList) {
+                serverSocket.close();
+            }
+        }
+    }
+
+    /**
+     * 占满监听队列
+     * 不调用 accept，连接会一直留在队列里
+     *
+     * @param port
+     * @param socketList
+     */
+    private void fillBacklog(int port, List<Socket> socketList) {
+        for (int i = 0; i < 8; i++) {
+            Socket socket = new Socket();
+            socketList.add(socket);
+            try {
+                socket.connect(new InetSocketAddress("127.0.0.1", port), 100);
+            } catch (IOException e) {
+                //队列已经满了
+                return;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,168 @@
+package com.github.chenlijia1111.util.http;
+
+import com.github.chenlijia1111.utils.encrypt.SHA256EncryptUtil;
+import com.github.chenlijia1111.utils.http.HttpClientUtils;
+import com.github.chenlijia1111.utils.http.pool.HttpClientPool;
+import com.github.chenlijia1111.utils.http.pool.HttpClientPoolConfig;
+import com.github.chenlijia1111.utils.http.pool.SSLHttpClientPoolRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.security.KeyStore;
+import java.util.Map;
+
+/**
+ * 证书连接池缓存测试
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class SSLHttpClientPoolRegistryTest {
+
+    /**
+     * 生成一个 PKCS12 证书文件
+     * 每次生成的内容都不一样
+     *
+     * @param file
+     * @param password
+     * @throws Exception
+     */
+    private void createCertFile(File file, String password) throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        keyStore.load(null, password.toCharArray());
+        try (FileOutputStream outputStream = new FileOutputStream(file)) {
+            keyStore.store(outputStream, password.toCharArray());
+        }
+    }
+
+    /**
+     * 同一个证书复用连接池，证书文件变化之后重新创建
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testFingerprint() throws Exception {
+        File file = File.createTempFile("apiclient_cert", ".p12");
+        file.deleteOnExit();
+        createCertFile(file, "123456");
+        SSLHttpClientPoolRegistry registry = new SSLHttpClientPoolRegistry(new HttpClientPoolConfig());
+
+        HttpClientPool pool = registry.getPool(file, "123456");
+        Assert.assertNotNull(pool);
+        Assert.assertSame(pool, registry.getPool(file, "123456"));
+        //同样内容的输入流也是同一个连接池
+        Assert.assertSame(pool, registry.getPool(new ByteArrayInputStream(Files.readAllBytes(file.toPath())), "123456"));
+        //密码错误加载失败
+        try {
+            registry.getPool(file, "654321");
+            Assert.fail("密码错误应该抛出异常");
+        } catch (IOException e) {
+            System.out.println("证书加载失败：" + e);
+        }
+
+        //替换证书文件
+        createCertFile(file, "123456");
+        file.setLastModified(file.lastModified() + 2000);
+        HttpClientPool newPool = registry.getPool(file, "123456");
+        Assert.assertNotNull(newPool);
+        Assert.assertNotSame(pool, newPool);
+        //旧的连接池没有请求在执行，很快被关闭
+        for (int i = 0; i < 50 && !pool.isClosed(); i++) {
+            Thread.sleep(100L);
+        }
+        Assert.assertTrue(pool.isClosed());
+        Assert.assertFalse(newPool.isClosed());
+
+        registry.invalidateAll();
+        Assert.assertEquals(0, registry.size());
+    }
+
+    /**
+     * 文件指纹只保存加盐之后的密码摘要，不保存明文
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testPasswordNotStored() throws Exception {
+        File file = File.createTempFile("apiclient_cert", ".p12");
+        file.deleteOnExit();
+        createCertFile(file, "123456");
+        SSLHttpClientPoolRegistry registry = new SSLHttpClientPoolRegistry(new HttpClientPoolConfig());
+        HttpClientPool pool = registry.getPool(file, "123456");
+        Assert.assertSame(pool, registry.getPool(file, "123456"));
+
+        Field fingerprintMapField = SSLHttpClientPoolRegistry.class.getDeclaredField("fingerprintMap");
+        fingerprintMapField.setAccessible(true);
+        Map<?, ?> fingerprintMap = (Map<?, ?>) fingerprintMapField.get(registry);
+        Assert.assertEquals(1, fingerprintMap.size());
+        Object fingerprint = fingerprintMap.values().iterator().next();
+        for (Field field : fingerprint.getClass().getDeclaredFields()) {
+            field.setAccessible(true);
+            Object value = field.get(fingerprint);
+            if (value instanceof String) {
+                Assert.assertFalse(((String) value).contains("123456"));
+                Assert.assertFalse(((String) value).contains(SHA256EncryptUtil.SHA256StringToHexString("123456")));
+            }
+        }
+        registry.invalidateAll();
+    }
+
+    /**
+     * 证书加载失败时不退回到默认的连接池，不发出请求
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testLoadFailure() throws Exception {
+        File file = File.createTempFile("apiclient_cert", ".p12");
+        file.deleteOnExit();
+        createCertFile(file, "123456");
+
+        HttpClientUtils httpClientUtils = HttpClientUtils.getInstanceWithSSL(file, "654321");
+        IOException exception = httpClientUtils.getException();
+        Assert.assertNotNull(exception);
+        //请求没有发出去，还是加载证书的异常
+        httpClientUtils.doPost("https://127.0.0.1:1/secapi/pay/refund");
+        Assert.assertSame(exception, httpClientUtils.getException());
+        Assert.assertNull(httpClientUtils.toResponse());
+    }
+
+    /**
+     * 对比每次加载证书与复用缓存的耗时
+     *
+     * @throws Exception
+     */
+    @Test
+    public void benchmarkGetPool() throws Exception {
+        File file = File.createTempFile("apiclient_cert", ".p12");
+        file.deleteOnExit();
+        createCertFile(file, "123456");
+        int count = 200;
+
+        long startTime = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            SSLHttpClientPoolRegistry registry = new SSLHttpClientPoolRegistry(new HttpClientPoolConfig());
+            Assert.assertNotNull(registry.getPool(file, "123456"));
+            registry.invalidateAll();
+        }
+        long loadTime = System.currentTimeMillis() - startTime;
+
+        SSLHttpClientPoolRegistry registry = new SSLHttpClientPoolRegistry(new HttpClientPoolConfig());
+        startTime = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            Assert.assertNotNull(registry.getPool(file, "123456"));
+        }
+        long cacheTime = System.currentTimeMillis() - startTime;
+
+        System.out.println("每次加载证书：" + count + " 次耗时 " + loadTime + " 毫秒");
+        System.out.println("复用连接池：" + count + " 次耗时 " + cacheTime + " 毫秒");
+        Assert.assertEquals(1, registry.size());
+    }
+
+}
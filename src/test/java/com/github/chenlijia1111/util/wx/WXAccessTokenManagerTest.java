@@ -0,0 +1,241 @@
+package com.github.chenlijia1111.util.wx;
+
+import com.github.chenlijia1111.utils.database.redis.IRedisConnect;
+import com.github.chenlijia1111.utils.oauth.wx.RedisWXAccessTokenStore;
+import com.github.chenlijia1111.utils.oauth.wx.WXAccessTokenManager;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 微信 accessToken 管理测试
+ * 本地模拟微信接口
+ *
+ * @author Chen LiJia
+ * @since 2020/8/17
+ */
+public class WXAccessTokenManagerTest {
+
+    static {
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    /**
+     * 获取 accessToken 的次数
+     */
+    private final AtomicInteger tokenCount = new AtomicInteger();
+
+    /**
+     * 获取 jsApiTicket 的次数
+     */
+    private final AtomicInteger ticketCount = new AtomicInteger();
+
+    /**
+     * 返回的有效期 秒
+     */
+    private volatile int expiresIn = 7200;
+
+    /**
+     * 被判定无效的 accessToken
+     */
+    private final Set<String> invalidTokenSet = ConcurrentHashMap.newKeySet();
+
+    private HttpServer startServer() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/cgi-bin/token", exchange -> {
+            int count = tokenCount.incrementAndGet();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            send(exchange, "{\"access_token\":\"token-" + count + "\",\"expires_in\":" + expiresIn + "}");
+        });
+        server.createContext("/cgi-bin/ticket/getticket", exchange -> {
+            int count = ticketCount.incrementAndGet();
+            String query = exchange.getRequestURI().getQuery();
+            String accessToken = query.replaceAll(".*access_token=([^&]*).*", "$1");
+            if (invalidTokenSet.contains(accessToken)) {
+                send(exchange, "{\"errcode\":40001,\"errmsg\":\"invalid credential\"}");
+                return;
+            }
+            send(exchange, "{\"errcode\":0,\"errmsg\":\"ok\",\"ticket\":\"ticket-" + count + "\",\"expires_in\":" + expiresIn + "}");
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        return server;
+    }
+
+    private void send(HttpExchange exchange, String response) throws IOException {
+        byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+
+    private WXAccessTokenManager createManager(HttpServer server) {
+        return new WXAccessTokenManager().setApiUrl("http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    /**
+     * 并发获取只请求一次微信，之后的读取直接返回缓存
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSingleFlight() throws Exception {
+        HttpServer server = startServer();
+        try {
+            WXAccessTokenManager manager = createManager(server);
+            List<String> tokenList = new CopyOnWriteArrayList<>();
+            CountDownLatch startLatch = new CountDownLatch(1);
+            CountDownLatch endLatch = new CountDownLatch(50);
+            for (int i = 0; i < 50; i++) {
+                new Thread(() -> {
+                    try {
+                        startLatch.await();
+                        tokenList.add(manager.getAccessToken("appId", "secret"));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        endLatch.countDown();
+                    }
+                }).start();
+            }
+            startLatch.countDown();
+            endLatch.await();
+            Assert.assertEquals(1, tokenCount.get());
+            Assert.assertEquals(50, tokenList.size());
+            Assert.assertTrue(tokenList.stream().allMatch(token -> Objects.equals("token-1", token)));
+
+            //不同的 appId 分开缓存
+            Assert.assertEquals("token-2", manager.getAccessToken("otherAppId", "secret"));
+
+            long startTime = System.nanoTime();
+            for (int i = 0; i < 1000000; i++) {
+                manager.getAccessToken("appId", "secret");
+            }
+            System.out.println("读取 accessToken 平均耗时 " + (System.nanoTime() - startTime) / 1000000 + " 纳秒");
+            Assert.assertEquals(2, tokenCount.get());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * 有效期过去 80% 之后后台刷新，刷新完成之前返回旧的 token
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRefreshAhead() throws Exception {
+        HttpServer server = startServer();
+        try {
+            //减去 300 秒的提前量之后有效期 2 秒
+            expiresIn = 302;
+            WXAccessTokenManager manager = createManager(server);
+            Assert.assertEquals("token-1", manager.getAccessToken("appId", "secret"));
+            Thread.sleep(1700);
+
+            long startTime = System.currentTimeMillis();
+            Assert.assertEquals("token-1", manager.getAccessToken("appId", "secret"));
+            Assert.assertTrue(System.currentTimeMillis() - startTime < 50);
+            Thread.sleep(300);
+            Assert.assertEquals("token-2", manager.getAccessToken("appId", "secret"));
+            Assert.assertEquals(2, tokenCount.get());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * 多个节点通过 redis 共用 token
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testStore() throws Exception {
+        HttpServer server = startServer();
+        try {
+            MemoryRedisConnect redisConnect = new MemoryRedisConnect();
+            WXAccessTokenManager node1 = createManager(server).setStore(new RedisWXAccessTokenStore(redisConnect));
+            WXAccessTokenManager node2 = createManager(server).setStore(new RedisWXAccessTokenStore(redisConnect));
+
+            Assert.assertEquals("token-1", node1.getAccessToken("appId", "secret"));
+            Assert.assertEquals("token-1", node2.getAccessToken("appId", "secret"));
+            Assert.assertEquals(1, tokenCount.get());
+            System.out.println(redisConnect.dataMap);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * 获取 jsApiTicket 时 accessToken 已经失效，重新获取 accessToken 之后再获取一次
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testJsApiTicket() throws Exception {
+        HttpServer server = startServer();
+        try {
+            WXAccessTokenManager manager = createManager(server);
+            Assert.assertEquals("token-1", manager.getAccessToken("appId", "secret"));
+            //其他地方重新获取了 token
+            invalidTokenSet.add("token-1");
+
+            Assert.assertEquals("ticket-2", manager.getJsApiTicket("appId", "secret"));
+            Assert.assertEquals("token-2", manager.getAccessToken("appId", "secret"));
+            Assert.assertEquals("ticket-2", manager.getJsApiTicket("appId", "secret"));
+            Assert.assertEquals(2, tokenCount.get());
+            Assert.assertEquals(2, ticketCount.get());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * 内存模拟 redis
+     */
+    private static class MemoryRedisConnect implements IRedisConnect {
+
+        private final Map<String, String> dataMap = new ConcurrentHashMap<>();
+
+        @Override
+        public void put(String key, Object value) {
+            dataMap.put(key, String.valueOf(value));
+        }
+
+        @Override
+        public void putExpire(String key, Object value, Long expireTime) {
+            dataMap.put(key, String.valueOf(value));
+        }
+
+        @Override
+        public String get(String key) {
+            return dataMap.get(key);
+        }
+
+        @Override
+        public void remove(String key) {
+            dataMap.remove(key);
+        }
+    }
+
+}